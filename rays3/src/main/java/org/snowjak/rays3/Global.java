@@ -1,7 +1,7 @@
 package org.snowjak.rays3;
 
-import java.util.Random;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -21,6 +21,13 @@ public class Global {
 	public static final ThreadPoolExecutor			RENDER_EXECUTOR		= (ThreadPoolExecutor) Executors
 			.newCachedThreadPool();
 
+	/**
+	 * The pool on which images are rendered, tile by tile. It has one worker
+	 * per processor; idle workers steal tiles from busy ones.
+	 */
+	public static final ForkJoinPool				RENDER_POOL			= new ForkJoinPool(
+			Runtime.getRuntime().availableProcessors());
+
 	/**
 	 * A single thread allocated to execute periodic tasks. Note that there is
 	 * only <em>one</em> thread so allocated, so keep your scheduled tasks
@@ -28,11 +35,6 @@ public class Global {
 	 */
 	public static final ScheduledExecutorService	SCHEDULED_EXECUTOR	= Executors.newSingleThreadScheduledExecutor();
 
-	/**
-	 * A pre-initialized pseudo-random number generator.
-	 */
-	public static final Random						RND					= new Random(System.currentTimeMillis());
-
 	/**
 	 * Determine if two doubles are "near" one another (using
 	 * {@link #DOUBLE_TOLERANCE}).
@@ -2,11 +2,9 @@ package org.snowjak.rays3;
 
 import java.io.File;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
 
@@ -24,7 +22,7 @@ import org.snowjak.rays3.geometry.shape.SphereShape;
 import org.snowjak.rays3.integrator.AbstractIntegrator;
 import org.snowjak.rays3.integrator.MonteCarloImportanceIntegrator;
 import org.snowjak.rays3.sample.Sampler;
-import org.snowjak.rays3.sample.StratifiedSampler;
+import org.snowjak.rays3.sample.SobolSampler;
 import org.snowjak.rays3.spectrum.RGB;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
 import org.snowjak.rays3.texture.CheckerboardTexture;
@@ -45,8 +43,7 @@ public class Main {
 		//
 		//
 		//
-		final Sampler sampler = new StratifiedSampler(0, 0, imageSizeX - 1, imageSizeY - 1, 4, 1048576);
-		final Collection<Sampler> subSamplers = sampler.recursivelySubdivide(2);
+		final Sampler sampler = new SobolSampler(0, 0, imageSizeX - 1, imageSizeY - 1, 4);
 		//
 		//
 		//
@@ -56,7 +53,7 @@ public class Main {
 
 		final SimpleImageFilm film = new SimpleImageFilm(imageSizeX, imageSizeY);
 
-		final AbstractIntegrator integrator = new MonteCarloImportanceIntegrator(camera, film, subSamplers, 4, 16);
+		final AbstractIntegrator integrator = new MonteCarloImportanceIntegrator(camera, film, sampler, 4, 16);
 
 		//
 		//
@@ -110,15 +107,13 @@ public class Main {
 		//
 		//
 		Global.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(
-				() -> System.out.println(String.format("[%TT] (%,12d) --> [%,12d] --> [%,12d] --> {%,6d} --> (%,12d)",
-						new Date(), ( sampler.totalSamples() ),
-						( subSamplers.stream().collect(Collectors.summingInt(s -> s.countSamplesPregenerated())) ),
-						( integrator.countSamplesWaitingToRender() ), ( integrator.countSamplesCurrentlyRendering() ),
-						film.countSamplesAdded())),
+				() -> System.out.println(String.format("[%TT] (%,12d) --> [%,12d] --> {%,12d} --> (%,12d)",
+						new Date(), ( sampler.totalSamples() ), ( integrator.countSamplesWaitingToRender() ),
+						( integrator.countSamplesCurrentlyRendering() ), film.countSamplesAdded())),
 				1, 10, TimeUnit.SECONDS);
 		Global.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(
 				() -> System.out.println(
-						"[  TIME  ] ( TOT SAMPLE ) --> [ SAMPL WAIT ] --> [ RENDR WAIT ] --> { ACTV } --> ( RESULT SAV )"),
+						"[  TIME  ] ( TOT SAMPLE ) --> [ TILE WAIT  ] --> { IN  TILES  } --> ( RESULT SAV )"),
 				0, 60, TimeUnit.SECONDS);
 
 		integrator.render(world);
@@ -156,6 +151,7 @@ public class Main {
 			// Remember to shut down the global executors!
 			System.out.println("Shutting down worker threads ...");
 			//
+			Global.RENDER_POOL.shutdown();
 			Global.RENDER_EXECUTOR.shutdown();
 			Global.SCHEDULED_EXECUTOR.shutdown();
 
@@ -4,10 +4,21 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.PrimitiveInstance;
+import org.snowjak.rays3.geometry.shape.SharedGeometry;
+import org.snowjak.rays3.intersect.Interactable;
 import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.RayPacket;
+import org.snowjak.rays3.intersect.accel.AccelerationStructure;
+import org.snowjak.rays3.intersect.accel.AccelerationStructureBuilder;
+import org.snowjak.rays3.intersect.accel.BVHBuilder;
+import org.snowjak.rays3.intersect.accel.SAHBVHBuilder;
 import org.snowjak.rays3.light.Light;
 
 /**
@@ -17,14 +28,49 @@ import org.snowjak.rays3.light.Light;
  */
 public class World {
 
-	private Collection<Primitive>	primitives	= new LinkedList<>();
-	private Collection<Light>		lights		= new LinkedList<>();
+	/**
+	 * When testing whether the segment between two points is occluded, the
+	 * far end-point is pulled in by this fraction of the segment's length, so
+	 * that the surface on which that end-point lies is not itself reported as
+	 * an occluder.
+	 */
+	public static final double				OCCLUSION_EPSILON				= 1e-9;
+
+	private Collection<Primitive>			primitives						= new LinkedList<>();
+	private Collection<PrimitiveInstance>	instances						= new LinkedList<>();
+	private Collection<Light>				lights							= new LinkedList<>();
+
+	private AccelerationStructureBuilder	accelerationStructureBuilder	= new SAHBVHBuilder();
+	private AccelerationStructure			accelerationStructure			= null;
 
 	public Collection<Primitive> getPrimitives() {
 
 		return primitives;
 	}
 
+	/**
+	 * @return the {@link PrimitiveInstance}s placed in this World
+	 */
+	public Collection<PrimitiveInstance> getInstances() {
+
+		return instances;
+	}
+
+	/**
+	 * @return every {@link Primitive} and {@link PrimitiveInstance} in this
+	 *         World
+	 */
+	private Stream<Interactable> getInteractables() {
+
+		return Stream.concat(primitives.stream(), instances.stream());
+	}
+
+	/**
+	 * <strong>Note</strong> that this does not include any of the Primitives
+	 * inside of this World's {@link PrimitiveInstance}s.
+	 * 
+	 * @return those {@link Primitive}s in this World which emit light
+	 */
 	public Collection<Primitive> getEmissives() {
 
 		return primitives
@@ -38,6 +84,96 @@ public class World {
 		return lights;
 	}
 
+	/**
+	 * (Re-)build this World's {@link AccelerationStructure} over its current
+	 * set of {@link Primitive}s. Until this is called, every query against this
+	 * World must test each of its Primitives in turn.
+	 * <p>
+	 * <strong>Note</strong> that the AccelerationStructure is a snapshot of
+	 * this World's Primitives (and their Transforms) at the time it was built.
+	 * If you subsequently add, remove, or transform any Primitives, you must
+	 * call this method again.
+	 * </p>
+	 * <p>
+	 * This World's {@link PrimitiveInstance}s are placed in the same
+	 * AccelerationStructure as its Primitives. The structures within each
+	 * instance's {@link SharedGeometry} are <em>not</em> rebuilt, however --
+	 * so if only the placement of instances has changed, calling this method
+	 * again is relatively cheap.
+	 * </p>
+	 */
+	public void buildAccelerationStructure() {
+
+		accelerationStructure = accelerationStructureBuilder
+				.build(getInteractables().collect(Collectors.toCollection(LinkedList::new)));
+	}
+
+	/**
+	 * Bring this World's {@link AccelerationStructure} up to date, doing as
+	 * little work as possible:
+	 * <ul>
+	 * <li>if there is no AccelerationStructure yet, or if Primitives (or
+	 * {@link PrimitiveInstance}s) have been added or removed, the structure is
+	 * re-built from scratch</li>
+	 * <li>otherwise, the existing structure is
+	 * {@link AccelerationStructure#refit() refitted} to the current bounds of
+	 * its Primitives -- and is re-built only if that refitting has degraded its
+	 * quality too far</li>
+	 * </ul>
+	 * This is intended for animations, in which the same Primitives are simply
+	 * transformed from one frame to the next.
+	 * <p>
+	 * <strong>Note</strong> that additions and removals are detected only by
+	 * a change in the total number of Primitives and PrimitiveInstances. If
+	 * you replace some Primitives with others, call
+	 * {@link #buildAccelerationStructure()} instead.
+	 * </p>
+	 */
+	public void updateAccelerationStructure() {
+
+		if (accelerationStructure == null
+				|| accelerationStructure.getElementCount() != primitives.size() + instances.size()
+				|| !accelerationStructure.refit())
+			buildAccelerationStructure();
+	}
+
+	/**
+	 * @return the {@link AccelerationStructureBuilder} this World uses to build
+	 *         its {@link AccelerationStructure}
+	 */
+	public AccelerationStructureBuilder getAccelerationStructureBuilder() {
+
+		return accelerationStructureBuilder;
+	}
+
+	/**
+	 * Set the {@link AccelerationStructureBuilder} this World should use to
+	 * build its {@link AccelerationStructure}. By default, this is a
+	 * {@link SAHBVHBuilder}, building full-precision hierarchies. (For
+	 * quantized hierarchies, which take up less memory, use
+	 * <code>new SAHBVHBuilder().quantized()</code> -- see
+	 * {@link BVHBuilder#quantized()}.)
+	 * <p>
+	 * <strong>Note</strong> that this does not affect any existing
+	 * AccelerationStructure -- see {@link #buildAccelerationStructure()}.
+	 * </p>
+	 * 
+	 * @param accelerationStructureBuilder
+	 */
+	public void setAccelerationStructureBuilder(AccelerationStructureBuilder accelerationStructureBuilder) {
+
+		this.accelerationStructureBuilder = accelerationStructureBuilder;
+	}
+
+	/**
+	 * @return this World's {@link AccelerationStructure}, or <code>null</code>
+	 *         if {@link #buildAccelerationStructure()} has not yet been called
+	 */
+	public AccelerationStructure getAccelerationStructure() {
+
+		return accelerationStructure;
+	}
+
 	/**
 	 * Search for the closest interacting {@link Primitive} in this World that
 	 * the given {@link Ray} interacts with (that is not behind the Ray).
@@ -51,9 +187,11 @@ public class World {
 	 */
 	public Optional<Interaction> getClosestInteraction(Ray ray) {
 
-		return getPrimitives()
-				.stream()
-					.filter(p -> p.isInteracting(ray))
+		if (accelerationStructure != null)
+			return accelerationStructure.getClosestInteraction(ray);
+
+		return getInteractables()
+				.filter(p -> p.isInteracting(ray))
 					.map(p -> p.getIntersection(ray))
 					.filter(p -> p != null)
 					.filter(p -> p.getInteractingRay().getCurrT() > 0d)
@@ -62,6 +200,29 @@ public class World {
 					.findFirst();
 	}
 
+	/**
+	 * Search for the closest interacting {@link Primitive} for each of the
+	 * {@link Ray}s in the given {@link RayPacket}, recording each one in the
+	 * packet (see {@link RayPacket#getInteraction(int)}).
+	 * <p>
+	 * If this World has an {@link AccelerationStructure}, coherent Rays may be
+	 * traced together (see
+	 * {@link AccelerationStructure#getClosestInteractions(RayPacket)}).
+	 * </p>
+	 * 
+	 * @param packet
+	 */
+	public void getClosestInteractions(RayPacket packet) {
+
+		if (accelerationStructure != null) {
+			accelerationStructure.getClosestInteractions(packet);
+			return;
+		}
+
+		for (int i = 0; i < packet.size(); i++)
+			packet.setInteraction(i, getClosestInteraction(packet.getRay(i)).orElse(null));
+	}
+
 	/**
 	 * Search for the closest {@link Interaction} between the given {@link Ray}
 	 * and the given {@link Primitive}.
@@ -84,4 +245,45 @@ public class World {
 
 		return Optional.ofNullable(primitive.getIntersection(ray));
 	}
+
+	/**
+	 * Determine whether any {@link Primitive} in this World intersects the
+	 * given {@link Ray} strictly between its {@link Ray#getMinT() min-T} and
+	 * {@link Ray#getMaxT() max-T}.
+	 * <p>
+	 * This is cheaper than {@link #getClosestInteraction(Ray)}: it stops at the
+	 * first such Primitive, and never computes any {@link Interaction}s.
+	 * </p>
+	 * 
+	 * @param ray
+	 * @return
+	 */
+	public boolean isOccluded(Ray ray) {
+
+		if (accelerationStructure != null)
+			return accelerationStructure.isOccluded(ray);
+
+		return getInteractables().anyMatch(p -> p.isOccluding(ray));
+	}
+
+	/**
+	 * Determine whether any {@link Primitive} in this World lies between the
+	 * two given {@link Point}s (i.e., whether <code>to</code> is hidden from
+	 * <code>from</code>).
+	 * 
+	 * @param from
+	 * @param to
+	 * @return
+	 * @see #isOccluded(Ray)
+	 * @see #OCCLUSION_EPSILON
+	 */
+	public boolean isOccluded(Point from, Point to) {
+
+		final Vector toVector = new Vector(from, to);
+		final double distance = toVector.getMagnitude();
+
+		return isOccluded(new Ray(from, toVector, 0, 0d, Global.DOUBLE_TOLERANCE,
+				distance * ( 1d - OCCLUSION_EPSILON ), 1d));
+	}
+
 }
@@ -2,14 +2,14 @@ package org.snowjak.rays3.bxdf;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.function.Supplier;
 
+import org.snowjak.rays3.geometry.MutableVector;
 import org.snowjak.rays3.geometry.Normal;
-import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.integrator.AbstractIntegrator;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.spectrum.Spectrum;
 
 /**
@@ -47,7 +47,7 @@ public abstract class BSDF {
 	 * @param sample
 	 * @return
 	 */
-	public abstract Spectrum sampleL_e(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier);
+	public abstract Spectrum sampleL_e(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier);
 
 	/**
 	 * Sample an incident vector from the given interaction.
@@ -56,7 +56,7 @@ public abstract class BSDF {
 	 * @param sample
 	 * @return
 	 */
-	public abstract Vector sampleW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier);
+	public abstract Vector sampleW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier);
 
 	/**
 	 * Given an inbound vector <code>w<sub>i</sub></code>, what is the
@@ -67,7 +67,8 @@ public abstract class BSDF {
 	 * @param w_i
 	 * @return
 	 */
-	public abstract double pdfW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i);
+	public abstract double pdfW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier,
+			Vector w_i);
 
 	/**
 	 * Compute the fraction of energy (for each wavelength) that's reflected
@@ -78,7 +79,8 @@ public abstract class BSDF {
 	 * @param w_i
 	 * @return
 	 */
-	public abstract Spectrum f_r(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i);
+	public abstract Spectrum f_r(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier,
+			Vector w_i);
 
 	/**
 	 * Compute the cosine term for each BSDF interaction -- i.e., the
@@ -91,7 +93,7 @@ public abstract class BSDF {
 	 */
 	public double cos_i(Interaction interaction, Vector w_i) {
 
-		return interaction.getNormal().asVector().normalize().dotProduct(w_i.normalize());
+		return new MutableVector(interaction.getNormal()).normalize().dotProduct(w_i) / w_i.getMagnitude();
 	}
 
 	/**
@@ -164,10 +166,10 @@ public abstract class BSDF {
 	 */
 	public static Vector getPerfectSpecularReflectionVector(Vector w_e, Normal n) {
 
-		final Vector i = w_e.normalize();
-		final Vector nv = n.asVector().normalize();
+		final MutableVector i = new MutableVector(w_e).normalize();
+		final MutableVector nv = new MutableVector(n).normalize();
 
 		final double cos_i = nv.dotProduct(i);
-		return i.negate().add(nv.multiply(2d * cos_i)).normalize();
+		return nv.multiply(2d * cos_i).subtract(i).normalize().toVector();
 	}
 }
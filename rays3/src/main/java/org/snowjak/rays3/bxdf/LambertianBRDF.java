@@ -7,12 +7,12 @@ import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.function.Supplier;
 
-import org.snowjak.rays3.geometry.Point2D;
+import org.snowjak.rays3.geometry.MutableVector;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
 import org.snowjak.rays3.spectrum.Spectrum;
 import org.snowjak.rays3.texture.ConstantTexture;
@@ -72,7 +72,7 @@ public class LambertianBRDF extends BSDF {
 	}
 
 	@Override
-	public Spectrum sampleL_e(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier) {
+	public Spectrum sampleL_e(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier) {
 
 		if (this.emissive == null)
 			return RGBSpectrum.BLACK;
@@ -84,21 +84,19 @@ public class LambertianBRDF extends BSDF {
 	}
 
 	@Override
-	public Vector sampleW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier) {
+	public Vector sampleW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier) {
 
 		//
 		//
 		// For a simple Lambertian BRDF, we can simply choose any direction in
 		// the hemisphere centered around the surface normal.
 		//
-		final Point2D sphericalPoint = sampleSupplier.get();
-
-		final double sin2_theta = sphericalPoint.getX();
+		final double sin2_theta = sampleSupplier.nextX();
 		final double cos2_theta = 1d - sin2_theta;
 		final double sin_theta = sqrt(sin2_theta);
 		final double cos_theta = sqrt(cos2_theta);
 
-		final double orientation = sphericalPoint.getY() * 2d * PI;
+		final double orientation = sampleSupplier.getY() * 2d * PI;
 		//
 		//
 		//
@@ -109,18 +107,18 @@ public class LambertianBRDF extends BSDF {
 		//
 		//
 		// Construct a coordinate system centered around the surface-normal.
-		final Vector j = interaction.getNormal().asVector().normalize();
-		final Vector i = j.orthogonal();
-		final Vector k = i.crossProduct(j);
+		final MutableVector j = new MutableVector(interaction.getNormal()).normalize();
+		final MutableVector i = new MutableVector().setOrthogonalTo(j);
+		final MutableVector k = new MutableVector().setCrossProduct(i, j);
 		//
 		//
 		// Convert the Cartesian coordinates to a Vector in the constructed
 		// coordinate system.
-		return i.multiply(x).add(j.multiply(y)).add(k.multiply(z)).normalize();
+		return i.multiply(x).addScaled(j, y).addScaled(k, z).normalize().toVector();
 	}
 
 	@Override
-	public double pdfW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i) {
+	public double pdfW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier, Vector w_i) {
 
 		//
 		// A Lambertian BRDF samples directions from anywhere on the hemisphere.
@@ -132,7 +130,7 @@ public class LambertianBRDF extends BSDF {
 	}
 
 	@Override
-	public Spectrum f_r(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i) {
+	public Spectrum f_r(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier, Vector w_i) {
 
 		//
 		//
@@ -2,13 +2,12 @@ package org.snowjak.rays3.bxdf;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.function.Supplier;
 
 import org.snowjak.rays3.Global;
-import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
 import org.snowjak.rays3.spectrum.Spectrum;
 import org.snowjak.rays3.texture.ConstantTexture;
@@ -62,7 +61,7 @@ public class PerfectSpecularBRDF extends BSDF {
 	}
 
 	@Override
-	public Spectrum sampleL_e(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier) {
+	public Spectrum sampleL_e(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier) {
 
 		if (emissive == null)
 			return RGBSpectrum.BLACK;
@@ -74,7 +73,7 @@ public class PerfectSpecularBRDF extends BSDF {
 	}
 
 	@Override
-	public Vector sampleW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier) {
+	public Vector sampleW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier) {
 
 		//
 		// A perfect mirror reflects only perfectly. No other directions are
@@ -84,7 +83,7 @@ public class PerfectSpecularBRDF extends BSDF {
 	}
 
 	@Override
-	public double pdfW_i(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i) {
+	public double pdfW_i(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier, Vector w_i) {
 
 		//
 		// A perfect mirror will only every reflect perfectly. Therefore, all
@@ -94,7 +93,7 @@ public class PerfectSpecularBRDF extends BSDF {
 	}
 
 	@Override
-	public Spectrum f_r(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier, Vector w_i) {
+	public Spectrum f_r(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier, Vector w_i) {
 
 		//
 		//
@@ -104,7 +103,7 @@ public class PerfectSpecularBRDF extends BSDF {
 			return RGBSpectrum.BLACK;
 	}
 
-	private boolean isPerfectReflection(Interaction interaction, Sample sample, Supplier<Point2D> sampleSupplier,
+	private boolean isPerfectReflection(Interaction interaction, Sample sample, TwinSampleSupplier sampleSupplier,
 			Vector w_i) {
 
 		final Vector perfectReflection = sampleW_i(interaction, sample, sampleSupplier).normalize();
@@ -1,9 +1,12 @@
 package org.snowjak.rays3.camera;
 
+import java.util.List;
+
 import org.snowjak.rays3.geometry.Matrix;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.RayPacket;
 import org.snowjak.rays3.sample.Sample;
 
 /**
@@ -19,7 +22,7 @@ import org.snowjak.rays3.sample.Sample;
  */
 public abstract class Camera {
 
-	private final Matrix	cameraTwist, cameraTranslate;
+	private final Matrix	cameraToWorld;
 	private final double	imagePlaneSizeX, imagePlaneSizeY;
 	private final double	filmSizeX, filmSizeY;
 
@@ -58,17 +61,19 @@ public abstract class Camera {
 		final Vector cameraYAxis = cameraZAxis.crossProduct(cameraXAxis).normalize();
 
 		//@formatter:off
-		cameraTwist =
+		final Matrix cameraTwist =
 				new Matrix(new double[][] {	{ cameraXAxis.getX(), cameraYAxis.getX(), cameraZAxis.getX(), 0d },
 											{ cameraXAxis.getY(), cameraYAxis.getY(), cameraZAxis.getY(), 0d },
 											{ cameraXAxis.getZ(), cameraYAxis.getZ(), cameraZAxis.getZ(), 0d },
 											{                 0d,                 0d,                 0d, 1d } });
-		cameraTranslate =
+		final Matrix cameraTranslate =
 				new Matrix(new double[][] {	{ 1d, 0d, 0d, +eyePoint.getX() },
 											{ 0d, 1d, 0d, +eyePoint.getY() },
 											{ 0d, 0d, 1d, +eyePoint.getZ() },
 											{ 0d, 0d, 0d,               1d } });
 		//@formatter:on
+
+		cameraToWorld = cameraTranslate.multiply(cameraTwist);
 	}
 
 	/**
@@ -123,19 +128,55 @@ public abstract class Camera {
 	 */
 	public abstract Ray getRay(double imageX, double imageY, double lensU, double lensV);
 
+	/**
+	 * Construct a {@link RayPacket} holding one Ray through the center of each
+	 * pixel in a <code>width</code> x <code>height</code> block of pixels,
+	 * whose lower-left pixel is at (<code>imageX</code>, <code>imageY</code>).
+	 * The Rays are ordered row by row.
+	 * 
+	 * @param imageX
+	 * @param imageY
+	 * @param width
+	 * @param height
+	 * @return
+	 * @see #getRay(double, double)
+	 * @see #getRayPacket(List)
+	 */
+	public RayPacket getRayPacket(double imageX, double imageY, int width, int height) {
+
+		final Ray[] rays = new Ray[width * height];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				rays[y * width + x] = getRay(imageX + x + 0.5d, imageY + y + 0.5d);
+
+		return new RayPacket(rays);
+	}
+
+	/**
+	 * Construct a {@link RayPacket} holding one Ray for each of the given
+	 * {@link Sample}s (in the same order), each using its Sample's image- and
+	 * lens-coordinates.
+	 * 
+	 * @param samples
+	 * @return
+	 * @see #getRay(Sample)
+	 */
+	public RayPacket getRayPacket(List<Sample> samples) {
+
+		final Ray[] rays = new Ray[samples.size()];
+		for (int i = 0; i < rays.length; i++)
+			rays[i] = getRay(samples.get(i));
+
+		return new RayPacket(rays);
+	}
+
 	/**
 	 * Transform the given {@link Ray} (in camera-coordinates) into a Ray in
 	 * world coordinates.
 	 */
 	protected Ray cameraToWorld(Ray ray) {
 
-		Point origin = ray.getOrigin();
-		Vector direction = ray.getDirection();
-
-		origin = cameraTranslate.multiply(cameraTwist).multiply(origin);
-		direction = cameraTwist.multiply(direction);
-
-		return new Ray(origin, direction);
+		return new Ray(cameraToWorld.multiply(ray.getOrigin()), cameraToWorld.multiply(ray.getDirection()));
 	}
 
 	public double getFilmSizeX() {
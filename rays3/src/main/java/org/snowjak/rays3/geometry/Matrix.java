@@ -5,6 +5,19 @@ import org.snowjak.rays3.Global;
 
 /**
  * Represents a 4x4 matrix.
+ * <p>
+ * A Matrix's values are held in a single flat array, in row-major order. Most
+ * Matrices used in rendering are <em>affine</em> -- i.e., their bottom row is
+ * <code>[ 0 0 0 1 ]</code> -- and so Points, Vectors, and Normals are
+ * transformed using only the top 3x4 portion of this Matrix, and the inverse
+ * of an affine Matrix is computed in closed form.
+ * </p>
+ * <p>
+ * Each of the Point-, Vector-, and Normal-transforms has a variant which
+ * accepts raw coordinates and writes its result into a caller-supplied array,
+ * for use in hot loops where allocating a new Point or Vector for every
+ * transform would be too costly.
+ * </p>
  * 
  * @author snowjak88
  */
@@ -53,7 +66,10 @@ public class Matrix {
 																			{ 0d, 0d, 0d, 1d } });
 	//@formatter:on
 
-	private final double[][]	values;
+	//
+	// values[row * 4 + column]
+	private final double[]		values;
+	private final boolean		affine;
 
 	/**
 	 * Initialize a new 4x4 matrix with the given 4x4 array of values.
@@ -66,10 +82,50 @@ public class Matrix {
 		if (values.length != 4 || values[0].length != 4)
 			throw new IllegalArgumentException("Expecting a 4x4 array to initialize this 4x4 matrix!");
 
-		this.values = new double[4][4];
+		this.values = new double[16];
 		for (int i = 0; i < 4; i++)
 			for (int j = 0; j < 4; j++)
-				this.values[i][j] = values[i][j];
+				this.values[i * 4 + j] = values[i][j];
+
+		this.affine = isAffine(this.values);
+	}
+
+	/**
+	 * Initialize a new 4x4 matrix with the given 16 values, in row-major
+	 * order.
+	 * 
+	 * @param values
+	 * @throws IllegalArgumentException
+	 *             if not given exactly 16 values
+	 */
+	public Matrix(double... values) {
+		if (values.length != 16)
+			throw new IllegalArgumentException("Expecting 16 values to initialize this 4x4 matrix!");
+
+		this.values = values.clone();
+		this.affine = isAffine(this.values);
+	}
+
+	/**
+	 * Wrap the given array of 16 values (without copying it).
+	 */
+	private Matrix(double[] values, boolean affine) {
+		this.values = values;
+		this.affine = affine;
+	}
+
+	private static boolean isAffine(double[] values) {
+
+		return values[12] == 0d && values[13] == 0d && values[14] == 0d && values[15] == 1d;
+	}
+
+	/**
+	 * @return <code>true</code> if this Matrix's bottom row is
+	 *         <code>[ 0 0 0 1 ]</code>
+	 */
+	public boolean isAffine() {
+
+		return affine;
 	}
 
 	/**
@@ -80,13 +136,11 @@ public class Matrix {
 	 */
 	public Matrix add(Matrix addend) {
 
-		double[][] newValues = new double[4][4];
+		final double[] newValues = new double[16];
+		for (int i = 0; i < 16; i++)
+			newValues[i] = this.values[i] + addend.values[i];
 
-		for (int i = 0; i < 4; i++)
-			for (int j = 0; j < 4; j++)
-				newValues[i][j] = this.values[i][j] + addend.values[i][j];
-
-		return new Matrix(newValues);
+		return new Matrix(newValues, isAffine(newValues));
 	}
 
 	/**
@@ -97,13 +151,11 @@ public class Matrix {
 	 */
 	public Matrix subtract(Matrix subtrahend) {
 
-		double[][] newValues = new double[4][4];
-
-		for (int i = 0; i < 4; i++)
-			for (int j = 0; j < 4; j++)
-				newValues[i][j] = this.values[i][j] - subtrahend.values[i][j];
+		final double[] newValues = new double[16];
+		for (int i = 0; i < 16; i++)
+			newValues[i] = this.values[i] - subtrahend.values[i];
 
-		return new Matrix(newValues);
+		return new Matrix(newValues, isAffine(newValues));
 	}
 
 	/**
@@ -114,13 +166,11 @@ public class Matrix {
 	 */
 	public Matrix multiply(double scalar) {
 
-		double[][] newValues = new double[4][4];
+		final double[] newValues = new double[16];
+		for (int i = 0; i < 16; i++)
+			newValues[i] = this.values[i] * scalar;
 
-		for (int i = 0; i < 4; i++)
-			for (int j = 0; j < 4; j++)
-				newValues[i][j] = this.values[i][j] * scalar;
-
-		return new Matrix(newValues);
+		return new Matrix(newValues, isAffine(newValues));
 	}
 
 	/**
@@ -131,21 +181,34 @@ public class Matrix {
 	 */
 	public Matrix multiply(Matrix other) {
 
-		double[][] newValues = new double[4][4];
-
-		for (int nvI = 0; nvI < 4; nvI++)
-			for (int nvJ = 0; nvJ < 4; nvJ++) {
+		final double[] a = this.values, b = other.values;
+		final double[] newValues = new double[16];
+
+		if (this.affine && other.affine) {
+			//
+			// The product of two affine matrices is itself affine, and so we
+			// need only compute its top 3 rows (and can skip the bottom row
+			// of the other matrix altogether).
+			for (int row = 0; row < 12; row += 4) {
+				final double a0 = a[row], a1 = a[row + 1], a2 = a[row + 2];
+				newValues[row] = a0 * b[0] + a1 * b[4] + a2 * b[8];
+				newValues[row + 1] = a0 * b[1] + a1 * b[5] + a2 * b[9];
+				newValues[row + 2] = a0 * b[2] + a1 * b[6] + a2 * b[10];
+				newValues[row + 3] = a0 * b[3] + a1 * b[7] + a2 * b[11] + a[row + 3];
+			}
+			newValues[15] = 1d;
 
-				// Compute the [nvI][nvJ]th entry in the new matrix
-				// as the dot product of the [nvI]th row of this matrix
-				// and the [nvJ]th column of the other matrix.
-				newValues[nvI][nvJ] = 0d;
+			return new Matrix(newValues, true);
+		}
 
-				for (int i = 0; i < 4; i++)
-					newValues[nvI][nvJ] += this.values[nvI][i] * other.values[i][nvJ];
-			}
+		for (int row = 0; row < 16; row += 4) {
+			final double a0 = a[row], a1 = a[row + 1], a2 = a[row + 2], a3 = a[row + 3];
+			for (int column = 0; column < 4; column++)
+				newValues[row + column] = a0 * b[column] + a1 * b[4 + column] + a2 * b[8 + column]
+						+ a3 * b[12 + column];
+		}
 
-		return new Matrix(newValues);
+		return new Matrix(newValues, isAffine(newValues));
 	}
 
 	/**
@@ -157,21 +220,131 @@ public class Matrix {
 	 */
 	public Point multiply(Point point) {
 
-		double[] newVector = this.multiply(new double[] { point.getX(), point.getY(), point.getZ(), 1d });
-		return new Point(newVector[0], newVector[1], newVector[2]);
+		final double x = point.getX(), y = point.getY(), z = point.getZ();
+		final double[] m = values;
+
+		final double tx = m[0] * x + m[1] * y + m[2] * z + m[3];
+		final double ty = m[4] * x + m[5] * y + m[6] * z + m[7];
+		final double tz = m[8] * x + m[9] * y + m[10] * z + m[11];
+		if (affine)
+			return new Point(tx, ty, tz);
+
+		final double w = m[12] * x + m[13] * y + m[14] * z + m[15];
+		if (Global.isNear(w, 0d))
+			return new Point(tx, ty, tz);
+		return new Point(tx / w, ty / w, tz / w);
 	}
 
 	/**
 	 * Multiply this Matrix by a Vector (treating that as a column-vector with a
-	 * 4th value of 0).
+	 * 4th value of 0). Only the upper-left 3x3 portion of this Matrix is
+	 * applied.
 	 * 
 	 * @param vector
 	 * @return
 	 */
 	public Vector multiply(Vector vector) {
 
-		double[] newVector = this.multiply(new double[] { vector.getX(), vector.getY(), vector.getZ(), 0d });
-		return new Vector(newVector[0], newVector[1], newVector[2]);
+		final double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+		final double[] m = values;
+
+		return new Vector(m[0] * x + m[1] * y + m[2] * z, m[4] * x + m[5] * y + m[6] * z,
+				m[8] * x + m[9] * y + m[10] * z);
+	}
+
+	/**
+	 * Transform a Normal by the inverse-transpose of this Matrix -- i.e., so
+	 * that the transformed Normal remains perpendicular to any surface
+	 * transformed by this Matrix.
+	 * 
+	 * @param normal
+	 * @return
+	 */
+	public Normal transformNormal(Normal normal) {
+
+		final double x = normal.getX(), y = normal.getY(), z = normal.getZ();
+		final double[] inv = inverse().values;
+
+		return new Normal(inv[0] * x + inv[4] * y + inv[8] * z, inv[1] * x + inv[5] * y + inv[9] * z,
+				inv[2] * x + inv[6] * y + inv[10] * z);
+	}
+
+	/**
+	 * Multiply this Matrix by the point <code>(x, y, z, 1)</code>, writing the
+	 * resulting <code>(x, y, z)</code> into <code>result</code> at
+	 * <code>offset</code>.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param result
+	 * @param offset
+	 * @see #multiply(Point)
+	 */
+	public void multiplyPoint(double x, double y, double z, double[] result, int offset) {
+
+		final double[] m = values;
+
+		final double tx = m[0] * x + m[1] * y + m[2] * z + m[3];
+		final double ty = m[4] * x + m[5] * y + m[6] * z + m[7];
+		final double tz = m[8] * x + m[9] * y + m[10] * z + m[11];
+
+		if (affine) {
+			result[offset] = tx;
+			result[offset + 1] = ty;
+			result[offset + 2] = tz;
+			return;
+		}
+
+		double w = m[12] * x + m[13] * y + m[14] * z + m[15];
+		if (Global.isNear(w, 0d))
+			w = 1d;
+
+		result[offset] = tx / w;
+		result[offset + 1] = ty / w;
+		result[offset + 2] = tz / w;
+	}
+
+	/**
+	 * Multiply this Matrix by the vector <code>(x, y, z, 0)</code>, writing
+	 * the resulting <code>(x, y, z)</code> into <code>result</code> at
+	 * <code>offset</code>.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param result
+	 * @param offset
+	 * @see #multiply(Vector)
+	 */
+	public void multiplyVector(double x, double y, double z, double[] result, int offset) {
+
+		final double[] m = values;
+
+		result[offset] = m[0] * x + m[1] * y + m[2] * z;
+		result[offset + 1] = m[4] * x + m[5] * y + m[6] * z;
+		result[offset + 2] = m[8] * x + m[9] * y + m[10] * z;
+	}
+
+	/**
+	 * Transform the normal <code>(x, y, z)</code> by the inverse-transpose of
+	 * this Matrix, writing the resulting <code>(x, y, z)</code> into
+	 * <code>result</code> at <code>offset</code>.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param result
+	 * @param offset
+	 * @see #transformNormal(Normal)
+	 */
+	public void transformNormal(double x, double y, double z, double[] result, int offset) {
+
+		final double[] inv = inverse().values;
+
+		result[offset] = inv[0] * x + inv[4] * y + inv[8] * z;
+		result[offset + 1] = inv[1] * x + inv[5] * y + inv[9] * z;
+		result[offset + 2] = inv[2] * x + inv[6] * y + inv[10] * z;
 	}
 
 	/**
@@ -200,15 +373,12 @@ public class Matrix {
 			throw new IllegalArgumentException(
 					"Given column-vector is not 1x4 as expected, but 1x" + Integer.toString(columnVector.length));
 
+		final double[] m = values;
 		double[] newVector = new double[] {
-				values[0][0] * columnVector[0] + values[0][1] * columnVector[1] + values[0][2] * columnVector[2]
-						+ values[0][3],
-				values[1][0] * columnVector[0] + values[1][1] * columnVector[1] + values[1][2] * columnVector[2]
-						+ values[1][3],
-				values[2][0] * columnVector[0] + values[2][1] * columnVector[1] + values[2][2] * columnVector[2]
-						+ values[2][3],
-				values[3][0] * columnVector[0] + values[3][1] * columnVector[1] + values[3][2] * columnVector[2]
-						+ values[3][3] };
+				m[0] * columnVector[0] + m[1] * columnVector[1] + m[2] * columnVector[2] + m[3],
+				m[4] * columnVector[0] + m[5] * columnVector[1] + m[6] * columnVector[2] + m[7],
+				m[8] * columnVector[0] + m[9] * columnVector[1] + m[10] * columnVector[2] + m[11],
+				m[12] * columnVector[0] + m[13] * columnVector[1] + m[14] * columnVector[2] + m[15] };
 
 		if (!Global.isNear(newVector[3], 0d)) {
 			newVector[0] /= newVector[3];
@@ -224,6 +394,18 @@ public class Matrix {
 
 	}
 
+	/**
+	 * Get a single value from this Matrix.
+	 * 
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	public double get(int row, int column) {
+
+		return values[row * 4 + column];
+	}
+
 	/**
 	 * Compute the transposition of this Matrix.
 	 * 
@@ -233,13 +415,13 @@ public class Matrix {
 
 		if (this.transpose == null) {
 
-			double[][] newValues = new double[4][4];
+			final double[] newValues = new double[16];
 
 			for (int i = 0; i < 4; i++)
 				for (int j = 0; j < 4; j++)
-					newValues[i][j] = this.values[j][i];
+					newValues[i * 4 + j] = this.values[j * 4 + i];
 
-			this.transpose = new Matrix(newValues);
+			this.transpose = new Matrix(newValues, isAffine(newValues));
 		}
 
 		return this.transpose;
@@ -248,17 +430,70 @@ public class Matrix {
 
 	/**
 	 * Compute the inverse of this Matrix.
+	 * <p>
+	 * If this Matrix is affine -- i.e., <code>[ A | t ]</code>, with a 3x3
+	 * linear portion <code>A</code> and a translation <code>t</code> -- its
+	 * inverse is computed in closed form as <code>[ A^-1 | -A^-1 t ]</code>.
+	 * </p>
 	 * 
 	 * @return
 	 */
 	public Matrix inverse() {
 
-		if (this.inverse == null)
-			this.inverse = new Matrix(MatrixUtils.inverse(MatrixUtils.createRealMatrix(this.values)).getData());
+		if (this.inverse == null) {
+			if (affine)
+				this.inverse = affineInverse();
+			else {
+				final double[][] inverseValues = MatrixUtils
+						.inverse(MatrixUtils.createRealMatrix(new double[][] {
+								{ values[0], values[1], values[2], values[3] },
+								{ values[4], values[5], values[6], values[7] },
+								{ values[8], values[9], values[10], values[11] },
+								{ values[12], values[13], values[14], values[15] } }))
+						.getData();
+				this.inverse = new Matrix(inverseValues);
+			}
+		}
 
 		return this.inverse;
 	}
 
+	private Matrix affineInverse() {
+
+		final double[] m = values;
+
+		//
+		// The inverse of the 3x3 linear portion is its adjugate over its
+		// determinant.
+		final double c00 = m[5] * m[10] - m[6] * m[9], c01 = m[6] * m[8] - m[4] * m[10],
+				c02 = m[4] * m[9] - m[5] * m[8];
+		final double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+		if (det == 0d)
+			throw new ArithmeticException("Cannot invert a singular Matrix!");
+
+		final double invDet = 1d / det;
+
+		final double[] inv = new double[16];
+		inv[0] = c00 * invDet;
+		inv[1] = ( m[2] * m[9] - m[1] * m[10] ) * invDet;
+		inv[2] = ( m[1] * m[6] - m[2] * m[5] ) * invDet;
+		inv[4] = c01 * invDet;
+		inv[5] = ( m[0] * m[10] - m[2] * m[8] ) * invDet;
+		inv[6] = ( m[2] * m[4] - m[0] * m[6] ) * invDet;
+		inv[8] = c02 * invDet;
+		inv[9] = ( m[1] * m[8] - m[0] * m[9] ) * invDet;
+		inv[10] = ( m[0] * m[5] - m[1] * m[4] ) * invDet;
+
+		inv[3] = -( inv[0] * m[3] + inv[1] * m[7] + inv[2] * m[11] );
+		inv[7] = -( inv[4] * m[3] + inv[5] * m[7] + inv[6] * m[11] );
+		inv[11] = -( inv[8] * m[3] + inv[9] * m[7] + inv[10] * m[11] );
+		inv[15] = 1d;
+
+		final Matrix result = new Matrix(inv, true);
+		result.inverse = this;
+		return result;
+	}
+
 	/**
 	 * Compute the trace of this Matrix.
 	 * 
@@ -266,7 +501,7 @@ public class Matrix {
 	 */
 	public double trace() {
 
-		return this.values[0][0] + this.values[1][1] + this.values[2][2] + this.values[3][3];
+		return this.values[0] + this.values[5] + this.values[10] + this.values[15];
 	}
 
 	/**
@@ -277,30 +512,23 @@ public class Matrix {
 	public double determinant() {
 
 		if (!determinantSet) {
-			determinant = this.values[0][3] * this.values[1][2] * this.values[2][1] * this.values[3][0]
-					- this.values[0][2] * this.values[1][3] * this.values[2][1] * this.values[3][0]
-					- this.values[0][3] * this.values[1][1] * this.values[2][2] * this.values[3][0]
-					+ this.values[0][1] * this.values[1][3] * this.values[2][2] * this.values[3][0]
-					+ this.values[0][2] * this.values[1][1] * this.values[2][3] * this.values[3][0]
-					- this.values[0][1] * this.values[1][2] * this.values[2][3] * this.values[3][0]
-					- this.values[0][3] * this.values[1][2] * this.values[2][0] * this.values[3][1]
-					+ this.values[0][2] * this.values[1][3] * this.values[2][0] * this.values[3][1]
-					+ this.values[0][3] * this.values[1][0] * this.values[2][2] * this.values[3][1]
-					- this.values[0][0] * this.values[1][3] * this.values[2][2] * this.values[3][1]
-					- this.values[0][2] * this.values[1][0] * this.values[2][3] * this.values[3][1]
-					+ this.values[0][0] * this.values[1][2] * this.values[2][3] * this.values[3][1]
-					+ this.values[0][3] * this.values[1][1] * this.values[2][0] * this.values[3][2]
-					- this.values[0][1] * this.values[1][3] * this.values[2][0] * this.values[3][2]
-					- this.values[0][3] * this.values[1][0] * this.values[2][1] * this.values[3][2]
-					+ this.values[0][0] * this.values[1][3] * this.values[2][1] * this.values[3][2]
-					+ this.values[0][1] * this.values[1][0] * this.values[2][3] * this.values[3][2]
-					- this.values[0][0] * this.values[1][1] * this.values[2][3] * this.values[3][2]
-					- this.values[0][2] * this.values[1][1] * this.values[2][0] * this.values[3][3]
-					+ this.values[0][1] * this.values[1][2] * this.values[2][0] * this.values[3][3]
-					+ this.values[0][2] * this.values[1][0] * this.values[2][1] * this.values[3][3]
-					- this.values[0][0] * this.values[1][2] * this.values[2][1] * this.values[3][3]
-					- this.values[0][1] * this.values[1][0] * this.values[2][2] * this.values[3][3]
-					+ this.values[0][0] * this.values[1][1] * this.values[2][2] * this.values[3][3];
+			final double[] m = this.values;
+			if (affine)
+				determinant = m[0] * ( m[5] * m[10] - m[6] * m[9] ) + m[1] * ( m[6] * m[8] - m[4] * m[10] )
+						+ m[2] * ( m[4] * m[9] - m[5] * m[8] );
+			else
+				determinant = m[3] * m[6] * m[9] * m[12] - m[2] * m[7] * m[9] * m[12]
+						- m[3] * m[5] * m[10] * m[12] + m[1] * m[7] * m[10] * m[12]
+						+ m[2] * m[5] * m[11] * m[12] - m[1] * m[6] * m[11] * m[12]
+						- m[3] * m[6] * m[8] * m[13] + m[2] * m[7] * m[8] * m[13]
+						+ m[3] * m[4] * m[10] * m[13] - m[0] * m[7] * m[10] * m[13]
+						- m[2] * m[4] * m[11] * m[13] + m[0] * m[6] * m[11] * m[13]
+						+ m[3] * m[5] * m[8] * m[14] - m[1] * m[7] * m[8] * m[14]
+						- m[3] * m[4] * m[9] * m[14] + m[0] * m[7] * m[9] * m[14]
+						+ m[1] * m[4] * m[11] * m[14] - m[0] * m[5] * m[11] * m[14]
+						- m[2] * m[5] * m[8] * m[15] + m[1] * m[6] * m[8] * m[15]
+						+ m[2] * m[4] * m[9] * m[15] - m[0] * m[6] * m[9] * m[15]
+						- m[1] * m[4] * m[10] * m[15] + m[0] * m[5] * m[10] * m[15];
 
 			determinantSet = true;
 		}
@@ -326,8 +554,8 @@ public class Matrix {
 
 		for (int i = 0; i < 4; i++)
 			for (int j = 0; j < 4; j++)
-				if (( this.values[i][j] - tolerance > values[i][j] )
-						|| ( this.values[i][j] + tolerance < values[i][j] ))
+				if (( this.values[i * 4 + j] - tolerance > values[i][j] )
+						|| ( this.values[i * 4 + j] + tolerance < values[i][j] ))
 					foundMismatch = true;
 
 		return !foundMismatch;
@@ -338,8 +566,8 @@ public class Matrix {
 
 		StringBuilder builder = new StringBuilder();
 		for (int r = 0; r < 4; r++)
-			builder.append(String.format("| %+5.5f %+5.5f %+5.5f %+5.5f |\n", values[r][0], values[r][1], values[r][2],
-					values[r][3]));
+			builder.append(String.format("| %+5.5f %+5.5f %+5.5f %+5.5f |\n", values[r * 4], values[r * 4 + 1],
+					values[r * 4 + 2], values[r * 4 + 3]));
 		return builder.deleteCharAt(builder.length() - 1).toString();
 	}
 
@@ -0,0 +1,221 @@
+package org.snowjak.rays3.geometry;
+
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * A mutable counterpart to {@link Vector}, for use as scratch-space in inner
+ * loops.
+ * <p>
+ * Every operation on a Vector allocates a new Vector. A chain of such
+ * operations -- building a coordinate-frame, say, and then a direction within
+ * it -- can allocate a dozen short-lived objects, and at our sample-counts
+ * those add up to a great deal of garbage. A MutableVector's operations
+ * instead update it in place (and return it, so that they may still be
+ * chained), so that a whole computation may be carried out in one or two
+ * MutableVectors and only its result converted back with
+ * {@link #toVector()}.
+ * </p>
+ * <p>
+ * MutableVectors are meant to be short-lived locals, and are not thread-safe.
+ * They should not be handed to code expecting the immutability of a Vector.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class MutableVector {
+
+	private double x, y, z;
+
+	public MutableVector() {
+		this(0d, 0d, 0d);
+	}
+
+	public MutableVector(Vector vector) {
+		this(vector.getX(), vector.getY(), vector.getZ());
+	}
+
+	public MutableVector(Normal normal) {
+		this(normal.getX(), normal.getY(), normal.getZ());
+	}
+
+	public MutableVector(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	public MutableVector set(double x, double y, double z) {
+
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	public MutableVector set(Vector vector) {
+
+		return set(vector.getX(), vector.getY(), vector.getZ());
+	}
+
+	public MutableVector set(MutableVector vector) {
+
+		return set(vector.x, vector.y, vector.z);
+	}
+
+	public MutableVector set(Normal normal) {
+
+		return set(normal.getX(), normal.getY(), normal.getZ());
+	}
+
+	/**
+	 * Set this vector to point from one Point towards another.
+	 * 
+	 * @param from
+	 * @param towards
+	 * @return this vector
+	 */
+	public MutableVector setBetween(Point from, Point towards) {
+
+		return set(towards.getX() - from.getX(), towards.getY() - from.getY(), towards.getZ() - from.getZ());
+	}
+
+	public MutableVector add(MutableVector addend) {
+
+		return set(x + addend.x, y + addend.y, z + addend.z);
+	}
+
+	/**
+	 * Add <code>addend * scalar</code> to this vector.
+	 * 
+	 * @param addend
+	 * @param scalar
+	 * @return this vector
+	 */
+	public MutableVector addScaled(MutableVector addend, double scalar) {
+
+		return set(x + addend.x * scalar, y + addend.y * scalar, z + addend.z * scalar);
+	}
+
+	public MutableVector subtract(MutableVector subtrahend) {
+
+		return set(x - subtrahend.x, y - subtrahend.y, z - subtrahend.z);
+	}
+
+	public MutableVector multiply(double scalar) {
+
+		return set(x * scalar, y * scalar, z * scalar);
+	}
+
+	public MutableVector negate() {
+
+		return set(-x, -y, -z);
+	}
+
+	public MutableVector normalize() {
+
+		return multiply(1d / getMagnitude());
+	}
+
+	public double dotProduct(MutableVector other) {
+
+		return x * other.x + y * other.y + z * other.z;
+	}
+
+	public double dotProduct(Vector other) {
+
+		return x * other.getX() + y * other.getY() + z * other.getZ();
+	}
+
+	/**
+	 * Set this vector to the cross-product <code>a x b</code>. Either of
+	 * <code>a</code> or <code>b</code> may be this vector.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return this vector
+	 */
+	public MutableVector setCrossProduct(MutableVector a, MutableVector b) {
+
+		return set(a.y * b.z - a.z * b.y, a.z * b.x - a.x * b.z, a.x * b.y - a.y * b.x);
+	}
+
+	/**
+	 * Set this vector to one possible (normalized) vector orthogonal to the
+	 * given vector (which may be this vector).
+	 * <p>
+	 * The result is always the same for the same vector: it is the cross
+	 * product of the vector with whichever axis the vector is least aligned
+	 * with.
+	 * </p>
+	 * 
+	 * @param vector
+	 * @return this vector
+	 * @see Vector#orthogonal()
+	 */
+	public MutableVector setOrthogonalTo(MutableVector vector) {
+
+		final double x = vector.x, y = vector.y, z = vector.z;
+		final double absX = FastMath.abs(x), absY = FastMath.abs(y), absZ = FastMath.abs(z);
+
+		if (absX <= absY && absX <= absZ)
+			// vector x I
+			set(0d, z, -y);
+		else if (absY <= absZ)
+			// vector x J
+			set(-z, 0d, x);
+		else
+			// vector x K
+			set(y, -x, 0d);
+
+		return normalize();
+	}
+
+	public double getX() {
+
+		return x;
+	}
+
+	public double getY() {
+
+		return y;
+	}
+
+	public double getZ() {
+
+		return z;
+	}
+
+	public double getMagnitude() {
+
+		return FastMath.sqrt(getMagnitudeSquared());
+	}
+
+	public double getMagnitudeSquared() {
+
+		return ( x * x ) + ( y * y ) + ( z * z );
+	}
+
+	/**
+	 * @return a new (immutable) {@link Vector} with this vector's current
+	 *         coordinates
+	 */
+	public Vector toVector() {
+
+		return new Vector(x, y, z);
+	}
+
+	/**
+	 * @return a new {@link Point} with this vector's current coordinates
+	 */
+	public Point toPoint() {
+
+		return new Point(x, y, z);
+	}
+
+	@Override
+	public String toString() {
+
+		return "MutableVector [" + Double.toString(x) + ", " + Double.toString(y) + ", " + Double.toString(z) + "]";
+	}
+
+}
@@ -132,32 +132,8 @@ public class Vector {
 	 */
 	public Vector orthogonal() {
 
-		final double newX, newY, newZ;
-
-		if (Global.isNear(this.z, 0d)) {
-
-			if (Global.isNear(this.x, 0d)) {
-
-				newX = Global.RND.nextGaussian();
-				newZ = Global.RND.nextGaussian();
-				newY = ( -this.x * newX - this.z * newZ ) / this.y;
-
-			} else {
-
-				newY = Global.RND.nextGaussian();
-				newZ = Global.RND.nextGaussian();
-				newX = ( -this.y * newY - this.z * newZ ) / this.x;
-			}
-
-		} else {
-
-			// => z2 = (-x1 * x2 - y1 * y2) / z1
-			newX = Global.RND.nextGaussian();
-			newY = Global.RND.nextGaussian();
-			newZ = ( -this.x * newX - this.y * newY ) / this.z;
-		}
-
-		return new Vector(newX, newY, newZ).normalize();
+		final MutableVector orthogonal = new MutableVector(this);
+		return orthogonal.setOrthogonalTo(orthogonal).toVector();
 	}
 
 	public double getX() {
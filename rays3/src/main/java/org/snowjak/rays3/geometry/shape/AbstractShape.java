@@ -6,13 +6,16 @@ import static org.apache.commons.math3.util.FastMath.sqrt;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.function.Supplier;
 
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.Global;
+import org.snowjak.rays3.geometry.Matrix;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Point2D;
-import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interactable;
-import org.snowjak.rays3.intersect.bound.BoundingSphere;
+import org.snowjak.rays3.intersect.bound.AABB;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
+import org.snowjak.rays3.transform.CompositeTransform;
 import org.snowjak.rays3.transform.Transform;
 
 /**
@@ -22,7 +25,27 @@ import org.snowjak.rays3.transform.Transform;
  */
 public abstract class AbstractShape implements Interactable {
 
-	private LinkedList<Transform> worldToLocal = new LinkedList<>(), localToWorld = new LinkedList<>();
+	private LinkedList<Transform>	worldToLocal	= new LinkedList<>(), localToWorld = new LinkedList<>();
+
+	//
+	// The global bounding-box is computed (in closed form, from the local
+	// bounding-box and our composite Transform) only once per set of
+	// Transforms, when it's first needed, and cached here.
+	private AABB					boundingBox		= null;
+
+	//
+	// Likewise, our Transforms are composed into a single Transform only once
+	// (per set of Transforms).
+	private CompositeTransform		compositeTransform	= null;
+
+	//
+	// Likewise, the world-coordinates of our local origin.
+	private Point					objectZero			= null;
+
+	//
+	// The uniform scale (if any) our Transforms apply -- or NaN, if they don't
+	// apply a uniform scale -- is computed every time a Transform is added.
+	private double					uniformScale		= 1d;
 
 	/**
 	 * Construct a new AbstractShape, initializing its internal list of
@@ -40,7 +63,7 @@ public abstract class AbstractShape implements Interactable {
 	 * 
 	 * @return
 	 */
-	public abstract Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier);
+	public abstract Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier);
 
 	/**
 	 * Given another point (expressed in <strong>global</strong> coordinates),
@@ -50,7 +73,7 @@ public abstract class AbstractShape implements Interactable {
 	 * @param facing
 	 * @return
 	 */
-	public abstract Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier, Point facing);
+	public abstract Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing);
 
 	/**
 	 * Given a Point (expressed in global coordinates) which this AbstractShape
@@ -59,7 +82,7 @@ public abstract class AbstractShape implements Interactable {
 	 * 
 	 * @param viewedFrom
 	 * @return
-	 * @see #computeSolidAngle_sphere(Point, BoundingSphere)
+	 * @see #computeSolidAngle_sphere(Point, double)
 	 */
 	public abstract double computeSolidAngle(Point viewedFrom);
 
@@ -71,14 +94,84 @@ public abstract class AbstractShape implements Interactable {
 	 * 
 	 * @param viewedFrom
 	 * @param sphereRadius
+	 *            the sphere's radius, in world-coordinates
 	 * @return
 	 */
 	protected double computeSolidAngle_sphere(Point viewedFrom, double sphereRadius) {
 
-		final double d = new Vector(getObjectZero(), viewedFrom).getMagnitude();
-		final double r = sphereRadius;
+		final Point center = getObjectZero();
+		final double dx = viewedFrom.getX() - center.getX(), dy = viewedFrom.getY() - center.getY(),
+				dz = viewedFrom.getZ() - center.getZ();
+		final double d2 = dx * dx + dy * dy + dz * dz;
+		final double r2 = sphereRadius * sphereRadius;
+
+		//
+		// From inside the sphere, it fills every direction.
+		if (d2 <= r2)
+			return 4d * PI;
+
+		return 2d * PI * ( 1d - sqrt(( d2 - r2 ) / d2) );
+	}
+
+	/**
+	 * If this shape's Transforms amount to no more than rotations,
+	 * translations, and a single uniform scale -- so that the shape keeps its
+	 * form in world-coordinates -- get the factor by which they scale it from
+	 * local- to world-coordinates. Otherwise, get {@link Double#NaN}.
+	 * <p>
+	 * Shapes may use this to decide whether they can intersect Rays directly
+	 * in world-coordinates, rather than transforming each Ray into
+	 * local-coordinates and each Interaction back out again.
+	 * </p>
+	 * 
+	 * @return
+	 */
+	protected double getUniformScale() {
+
+		return uniformScale;
+	}
+
+	/**
+	 * A Matrix applies (at most) a uniform scale to a rigid transform if it
+	 * is affine, and its upper-left 3x3 block has mutually-orthogonal columns
+	 * all of the same length.
+	 */
+	private static double computeUniformScale(Matrix matrix) {
+
+		if (!matrix.isAffine())
+			return Double.NaN;
+
+		final double[] columns = new double[9];
+		for (int column = 0; column < 3; column++)
+			for (int row = 0; row < 3; row++)
+				columns[column * 3 + row] = matrix.get(row, column);
+
+		final double scale2 = dot(columns, 0, 0);
+		if (scale2 <= 0d)
+			return Double.NaN;
+
+		final double tolerance = Global.DOUBLE_TOLERANCE * 1000d * scale2;
+		if (FastMath.abs(dot(columns, 3, 3) - scale2) > tolerance
+				|| FastMath.abs(dot(columns, 6, 6) - scale2) > tolerance
+				|| FastMath.abs(dot(columns, 0, 3)) > tolerance || FastMath.abs(dot(columns, 0, 6)) > tolerance
+				|| FastMath.abs(dot(columns, 3, 6)) > tolerance)
+			return Double.NaN;
+
+		return sqrt(scale2);
+	}
+
+	private static double dot(double[] columns, int a, int b) {
 
-		return 2d * PI * ( 1d - sqrt(d * d - r * r) / d );
+		return columns[a] * columns[b] + columns[a + 1] * columns[b + 1] + columns[a + 2] * columns[b + 2];
+	}
+
+	@Override
+	public Point getObjectZero() {
+
+		if (objectZero == null)
+			objectZero = localToWorld(new Point(0, 0, 0));
+
+		return objectZero;
 	}
 
 	/**
@@ -109,6 +202,44 @@ public abstract class AbstractShape implements Interactable {
 	 */
 	public abstract Point2D getParamFromLocalSurface(Point surface);
 
+	/**
+	 * Compute the {@link AABB} (expressed in object-local coordinates) which
+	 * completely encloses this shape, or <code>null</code> if this shape is
+	 * unbounded.
+	 * <p>
+	 * By default, shapes are assumed to be unbounded.
+	 * </p>
+	 * 
+	 * @return
+	 */
+	public AABB getLocalBoundingBox() {
+
+		return null;
+	}
+
+	@Override
+	public AABB getBoundingBox() {
+
+		if (boundingBox == null) {
+			final AABB localBoundingBox = getLocalBoundingBox();
+			if (localBoundingBox == null)
+				return null;
+
+			boundingBox = new AABB(localBoundingBox, getCompositeTransform().getLocalToWorld());
+		}
+
+		return boundingBox;
+	}
+
+	@Override
+	public Transform getCompositeTransform() {
+
+		if (compositeTransform == null)
+			compositeTransform = new CompositeTransform(worldToLocal);
+
+		return compositeTransform;
+	}
+
 	@Override
 	public List<Transform> getWorldToLocalTransforms() {
 
@@ -126,5 +257,10 @@ public abstract class AbstractShape implements Interactable {
 
 		worldToLocal.addLast(transform);
 		localToWorld.addFirst(transform);
+
+		boundingBox = null;
+		compositeTransform = null;
+		objectZero = null;
+		uniformScale = computeUniformScale(getCompositeTransform().getLocalToWorld());
 	}
 }
@@ -0,0 +1,181 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link MeshStorage} held in {@link ByteBuffer}s -- either direct buffers
+ * (see {@link #copyOf(MeshStorage)}) or memory-mapped files (see
+ * {@link MeshFile}) -- and so outside of the Java heap.
+ * <p>
+ * A single ByteBuffer cannot hold more than 2 GB, and so each of a mesh's
+ * arrays is split across as many "pages" of {@link #PAGE_SIZE} bytes as it
+ * needs. Values are read from their pages in place, without copying.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that the JVM limits the total size of its direct
+ * buffers (by default, to the maximum heap-size; see
+ * <code>-XX:MaxDirectMemorySize</code>). Memory-mapped files are not subject
+ * to that limit.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+class DirectMeshStorage extends MeshStorage {
+
+	/**
+	 * Each array is split into pages of this many bytes (except for its last
+	 * page, which may be smaller).
+	 */
+	public static final long	PAGE_SIZE		= 1L << 30;
+
+	private static final int	DOUBLE_SHIFT	= 27, DOUBLE_MASK = ( 1 << DOUBLE_SHIFT ) - 1;
+	private static final int	INT_SHIFT		= 28, INT_MASK = ( 1 << INT_SHIFT ) - 1;
+	private static final int	BYTE_SHIFT		= 30, BYTE_MASK = ( 1 << BYTE_SHIFT ) - 1;
+
+	private final ByteBuffer[]	positions, normals, uvs, indices;
+	private final ByteBuffer[]	nodeBounds, nodeOffsets, nodeCounts, nodeAxes;
+
+	/**
+	 * Wrap the given pages (without copying them).
+	 * 
+	 * @param normals
+	 *            may be <code>null</code>
+	 * @param uvs
+	 *            may be <code>null</code>
+	 */
+	public DirectMeshStorage(int vertexCount, int triangleCount, int nodeCount, int maxDepth, ByteBuffer[] positions,
+			ByteBuffer[] normals, ByteBuffer[] uvs, ByteBuffer[] indices, ByteBuffer[] nodeBounds,
+			ByteBuffer[] nodeOffsets, ByteBuffer[] nodeCounts, ByteBuffer[] nodeAxes) {
+		super(vertexCount, triangleCount, nodeCount, maxDepth, normals != null, uvs != null);
+
+		this.positions = positions;
+		this.normals = normals;
+		this.uvs = uvs;
+		this.indices = indices;
+		this.nodeBounds = nodeBounds;
+		this.nodeOffsets = nodeOffsets;
+		this.nodeCounts = nodeCounts;
+		this.nodeAxes = nodeAxes;
+	}
+
+	/**
+	 * Copy the given storage into newly-allocated direct buffers.
+	 * 
+	 * @param storage
+	 * @return
+	 */
+	public static DirectMeshStorage copyOf(MeshStorage storage) {
+
+		final int vertexCount = storage.vertexCount, triangleCount = storage.triangleCount,
+				nodeCount = storage.nodeCount;
+
+		final ByteBuffer[] positions = allocate(vertexCount * 3L * 8L);
+		final ByteBuffer[] normals = ( storage.hasNormals ) ? allocate(vertexCount * 3L * 8L) : null;
+		final ByteBuffer[] uvs = ( storage.hasUVs ) ? allocate(vertexCount * 2L * 8L) : null;
+		final ByteBuffer[] indices = allocate(triangleCount * 3L * 4L);
+		final ByteBuffer[] nodeBounds = allocate(nodeCount * 6L * 8L);
+		final ByteBuffer[] nodeOffsets = allocate(nodeCount * 4L), nodeCounts = allocate(nodeCount * 4L);
+		final ByteBuffer[] nodeAxes = allocate(nodeCount);
+
+		for (int i = 0; i < vertexCount * 3; i++) {
+			putDouble(positions, i, storage.getPosition(i));
+			if (normals != null)
+				putDouble(normals, i, storage.getNormal(i));
+		}
+		if (uvs != null)
+			for (int i = 0; i < vertexCount * 2; i++)
+				putDouble(uvs, i, storage.getUV(i));
+		for (int i = 0; i < triangleCount * 3; i++)
+			putInt(indices, i, storage.getIndex(i));
+
+		for (int node = 0; node < nodeCount; node++) {
+			for (int i = node * 6; i < node * 6 + 6; i++)
+				putDouble(nodeBounds, i, storage.getNodeBound(i));
+			putInt(nodeOffsets, node, storage.getNodeOffset(node));
+			putInt(nodeCounts, node, storage.getNodeCount(node));
+			nodeAxes[node >>> BYTE_SHIFT].put(node & BYTE_MASK, (byte) storage.getNodeAxis(node));
+		}
+
+		return new DirectMeshStorage(vertexCount, triangleCount, nodeCount, storage.maxDepth, positions, normals,
+				uvs, indices, nodeBounds, nodeOffsets, nodeCounts, nodeAxes);
+	}
+
+	/**
+	 * Allocate enough direct buffers (in the platform's native byte-order) to
+	 * hold the given number of bytes.
+	 */
+	private static ByteBuffer[] allocate(long size) {
+
+		final ByteBuffer[] pages = new ByteBuffer[(int) ( ( size + PAGE_SIZE - 1 ) / PAGE_SIZE )];
+		for (int page = 0; page < pages.length; page++)
+			pages[page] = ByteBuffer.allocateDirect((int) Math.min(PAGE_SIZE, size - page * PAGE_SIZE))
+					.order(ByteOrder.nativeOrder());
+		return pages;
+	}
+
+	private static void putDouble(ByteBuffer[] pages, int i, double value) {
+
+		pages[i >>> DOUBLE_SHIFT].putDouble(( i & DOUBLE_MASK ) << 3, value);
+	}
+
+	private static void putInt(ByteBuffer[] pages, int i, int value) {
+
+		pages[i >>> INT_SHIFT].putInt(( i & INT_MASK ) << 2, value);
+	}
+
+	@Override
+	public double getPosition(int i) {
+
+		return positions[i >>> DOUBLE_SHIFT].getDouble(( i & DOUBLE_MASK ) << 3);
+	}
+
+	@Override
+	public double getNormal(int i) {
+
+		return normals[i >>> DOUBLE_SHIFT].getDouble(( i & DOUBLE_MASK ) << 3);
+	}
+
+	@Override
+	public double getUV(int i) {
+
+		return uvs[i >>> DOUBLE_SHIFT].getDouble(( i & DOUBLE_MASK ) << 3);
+	}
+
+	@Override
+	public int getIndex(int i) {
+
+		return indices[i >>> INT_SHIFT].getInt(( i & INT_MASK ) << 2);
+	}
+
+	@Override
+	public double getNodeBound(int i) {
+
+		return nodeBounds[i >>> DOUBLE_SHIFT].getDouble(( i & DOUBLE_MASK ) << 3);
+	}
+
+	@Override
+	public int getNodeOffset(int node) {
+
+		return nodeOffsets[node >>> INT_SHIFT].getInt(( node & INT_MASK ) << 2);
+	}
+
+	@Override
+	public int getNodeCount(int node) {
+
+		return nodeCounts[node >>> INT_SHIFT].getInt(( node & INT_MASK ) << 2);
+	}
+
+	@Override
+	public int getNodeAxis(int node) {
+
+		return nodeAxes[node >>> BYTE_SHIFT].get(node & BYTE_MASK);
+	}
+
+	@Override
+	public boolean isOffHeap() {
+
+		return true;
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.snowjak.rays3.geometry.shape;
+
+/**
+ * {@link MeshStorage} held in ordinary Java arrays.
+ * 
+ * @author snowjak88
+ */
+class HeapMeshStorage extends MeshStorage {
+
+	private final double[]	positions, normals, uvs;
+	private final int[]		indices;
+
+	private final double[]	nodeBounds;
+	private final int[]		nodeOffsets, nodeCounts;
+	private final byte[]	nodeAxes;
+
+	public HeapMeshStorage(double[] positions, double[] normals, double[] uvs, int[] indices, double[] nodeBounds,
+			int[] nodeOffsets, int[] nodeCounts, byte[] nodeAxes, int maxDepth) {
+		super(positions.length / 3, indices.length / 3, nodeOffsets.length, maxDepth, normals != null, uvs != null);
+
+		this.positions = positions;
+		this.normals = normals;
+		this.uvs = uvs;
+		this.indices = indices;
+		this.nodeBounds = nodeBounds;
+		this.nodeOffsets = nodeOffsets;
+		this.nodeCounts = nodeCounts;
+		this.nodeAxes = nodeAxes;
+	}
+
+	@Override
+	public double getPosition(int i) {
+
+		return positions[i];
+	}
+
+	@Override
+	public double getNormal(int i) {
+
+		return normals[i];
+	}
+
+	@Override
+	public double getUV(int i) {
+
+		return uvs[i];
+	}
+
+	@Override
+	public int getIndex(int i) {
+
+		return indices[i];
+	}
+
+	@Override
+	public double getNodeBound(int i) {
+
+		return nodeBounds[i];
+	}
+
+	@Override
+	public int getNodeOffset(int node) {
+
+		return nodeOffsets[node];
+	}
+
+	@Override
+	public int getNodeCount(int node) {
+
+		return nodeCounts[node];
+	}
+
+	@Override
+	public int getNodeAxis(int node) {
+
+		return nodeAxes[node];
+	}
+
+	@Override
+	public boolean isOffHeap() {
+
+		return false;
+	}
+
+}
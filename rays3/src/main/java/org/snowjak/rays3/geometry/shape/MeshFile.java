@@ -0,0 +1,304 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.snowjak.rays3.transform.Transform;
+
+/**
+ * Reads and writes {@link TriangleMeshShape}s -- their vertices, indices, and
+ * already-built hierarchies -- to and from a simple binary file-format.
+ * <p>
+ * Files are read back by memory-mapping them, and the resulting mesh reads
+ * its geometry straight from the mapped file. Nothing is copied onto the Java
+ * heap, and the operating system pages the geometry in (and out) as it is
+ * needed -- so that a scene may hold far more geometry than would fit in the
+ * heap, or even in physical memory. A mesh need only be built (on-heap) once,
+ * written out, and thereafter mapped.
+ * </p>
+ * <p>
+ * The file-format (all values little-endian) is:
+ * 
+ * <pre>
+ *   int      magic-number ("RMSH")
+ *   int      format-version
+ *   int      flags (bit 0: has normals, bit 1: has texture-coordinates)
+ *   int      vertex-count
+ *   int      triangle-count
+ *   int      node-count
+ *   int      depth
+ *   int      (padding)
+ *   double[] positions (3 per vertex)
+ *   double[] normals (3 per vertex, if present)
+ *   double[] texture-coordinates (2 per vertex, if present)
+ *   double[] node-bounds (6 per node)
+ *   int[]    indices (3 per triangle, in hierarchy-order)
+ *   int[]    node-offsets (1 per node)
+ *   int[]    node-counts (1 per node)
+ *   byte[]   node-axes (1 per node)
+ * </pre>
+ * </p>
+ * <p>
+ * (This project's other binary formats are big-endian. Those files are read
+ * once, in bulk; a mesh file, on the other hand, is read in place on every
+ * traversal, and so is stored in the byte-order of the platforms this is
+ * expected to run on -- x86 and ARM -- sparing every read a byte-swap.)
+ * </p>
+ * <p>
+ * When a file is read, its header and size are checked, and its indices and
+ * hierarchy are validated (once) -- so that a damaged file cannot send a
+ * traversal out of bounds. Its vertex-data are not checked.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class MeshFile {
+
+	/**
+	 * Every mesh file begins with this magic-number.
+	 */
+	public static final int		MAGIC				= 0x524D5348;
+
+	/**
+	 * The current version of the file-format.
+	 */
+	public static final int		FORMAT_VERSION		= 1;
+
+	private static final int	FLAG_NORMALS		= 1, FLAG_UVS = 2;
+
+	private static final int	HEADER_SIZE			= 8 * 4;
+
+	private static final int	WRITE_BUFFER_SIZE	= 1 << 20;
+
+	private MeshFile() {
+		// Not instantiable.
+	}
+
+	/**
+	 * Write the given mesh to the given file. The file is first written under
+	 * a temporary name, and then moved into place -- so that another process
+	 * never sees a partially-written file.
+	 * <p>
+	 * <strong>Note</strong> that the mesh's Transforms are not written.
+	 * </p>
+	 * 
+	 * @param file
+	 * @param mesh
+	 * @throws IOException
+	 */
+	public static void write(Path file, TriangleMeshShape mesh) throws IOException {
+
+		final MeshStorage storage = mesh.getStorage();
+
+		final Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+
+				final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+				buffer.putInt(MAGIC);
+				buffer.putInt(FORMAT_VERSION);
+				buffer.putInt(( ( storage.hasNormals ) ? FLAG_NORMALS : 0 ) | ( ( storage.hasUVs ) ? FLAG_UVS : 0 ));
+				buffer.putInt(storage.vertexCount);
+				buffer.putInt(storage.triangleCount);
+				buffer.putInt(storage.nodeCount);
+				buffer.putInt(storage.maxDepth);
+				buffer.putInt(0);
+
+				for (int i = 0; i < storage.vertexCount * 3; i++)
+					flushIfFull(channel, buffer, 8).putDouble(storage.getPosition(i));
+				if (storage.hasNormals)
+					for (int i = 0; i < storage.vertexCount * 3; i++)
+						flushIfFull(channel, buffer, 8).putDouble(storage.getNormal(i));
+				if (storage.hasUVs)
+					for (int i = 0; i < storage.vertexCount * 2; i++)
+						flushIfFull(channel, buffer, 8).putDouble(storage.getUV(i));
+				for (int i = 0; i < storage.nodeCount * 6; i++)
+					flushIfFull(channel, buffer, 8).putDouble(storage.getNodeBound(i));
+
+				for (int i = 0; i < storage.triangleCount * 3; i++)
+					flushIfFull(channel, buffer, 4).putInt(storage.getIndex(i));
+				for (int node = 0; node < storage.nodeCount; node++)
+					flushIfFull(channel, buffer, 4).putInt(storage.getNodeOffset(node));
+				for (int node = 0; node < storage.nodeCount; node++)
+					flushIfFull(channel, buffer, 4).putInt(storage.getNodeCount(node));
+				for (int node = 0; node < storage.nodeCount; node++)
+					flushIfFull(channel, buffer, 1).put((byte) storage.getNodeAxis(node));
+
+				flush(channel, buffer);
+			}
+
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * Write out the given buffer if it has fewer than <code>needed</code>
+	 * bytes remaining.
+	 */
+	private static ByteBuffer flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+
+		if (buffer.remaining() < needed)
+			flush(channel, buffer);
+
+		return buffer;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Map the given file as a new {@link TriangleMeshShape}, whose geometry
+	 * remains in the file.
+	 * 
+	 * @param file
+	 * @param worldToLocal
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, is not a mesh file of the current
+	 *             format-version, or is damaged
+	 */
+	public static TriangleMeshShape read(Path file, List<Transform> worldToLocal) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("\"" + file + "\" is not a mesh file!");
+
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC)
+				throw new IOException("\"" + file + "\" is not a mesh file!");
+			if (header.getInt() != FORMAT_VERSION)
+				throw new IOException("\"" + file + "\" was written with an unsupported format-version!");
+
+			final int flags = header.getInt();
+			final int vertexCount = header.getInt(), triangleCount = header.getInt(), nodeCount = header.getInt(),
+					depth = header.getInt();
+			final boolean hasNormals = ( flags & FLAG_NORMALS ) != 0, hasUVs = ( flags & FLAG_UVS ) != 0;
+
+			if (vertexCount < 0 || triangleCount <= 0 || nodeCount <= 0 || depth < 0)
+				throw new IOException("\"" + file + "\" has a damaged header!");
+
+			final long positionsSize = vertexCount * 3L * 8L, normalsSize = ( hasNormals ) ? positionsSize : 0L,
+					uvsSize = ( hasUVs ) ? vertexCount * 2L * 8L : 0L, nodeBoundsSize = nodeCount * 6L * 8L,
+					indicesSize = triangleCount * 3L * 4L, nodeOffsetsSize = nodeCount * 4L,
+					nodeCountsSize = nodeCount * 4L, nodeAxesSize = nodeCount;
+
+			if (channel.size() != HEADER_SIZE + positionsSize + normalsSize + uvsSize + nodeBoundsSize + indicesSize
+					+ nodeOffsetsSize + nodeCountsSize + nodeAxesSize)
+				throw new IOException("\"" + file + "\" is not the expected size!");
+
+			long position = HEADER_SIZE;
+			final ByteBuffer[] positions = map(channel, position, positionsSize);
+			position += positionsSize;
+			final ByteBuffer[] normals = ( hasNormals ) ? map(channel, position, normalsSize) : null;
+			position += normalsSize;
+			final ByteBuffer[] uvs = ( hasUVs ) ? map(channel, position, uvsSize) : null;
+			position += uvsSize;
+			final ByteBuffer[] nodeBounds = map(channel, position, nodeBoundsSize);
+			position += nodeBoundsSize;
+			final ByteBuffer[] indices = map(channel, position, indicesSize);
+			position += indicesSize;
+			final ByteBuffer[] nodeOffsets = map(channel, position, nodeOffsetsSize);
+			position += nodeOffsetsSize;
+			final ByteBuffer[] nodeCounts = map(channel, position, nodeCountsSize);
+			position += nodeCountsSize;
+			final ByteBuffer[] nodeAxes = map(channel, position, nodeAxesSize);
+
+			final MeshStorage storage = new DirectMeshStorage(vertexCount, triangleCount, nodeCount, depth, positions,
+					normals, uvs, indices, nodeBounds, nodeOffsets, nodeCounts, nodeAxes);
+			if (!isConsistent(storage))
+				throw new IOException("\"" + file + "\" has damaged indices or hierarchy!");
+
+			return new TriangleMeshShape(storage, worldToLocal);
+		}
+	}
+
+	/**
+	 * Check that every vertex-index falls within the mesh's vertices, that
+	 * every node refers only to valid triangle-ranges and to nodes following
+	 * it, that every node but the root is the child of exactly one other, and
+	 * that the hierarchy is no deeper than advertised -- so that a
+	 * damaged file cannot send a traversal out of bounds (or around in
+	 * circles).
+	 */
+	private static boolean isConsistent(MeshStorage storage) {
+
+		for (int i = 0; i < storage.triangleCount * 3; i++) {
+			final int index = storage.getIndex(i);
+			if (index < 0 || index >= storage.vertexCount)
+				return false;
+		}
+
+		final int nodeCount = storage.nodeCount;
+		final int[] nodeDepths = new int[nodeCount];
+		if (nodeCount > 0)
+			nodeDepths[0] = 1;
+
+		for (int node = 0; node < nodeCount; node++) {
+			final int offset = storage.getNodeOffset(node), count = storage.getNodeCount(node);
+			if (nodeDepths[node] == 0 || nodeDepths[node] > storage.maxDepth + 1)
+				return false;
+
+			if (count > 0) {
+				if (offset < 0 || offset > storage.triangleCount - count)
+					return false;
+			} else {
+				final int axis = storage.getNodeAxis(node);
+				if (count < 0 || axis < 0 || axis > 2 || offset <= node + 1 || offset >= nodeCount)
+					return false;
+				//
+				// Every node but the root must have exactly one parent.
+				// Otherwise, a node shared by two parents would keep only one
+				// of their depths, and a path through the other could run
+				// deeper than advertised.
+				if (nodeDepths[node + 1] != 0 || nodeDepths[offset] != 0)
+					return false;
+				nodeDepths[node + 1] = nodeDepths[node] + 1;
+				nodeDepths[offset] = nodeDepths[node] + 1;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Map the given region of the given file as a series of
+	 * {@link DirectMeshStorage#PAGE_SIZE}-byte pages.
+	 */
+	private static ByteBuffer[] map(FileChannel channel, long start, long size) throws IOException {
+
+		final long pageSize = DirectMeshStorage.PAGE_SIZE;
+		final ByteBuffer[] pages = new ByteBuffer[(int) ( ( size + pageSize - 1 ) / pageSize )];
+		for (int page = 0; page < pages.length; page++)
+			pages[page] = channel
+					.map(MapMode.READ_ONLY, start + page * pageSize, Math.min(pageSize, size - page * pageSize))
+					.order(ByteOrder.LITTLE_ENDIAN);
+		return pages;
+	}
+
+}
@@ -0,0 +1,1411 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.snowjak.rays3.transform.Transform;
+
+/**
+ * Loads {@link TriangleMeshShape}s from Wavefront OBJ and binary PLY files.
+ * <p>
+ * Files are memory-mapped, and parsed in parallel chunks on a
+ * {@link ForkJoinPool}, straight into the flat vertex- and index-arrays that
+ * the mesh is built from. No object is allocated per line, per vertex, or per
+ * triangle, so that loading a mesh of millions of triangles costs little more
+ * heap than the finished mesh itself.
+ * </p>
+ * <p>
+ * An OBJ file is read in two passes. The first pass counts each chunk's
+ * vertices, normals, texture-coordinates, and (fan-triangulated) faces, from
+ * which every chunk's offsets into the final arrays are computed; the second
+ * pass then parses each chunk directly into place. Only <code>v</code>,
+ * <code>vt</code>, <code>vn</code>, and <code>f</code> records are
+ * understood -- all others (groups, materials, etc.) are ignored, and every
+ * object in the file is merged into a single mesh. If the file's faces index
+ * their normals or texture-coordinates separately from their positions, the
+ * distinct combinations are gathered into new, shared vertices.
+ * </p>
+ * <p>
+ * A PLY file must be in one of the binary formats. Its <code>vertex</code>
+ * element must have the properties <code>x</code>, <code>y</code>, and
+ * <code>z</code>, and may have normals (<code>nx</code>, <code>ny</code>,
+ * <code>nz</code>) and texture-coordinates (<code>u</code>/<code>v</code>,
+ * <code>s</code>/<code>t</code>, or <code>texture_u</code>/
+ * <code>texture_v</code>). Its <code>face</code> element must have a list
+ * property named <code>vertex_indices</code> (or <code>vertex_index</code>).
+ * All other elements and properties are skipped.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that a PLY file is mapped as a single buffer, and so
+ * may be no larger than 2 GB. (An OBJ file, whose chunks are mapped
+ * separately, has no such limit. A PLY file's records may straddle any
+ * boundary between mapped windows, so that splitting it across several would
+ * mean checking for such a boundary on every property read.)
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class MeshLoader {
+
+	/**
+	 * Files are not split into chunks smaller than this.
+	 */
+	private static final int	MIN_CHUNK_SIZE		= 1 << 20;
+
+	/**
+	 * Each chunk of a file is mapped separately, and must therefore be no
+	 * larger than this.
+	 */
+	private static final int	MAX_CHUNK_SIZE		= 1 << 30;
+
+	/**
+	 * PLY records are decoded in parallel blocks of this many records.
+	 */
+	private static final int	PARALLEL_THRESHOLD	= 65536;
+
+	//
+	// The largest power of 10 that is exactly representable as a double.
+	private static final int	MAX_EXACT_EXPONENT	= 22;
+	private static final double[]	POWERS_OF_TEN;
+	static {
+		POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+		POWERS_OF_TEN[0] = 1d;
+		for (int i = 1; i <= MAX_EXACT_EXPONENT; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10d;
+	}
+
+	private MeshLoader() {
+		// Not instantiable.
+	}
+
+	/**
+	 * Load a mesh from the given file, choosing the file-format by its
+	 * extension (<code>.obj</code> or <code>.ply</code>) and executing on the
+	 * common {@link ForkJoinPool}.
+	 * 
+	 * @param file
+	 * @param worldToLocal
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, or is malformed
+	 * @see #load(Path, List, ForkJoinPool)
+	 */
+	public static TriangleMeshShape load(Path file, List<Transform> worldToLocal) throws IOException {
+
+		return load(file, worldToLocal, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Load a mesh from the given file, choosing the file-format by its
+	 * extension (<code>.obj</code> or <code>.ply</code>) and executing on the
+	 * given {@link ForkJoinPool}.
+	 * 
+	 * @param file
+	 * @param worldToLocal
+	 * @param pool
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, or is malformed
+	 * @throws IllegalArgumentException
+	 *             if the file's extension is not recognized
+	 */
+	public static TriangleMeshShape load(Path file, List<Transform> worldToLocal, ForkJoinPool pool)
+			throws IOException {
+
+		final String name = file.getFileName().toString().toLowerCase();
+		if (name.endsWith(".obj"))
+			return loadOBJ(file, worldToLocal, pool);
+		if (name.endsWith(".ply"))
+			return loadPLY(file, worldToLocal, pool);
+
+		throw new IllegalArgumentException("Cannot determine the mesh-format of \"" + file + "\"!");
+	}
+
+	/**
+	 * Load a mesh from the given Wavefront OBJ file.
+	 * 
+	 * @param file
+	 * @param worldToLocal
+	 * @param pool
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, or is malformed
+	 */
+	public static TriangleMeshShape loadOBJ(Path file, List<Transform> worldToLocal, ForkJoinPool pool)
+			throws IOException {
+
+		return readOBJ(file, pool).toShape(worldToLocal);
+	}
+
+	/**
+	 * Read the given Wavefront OBJ file into flat vertex- and index-arrays
+	 * (without yet building a mesh from them).
+	 */
+	static MeshData readOBJ(Path file, ForkJoinPool pool) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			final long[] boundaries = getLineAlignedBoundaries(channel, pool.getParallelism());
+			final OBJChunk[] chunks = new OBJChunk[boundaries.length - 1];
+			for (int i = 0; i < chunks.length; i++)
+				chunks[i] = new OBJChunk(
+						channel.map(MapMode.READ_ONLY, boundaries[i], boundaries[i + 1] - boundaries[i]));
+
+			//
+			// First pass: count everything.
+			invoke(pool, new OBJTask(chunks, 0, chunks.length, false));
+
+			long positionCount = 0, normalCount = 0, uvCount = 0, triangleCount = 0;
+			for (OBJChunk chunk : chunks) {
+				chunk.firstPosition = (int) positionCount;
+				chunk.firstNormal = (int) normalCount;
+				chunk.firstUV = (int) uvCount;
+				chunk.firstTriangle = (int) triangleCount;
+
+				positionCount += chunk.positionCount;
+				normalCount += chunk.normalCount;
+				uvCount += chunk.uvCount;
+				triangleCount += chunk.triangleCount;
+			}
+
+			if (positionCount * 3 > Integer.MAX_VALUE || normalCount * 3 > Integer.MAX_VALUE
+					|| uvCount * 2 > Integer.MAX_VALUE || triangleCount * 3 > Integer.MAX_VALUE)
+				throw new IOException("\"" + file + "\" is too large to load as a single mesh!");
+
+			final OBJMesh mesh = new OBJMesh((int) positionCount, (int) normalCount, (int) uvCount,
+					(int) triangleCount);
+			for (OBJChunk chunk : chunks)
+				chunk.mesh = mesh;
+
+			//
+			// Second pass: parse everything into place.
+			invoke(pool, new OBJTask(chunks, 0, chunks.length, true));
+
+			if (triangleCount == 0)
+				throw new IOException("OBJ file has no faces!");
+
+			return mesh.toMeshData();
+		}
+	}
+
+	/**
+	 * Load a mesh from the given binary PLY file.
+	 * 
+	 * @param file
+	 * @param worldToLocal
+	 * @param pool
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read, is malformed, is not a binary
+	 *             PLY file, or is larger than 2 GB
+	 */
+	public static TriangleMeshShape loadPLY(Path file, List<Transform> worldToLocal, ForkJoinPool pool)
+			throws IOException {
+
+		return readPLY(file, pool).toShape(worldToLocal);
+	}
+
+	/**
+	 * Read the given binary PLY file into flat vertex- and index-arrays
+	 * (without yet building a mesh from them).
+	 */
+	static MeshData readPLY(Path file, ForkJoinPool pool) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("\"" + file + "\" is too large -- PLY files are limited to 2 GB!");
+
+			final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			final PLYHeader header = new PLYHeader(buffer);
+			buffer.order(header.order);
+
+			double[] positions = null, normals = null, uvs = null;
+			int[] indices = null;
+
+			int position = header.size;
+			for (PLYElement element : header.elements) {
+
+				if (element.name.equals("vertex")) {
+					if (positions != null)
+						throw new IOException("PLY file has more than one vertex element!");
+
+					final PLYVertices vertices = new PLYVertices(buffer, element, position);
+					pool.invoke(new PLYVertexTask(vertices, 0, vertices.count));
+					positions = vertices.positions;
+					normals = vertices.normals;
+					uvs = vertices.uvs;
+
+					position = vertices.end;
+
+				} else if (element.name.equals("face")) {
+					if (indices != null)
+						throw new IOException("PLY file has more than one face element!");
+
+					final PLYFaces faces = new PLYFaces(buffer, element, position);
+					pool.invoke(new PLYFaceTask(faces, 0, faces.blockCount));
+					indices = faces.indices;
+
+					position = faces.end;
+
+				} else
+					position = element.skip(buffer, position);
+			}
+
+			if (positions == null || indices == null)
+				throw new IOException("PLY file is missing its vertex or face element!");
+
+			final int vertexCount = positions.length / 3;
+			for (int index : indices)
+				if (index < 0 || index >= vertexCount)
+					throw new IOException("PLY face refers to nonexistent vertex " + index + "!");
+			if (indices.length == 0)
+				throw new IOException("PLY file has no faces!");
+
+			return new MeshData(positions, normals, uvs, indices);
+		}
+	}
+
+	/**
+	 * A mesh's vertex- and index-arrays, as read from a file.
+	 */
+	static class MeshData {
+
+		final double[]	positions, normals, uvs;
+		final int[]		indices;
+
+		MeshData(double[] positions, double[] normals, double[] uvs, int[] indices) {
+			this.positions = positions;
+			this.normals = normals;
+			this.uvs = uvs;
+			this.indices = indices;
+		}
+
+		TriangleMeshShape toShape(List<Transform> worldToLocal) {
+
+			return new TriangleMeshShape(positions, normals, uvs, indices, worldToLocal);
+		}
+	}
+
+	/**
+	 * Execute the given task on the given pool, rethrowing any IOException it
+	 * raised.
+	 */
+	private static void invoke(ForkJoinPool pool, RecursiveAction task) throws IOException {
+
+		try {
+			pool.invoke(task);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Divide the given file into roughly-equal chunks -- enough to occupy the
+	 * given degree of parallelism several times over -- each of which begins
+	 * at the start of a line.
+	 * 
+	 * @return the chunks' boundaries (one more than the number of chunks)
+	 */
+	private static long[] getLineAlignedBoundaries(FileChannel channel, int parallelism) throws IOException {
+
+		final long size = channel.size();
+		final int chunkCount = (int) Math.max(Math.min(size / MIN_CHUNK_SIZE, parallelism * 4L),
+				size / MAX_CHUNK_SIZE + 1);
+
+		final long[] boundaries = new long[chunkCount + 1];
+		final ByteBuffer probe = ByteBuffer.allocate(4096);
+
+		for (int i = 1; i < boundaries.length - 1; i++) {
+			long boundary = Math.max(size * i / chunkCount, boundaries[i - 1]);
+
+			//
+			// Advance the boundary to just past the next line-break.
+			find: while (boundary < size) {
+				probe.clear();
+				final int read = channel.read(probe, boundary - 1);
+				for (int j = 0; j < read; j++)
+					if (probe.get(j) == '\n') {
+						boundary += j;
+						break find;
+					}
+				boundary += Math.max(read, 1);
+			}
+
+			boundaries[i] = Math.min(boundary, size);
+		}
+		boundaries[chunkCount] = size;
+
+		for (int i = 0; i < chunkCount; i++)
+			if (boundaries[i + 1] - boundaries[i] > MAX_CHUNK_SIZE)
+				throw new IOException("OBJ file has a line longer than " + MAX_CHUNK_SIZE + " bytes!");
+
+		return boundaries;
+	}
+
+	/**
+	 * Counts or parses a range of {@link OBJChunk}s.
+	 */
+	private static class OBJTask extends RecursiveAction {
+
+		private static final long	serialVersionUID	= 4931205476315127405L;
+
+		private final OBJChunk[]	chunks;
+		private final int			start, end;
+		private final boolean		parse;
+
+		public OBJTask(OBJChunk[] chunks, int start, int end, boolean parse) {
+			this.chunks = chunks;
+			this.start = start;
+			this.end = end;
+			this.parse = parse;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start > 1) {
+				final int mid = ( start + end ) >>> 1;
+				invokeAll(new OBJTask(chunks, start, mid, parse), new OBJTask(chunks, mid, end, parse));
+				return;
+			}
+
+			try {
+				if (parse)
+					chunks[start].parse();
+				else
+					chunks[start].count();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * The arrays that every {@link OBJChunk} parses into.
+	 */
+	private static class OBJMesh {
+
+		private final double[]	positions, normals, uvs;
+
+		//
+		// Each triangle-corner's position-, texture-coordinate-, and
+		// normal-index. Those corners without a texture-coordinate or normal
+		// have an index of -1.
+		private final int[]		cornerPositions, cornerUVs, cornerNormals;
+
+		public OBJMesh(int positionCount, int normalCount, int uvCount, int triangleCount) {
+			this.positions = new double[positionCount * 3];
+			this.normals = new double[normalCount * 3];
+			this.uvs = new double[uvCount * 2];
+
+			this.cornerPositions = new int[triangleCount * 3];
+			this.cornerUVs = ( uvCount > 0 ) ? new int[triangleCount * 3] : null;
+			this.cornerNormals = ( normalCount > 0 ) ? new int[triangleCount * 3] : null;
+		}
+
+		/**
+		 * Assemble these arrays into a {@link MeshData}.
+		 * <p>
+		 * Normals and texture-coordinates are kept only if every corner has
+		 * one. If every corner's normal- and texture-coordinate-indices are
+		 * the same as its position-index, the parsed arrays are used
+		 * as-is; otherwise, each distinct combination of indices becomes a new
+		 * vertex.
+		 * </p>
+		 */
+		public MeshData toMeshData() {
+
+			final int positionCount = positions.length / 3;
+			final boolean hasUVs = isComplete(cornerUVs), hasNormals = isComplete(cornerNormals);
+
+			final boolean isShared = ( !hasUVs || ( uvs.length / 2 == positionCount
+					&& Arrays.equals(cornerUVs, cornerPositions) ) )
+					&& ( !hasNormals || ( normals.length / 3 == positionCount
+							&& Arrays.equals(cornerNormals, cornerPositions) ) );
+
+			if (isShared)
+				return new MeshData(positions, ( hasNormals ) ? normals : null, ( hasUVs ) ? uvs : null,
+						cornerPositions);
+
+			//
+			// Gather each distinct (position, texture-coordinate, normal)
+			// combination into a new vertex, using an open-addressed
+			// hash-table of new vertex-indices (offset by 1, so that 0 marks
+			// an empty slot).
+			final int cornerCount = cornerPositions.length;
+			final int tableSize = Integer.highestOneBit(Math.max(cornerCount, 1) * 2 - 1) << 1;
+			final int[] table = new int[tableSize];
+
+			final int[] indices = new int[cornerCount];
+			final int[] vertexCorners = new int[cornerCount];
+			int vertexCount = 0;
+
+			for (int corner = 0; corner < cornerCount; corner++) {
+				final int p = cornerPositions[corner], t = ( hasUVs ) ? cornerUVs[corner] : -1,
+						n = ( hasNormals ) ? cornerNormals[corner] : -1;
+
+				int slot = hash(p, t, n) & ( tableSize - 1 );
+				while (true) {
+					final int entry = table[slot];
+					if (entry == 0) {
+						vertexCorners[vertexCount] = corner;
+						table[slot] = ++vertexCount;
+						indices[corner] = vertexCount - 1;
+						break;
+					}
+
+					final int other = vertexCorners[entry - 1];
+					if (cornerPositions[other] == p && ( !hasUVs || cornerUVs[other] == t )
+							&& ( !hasNormals || cornerNormals[other] == n )) {
+						indices[corner] = entry - 1;
+						break;
+					}
+
+					slot = ( slot + 1 ) & ( tableSize - 1 );
+				}
+			}
+
+			final double[] newPositions = new double[vertexCount * 3];
+			final double[] newNormals = ( hasNormals ) ? new double[vertexCount * 3] : null;
+			final double[] newUVs = ( hasUVs ) ? new double[vertexCount * 2] : null;
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				final int corner = vertexCorners[vertex];
+
+				System.arraycopy(positions, cornerPositions[corner] * 3, newPositions, vertex * 3, 3);
+				if (hasNormals)
+					System.arraycopy(normals, cornerNormals[corner] * 3, newNormals, vertex * 3, 3);
+				if (hasUVs)
+					System.arraycopy(uvs, cornerUVs[corner] * 2, newUVs, vertex * 2, 2);
+			}
+
+			return new MeshData(newPositions, newNormals, newUVs, indices);
+		}
+
+		private static boolean isComplete(int[] cornerIndices) {
+
+			if (cornerIndices == null)
+				return false;
+			for (int index : cornerIndices)
+				if (index < 0)
+					return false;
+			return true;
+		}
+
+		private static int hash(int p, int t, int n) {
+
+			int h = p * 0x9E3779B1 + t * 0x85EBCA6B + n * 0xC2B2AE35;
+			h ^= h >>> 16;
+			h *= 0x7FEB352D;
+			return h ^ ( h >>> 15 );
+		}
+	}
+
+	/**
+	 * A line-aligned portion of an OBJ file.
+	 */
+	private static class OBJChunk {
+
+		private final MappedByteBuffer	buffer;
+		private final int				limit;
+		private int						position;
+
+		//
+		// Counted in the first pass.
+		private int						positionCount, normalCount, uvCount, triangleCount;
+
+		//
+		// Assigned between passes.
+		private int						firstPosition, firstNormal, firstUV, firstTriangle;
+		private OBJMesh					mesh;
+
+		public OBJChunk(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+			this.limit = buffer.limit();
+		}
+
+		/**
+		 * Count this chunk's vertices, normals, texture-coordinates, and
+		 * triangles.
+		 */
+		public void count() {
+
+			position = 0;
+			while (position < limit) {
+				switch (getRecordType()) {
+				case 'v':
+					positionCount++;
+					break;
+				case 'n':
+					normalCount++;
+					break;
+				case 't':
+					uvCount++;
+					break;
+				case 'f':
+					int corners = 0;
+					while (skipSpaces())
+						if (skipToken())
+							corners++;
+					triangleCount += Math.max(corners - 2, 0);
+					break;
+				}
+				skipLine();
+			}
+		}
+
+		/**
+		 * Parse this chunk into its portion of the {@link OBJMesh}.
+		 * 
+		 * @throws IOException
+		 */
+		public void parse() throws IOException {
+
+			final double[] positions = mesh.positions, normals = mesh.normals, uvs = mesh.uvs;
+			int nextPosition = firstPosition, nextNormal = firstNormal, nextUV = firstUV,
+					nextCorner = firstTriangle * 3;
+
+			position = 0;
+			while (position < limit) {
+				switch (getRecordType()) {
+				case 'v':
+					positions[nextPosition * 3] = parseDouble();
+					positions[nextPosition * 3 + 1] = parseDouble();
+					positions[nextPosition * 3 + 2] = parseDouble();
+					nextPosition++;
+					break;
+				case 'n':
+					normals[nextNormal * 3] = parseDouble();
+					normals[nextNormal * 3 + 1] = parseDouble();
+					normals[nextNormal * 3 + 2] = parseDouble();
+					nextNormal++;
+					break;
+				case 't':
+					uvs[nextUV * 2] = parseDouble();
+					uvs[nextUV * 2 + 1] = ( skipSpaces() ) ? parseDouble() : 0d;
+					nextUV++;
+					break;
+				case 'f':
+					nextCorner = parseFace(nextCorner, nextPosition, nextNormal, nextUV);
+					break;
+				}
+				skipLine();
+			}
+		}
+
+		/**
+		 * Parse the remainder of a face-record, fan-triangulating it into
+		 * consecutive triangles beginning at the given corner.
+		 * 
+		 * @return the next corner to be written
+		 */
+		private int parseFace(int nextCorner, int positionCount, int normalCount, int uvCount) throws IOException {
+
+			final int[] cornerPositions = mesh.cornerPositions, cornerUVs = mesh.cornerUVs,
+					cornerNormals = mesh.cornerNormals;
+			final int totalPositions = mesh.positions.length / 3, totalNormals = mesh.normals.length / 3,
+					totalUVs = mesh.uvs.length / 2;
+
+			int firstP = 0, firstT = -1, firstN = -1, previousP = 0, previousT = -1, previousN = -1;
+			int corners = 0;
+			while (skipSpaces()) {
+				final int p = parseIndex(positionCount, totalPositions);
+				int t = -1, n = -1;
+				if (position < limit && buffer.get(position) == '/') {
+					position++;
+					if (position < limit && buffer.get(position) != '/' && !isBreak(buffer.get(position)))
+						t = parseIndex(uvCount, totalUVs);
+					if (position < limit && buffer.get(position) == '/') {
+						position++;
+						n = parseIndex(normalCount, totalNormals);
+					}
+				}
+				if (position < limit && !isBreak(buffer.get(position)))
+					throw new IOException("Malformed OBJ face-vertex!");
+
+				if (corners == 0) {
+					firstP = p;
+					firstT = t;
+					firstN = n;
+				} else if (corners >= 2) {
+					cornerPositions[nextCorner] = firstP;
+					cornerPositions[nextCorner + 1] = previousP;
+					cornerPositions[nextCorner + 2] = p;
+					if (cornerUVs != null) {
+						cornerUVs[nextCorner] = firstT;
+						cornerUVs[nextCorner + 1] = previousT;
+						cornerUVs[nextCorner + 2] = t;
+					}
+					if (cornerNormals != null) {
+						cornerNormals[nextCorner] = firstN;
+						cornerNormals[nextCorner + 1] = previousN;
+						cornerNormals[nextCorner + 2] = n;
+					}
+					nextCorner += 3;
+				}
+
+				previousP = p;
+				previousT = t;
+				previousN = n;
+				corners++;
+			}
+
+			return nextCorner;
+		}
+
+		/**
+		 * Parse an OBJ index -- 1-based, or (if negative) relative to the
+		 * given count of items defined so far -- into a 0-based index.
+		 */
+		private int parseIndex(int countSoFar, int totalCount) throws IOException {
+
+			boolean negative = false;
+			if (position < limit && buffer.get(position) == '-') {
+				negative = true;
+				position++;
+			}
+
+			final int start = position;
+			long value = 0;
+			while (position < limit) {
+				final int digit = buffer.get(position) - '0';
+				if (digit < 0 || digit > 9)
+					break;
+				value = value * 10 + digit;
+				if (value > Integer.MAX_VALUE)
+					throw new IOException("OBJ index is out of range!");
+				position++;
+			}
+			if (position == start)
+				throw new IOException("Malformed OBJ index!");
+
+			final long index = ( negative ) ? countSoFar - value : value - 1;
+			if (value == 0 || index < 0 || index >= totalCount)
+				throw new IOException("OBJ face refers to nonexistent vertex " + ( ( negative ) ? -value : value )
+						+ "!");
+
+			return (int) index;
+		}
+
+		/**
+		 * Parse a decimal number. Numbers with no more than 15 significant
+		 * digits and small exponents -- as written by practically every
+		 * exporter -- are converted exactly, with a single multiplication or
+		 * division; anything else is handed to {@link Double#parseDouble}.
+		 */
+		private double parseDouble() throws IOException {
+
+			if (!skipSpaces())
+				throw new IOException("OBJ record has too few values!");
+
+			final int start = position;
+
+			boolean negative = false;
+			byte b = buffer.get(position);
+			if (b == '-' || b == '+') {
+				negative = ( b == '-' );
+				position++;
+			}
+
+			//
+			// Accumulate every digit (before and after the decimal point)
+			// into the mantissa, counting its significant digits. (If there
+			// are too many of those, the mantissa may overflow -- but then
+			// we won't use it anyway.)
+			long mantissa = 0;
+			int digits = 0, exponent = 0;
+			boolean anyDigits = false, isFraction = false;
+
+			while (position < limit) {
+				b = buffer.get(position);
+				if (b >= '0' && b <= '9') {
+					anyDigits = true;
+					if (mantissa != 0 || b != '0')
+						digits++;
+					mantissa = mantissa * 10 + ( b - '0' );
+					if (isFraction)
+						exponent--;
+				} else if (b == '.' && !isFraction)
+					isFraction = true;
+				else
+					break;
+				position++;
+			}
+
+			if (anyDigits && position < limit && ( ( b = buffer.get(position) ) == 'e' || b == 'E' )) {
+				position++;
+				boolean negativeExponent = false;
+				if (position < limit && ( ( b = buffer.get(position) ) == '-' || b == '+' )) {
+					negativeExponent = ( b == '-' );
+					position++;
+				}
+
+				int explicitExponent = 0;
+				boolean anyExponentDigits = false;
+				while (position < limit && ( b = buffer.get(position) ) >= '0' && b <= '9') {
+					anyExponentDigits = true;
+					explicitExponent = Math.min(explicitExponent * 10 + ( b - '0' ), 100000);
+					position++;
+				}
+				if (!anyExponentDigits)
+					anyDigits = false;
+				exponent += ( negativeExponent ) ? -explicitExponent : explicitExponent;
+			}
+
+			if (anyDigits && digits <= 15 && ( position >= limit || isBreak(buffer.get(position)) )) {
+				double value = mantissa;
+				if (exponent < 0 && exponent >= -MAX_EXACT_EXPONENT)
+					value /= POWERS_OF_TEN[-exponent];
+				else if (exponent > 0 && exponent <= MAX_EXACT_EXPONENT)
+					value *= POWERS_OF_TEN[exponent];
+				else if (exponent != 0 && mantissa != 0)
+					return parseDoubleSlowly(start);
+
+				return ( negative ) ? -value : value;
+			}
+
+			return parseDoubleSlowly(start);
+		}
+
+		private double parseDoubleSlowly(int start) throws IOException {
+
+			position = start;
+			skipToken();
+
+			final byte[] token = new byte[position - start];
+			for (int i = 0; i < token.length; i++)
+				token[i] = buffer.get(start + i);
+
+			try {
+				return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed OBJ number!", e);
+			}
+		}
+
+		/**
+		 * Skip any leading whitespace, and identify the current line's record:
+		 * <code>'v'</code> (vertex-position), <code>'n'</code> (vertex-normal),
+		 * <code>'t'</code> (texture-coordinate), <code>'f'</code> (face), or
+		 * <code>0</code> (anything else). A recognized record-type is consumed.
+		 */
+		private char getRecordType() {
+
+			skipSpaces();
+			if (position >= limit)
+				return 0;
+
+			final byte first = buffer.get(position);
+			final byte second = ( position + 1 < limit ) ? buffer.get(position + 1) : (byte) '\n';
+
+			if (first == 'f' && isBreak(second)) {
+				position++;
+				return 'f';
+			}
+			if (first == 'v') {
+				if (isBreak(second)) {
+					position++;
+					return 'v';
+				}
+				if (( second == 'n' || second == 't' )
+						&& ( position + 2 >= limit || isBreak(buffer.get(position + 2)) )) {
+					position += 2;
+					return (char) second;
+				}
+			}
+
+			return 0;
+		}
+
+		/**
+		 * Skip spaces and tabs.
+		 * 
+		 * @return <code>true</code> if a token follows on the current line
+		 */
+		private boolean skipSpaces() {
+
+			while (position < limit && isSpace(buffer.get(position)))
+				position++;
+			if (position >= limit)
+				return false;
+
+			final byte b = buffer.get(position);
+			return b != '\n' && b != '\r' && b != '#';
+		}
+
+		/**
+		 * Skip the current token.
+		 * 
+		 * @return <code>true</code> if any characters were skipped
+		 */
+		private boolean skipToken() {
+
+			final int start = position;
+			while (position < limit && !isBreak(buffer.get(position)))
+				position++;
+			return position > start;
+		}
+
+		/**
+		 * Skip to the start of the next line.
+		 */
+		private void skipLine() {
+
+			while (position < limit && buffer.get(position) != '\n')
+				position++;
+			position++;
+		}
+
+		private static boolean isSpace(byte b) {
+
+			return b == ' ' || b == '\t';
+		}
+
+		private static boolean isBreak(byte b) {
+
+			return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+		}
+	}
+
+	/**
+	 * The scalar types a PLY property may have.
+	 */
+	private enum PLYType {
+		CHAR(1), UCHAR(1), SHORT(2), USHORT(2), INT(4), UINT(4), FLOAT(4), DOUBLE(8);
+
+		private final int size;
+
+		PLYType(int size) {
+			this.size = size;
+		}
+
+		public static PLYType forName(String name) throws IOException {
+
+			switch (name) {
+			case "char":
+			case "int8":
+				return CHAR;
+			case "uchar":
+			case "uint8":
+				return UCHAR;
+			case "short":
+			case "int16":
+				return SHORT;
+			case "ushort":
+			case "uint16":
+				return USHORT;
+			case "int":
+			case "int32":
+				return INT;
+			case "uint":
+			case "uint32":
+				return UINT;
+			case "float":
+			case "float32":
+				return FLOAT;
+			case "double":
+			case "float64":
+				return DOUBLE;
+			default:
+				throw new IOException("Unknown PLY property-type \"" + name + "\"!");
+			}
+		}
+
+		public double getDouble(ByteBuffer buffer, int position) {
+
+			switch (this) {
+			case FLOAT:
+				return buffer.getFloat(position);
+			case DOUBLE:
+				return buffer.getDouble(position);
+			default:
+				return getLong(buffer, position);
+			}
+		}
+
+		public long getLong(ByteBuffer buffer, int position) {
+
+			switch (this) {
+			case CHAR:
+				return buffer.get(position);
+			case UCHAR:
+				return buffer.get(position) & 0xFF;
+			case SHORT:
+				return buffer.getShort(position);
+			case USHORT:
+				return buffer.getShort(position) & 0xFFFF;
+			case INT:
+				return buffer.getInt(position);
+			case UINT:
+				return buffer.getInt(position) & 0xFFFFFFFFL;
+			case FLOAT:
+				return (long) buffer.getFloat(position);
+			default:
+				return (long) buffer.getDouble(position);
+			}
+		}
+	}
+
+	private static class PLYProperty {
+
+		private final String	name;
+		private final PLYType	type;
+
+		//
+		// Non-null if this is a list-property.
+		private final PLYType	countType;
+
+		public PLYProperty(String name, PLYType type, PLYType countType) {
+			this.name = name;
+			this.type = type;
+			this.countType = countType;
+		}
+	}
+
+	private static class PLYElement {
+
+		private final String			name;
+		private final int				count;
+		private final List<PLYProperty>	properties	= new ArrayList<>();
+
+		public PLYElement(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		/**
+		 * @return the size of each of this element's records, or -1 if they
+		 *         vary in size
+		 */
+		public int getRecordSize() {
+
+			int size = 0;
+			for (PLYProperty property : properties) {
+				if (property.countType != null)
+					return -1;
+				size += property.type.size;
+			}
+			return size;
+		}
+
+		/**
+		 * @return the offset of the named property within each record, or -1
+		 *         if this element has no such property (or it follows a
+		 *         list-property)
+		 */
+		public int getOffset(String... names) {
+
+			int offset = 0;
+			for (PLYProperty property : properties) {
+				for (String name : names)
+					if (property.name.equals(name))
+						return offset;
+				if (property.countType != null)
+					return -1;
+				offset += property.type.size;
+			}
+			return -1;
+		}
+
+		public PLYType getType(String... names) {
+
+			for (PLYProperty property : properties)
+				for (String name : names)
+					if (property.name.equals(name))
+						return property.type;
+			return null;
+		}
+
+		/**
+		 * @return the position following the record at the given position
+		 * @throws IOException
+		 *             if one of the record's list-properties has an invalid
+		 *             length
+		 */
+		public int skipRecord(ByteBuffer buffer, int position) throws IOException {
+
+			for (PLYProperty property : properties)
+				if (property.countType == null)
+					position += property.type.size;
+				else {
+					final long count = property.countType.getLong(buffer, position);
+					if (count < 0 || count > Integer.MAX_VALUE)
+						throw new IOException("PLY list-property has an invalid length!");
+					position += property.countType.size + (int) count * property.type.size;
+				}
+			return position;
+		}
+
+		/**
+		 * As {@link #skipRecord(ByteBuffer, int)}, but for a record that has
+		 * already been skipped (and so checked) once.
+		 * 
+		 * @return the position following the record at the given position
+		 */
+		public int skipCheckedRecord(ByteBuffer buffer, int position) {
+
+			for (PLYProperty property : properties)
+				if (property.countType == null)
+					position += property.type.size;
+				else
+					position += property.countType.size
+							+ (int) property.countType.getLong(buffer, position) * property.type.size;
+			return position;
+		}
+
+		/**
+		 * @return the position following all of this element's records
+		 */
+		public int skip(ByteBuffer buffer, int position) throws IOException {
+
+			final int recordSize = getRecordSize();
+			if (recordSize >= 0) {
+				final long end = position + (long) recordSize * count;
+				if (end > buffer.limit())
+					throw new IOException("PLY file is truncated!");
+				return (int) end;
+			}
+
+			for (int i = 0; i < count; i++)
+				position = skipRecord(buffer, position);
+			return position;
+		}
+	}
+
+	private static class PLYHeader {
+
+		private final ByteOrder			order;
+		private final List<PLYElement>	elements	= new ArrayList<>();
+		private final int				size;
+
+		public PLYHeader(ByteBuffer buffer) throws IOException {
+
+			ByteOrder order = null;
+
+			int position = 0;
+			String line = null;
+			boolean first = true;
+
+			try {
+				while (true) {
+					line = readLine(buffer, position);
+					position += line.length() + 1;
+
+					//
+					// (Trimming also takes care of any CRLF line-endings.)
+					final String[] tokens = line.trim().split("\\s+");
+					if (tokens[0].equals("end_header"))
+						break;
+
+					if (first) {
+						if (!tokens[0].equals("ply"))
+							throw new IOException("Not a PLY file!");
+						first = false;
+						continue;
+					}
+
+					switch (tokens[0]) {
+					case "format":
+						if (tokens[1].equals("binary_little_endian"))
+							order = ByteOrder.LITTLE_ENDIAN;
+						else if (tokens[1].equals("binary_big_endian"))
+							order = ByteOrder.BIG_ENDIAN;
+						else
+							throw new IOException("Unsupported PLY format \"" + tokens[1] + "\"!");
+						break;
+					case "element":
+						final int count = Integer.parseInt(tokens[2]);
+						if (count < 0)
+							throw new IOException("PLY element \"" + tokens[1] + "\" has a negative count!");
+						elements.add(new PLYElement(tokens[1], count));
+						break;
+					case "property":
+						if (elements.isEmpty())
+							throw new IOException("PLY property precedes any element!");
+						final List<PLYProperty> properties = elements.get(elements.size() - 1).properties;
+						if (tokens[1].equals("list"))
+							properties.add(new PLYProperty(tokens[4], PLYType.forName(tokens[3]),
+									PLYType.forName(tokens[2])));
+						else
+							properties.add(new PLYProperty(tokens[2], PLYType.forName(tokens[1]), null));
+						break;
+					}
+				}
+			} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+				throw new IOException("Malformed PLY header-line \"" + line + "\"!", e);
+			}
+
+			if (order == null)
+				throw new IOException("PLY header does not specify its format!");
+
+			this.order = order;
+			this.size = position;
+		}
+
+		/**
+		 * Read the ASCII line beginning at the given position (without its
+		 * terminating line-break).
+		 */
+		private static String readLine(ByteBuffer buffer, int position) throws IOException {
+
+			final StringBuilder line = new StringBuilder();
+			while (true) {
+				if (position >= buffer.limit())
+					throw new IOException("PLY header is not terminated!");
+
+				final char c = (char) buffer.get(position++);
+				if (c == '\n')
+					break;
+				line.append(c);
+			}
+
+			return line.toString();
+		}
+	}
+
+	/**
+	 * Locates the properties of a PLY file's vertex-element, and decodes its
+	 * records.
+	 */
+	private static class PLYVertices {
+
+		private final ByteBuffer	buffer;
+		private final int			first, recordSize, count, end;
+		private final double[]		positions, normals, uvs;
+
+		//
+		// Each property's offset within a record and type -- for x, y, z,
+		// nx, ny, nz, u, v, in that order.
+		private final int[]			offsets	= new int[8];
+		private final PLYType[]		types	= new PLYType[8];
+
+		public PLYVertices(ByteBuffer buffer, PLYElement element, int first) throws IOException {
+			this.buffer = buffer;
+			this.first = first;
+			this.recordSize = element.getRecordSize();
+			this.count = element.count;
+			if (recordSize < 0)
+				throw new IOException("PLY vertex element has a list-property!");
+
+			final long end = first + (long) recordSize * count;
+			if (end > buffer.limit())
+				throw new IOException("PLY file is truncated!");
+			if (count * 3L > Integer.MAX_VALUE)
+				throw new IOException("PLY file has too many vertices to load as a single mesh!");
+			this.end = (int) end;
+
+			final String[][] names = { { "x" }, { "y" }, { "z" }, { "nx" }, { "ny" }, { "nz" },
+					{ "u", "s", "texture_u", "texture_s" }, { "v", "t", "texture_v", "texture_t" } };
+			for (int i = 0; i < names.length; i++) {
+				offsets[i] = element.getOffset(names[i]);
+				types[i] = element.getType(names[i]);
+			}
+
+			if (offsets[0] < 0 || offsets[1] < 0 || offsets[2] < 0)
+				throw new IOException("PLY vertex element is missing its x, y, or z property!");
+
+			this.positions = new double[count * 3];
+			this.normals = ( offsets[3] >= 0 && offsets[4] >= 0 && offsets[5] >= 0 ) ? new double[count * 3]
+					: null;
+			this.uvs = ( offsets[6] >= 0 && offsets[7] >= 0 ) ? new double[count * 2] : null;
+		}
+
+		/**
+		 * Decode the given range of vertex-records.
+		 */
+		public void decode(int start, int end) {
+
+			final ByteBuffer buffer = this.buffer;
+			final int[] offsets = this.offsets;
+			final PLYType[] types = this.types;
+
+			int record = first + start * recordSize;
+			for (int vertex = start; vertex < end; vertex++, record += recordSize) {
+				for (int i = 0; i < 3; i++)
+					positions[vertex * 3 + i] = types[i].getDouble(buffer, record + offsets[i]);
+
+				if (normals != null)
+					for (int i = 0; i < 3; i++)
+						normals[vertex * 3 + i] = types[3 + i].getDouble(buffer, record + offsets[3 + i]);
+
+				if (uvs != null)
+					for (int i = 0; i < 2; i++)
+						uvs[vertex * 2 + i] = types[6 + i].getDouble(buffer, record + offsets[6 + i]);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a range of {@link PLYVertices} records.
+	 */
+	private static class PLYVertexTask extends RecursiveAction {
+
+		private static final long	serialVersionUID	= -6035224826139347711L;
+
+		private final PLYVertices	vertices;
+		private final int			start, end;
+
+		public PLYVertexTask(PLYVertices vertices, int start, int end) {
+			this.vertices = vertices;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start > PARALLEL_THRESHOLD) {
+				final int mid = ( start + end ) >>> 1;
+				invokeAll(new PLYVertexTask(vertices, start, mid), new PLYVertexTask(vertices, mid, end));
+				return;
+			}
+
+			vertices.decode(start, end);
+		}
+	}
+
+	/**
+	 * Locates the face-records of a PLY file, in blocks of
+	 * {@link MeshLoader#PARALLEL_THRESHOLD} faces, so that the blocks may then
+	 * be decoded in parallel.
+	 */
+	private static class PLYFaces {
+
+		private final ByteBuffer	buffer;
+		private final PLYElement	element;
+		private final PLYProperty	indexProperty;
+		private final int			indexOffset;
+
+		private final int			blockCount;
+		private final int[]			blockPositions, blockTriangles;
+		private final int[]			indices;
+		private final int			end;
+
+		public PLYFaces(ByteBuffer buffer, PLYElement element, int first) throws IOException {
+			this.buffer = buffer;
+			this.element = element;
+
+			this.indexOffset = element.getOffset("vertex_indices", "vertex_index");
+			PLYProperty indexProperty = null;
+			for (PLYProperty property : element.properties)
+				if (property.name.equals("vertex_indices") || property.name.equals("vertex_index"))
+					indexProperty = property;
+
+			if (indexProperty == null || indexProperty.countType == null || indexOffset < 0)
+				throw new IOException(
+						"PLY face element is missing its vertex_indices list-property (or it follows another list)!");
+			this.indexProperty = indexProperty;
+
+			//
+			// Walk the face-records, noting where each block begins and how
+			// many triangles precede it. This touches only each record's
+			// list-lengths, and so is much cheaper than decoding it.
+			this.blockCount = ( element.count + PARALLEL_THRESHOLD - 1 ) / PARALLEL_THRESHOLD;
+			this.blockPositions = new int[blockCount];
+			this.blockTriangles = new int[blockCount + 1];
+
+			final PLYType countType = indexProperty.countType;
+			long triangleCount = 0;
+			int position = first;
+			for (int face = 0; face < element.count; face++) {
+				if (face % PARALLEL_THRESHOLD == 0) {
+					blockPositions[face / PARALLEL_THRESHOLD] = position;
+					blockTriangles[face / PARALLEL_THRESHOLD] = (int) triangleCount;
+				}
+
+				if (position + indexOffset + countType.size > buffer.limit())
+					throw new IOException("PLY file is truncated!");
+
+				final long corners = countType.getLong(buffer, position + indexOffset);
+				position = element.skipRecord(buffer, position);
+
+				triangleCount += Math.max(corners - 2, 0);
+				if (triangleCount * 3 > Integer.MAX_VALUE)
+					throw new IOException("PLY file has too many faces to load as a single mesh!");
+			}
+			if (position > buffer.limit())
+				throw new IOException("PLY file is truncated!");
+
+			blockTriangles[blockCount] = (int) triangleCount;
+			this.indices = new int[(int) triangleCount * 3];
+			this.end = position;
+		}
+
+		/**
+		 * Decode the given block of face-records, fan-triangulating each face.
+		 * (Every record has already been checked while locating the blocks.)
+		 */
+		public void decode(int block) {
+
+			final PLYType countType = indexProperty.countType, type = indexProperty.type;
+			final int faceEnd = Math.min(( block + 1 ) * PARALLEL_THRESHOLD, element.count);
+
+			int position = blockPositions[block];
+			int corner = blockTriangles[block] * 3;
+			for (int face = block * PARALLEL_THRESHOLD; face < faceEnd; face++) {
+
+				final int list = position + indexOffset;
+				final int corners = (int) countType.getLong(buffer, list);
+				final int firstIndex = list + countType.size;
+
+				if (corners >= 3) {
+					final int first = (int) type.getLong(buffer, firstIndex);
+					int previous = (int) type.getLong(buffer, firstIndex + type.size);
+					for (int i = 2; i < corners; i++) {
+						final int next = (int) type.getLong(buffer, firstIndex + i * type.size);
+						indices[corner++] = first;
+						indices[corner++] = previous;
+						indices[corner++] = next;
+						previous = next;
+					}
+				}
+
+				position = element.skipCheckedRecord(buffer, position);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a range of {@link PLYFaces} blocks.
+	 */
+	private static class PLYFaceTask extends RecursiveAction {
+
+		private static final long	serialVersionUID	= 2290455786328512215L;
+
+		private final PLYFaces		faces;
+		private final int			start, end;
+
+		public PLYFaceTask(PLYFaces faces, int start, int end) {
+			this.faces = faces;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start > 1) {
+				final int mid = ( start + end ) >>> 1;
+				invokeAll(new PLYFaceTask(faces, start, mid), new PLYFaceTask(faces, mid, end));
+				return;
+			}
+
+			if (start < end)
+				faces.decode(start);
+		}
+	}
+
+}
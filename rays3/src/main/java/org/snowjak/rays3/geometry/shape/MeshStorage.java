@@ -0,0 +1,86 @@
+package org.snowjak.rays3.geometry.shape;
+
+/**
+ * Holds a {@link TriangleMeshShape}'s vertex-data, indices, and hierarchy, in
+ * the flat layouts described by that class.
+ * <p>
+ * Each value is read individually, by its index within its (notional) flat
+ * array. That way, a mesh's data may be held either in ordinary Java arrays
+ * ({@link HeapMeshStorage}) or outside of the Java heap altogether
+ * ({@link DirectMeshStorage}), without the mesh itself knowing the difference.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+abstract class MeshStorage {
+
+	protected final int		vertexCount, triangleCount, nodeCount, maxDepth;
+	protected final boolean	hasNormals, hasUVs;
+
+	protected MeshStorage(int vertexCount, int triangleCount, int nodeCount, int maxDepth, boolean hasNormals,
+			boolean hasUVs) {
+		this.vertexCount = vertexCount;
+		this.triangleCount = triangleCount;
+		this.nodeCount = nodeCount;
+		this.maxDepth = maxDepth;
+		this.hasNormals = hasNormals;
+		this.hasUVs = hasUVs;
+	}
+
+	/**
+	 * @param i
+	 * @return the <code>i</code>th value of <code>{x0, y0, z0, x1, ...}</code>
+	 */
+	public abstract double getPosition(int i);
+
+	/**
+	 * @param i
+	 * @return the <code>i</code>th value of <code>{x0, y0, z0, x1, ...}</code>
+	 */
+	public abstract double getNormal(int i);
+
+	/**
+	 * @param i
+	 * @return the <code>i</code>th value of <code>{u0, v0, u1, ...}</code>
+	 */
+	public abstract double getUV(int i);
+
+	/**
+	 * @param i
+	 * @return the <code>i</code>th vertex-index (3 per triangle)
+	 */
+	public abstract int getIndex(int i);
+
+	/**
+	 * @param i
+	 * @return the <code>i</code>th node-bound (6 per node:
+	 *         <code>minX, minY, minZ, maxX, maxY, maxZ</code>)
+	 */
+	public abstract double getNodeBound(int i);
+
+	/**
+	 * @param node
+	 * @return the index of the node's second child (if it is an interior
+	 *         node) or of its first triangle (if it is a leaf)
+	 */
+	public abstract int getNodeOffset(int node);
+
+	/**
+	 * @param node
+	 * @return the number of triangles in the node, or 0 if it is an interior
+	 *         node
+	 */
+	public abstract int getNodeCount(int node);
+
+	/**
+	 * @param node
+	 * @return the axis along which an interior node was split
+	 */
+	public abstract int getNodeAxis(int node);
+
+	/**
+	 * @return <code>true</code> if this storage lies outside of the Java heap
+	 */
+	public abstract boolean isOffHeap();
+
+}
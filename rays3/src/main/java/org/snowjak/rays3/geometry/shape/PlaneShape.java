@@ -2,26 +2,41 @@ package org.snowjak.rays3.geometry.shape;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Supplier;
 
 import org.apache.commons.math3.util.FastMath;
 import org.snowjak.rays3.Global;
+import org.snowjak.rays3.geometry.Matrix;
 import org.snowjak.rays3.geometry.Normal;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.transform.Transform;
 
 /**
  * Represents an unbounded plane, locally positioned so that its surface passes
  * through (0,0,0) and its normal points along {@link Vector#J}.
+ * <p>
+ * So long as its Transforms amount to no more than rotations, translations,
+ * and a uniform scale (see {@link #getUniformScale()}), Rays are intersected
+ * with the plane directly in world-coordinates -- against its world-space
+ * normal and offset -- rather than being transformed into local-coordinates
+ * and back.
+ * </p>
  * 
  * @author snowjak88
  */
 public class PlaneShape extends AbstractShape {
 
+	//
+	// The plane's unit-normal and offset in world-coordinates, recomputed
+	// whenever its Transforms change -- or null, if its Transforms don't
+	// allow it. Both are published together, so no rendering thread can see
+	// one without the other.
+	private volatile WorldPlane	worldPlane;
+
 	/**
 	 * Create a new PlaneShape with the default orientation (see
 	 * {@link PlaneShape} class description).
@@ -37,12 +52,23 @@ public class PlaneShape extends AbstractShape {
 	 */
 	public PlaneShape(List<Transform> worldToLocal) {
 		super(worldToLocal);
+		worldPlane = computeWorldPlane();
 	}
 
 	@Override
 	public boolean isInteracting(Ray ray) {
 
-		return isLocalInteracting(worldToLocal(ray));
+		final WorldPlane plane = worldPlane;
+		if (plane == null)
+			return isLocalInteracting(worldToLocal(ray));
+
+		//
+		// A Ray pointing away from the plane gives a negative t, and one
+		// parallel to it an infinite (or NaN) t -- all of which fail this
+		// comparison.
+		final double t = plane.getIntersectionT(ray);
+
+		return ( t >= Global.DOUBLE_TOLERANCE && t < Double.POSITIVE_INFINITY );
 	}
 
 	@Override
@@ -61,11 +87,29 @@ public class PlaneShape extends AbstractShape {
 	@Override
 	public Interaction getIntersection(Ray ray) {
 
-		Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
-		if (localInteraction == null)
+		final WorldPlane plane = worldPlane;
+		if (plane == null) {
+			Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
+			if (localInteraction == null)
+				return null;
+
+			return localToWorld(localInteraction);
+		}
+
+		final double t = plane.getIntersectionT(ray);
+
+		if (t < Global.DOUBLE_TOLERANCE || Double.isNaN(t))
 			return null;
 
-		return localToWorld(localInteraction);
+		final Point origin = ray.getOrigin();
+		final Vector direction = ray.getDirection();
+		final Point intersectionPoint = new Point(origin.getX() + direction.getX() * t,
+				origin.getY() + direction.getY() * t, origin.getZ() + direction.getZ() * t);
+		final Point2D surfaceParam = getParamFromLocalSurface(worldToLocal(intersectionPoint));
+
+		return new Interaction(intersectionPoint,
+				new Ray(origin, direction, ray.getDepth(), t, t, t, ray.getWeight()), plane.normal, surfaceParam,
+				null);
 	}
 
 	@Override
@@ -73,7 +117,7 @@ public class PlaneShape extends AbstractShape {
 
 		final double t = -ray.getOrigin().getY() / ray.getDirection().getY();
 
-		if (t < Global.DOUBLE_TOLERANCE || Double.isNaN(t) || Global.isNear(t, 0d))
+		if (t < Global.DOUBLE_TOLERANCE || Double.isNaN(t))
 			return null;
 
 		Ray intersectingRay = new Ray(ray.getOrigin(), ray.getDirection(), ray.getDepth(), t, t, t, ray.getWeight());
@@ -85,19 +129,63 @@ public class PlaneShape extends AbstractShape {
 	}
 
 	@Override
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier) {
+	public boolean isOccluding(Ray ray) {
 
-		final Point2D planarPoint = sampleSupplier.get();
+		final WorldPlane plane = worldPlane;
+		if (plane == null)
+			return isLocalOccluding(worldToLocal(ray));
 
-		final double x = ( planarPoint.getX() - 0.5 ) * Double.MAX_VALUE;
+		final double t = plane.getIntersectionT(ray);
+
+		return ( t > ray.getMinT() && t < ray.getMaxT() );
+	}
+
+	/**
+	 * Compute this plane's world-space normal and offset.
+	 * 
+	 * @return <code>null</code> if this plane's Transforms do not allow
+	 *         intersecting it in world-coordinates
+	 */
+	private WorldPlane computeWorldPlane() {
+
+		final double scale = getUniformScale();
+		if (Double.isNaN(scale))
+			return null;
+
+		//
+		// Under a rotation and uniform scale, the local normal is transformed
+		// just like any other Vector.
+		final Matrix localToWorld = getCompositeTransform().getLocalToWorld();
+		final double nx = localToWorld.get(0, 1) / scale, ny = localToWorld.get(1, 1) / scale,
+				nz = localToWorld.get(2, 1) / scale;
+		final Point zero = getObjectZero();
+
+		return new WorldPlane(new Normal(nx, ny, nz), nx * zero.getX() + ny * zero.getY() + nz * zero.getZ());
+	}
+
+	@Override
+	public boolean isLocalOccluding(Ray ray) {
+
+		//
+		// A Ray parallel to the plane will give an infinite (or NaN) t, which
+		// will fail one of these comparisons.
+		final double t = -ray.getOrigin().getY() / ray.getDirection().getY();
+
+		return ( t > ray.getMinT() && t < ray.getMaxT() );
+	}
+
+	@Override
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier) {
+
+		final double x = ( sampleSupplier.nextX() - 0.5 ) * Double.MAX_VALUE;
 		final double y = 0d;
-		final double z = ( planarPoint.getY() - 0.5 ) * Double.MAX_VALUE;
+		final double z = ( sampleSupplier.getY() - 0.5 ) * Double.MAX_VALUE;
 
 		return localToWorld(new Point(x, y, z));
 	}
 
 	@Override
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier, Point facing) {
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing) {
 
 		return sampleSurfacePoint(sampleSupplier);
 	}
@@ -119,6 +207,13 @@ public class PlaneShape extends AbstractShape {
 				getParamFromLocalSurface(surfacePoint));
 	}
 
+	@Override
+	public void appendTransform(Transform transform) {
+
+		super.appendTransform(transform);
+		worldPlane = computeWorldPlane();
+	}
+
 	@Override
 	public Point getLocalSurfaceFromParam(Point2D param) {
 
@@ -131,4 +226,35 @@ public class PlaneShape extends AbstractShape {
 		return new Point2D(surface.getX(), surface.getZ());
 	}
 
+	/**
+	 * A plane's unit-normal in world-coordinates, and its offset from the
+	 * world origin along that normal.
+	 */
+	private static class WorldPlane {
+
+		private final Normal	normal;
+		private final double	offset;
+
+		public WorldPlane(Normal normal, double offset) {
+			this.normal = normal;
+			this.offset = offset;
+		}
+
+		/**
+		 * Compute the distance along the given (world-space) Ray to this
+		 * plane.
+		 */
+		public double getIntersectionT(Ray ray) {
+
+			final Point origin = ray.getOrigin();
+			final Vector direction = ray.getDirection();
+			final double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+
+			//
+			// A Ray parallel to the plane will give an infinite (or NaN) t.
+			return ( offset - ( nx * origin.getX() + ny * origin.getY() + nz * origin.getZ() ) )
+					/ ( nx * direction.getX() + ny * direction.getY() + nz * direction.getZ() );
+		}
+	}
+
 }
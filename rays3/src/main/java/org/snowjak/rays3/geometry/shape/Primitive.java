@@ -2,15 +2,15 @@ package org.snowjak.rays3.geometry.shape;
 
 import java.awt.Shape;
 import java.util.List;
-import java.util.function.Supplier;
 
 import org.snowjak.rays3.bxdf.BSDF;
 import org.snowjak.rays3.geometry.Point;
-import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.intersect.Interactable;
 import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.bound.AABB;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.transform.Transform;
 import org.snowjak.rays3.transform.Transformable;
 
@@ -59,6 +59,12 @@ public class Primitive implements Interactable, Transformable {
 		shape.appendTransform(transform);
 	}
 
+	@Override
+	public Transform getCompositeTransform() {
+
+		return shape.getCompositeTransform();
+	}
+
 	@Override
 	public boolean isInteracting(Ray ray) {
 
@@ -94,10 +100,28 @@ public class Primitive implements Interactable, Transformable {
 				interaction.getParam(), this);
 	}
 
+	@Override
+	public boolean isOccluding(Ray ray) {
+
+		return shape.isOccluding(ray);
+	}
+
+	@Override
+	public boolean isLocalOccluding(Ray ray) {
+
+		return shape.isLocalOccluding(ray);
+	}
+
+	@Override
+	public AABB getBoundingBox() {
+
+		return shape.getBoundingBox();
+	}
+
 	/**
 	 * @see AbstractShape#sampleSurfacePoint(Sample)
 	 */
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier) {
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier) {
 
 		return shape.sampleSurfacePoint(sampleSupplier);
 	}
@@ -105,7 +129,7 @@ public class Primitive implements Interactable, Transformable {
 	/**
 	 * @see AbstractShape#sampleSurfacePoint(Sample, Point)
 	 */
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier, Point facing) {
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing) {
 
 		return shape.sampleSurfacePoint(sampleSupplier, facing);
 	}
@@ -0,0 +1,145 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.bound.AABB;
+import org.snowjak.rays3.transform.CompositeTransform;
+import org.snowjak.rays3.transform.Transform;
+
+/**
+ * A PrimitiveInstance places a {@link SharedGeometry} into the world. It
+ * carries nothing but its own world-to-local {@link Transform}s -- all of the
+ * geometry itself (including its acceleration-structure) is shared with every
+ * other PrimitiveInstance of the same SharedGeometry.
+ * <p>
+ * {@link Interaction}s reported by a PrimitiveInstance refer to the
+ * {@link Primitive} (within the SharedGeometry) that was actually struck, so
+ * that the correct BSDF is used.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class PrimitiveInstance implements Interactable {
+
+	private final SharedGeometry		geometry;
+
+	private final LinkedList<Transform>	worldToLocal	= new LinkedList<>(), localToWorld = new LinkedList<>();
+
+	private AABB						boundingBox		= null;
+	private CompositeTransform			compositeTransform	= null;
+
+	/**
+	 * Create a new PrimitiveInstance of the given {@link SharedGeometry},
+	 * placed by the given world-to-local {@link Transform}s.
+	 * 
+	 * @param geometry
+	 * @param worldToLocal
+	 */
+	public PrimitiveInstance(SharedGeometry geometry, List<Transform> worldToLocal) {
+		this.geometry = geometry;
+
+		for (Transform t : worldToLocal)
+			this.appendTransform(t);
+	}
+
+	public SharedGeometry getGeometry() {
+
+		return geometry;
+	}
+
+	@Override
+	public boolean isInteracting(Ray ray) {
+
+		final AABB box = getBoundingBox();
+		return ( box == null ) || box.isIntersecting(ray);
+	}
+
+	@Override
+	public boolean isLocalInteracting(Ray ray) {
+
+		final AABB box = geometry.getBoundingBox();
+		return ( box == null ) || box.isIntersecting(ray);
+	}
+
+	@Override
+	public Interaction getIntersection(Ray ray) {
+
+		final Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
+		if (localInteraction == null)
+			return null;
+
+		return localToWorld(localInteraction);
+	}
+
+	@Override
+	public Interaction getLocalIntersection(Ray ray) {
+
+		return geometry.getClosestInteraction(ray).orElse(null);
+	}
+
+	@Override
+	public boolean isOccluding(Ray ray) {
+
+		if (!isInteracting(ray))
+			return false;
+
+		return isLocalOccluding(worldToLocal(ray));
+	}
+
+	@Override
+	public boolean isLocalOccluding(Ray ray) {
+
+		return geometry.isOccluded(ray);
+	}
+
+	@Override
+	public AABB getBoundingBox() {
+
+		if (boundingBox == null) {
+			final AABB localBoundingBox = geometry.getBoundingBox();
+			if (localBoundingBox == null)
+				return null;
+
+			boundingBox = new AABB(localBoundingBox, getCompositeTransform().getLocalToWorld());
+		}
+
+		return boundingBox;
+	}
+
+	@Override
+	public Transform getCompositeTransform() {
+
+		if (compositeTransform == null)
+			compositeTransform = new CompositeTransform(worldToLocal);
+
+		return compositeTransform;
+	}
+
+	@Override
+	public List<Transform> getWorldToLocalTransforms() {
+
+		return Collections.unmodifiableList(worldToLocal);
+	}
+
+	@Override
+	public List<Transform> getLocalToWorldTransforms() {
+
+		return Collections.unmodifiableList(localToWorld);
+	}
+
+	@Override
+	public void appendTransform(Transform transform) {
+
+		worldToLocal.addLast(transform);
+		localToWorld.addFirst(transform);
+
+		boundingBox = null;
+		compositeTransform = null;
+	}
+
+}
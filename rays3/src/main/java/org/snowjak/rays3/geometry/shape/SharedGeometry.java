@@ -0,0 +1,132 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.accel.AccelerationStructure;
+import org.snowjak.rays3.intersect.accel.AccelerationStructureBuilder;
+import org.snowjak.rays3.intersect.accel.SAHBVHBuilder;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * A SharedGeometry is a fixed set of {@link Primitive}s, expressed in their own
+ * "object" coordinate-system, which may be placed into the world any number of
+ * times by way of {@link PrimitiveInstance}s.
+ * <p>
+ * A SharedGeometry builds its own (bottom-level)
+ * {@link AccelerationStructure} once, when it is constructed. This is shared
+ * between all of its PrimitiveInstances -- so that placing the same geometry
+ * into the world thousands of times costs no more than the PrimitiveInstances
+ * themselves.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class SharedGeometry {
+
+	private final List<Primitive>		primitives;
+	private final AccelerationStructure	accelerationStructure;
+	private final AABB					boundingBox;
+
+	/**
+	 * Create a new SharedGeometry over the given {@link Primitive}s, using a
+	 * {@link SAHBVHBuilder} to build its {@link AccelerationStructure}.
+	 * 
+	 * @param primitives
+	 */
+	public SharedGeometry(Collection<Primitive> primitives) {
+		this(primitives, new SAHBVHBuilder());
+	}
+
+	/**
+	 * Create a new SharedGeometry over the given {@link Primitive}s, using the
+	 * given {@link AccelerationStructureBuilder} to build its
+	 * {@link AccelerationStructure}.
+	 * <p>
+	 * <strong>Note</strong> that the given Primitives must not be modified
+	 * (e.g., transformed) after this point.
+	 * </p>
+	 * 
+	 * @param primitives
+	 * @param builder
+	 */
+	public SharedGeometry(Collection<Primitive> primitives, AccelerationStructureBuilder builder) {
+		this.primitives = Collections.unmodifiableList(new ArrayList<>(primitives));
+		this.accelerationStructure = builder.build(this.primitives);
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		boolean isBounded = !this.primitives.isEmpty();
+
+		for (Primitive primitive : this.primitives) {
+			final AABB box = primitive.getBoundingBox();
+			if (box == null) {
+				isBounded = false;
+				break;
+			}
+
+			minX = FastMath.min(minX, box.getMinExtent().getX());
+			minY = FastMath.min(minY, box.getMinExtent().getY());
+			minZ = FastMath.min(minZ, box.getMinExtent().getZ());
+			maxX = FastMath.max(maxX, box.getMaxExtent().getX());
+			maxY = FastMath.max(maxY, box.getMaxExtent().getY());
+			maxZ = FastMath.max(maxZ, box.getMaxExtent().getZ());
+		}
+
+		this.boundingBox = ( isBounded ) ? new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ))
+				: null;
+	}
+
+	/**
+	 * @return the {@link Primitive}s making up this geometry
+	 */
+	public List<Primitive> getPrimitives() {
+
+		return primitives;
+	}
+
+	/**
+	 * @return the {@link AABB} (expressed in object coordinates) enclosing all
+	 *         of this geometry, or <code>null</code> if any part of this
+	 *         geometry is unbounded
+	 */
+	public AABB getBoundingBox() {
+
+		return boundingBox;
+	}
+
+	/**
+	 * Search for the closest {@link Interaction} between the given {@link Ray}
+	 * (expressed in object coordinates) and this geometry.
+	 * 
+	 * @param ray
+	 * @return
+	 * @see AccelerationStructure#getClosestInteraction(Ray)
+	 */
+	public Optional<Interaction> getClosestInteraction(Ray ray) {
+
+		return accelerationStructure.getClosestInteraction(ray);
+	}
+
+	/**
+	 * Determine whether any part of this geometry intersects the given
+	 * {@link Ray} (expressed in object coordinates) strictly between its
+	 * min-T and max-T.
+	 * 
+	 * @param ray
+	 * @return
+	 * @see AccelerationStructure#isOccluded(Ray)
+	 */
+	public boolean isOccluded(Ray ray) {
+
+		return accelerationStructure.isOccluded(ray);
+	}
+
+}
@@ -6,13 +6,12 @@ import static org.apache.commons.math3.util.FastMath.cos;
 import static org.apache.commons.math3.util.FastMath.sin;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Supplier;
 
 import org.apache.commons.math3.util.FastMath;
 import org.snowjak.rays3.Global;
+import org.snowjak.rays3.geometry.MutableVector;
 import org.snowjak.rays3.geometry.Normal;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Point2D;
@@ -20,20 +19,24 @@ import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.intersect.bound.AABB;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.transform.Transform;
 
 /**
  * Implements a sphere.
+ * <p>
+ * So long as its Transforms amount to no more than rotations, translations,
+ * and a uniform scale (see {@link #getUniformScale()}), a sphere remains a
+ * sphere in world-coordinates. In that case, Rays are intersected with it
+ * directly in world-coordinates -- against its world-space center and radius
+ * -- rather than being transformed into local-coordinates and back.
+ * </p>
  * 
  * @author snowjak88
  */
 public class SphereShape extends AbstractShape {
 
-	/**
-	 * Represents an AABB in *global* space.
-	 */
-	private AABB	aabb;
-	private double	r;
+	private double r;
 
 	/**
 	 * Initialize a new sphere, with a radius of 0.5, centered at the origin.
@@ -49,29 +52,105 @@ public class SphereShape extends AbstractShape {
 	public SphereShape(double r, List<Transform> worldToLocal) {
 		super(worldToLocal);
 		this.r = r;
-
-		this.aabb = new AABB(Arrays.asList(new Point(-r, -r, -r), new Point(+r, +r, +r)), getLocalToWorldTransforms());
 	}
 
 	@Override
 	public boolean isInteracting(Ray ray) {
 
-		return aabb.isIntersecting(ray);
+		return getBoundingBox().isIntersecting(ray);
 	}
 
 	@Override
 	public boolean isLocalInteracting(Ray ray) {
 
-		return aabb.isIntersecting(localToWorld(ray));
+		return getBoundingBox().isIntersecting(localToWorld(ray));
+	}
+
+	@Override
+	public boolean isOccluding(Ray ray) {
+
+		final double scale = getUniformScale();
+		if (!Double.isNaN(scale)) {
+			final Point center = getObjectZero();
+			final double radius = r * scale;
+			return isOccluding(ray.getOrigin().getX() - center.getX(), ray.getOrigin().getY() - center.getY(),
+					ray.getOrigin().getZ() - center.getZ(), ray.getDirection(), radius * radius, ray.getMinT(),
+					ray.getMaxT());
+		}
+
+		if (!isInteracting(ray))
+			return false;
+
+		return isLocalOccluding(worldToLocal(ray));
+	}
+
+	@Override
+	public boolean isLocalOccluding(Ray ray) {
+
+		return isOccluding(ray.getOrigin().getX(), ray.getOrigin().getY(), ray.getOrigin().getZ(),
+				ray.getDirection(), r * r, ray.getMinT(), ray.getMaxT());
+	}
+
+	/**
+	 * Does the given Ray-segment cross the surface of a sphere of radius
+	 * <code>sqrt(r2)</code>, centered on <code>(0,0,0)</code>?
+	 */
+	private static boolean isOccluding(double ox, double oy, double oz, Vector direction, double r2, double minT,
+			double maxT) {
+
+		final double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+
+		//
+		// Unlike getIntersectionT(), we must consider both points where the Ray
+		// crosses the sphere's surface -- the nearer of the two may lie outside
+		// the segment while the farther does not.
+		final double t_ca = -( ox * dx + oy * dy + oz * dz );
+		final double d2 = ( ox * ox + oy * oy + oz * oz ) - ( t_ca * t_ca );
+		if (d2 > r2)
+			return false;
+
+		final double t_hc = FastMath.sqrt(r2 - d2);
+		final double t0 = t_ca - t_hc, t1 = t_ca + t_hc;
+
+		return ( t0 > minT && t0 < maxT ) || ( t1 > minT && t1 < maxT );
+	}
+
+	@Override
+	public AABB getLocalBoundingBox() {
+
+		return new AABB(new Point(-r, -r, -r), new Point(+r, +r, +r));
 	}
 
 	@Override
 	public Interaction getIntersection(Ray ray) {
 
-		Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
-		if (localInteraction == null)
+		final double scale = getUniformScale();
+		if (Double.isNaN(scale)) {
+			Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
+			if (localInteraction == null)
+				return null;
+			return localToWorld(localInteraction);
+		}
+
+		final Point center = getObjectZero();
+		final double radius = r * scale;
+
+		final Point origin = ray.getOrigin();
+		final Vector direction = ray.getDirection();
+		final double t = getIntersectionT(origin.getX() - center.getX(), origin.getY() - center.getY(),
+				origin.getZ() - center.getZ(), direction, radius * radius, false);
+
+		if (Double.isNaN(t))
 			return null;
-		return localToWorld(localInteraction);
+
+		final Point point = new Point(origin.getX() + direction.getX() * t, origin.getY() + direction.getY() * t,
+				origin.getZ() + direction.getZ() * t);
+		final Normal normalAt = new Normal(( point.getX() - center.getX() ) / radius,
+				( point.getY() - center.getY() ) / radius, ( point.getZ() - center.getZ() ) / radius);
+		final Point2D param = getParamFromLocalSurface(worldToLocal(point));
+
+		return new Interaction(point, new Ray(origin, direction, ray.getDepth(), t, t, t, ray.getWeight()), normalAt,
+				param, null);
 	}
 
 	@Override
@@ -108,16 +187,28 @@ public class SphereShape extends AbstractShape {
 	 */
 	private Double getLocalIntersectionT(Ray ray, boolean includeBehindRay) {
 
-		Vector l = new Vector(ray.getOrigin()).negate();
-		double t_ca = l.dotProduct(ray.getDirection());
+		final double t = getIntersectionT(ray.getOrigin().getX(), ray.getOrigin().getY(), ray.getOrigin().getZ(),
+				ray.getDirection(), r * r, includeBehindRay);
+
+		return ( Double.isNaN(t) ) ? null : t;
+	}
+
+	/**
+	 * As {@link #getLocalIntersectionT(Ray, boolean)}, for a sphere of radius
+	 * <code>sqrt(r2)</code> centered on <code>(0,0,0)</code> -- returning
+	 * {@link Double#NaN} if no intersection exists.
+	 */
+	private static double getIntersectionT(double ox, double oy, double oz, Vector direction, double r2,
+			boolean includeBehindRay) {
+
+		final double t_ca = -( ox * direction.getX() + oy * direction.getY() + oz * direction.getZ() );
 
 		if (t_ca < 0d)
-			return null;
+			return Double.NaN;
 
-		double d2 = l.dotProduct(l) - ( t_ca * t_ca );
-		double r2 = ( r * r );
+		double d2 = ( ox * ox + oy * oy + oz * oz ) - ( t_ca * t_ca );
 		if (d2 > r2)
-			return null;
+			return Double.NaN;
 
 		double t_hc = FastMath.sqrt(r2 - d2);
 
@@ -132,7 +223,7 @@ public class SphereShape extends AbstractShape {
 		}
 
 		if (t0 < Global.DOUBLE_TOLERANCE && t1 < Global.DOUBLE_TOLERANCE)
-			return null;
+			return Double.NaN;
 
 		if (t0 < Global.DOUBLE_TOLERANCE)
 			return t1;
@@ -145,15 +236,13 @@ public class SphereShape extends AbstractShape {
 	}
 
 	@Override
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier) {
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier) {
 
 		//
 		//
 		//
-		final Point2D sphericalPoint = sampleSupplier.get();
-
-		final double theta = sphericalPoint.getX() * 2d * PI;
-		final double phi = acos(2d * sphericalPoint.getY() - 1d);
+		final double theta = sampleSupplier.nextX() * 2d * PI;
+		final double phi = acos(2d * sampleSupplier.getY() - 1d);
 		//
 		final double x = r * cos(theta) * sin(phi);
 		final double y = r * cos(phi);
@@ -165,37 +254,38 @@ public class SphereShape extends AbstractShape {
 	}
 
 	@Override
-	public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier, Point facing) {
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing) {
 
-		final Vector towardsV_local = new Vector(worldToLocal(facing));
+		final Point towardsV_local = worldToLocal(facing);
 
-		final Vector J = towardsV_local.normalize();
-		final Vector I = J.orthogonal();
-		final Vector K = I.crossProduct(J);
+		final MutableVector J = new MutableVector(towardsV_local.getX(), towardsV_local.getY(),
+				towardsV_local.getZ()).normalize();
+		final MutableVector I = new MutableVector().setOrthogonalTo(J);
+		final MutableVector K = new MutableVector().setCrossProduct(I, J);
 		//
 		//
 		//
-		final Point2D sphericalPoint = sampleSupplier.get();
-
-		final double sin2_theta = sphericalPoint.getX();
+		final double sin2_theta = sampleSupplier.nextX();
 		final double cos2_theta = 1d - sin2_theta;
 		final double sin_theta = sqrt(sin2_theta);
 		final double cos_theta = sqrt(cos2_theta);
 
-		final double orientation = sphericalPoint.getY() * 2d * PI;
+		final double orientation = sampleSupplier.getY() * 2d * PI;
 		//
 		final double x = sin_theta * cos(orientation);
 		final double y = cos_theta;
 		final double z = sin_theta * sin(orientation);
 		//
-		final Vector samplePoint_local = I.multiply(x).add(J.multiply(y)).add(K.multiply(z)).multiply(r);
-		return localToWorld(new Point(samplePoint_local));
+		return localToWorld(I.multiply(x).addScaled(J, y).addScaled(K, z).multiply(r).toPoint());
 	}
 
 	@Override
 	public double computeSolidAngle(Point viewedFrom) {
 
-		return computeSolidAngle_sphere(viewedFrom, r);
+		//
+		// Under a non-uniform scale, this is only an approximation.
+		final double scale = getUniformScale();
+		return computeSolidAngle_sphere(viewedFrom, ( Double.isNaN(scale) ) ? r : r * scale);
 	}
 
 	@Override
@@ -0,0 +1,880 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.Global;
+import org.snowjak.rays3.geometry.Normal;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Point2D;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.accel.BVHNode;
+import org.snowjak.rays3.intersect.accel.BoundingVolumeHierarchy;
+import org.snowjak.rays3.intersect.accel.SAHBVHBuilder;
+import org.snowjak.rays3.intersect.bound.AABB;
+import org.snowjak.rays3.intersect.bound.BoundingSphere;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
+import org.snowjak.rays3.transform.Transform;
+
+/**
+ * Implements an indexed triangle-mesh.
+ * <p>
+ * A mesh's vertices are held in flat primitive arrays -- positions as
+ * <code>{x0, y0, z0, x1, y1, z1, ...}</code>, (optional) normals likewise, and
+ * (optional) texture-coordinates as <code>{u0, v0, u1, v1, ...}</code> -- and
+ * each triangle is simply three consecutive entries in an array of
+ * vertex-indices. No object is allocated per vertex or per triangle, so a
+ * single mesh can comfortably hold millions of triangles.
+ * </p>
+ * <p>
+ * Those arrays may instead be held outside of the Java heap altogether (see
+ * {@link #toOffHeap()} and {@link MeshFile}), so that neither heap-use nor
+ * garbage-collection grows with the size of a scene's geometry. (Sampling
+ * points on a mesh, as when it is used as a light, still requires an on-heap
+ * table of its triangles' areas.)
+ * </p>
+ * <p>
+ * Each mesh builds its own bounding-volume hierarchy over its triangles (using
+ * {@link SAHBVHBuilder}), also stored in flat arrays. Rays are
+ * tested against triangles using the <em>watertight</em> algorithm of Woop,
+ * Benthin, and Wald (2013), so that Rays striking an edge or vertex shared
+ * between triangles never slip through the mesh.
+ * </p>
+ * <p>
+ * If the mesh has texture-coordinates, its surface-parameterization is given
+ * by those coordinates. Otherwise, triangle <code>i</code> is parameterized
+ * over <code>[i, i+1) x [0, 1]</code>, by its barycentric coordinates
+ * <code>(i + b1, b2)</code>.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class TriangleMeshShape extends AbstractShape {
+
+	/**
+	 * The hierarchy will not split a node containing this many triangles (or
+	 * fewer) unless the surface-area heuristic says that it's worth it. (The
+	 * hierarchy is built by {@link SAHBVHBuilder}, and so shares its limit
+	 * with every other {@link BoundingVolumeHierarchy}.)
+	 */
+	public static final int		MAX_LEAF_TRIANGLES	= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF;
+
+	private static final double	ONE_MINUS_EPSILON	= FastMath.nextDown(1d);
+
+	//
+	// Each node's bounds are stored as 6 consecutive values (minX, minY, minZ,
+	// maxX, maxY, maxZ). A node's first child immediately follows it; for an
+	// interior node, its offset is the index of its second child, while for a
+	// leaf it is the index of its first triangle.
+	private final MeshStorage				storage;
+	private final int						triangleCount, maxDepth;
+
+	//
+	// Each thread traverses the hierarchy with its own stack (and scratch
+	// space), so that tracing a Ray allocates nothing.
+	private final ThreadLocal<Traversal>	traversal;
+
+	//
+	// Sampling points by area requires the cumulative sum of triangle-areas.
+	// We will compute it only once, when it's first needed. (It may be
+	// computed by several render-threads at once; they will all compute the
+	// same thing, and volatile ensures that none sees a half-filled array.)
+	private volatile double[]	cumulativeAreas	= null;
+
+	/**
+	 * Create a new TriangleMeshShape, with neither vertex-normals nor
+	 * texture-coordinates.
+	 * 
+	 * @param positions
+	 * @param indices
+	 * @see #TriangleMeshShape(double[], double[], double[], int[], List)
+	 */
+	public TriangleMeshShape(double[] positions, int[] indices) {
+		this(positions, null, null, indices, Collections.emptyList());
+	}
+
+	/**
+	 * Create a new TriangleMeshShape.
+	 * <p>
+	 * <strong>Note</strong> that the given vertex-arrays are not copied, and so
+	 * must not be modified after this point. The given array of indices is
+	 * copied (and re-ordered to suit the mesh's hierarchy).
+	 * </p>
+	 * 
+	 * @param positions
+	 *            vertex positions, as <code>{x0, y0, z0, x1, y1, z1, ...}</code>
+	 * @param normals
+	 *            vertex normals (in the same layout as <code>positions</code>),
+	 *            or <code>null</code> to use each triangle's geometric normal
+	 * @param uvs
+	 *            vertex texture-coordinates, as
+	 *            <code>{u0, v0, u1, v1, ...}</code>, or <code>null</code>
+	 * @param indices
+	 *            vertex indices, 3 per triangle. Triangles wound
+	 *            counter-clockwise have their geometric normals pointing toward
+	 *            the viewer.
+	 * @param worldToLocal
+	 * @throws IllegalArgumentException
+	 *             if any of the given arrays are not sized as expected, if
+	 *             there are no triangles, or if any index falls outside of the
+	 *             given vertices
+	 */
+	public TriangleMeshShape(double[] positions, double[] normals, double[] uvs, int[] indices,
+			List<Transform> worldToLocal) {
+		super(worldToLocal);
+
+		if (positions.length % 3 != 0)
+			throw new IllegalArgumentException("Expecting 3 position-coordinates per vertex!");
+		if (indices.length % 3 != 0)
+			throw new IllegalArgumentException("Expecting 3 indices per triangle!");
+		if (indices.length == 0)
+			throw new IllegalArgumentException("Expecting at least 1 triangle!");
+
+		final int vertexCount = positions.length / 3;
+		if (normals != null && normals.length != vertexCount * 3)
+			throw new IllegalArgumentException("Expecting 3 normal-coordinates per vertex!");
+		if (uvs != null && uvs.length != vertexCount * 2)
+			throw new IllegalArgumentException("Expecting 2 texture-coordinates per vertex!");
+		for (int index : indices)
+			if (index < 0 || index >= vertexCount)
+				throw new IllegalArgumentException("Vertex-index " + index + " is out of range!");
+
+		final HierarchyBuilder builder = new HierarchyBuilder(positions, indices);
+		this.storage = new HeapMeshStorage(positions, normals, uvs, builder.indices,
+				Arrays.copyOf(builder.nodeBounds, builder.nodeCount * 6),
+				Arrays.copyOf(builder.nodeOffsets, builder.nodeCount),
+				Arrays.copyOf(builder.nodeCounts, builder.nodeCount),
+				Arrays.copyOf(builder.nodeAxes, builder.nodeCount), builder.maxDepth);
+		this.triangleCount = storage.triangleCount;
+		this.maxDepth = storage.maxDepth;
+
+		final int stackSize = maxDepth + 1;
+		this.traversal = ThreadLocal.withInitial(() -> new Traversal(stackSize));
+	}
+
+	/**
+	 * Create a new TriangleMeshShape over already-built storage.
+	 * 
+	 * @param storage
+	 * @param worldToLocal
+	 */
+	TriangleMeshShape(MeshStorage storage, List<Transform> worldToLocal) {
+		super(worldToLocal);
+
+		this.storage = storage;
+		this.triangleCount = storage.triangleCount;
+		this.maxDepth = storage.maxDepth;
+
+		final int stackSize = maxDepth + 1;
+		this.traversal = ThreadLocal.withInitial(() -> new Traversal(stackSize));
+	}
+
+	/**
+	 * Copy this mesh -- its vertices, indices, and hierarchy -- into direct
+	 * buffers, outside of the Java heap. The copy reads its geometry straight
+	 * from those buffers, and so adds almost nothing to the heap (or to the
+	 * garbage-collector's work) however large it is. Once this mesh is no
+	 * longer referenced, its on-heap arrays may be collected.
+	 * <p>
+	 * For meshes larger than the JVM's direct-memory limit, or to avoid
+	 * building a mesh's hierarchy on-heap at all, see {@link MeshFile}.
+	 * </p>
+	 * 
+	 * @return a copy of this mesh, held off-heap
+	 */
+	public TriangleMeshShape toOffHeap() {
+
+		return new TriangleMeshShape(DirectMeshStorage.copyOf(storage), getWorldToLocalTransforms());
+	}
+
+	/**
+	 * @return <code>true</code> if this mesh's geometry is held outside of the
+	 *         Java heap
+	 */
+	public boolean isOffHeap() {
+
+		return storage.isOffHeap();
+	}
+
+	MeshStorage getStorage() {
+
+		return storage;
+	}
+
+	@Override
+	public boolean isInteracting(Ray ray) {
+
+		final AABB boundingBox = getBoundingBox();
+		return boundingBox != null && boundingBox.isIntersecting(ray);
+	}
+
+	@Override
+	public boolean isLocalInteracting(Ray ray) {
+
+		final AABB boundingBox = getLocalBoundingBox();
+		return boundingBox != null && boundingBox.isIntersecting(ray);
+	}
+
+	@Override
+	public Interaction getIntersection(Ray ray) {
+
+		Interaction localInteraction = getLocalIntersection(worldToLocal(ray));
+		if (localInteraction == null)
+			return null;
+		return localToWorld(localInteraction);
+	}
+
+	@Override
+	public Interaction getLocalIntersection(Ray ray) {
+
+		final double[] hit = traversal.get().hit;
+		final int triangle = intersect(ray, Global.DOUBLE_TOLERANCE, Double.POSITIVE_INFINITY, false, hit);
+		if (triangle < 0)
+			return null;
+
+		final double t = hit[0], b1 = hit[1], b2 = hit[2];
+
+		final Ray newRay = new Ray(ray.getOrigin(), ray.getDirection(), ray.getDepth(), t, t, t, ray.getWeight());
+		return new Interaction(newRay.getPointAlong(), newRay, getNormal(triangle, b1, b2),
+				getParam(triangle, b1, b2), null);
+	}
+
+	@Override
+	public boolean isOccluding(Ray ray) {
+
+		if (!isInteracting(ray))
+			return false;
+
+		return isLocalOccluding(worldToLocal(ray));
+	}
+
+	@Override
+	public boolean isLocalOccluding(Ray ray) {
+
+		return intersect(ray, ray.getMinT(), ray.getMaxT(), true, traversal.get().hit) >= 0;
+	}
+
+	/**
+	 * Find the closest triangle intersected by the given Ray (expressed in
+	 * object-local coordinates) strictly between <code>minT</code> and
+	 * <code>maxT</code>.
+	 * 
+	 * @param ray
+	 * @param minT
+	 * @param maxT
+	 * @param anyHit
+	 *            <code>true</code> if any intersection will do, not just the
+	 *            closest
+	 * @param hit
+	 *            receives the intersection's <code>t</code> and barycentric
+	 *            coordinates <code>b1</code> and <code>b2</code>
+	 * @return the index of the intersected triangle, or <code>-1</code> if none
+	 */
+	private int intersect(Ray ray, double minT, double maxT, boolean anyHit, double[] hit) {
+
+		final double ox = ray.getOrigin().getX(), oy = ray.getOrigin().getY(), oz = ray.getOrigin().getZ();
+		final double dx = ray.getDirection().getX(), dy = ray.getDirection().getY(), dz = ray.getDirection().getZ();
+		final double invDx = 1d / dx, invDy = 1d / dy, invDz = 1d / dz;
+
+		//
+		// The watertight test works in a coordinate-system where the Ray's
+		// dominant direction-axis is "z". We shear each triangle so that the
+		// Ray points straight along z -- and so each triangle need only be
+		// tested in 2 dimensions.
+		final int kz = ( FastMath.abs(dx) > FastMath.abs(dy) ) ? ( ( FastMath.abs(dx) > FastMath.abs(dz) ) ? 0 : 2 )
+				: ( ( FastMath.abs(dy) > FastMath.abs(dz) ) ? 1 : 2 );
+		int kx = ( kz + 1 ) % 3, ky = ( kx + 1 ) % 3;
+		final double dirKz = component(dx, dy, dz, kz);
+		if (dirKz < 0d) {
+			final int temp = kx;
+			kx = ky;
+			ky = temp;
+		}
+
+		final double shearX = component(dx, dy, dz, kx) / dirKz, shearY = component(dx, dy, dz, ky) / dirKz,
+				shearZ = 1d / dirKz;
+		final double oKx = component(ox, oy, oz, kx), oKy = component(ox, oy, oz, ky),
+				oKz = component(ox, oy, oz, kz);
+
+		final int[] stack = traversal.get().stack;
+		int stackSize = 0, node = 0;
+		int closest = -1;
+
+		while (true) {
+			final int b = node * 6;
+			final double entryDistance = AABB.getEntryDistance(storage.getNodeBound(b), storage.getNodeBound(b + 1),
+					storage.getNodeBound(b + 2), storage.getNodeBound(b + 3), storage.getNodeBound(b + 4),
+					storage.getNodeBound(b + 5), ox, oy, oz, invDx, invDy, invDz, minT, maxT);
+			if (!Double.isNaN(entryDistance)) {
+
+				if (storage.getNodeCount(node) > 0) {
+
+					final int end = storage.getNodeOffset(node) + storage.getNodeCount(node);
+					for (int triangle = storage.getNodeOffset(node); triangle < end; triangle++) {
+						final int v0 = storage.getIndex(triangle * 3) * 3, v1 = storage.getIndex(triangle * 3 + 1) * 3,
+								v2 = storage.getIndex(triangle * 3 + 2) * 3;
+
+						final double az = storage.getPosition(v0 + kz) - oKz, bz = storage.getPosition(v1 + kz) - oKz,
+								cz = storage.getPosition(v2 + kz) - oKz;
+						final double ax = storage.getPosition(v0 + kx) - oKx - shearX * az,
+								ay = storage.getPosition(v0 + ky) - oKy - shearY * az;
+						final double bx = storage.getPosition(v1 + kx) - oKx - shearX * bz,
+								by = storage.getPosition(v1 + ky) - oKy - shearY * bz;
+						final double cx = storage.getPosition(v2 + kx) - oKx - shearX * cz,
+								cy = storage.getPosition(v2 + ky) - oKy - shearY * cz;
+
+						final double u = cx * by - cy * bx, v = ax * cy - ay * cx, w = bx * ay - by * ax;
+						if (( u < 0d || v < 0d || w < 0d ) && ( u > 0d || v > 0d || w > 0d ))
+							continue;
+
+						final double det = u + v + w;
+						if (det == 0d)
+							continue;
+
+						final double t = ( u * az + v * bz + w * cz ) * shearZ / det;
+						if (!( t > minT && t < maxT ))
+							continue;
+
+						maxT = t;
+						closest = triangle;
+						hit[0] = t;
+						hit[1] = v / det;
+						hit[2] = w / det;
+
+						if (anyHit)
+							return closest;
+					}
+
+				} else {
+					//
+					// Visit the nearer child first.
+					if (component(dx, dy, dz, storage.getNodeAxis(node)) < 0d) {
+						stack[stackSize++] = node + 1;
+						node = storage.getNodeOffset(node);
+					} else {
+						stack[stackSize++] = storage.getNodeOffset(node);
+						node = node + 1;
+					}
+					continue;
+				}
+			}
+
+			if (stackSize == 0)
+				break;
+			node = stack[--stackSize];
+		}
+
+		return closest;
+	}
+
+	private static double component(double x, double y, double z, int axis) {
+
+		return ( axis == 0 ) ? x : ( ( axis == 1 ) ? y : z );
+	}
+
+	/**
+	 * Find the triangle nearest to the given point (expressed in object-local
+	 * coordinates).
+	 * 
+	 * @param nearest
+	 *            receives the nearest point's barycentric coordinates
+	 *            <code>b1</code> and <code>b2</code>
+	 * @return the index of the nearest triangle
+	 */
+	private int getNearestTriangle(double px, double py, double pz, double[] nearest) {
+
+		final Traversal traversal = this.traversal.get();
+		final double[] candidate = traversal.candidate;
+		final int[] stack = traversal.stack;
+		int stackSize = 0, node = 0;
+		int closest = -1;
+		double closestDistance2 = Double.POSITIVE_INFINITY;
+
+		while (true) {
+			final int b = node * 6;
+			final double ex = getOutsideDistance(px, storage.getNodeBound(b), storage.getNodeBound(b + 3)),
+					ey = getOutsideDistance(py, storage.getNodeBound(b + 1), storage.getNodeBound(b + 4)),
+					ez = getOutsideDistance(pz, storage.getNodeBound(b + 2), storage.getNodeBound(b + 5));
+
+			if (ex * ex + ey * ey + ez * ez < closestDistance2) {
+				if (storage.getNodeCount(node) > 0) {
+
+					final int end = storage.getNodeOffset(node) + storage.getNodeCount(node);
+					for (int triangle = storage.getNodeOffset(node); triangle < end; triangle++) {
+						getNearestBarycentrics(triangle, px, py, pz, candidate);
+
+						final double b1 = candidate[0], b2 = candidate[1], b0 = 1d - b1 - b2;
+						final int v0 = storage.getIndex(triangle * 3) * 3, v1 = storage.getIndex(triangle * 3 + 1) * 3,
+								v2 = storage.getIndex(triangle * 3 + 2) * 3;
+						final double nx = interpolatePosition(v0, v1, v2, 0, b0, b1, b2) - px,
+								ny = interpolatePosition(v0, v1, v2, 1, b0, b1, b2) - py,
+								nz = interpolatePosition(v0, v1, v2, 2, b0, b1, b2) - pz;
+
+						final double distance2 = nx * nx + ny * ny + nz * nz;
+						if (distance2 < closestDistance2) {
+							closestDistance2 = distance2;
+							closest = triangle;
+							nearest[0] = b1;
+							nearest[1] = b2;
+						}
+					}
+
+				} else {
+					stack[stackSize++] = storage.getNodeOffset(node);
+					node = node + 1;
+					continue;
+				}
+			}
+
+			if (stackSize == 0)
+				break;
+			node = stack[--stackSize];
+		}
+
+		return closest;
+	}
+
+	/**
+	 * @return the distance from <code>p</code> to the interval
+	 *         <code>[min, max]</code>, or <code>0</code> if it lies within
+	 */
+	private static double getOutsideDistance(double p, double min, double max) {
+
+		return FastMath.max(0d, FastMath.max(min - p, p - max));
+	}
+
+	/**
+	 * Compute the barycentric coordinates <code>(b1, b2)</code> of the point
+	 * on the given triangle nearest to the point <code>p</code>. (See Ericson,
+	 * <em>Real-Time Collision Detection</em>, 5.1.5.)
+	 */
+	private void getNearestBarycentrics(int triangle, double px, double py, double pz, double[] barycentrics) {
+
+		final int a = storage.getIndex(triangle * 3) * 3, b = storage.getIndex(triangle * 3 + 1) * 3,
+				c = storage.getIndex(triangle * 3 + 2) * 3;
+
+		final double abx = getPositionDelta(a, b, 0), aby = getPositionDelta(a, b, 1), abz = getPositionDelta(a, b, 2);
+		final double acx = getPositionDelta(a, c, 0), acy = getPositionDelta(a, c, 1), acz = getPositionDelta(a, c, 2);
+
+		final double apx = px - storage.getPosition(a), apy = py - storage.getPosition(a + 1),
+				apz = pz - storage.getPosition(a + 2);
+		final double d1 = abx * apx + aby * apy + abz * apz, d2 = acx * apx + acy * apy + acz * apz;
+		if (d1 <= 0d && d2 <= 0d) {
+			barycentrics[0] = 0d;
+			barycentrics[1] = 0d;
+			return;
+		}
+
+		final double bpx = px - storage.getPosition(b), bpy = py - storage.getPosition(b + 1),
+				bpz = pz - storage.getPosition(b + 2);
+		final double d3 = abx * bpx + aby * bpy + abz * bpz, d4 = acx * bpx + acy * bpy + acz * bpz;
+		if (d3 >= 0d && d4 <= d3) {
+			barycentrics[0] = 1d;
+			barycentrics[1] = 0d;
+			return;
+		}
+
+		final double vc = d1 * d4 - d3 * d2;
+		if (vc <= 0d && d1 >= 0d && d3 <= 0d) {
+			barycentrics[0] = d1 / ( d1 - d3 );
+			barycentrics[1] = 0d;
+			return;
+		}
+
+		final double cpx = px - storage.getPosition(c), cpy = py - storage.getPosition(c + 1),
+				cpz = pz - storage.getPosition(c + 2);
+		final double d5 = abx * cpx + aby * cpy + abz * cpz, d6 = acx * cpx + acy * cpy + acz * cpz;
+		if (d6 >= 0d && d5 <= d6) {
+			barycentrics[0] = 0d;
+			barycentrics[1] = 1d;
+			return;
+		}
+
+		final double vb = d5 * d2 - d1 * d6;
+		if (vb <= 0d && d2 >= 0d && d6 <= 0d) {
+			barycentrics[0] = 0d;
+			barycentrics[1] = d2 / ( d2 - d6 );
+			return;
+		}
+
+		final double va = d3 * d6 - d5 * d4;
+		if (va <= 0d && ( d4 - d3 ) >= 0d && ( d5 - d6 ) >= 0d) {
+			final double w = ( d4 - d3 ) / ( ( d4 - d3 ) + ( d5 - d6 ) );
+			barycentrics[0] = 1d - w;
+			barycentrics[1] = w;
+			return;
+		}
+
+		final double denominator = 1d / ( va + vb + vc );
+		barycentrics[0] = vb * denominator;
+		barycentrics[1] = vc * denominator;
+	}
+
+	/**
+	 * @return the Normal (in object-local coordinates) at the given point on
+	 *         the given triangle -- interpolated from the mesh's vertex-normals,
+	 *         if it has any
+	 */
+	private Normal getNormal(int triangle, double b1, double b2) {
+
+		final int v0 = storage.getIndex(triangle * 3) * 3, v1 = storage.getIndex(triangle * 3 + 1) * 3,
+				v2 = storage.getIndex(triangle * 3 + 2) * 3;
+
+		double nx, ny, nz;
+		if (storage.hasNormals) {
+			final double b0 = 1d - b1 - b2;
+			nx = b0 * storage.getNormal(v0) + b1 * storage.getNormal(v1) + b2 * storage.getNormal(v2);
+			ny = b0 * storage.getNormal(v0 + 1) + b1 * storage.getNormal(v1 + 1) + b2 * storage.getNormal(v2 + 1);
+			nz = b0 * storage.getNormal(v0 + 2) + b1 * storage.getNormal(v1 + 2) + b2 * storage.getNormal(v2 + 2);
+		} else {
+			final double e1x = getPositionDelta(v0, v1, 0), e1y = getPositionDelta(v0, v1, 1),
+					e1z = getPositionDelta(v0, v1, 2);
+			final double e2x = getPositionDelta(v0, v2, 0), e2y = getPositionDelta(v0, v2, 1),
+					e2z = getPositionDelta(v0, v2, 2);
+			nx = e1y * e2z - e1z * e2y;
+			ny = e1z * e2x - e1x * e2z;
+			nz = e1x * e2y - e1y * e2x;
+		}
+
+		final double length = FastMath.sqrt(nx * nx + ny * ny + nz * nz);
+		return new Normal(nx / length, ny / length, nz / length);
+	}
+
+	/**
+	 * @return the surface-parameterization of the given point on the given
+	 *         triangle
+	 */
+	private Point2D getParam(int triangle, double b1, double b2) {
+
+		if (!storage.hasUVs)
+			return new Point2D(triangle + FastMath.min(b1, ONE_MINUS_EPSILON), b2);
+
+		final double b0 = 1d - b1 - b2;
+		final int v0 = storage.getIndex(triangle * 3) * 2, v1 = storage.getIndex(triangle * 3 + 1) * 2,
+				v2 = storage.getIndex(triangle * 3 + 2) * 2;
+
+		return new Point2D(b0 * storage.getUV(v0) + b1 * storage.getUV(v1) + b2 * storage.getUV(v2),
+				b0 * storage.getUV(v0 + 1) + b1 * storage.getUV(v1 + 1) + b2 * storage.getUV(v2 + 1));
+	}
+
+	/**
+	 * @return the Point (in object-local coordinates) at the given barycentric
+	 *         coordinates on the given triangle
+	 */
+	private Point getPoint(int triangle, double b1, double b2) {
+
+		final double b0 = 1d - b1 - b2;
+		final int v0 = storage.getIndex(triangle * 3) * 3, v1 = storage.getIndex(triangle * 3 + 1) * 3,
+				v2 = storage.getIndex(triangle * 3 + 2) * 3;
+
+		return new Point(interpolatePosition(v0, v1, v2, 0, b0, b1, b2), interpolatePosition(v0, v1, v2, 1, b0, b1, b2),
+				interpolatePosition(v0, v1, v2, 2, b0, b1, b2));
+	}
+
+	/**
+	 * @return the given coordinate (<code>0</code>, <code>1</code>, or
+	 *         <code>2</code> for X, Y, or Z) of the point at the given
+	 *         barycentric coordinates between the given vertices
+	 */
+	private double interpolatePosition(int v0, int v1, int v2, int axis, double b0, double b1, double b2) {
+
+		return b0 * storage.getPosition(v0 + axis) + b1 * storage.getPosition(v1 + axis)
+				+ b2 * storage.getPosition(v2 + axis);
+	}
+
+	/**
+	 * @return the given coordinate (<code>0</code>, <code>1</code>, or
+	 *         <code>2</code> for X, Y, or Z) of the edge from vertex
+	 *         <code>from</code> to vertex <code>to</code>
+	 */
+	private double getPositionDelta(int from, int to, int axis) {
+
+		return storage.getPosition(to + axis) - storage.getPosition(from + axis);
+	}
+
+	private double[] getCumulativeAreas() {
+
+		double[] cached = cumulativeAreas;
+		if (cached == null) {
+			final double[] areas = new double[triangleCount];
+			double sum = 0d;
+			for (int triangle = 0; triangle < triangleCount; triangle++) {
+				final int v0 = storage.getIndex(triangle * 3) * 3, v1 = storage.getIndex(triangle * 3 + 1) * 3,
+						v2 = storage.getIndex(triangle * 3 + 2) * 3;
+				final double e1x = getPositionDelta(v0, v1, 0), e1y = getPositionDelta(v0, v1, 1),
+						e1z = getPositionDelta(v0, v1, 2);
+				final double e2x = getPositionDelta(v0, v2, 0), e2y = getPositionDelta(v0, v2, 1),
+						e2z = getPositionDelta(v0, v2, 2);
+				final double cx = e1y * e2z - e1z * e2y, cy = e1z * e2x - e1x * e2z, cz = e1x * e2y - e1y * e2x;
+
+				sum += FastMath.sqrt(cx * cx + cy * cy + cz * cz) / 2d;
+				areas[triangle] = sum;
+			}
+			cumulativeAreas = cached = areas;
+		}
+
+		return cached;
+	}
+
+	/**
+	 * Points are sampled uniformly by area (in object-local coordinates) over
+	 * the whole mesh.
+	 */
+	@Override
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier) {
+
+		final double sampleX = sampleSupplier.nextX(), sampleY = sampleSupplier.getY();
+		final double[] areas = getCumulativeAreas();
+
+		//
+		// The sample's X-coordinate selects the triangle. What's left over
+		// after that selection is still uniformly distributed, and so is
+		// re-used to select the point within that triangle.
+		final double target = sampleX * areas[triangleCount - 1];
+		int triangle = Arrays.binarySearch(areas, target);
+		if (triangle < 0)
+			triangle = -( triangle + 1 );
+		triangle = FastMath.min(triangle, triangleCount - 1);
+
+		final double previous = ( triangle == 0 ) ? 0d : areas[triangle - 1];
+		final double area = areas[triangle] - previous;
+		final double remapped = ( area > 0d ) ? FastMath.min(( target - previous ) / area, 1d) : 0d;
+
+		final double root = FastMath.sqrt(remapped);
+		final double b1 = root * ( 1d - sampleY ), b2 = root * sampleY;
+
+		return localToWorld(getPoint(triangle, b1, b2));
+	}
+
+	/**
+	 * Like {@link PlaneShape}, a TriangleMeshShape does not try to select only
+	 * those points which face <code>facing</code>.
+	 */
+	@Override
+	public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing) {
+
+		return sampleSurfacePoint(sampleSupplier);
+	}
+
+	/**
+	 * The solid angle of a TriangleMeshShape is approximated by that of its
+	 * {@link BoundingSphere}.
+	 */
+	@Override
+	public double computeSolidAngle(Point viewedFrom) {
+
+		final BoundingSphere sphere = new BoundingSphere(getBoundingBox());
+
+		final double dx = viewedFrom.getX() - sphere.getCenter().getX(),
+				dy = viewedFrom.getY() - sphere.getCenter().getY(), dz = viewedFrom.getZ() - sphere.getCenter().getZ();
+		final double d = FastMath.sqrt(dx * dx + dy * dy + dz * dz), r = sphere.getRadius();
+		if (d <= r)
+			return 4d * FastMath.PI;
+
+		return 2d * FastMath.PI * ( 1d - FastMath.sqrt(d * d - r * r) / d );
+	}
+
+	@Override
+	public SurfaceDescriptor getSurfaceNearestTo(Point point) {
+
+		final Point localPoint = worldToLocal(point);
+
+		final double[] nearest = traversal.get().nearest;
+		final int triangle = getNearestTriangle(localPoint.getX(), localPoint.getY(), localPoint.getZ(), nearest);
+
+		return new SurfaceDescriptor(localToWorld(getPoint(triangle, nearest[0], nearest[1])),
+				localToWorld(getNormal(triangle, nearest[0], nearest[1])),
+				getParam(triangle, nearest[0], nearest[1]));
+	}
+
+	@Override
+	public Point2D getParamFromLocalSurface(Point surface) {
+
+		final double[] nearest = traversal.get().nearest;
+		final int triangle = getNearestTriangle(surface.getX(), surface.getY(), surface.getZ(), nearest);
+
+		return getParam(triangle, nearest[0], nearest[1]);
+	}
+
+	/**
+	 * If this mesh has texture-coordinates, this must search every triangle
+	 * for the one whose texture-coordinates contain <code>param</code>, and so
+	 * is comparatively slow.
+	 */
+	@Override
+	public Point getLocalSurfaceFromParam(Point2D param) {
+
+		if (!storage.hasUVs) {
+			final int triangle = (int) FastMath.max(0d, FastMath.min(FastMath.floor(param.getX()), triangleCount - 1));
+			return getPoint(triangle, param.getX() - triangle, param.getY());
+		}
+
+		int best = 0;
+		double bestB1 = 0d, bestB2 = 0d, bestMinimum = Double.NEGATIVE_INFINITY;
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			final int v0 = storage.getIndex(triangle * 3) * 2, v1 = storage.getIndex(triangle * 3 + 1) * 2,
+					v2 = storage.getIndex(triangle * 3 + 2) * 2;
+
+			final double e1u = storage.getUV(v1) - storage.getUV(v0),
+					e1v = storage.getUV(v1 + 1) - storage.getUV(v0 + 1);
+			final double e2u = storage.getUV(v2) - storage.getUV(v0),
+					e2v = storage.getUV(v2 + 1) - storage.getUV(v0 + 1);
+			final double det = e1u * e2v - e2u * e1v;
+			if (det == 0d)
+				continue;
+
+			final double pu = param.getX() - storage.getUV(v0), pv = param.getY() - storage.getUV(v0 + 1);
+			final double b1 = ( pu * e2v - e2u * pv ) / det, b2 = ( e1u * pv - pu * e1v ) / det;
+
+			//
+			// Prefer the triangle which contains the given parameters, or
+			// failing that, the one which comes closest to containing them.
+			final double minimum = FastMath.min(1d - b1 - b2, FastMath.min(b1, b2));
+			if (minimum > bestMinimum) {
+				best = triangle;
+				bestB1 = b1;
+				bestB2 = b2;
+				bestMinimum = minimum;
+				if (minimum >= 0d)
+					break;
+			}
+		}
+
+		return getPoint(best, bestB1, bestB2);
+	}
+
+	@Override
+	public AABB getLocalBoundingBox() {
+
+		return new AABB(new Point(storage.getNodeBound(0), storage.getNodeBound(1), storage.getNodeBound(2)),
+				new Point(storage.getNodeBound(3), storage.getNodeBound(4), storage.getNodeBound(5)));
+	}
+
+	/**
+	 * @return the number of triangles in this mesh
+	 */
+	public int getTriangleCount() {
+
+		return triangleCount;
+	}
+
+	/**
+	 * @return the number of vertices in this mesh
+	 */
+	public int getVertexCount() {
+
+		return storage.vertexCount;
+	}
+
+	/**
+	 * A single thread's stack and scratch-space for traversing a mesh's
+	 * hierarchy.
+	 */
+	private static class Traversal {
+
+		final int[]		stack;
+		final double[]	hit			= new double[3];
+		final double[]	candidate	= new double[2], nearest = new double[2];
+
+		Traversal(int stackSize) {
+			this.stack = new int[stackSize];
+		}
+	}
+
+	/**
+	 * Builds a mesh's hierarchy. The tree itself is built by a
+	 * {@link SAHBVHBuilder} over the triangles' bounding-boxes, and then
+	 * flattened depth-first into the node-arrays.
+	 */
+	private static class HierarchyBuilder {
+
+		private final int[]		indices;
+
+		private double[]		nodeBounds;
+		private int[]			nodeOffsets, nodeCounts;
+		private byte[]			nodeAxes;
+		private int				nodeCount	= 0, maxDepth = 0;
+
+		public HierarchyBuilder(double[] positions, int[] indices) {
+
+			final int triangleCount = indices.length / 3;
+
+			final int[] order = new int[triangleCount];
+			final double[] triangleBounds = new double[triangleCount * 6];
+			for (int triangle = 0; triangle < triangleCount; triangle++) {
+				order[triangle] = triangle;
+				for (int axis = 0; axis < 3; axis++) {
+					final double p0 = positions[indices[triangle * 3] * 3 + axis],
+							p1 = positions[indices[triangle * 3 + 1] * 3 + axis],
+							p2 = positions[indices[triangle * 3 + 2] * 3 + axis];
+					triangleBounds[triangle * 6 + axis] = FastMath.min(p0, FastMath.min(p1, p2));
+					triangleBounds[triangle * 6 + 3 + axis] = FastMath.max(p0, FastMath.max(p1, p2));
+				}
+			}
+
+			final int initialCapacity = FastMath.max(16, triangleCount / 2);
+			this.nodeBounds = new double[initialCapacity * 6];
+			this.nodeOffsets = new int[initialCapacity];
+			this.nodeCounts = new int[initialCapacity];
+			this.nodeAxes = new byte[initialCapacity];
+
+			flatten(new SAHBVHBuilder().buildTree(triangleBounds, order), 0);
+
+			//
+			// Re-order the triangles so that every leaf's triangles are
+			// contiguous.
+			this.indices = new int[indices.length];
+			for (int i = 0; i < triangleCount; i++)
+				System.arraycopy(indices, order[i] * 3, this.indices, i * 3, 3);
+		}
+
+		private int flatten(BVHNode bvhNode, int depth) {
+
+			final int node = allocateNode();
+			maxDepth = FastMath.max(maxDepth, depth);
+
+			final Point min = bvhNode.getBounds().getMinExtent(), max = bvhNode.getBounds().getMaxExtent();
+			nodeBounds[node * 6] = min.getX();
+			nodeBounds[node * 6 + 1] = min.getY();
+			nodeBounds[node * 6 + 2] = min.getZ();
+			nodeBounds[node * 6 + 3] = max.getX();
+			nodeBounds[node * 6 + 4] = max.getY();
+			nodeBounds[node * 6 + 5] = max.getZ();
+
+			if (bvhNode.isLeaf()) {
+				nodeOffsets[node] = bvhNode.getFirstElement();
+				nodeCounts[node] = bvhNode.getElementCount();
+				return node;
+			}
+
+			//
+			// Flattening the children may re-allocate the node-arrays, so we
+			// must not write into them until afterward.
+			flatten(bvhNode.getLeft(), depth + 1);
+			final int secondChild = flatten(bvhNode.getRight(), depth + 1);
+
+			nodeAxes[node] = (byte) bvhNode.getSplitAxis();
+			nodeCounts[node] = 0;
+			nodeOffsets[node] = secondChild;
+
+			return node;
+		}
+
+		private int allocateNode() {
+
+			if (nodeCount == nodeOffsets.length) {
+				final int capacity = nodeCount * 2;
+				nodeBounds = Arrays.copyOf(nodeBounds, capacity * 6);
+				nodeOffsets = Arrays.copyOf(nodeOffsets, capacity);
+				nodeCounts = Arrays.copyOf(nodeCounts, capacity);
+				nodeAxes = Arrays.copyOf(nodeAxes, capacity);
+			}
+
+			return nodeCount++;
+		}
+	}
+
+}
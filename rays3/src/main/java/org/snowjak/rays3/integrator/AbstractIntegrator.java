@@ -1,19 +1,26 @@
 package org.snowjak.rays3.integrator;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snowjak.rays3.Global;
 import org.snowjak.rays3.World;
 import org.snowjak.rays3.camera.Camera;
 import org.snowjak.rays3.film.Film;
 import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.RayPacket;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.SampleDimensions;
 import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.spectrum.Spectrum;
 
@@ -27,11 +34,28 @@ import org.snowjak.rays3.spectrum.Spectrum;
  * All implementations will implement {@link #followRay(Ray, World, Sample)}.
  * </p>
  * <p>
- * When {@link #render(World)} is called, the AbstractIntegrator will begin
- * submitting {@link RenderSampleRunnable}s to the
- * {@link Global#RENDER_EXECUTOR} ForkJoinPool. Each RenderSampleRunnable will
- * in turn call {@link #followRay(Ray, World, Sample)} on the AbstractIntegrator
- * instance.
+ * When {@link #render(World)} is called, the AbstractIntegrator divides each of
+ * its {@link Sampler}s' domains into rectangular tiles, and renders those
+ * tiles on a {@link ForkJoinPool} (by default, {@link Global#RENDER_POOL}).
+ * Tiles are split recursively, in halves, until each is estimated to cost no
+ * more than a small fraction of the whole render (see
+ * {@link #estimateTileCost(Sampler, int, int, int, int)}); a worker with no
+ * tiles of its own steals the larger, not-yet-split halves from the others.
+ * Each tile is rendered start-to-finish on one thread.
+ * </p>
+ * <p>
+ * Each tile's Samples are taken in batches of up to {@link #PACKET_SIZE}. The
+ * primary Rays of each batch are traced through the World together, as a
+ * {@link RayPacket} (see {@link World#getClosestInteractions(RayPacket)}), and
+ * then each Sample is finished by
+ * {@link #followRay(Ray, Optional, World, Sample)}. Any further Rays (e.g.,
+ * reflections) are traced one at a time, by
+ * {@link #followRay(Ray, World, Sample)}.
+ * </p>
+ * <p>
+ * Implementations should register whatever additional sample-dimensions they
+ * need with {@link #getSampleDimensions()} when they are constructed, and keep
+ * the handles they receive for use in {@link #followRay(Ray, World, Sample)}.
  * </p>
  * 
  * @author snowjak88
@@ -39,114 +63,218 @@ import org.snowjak.rays3.spectrum.Spectrum;
 public abstract class AbstractIntegrator {
 
 	/**
-	 * The number of {@link RenderSampleRunnable}s that are allowed to be queued
-	 * up and not started in the {@link Global#RENDER_EXECUTOR}.
+	 * How many tiles (on average) the render is split into for each of the
+	 * render-pool's workers. More, smaller tiles even out the workers' loads
+	 * toward the end of a render; fewer, larger tiles cost less to schedule.
 	 */
-	public final static int							MAX_WAITING_SAMPLES		= Runtime.getRuntime().availableProcessors()
-			* 2;
+	public static final int				TILES_PER_WORKER	= 16;
+
 	/**
-	 * The number of {@link RenderSampleRunnable}s that are allowed to be
-	 * currently executing on the {@link Global#RENDER_EXECUTOR}.
+	 * How many primary Rays are traced together, as a single
+	 * {@link RayPacket}.
 	 */
-	public final static int							MAX_RENDERING_SAMPLES	= Runtime
-			.getRuntime()
-				.availableProcessors();
-
-	private final Camera							camera;
-	private final Film								film;
-	private final BlockingQueue<Sampler>			samplers;
+	public static final int				PACKET_SIZE			= 64;
 
-	private final BlockingQueue<Optional<Sample>>	samplesQueue;
+	private final Camera				camera;
+	private final Film					film;
+	private final Collection<Sampler>	samplers;
+	private final ForkJoinPool			pool;
+	private final SampleDimensions		sampleDimensions;
 
-	private final int								maxRayDepth;
-	private boolean									finishedGettingSamples;
+	private final int					maxRayDepth;
 
-	private final Semaphore							samplesCurrentlyRenderingCount;
+	private final AtomicLong			samplesWaitingToRender, samplesCurrentlyRendering;
+	private volatile ForkJoinTask<?>	renderTask;
 
 	/**
-	 * Construct a new Integrator.
+	 * Construct a new Integrator, rendering on the
+	 * {@link Global#RENDER_POOL}.
 	 * 
 	 * @param camera
 	 * @param film
-	 * @param sampler
+	 * @param samplers
+	 * @param maxRayDepth
 	 */
 	public AbstractIntegrator(Camera camera, Film film, Collection<Sampler> samplers, int maxRayDepth) {
+		this(camera, film, samplers, maxRayDepth, Global.RENDER_POOL);
+	}
+
+	/**
+	 * Construct a new Integrator, rendering on the given {@link ForkJoinPool}.
+	 * 
+	 * @param camera
+	 * @param film
+	 * @param samplers
+	 * @param maxRayDepth
+	 * @param pool
+	 */
+	public AbstractIntegrator(Camera camera, Film film, Collection<Sampler> samplers, int maxRayDepth,
+			ForkJoinPool pool) {
 
 		this.camera = camera;
 		this.film = film;
-		this.samplers = new ArrayBlockingQueue<>(samplers.size());
-		this.samplers.addAll(samplers);
+		this.samplers = Collections.unmodifiableList(new ArrayList<>(samplers));
+		this.pool = pool;
 
-		this.samplesQueue = new ArrayBlockingQueue<>(MAX_WAITING_SAMPLES);
+		this.sampleDimensions = new SampleDimensions();
+		for (Sampler sampler : this.samplers)
+			sampler.setSampleDimensions(sampleDimensions);
 
 		this.maxRayDepth = maxRayDepth;
 
-		this.finishedGettingSamples = false;
-		this.samplesCurrentlyRenderingCount = new Semaphore(MAX_RENDERING_SAMPLES);
+		this.samplesWaitingToRender = new AtomicLong(0);
+		this.samplesCurrentlyRendering = new AtomicLong(0);
 	}
 
 	/**
-	 * Start rendering the given world. This method will create
-	 * {@link RenderSampleRunnable}s for all {@link Sample}s returned by the
-	 * configured {@link Sampler}, rendering the results of
+	 * Start rendering the given world. This method will split the configured
+	 * {@link Sampler}s' domains into tiles and submit them to this
+	 * Integrator's {@link ForkJoinPool}, rendering the results of
 	 * {@link AbstractIntegrator#followRay(Ray, World, Sample)} to the
-	 * configured {@link Film}.
+	 * configured {@link Film}. It returns without waiting for the render to
+	 * finish (see {@link #awaitRender()}).
+	 * <p>
+	 * Before any tiles are dispatched, the World's acceleration-structure is
+	 * brought up to date (see {@link World#updateAccelerationStructure()}),
+	 * and every Sampler is {@link Sampler#prepare() prepared}.
+	 * </p>
 	 * 
 	 * @param world
 	 */
 	public void render(World world) {
 
-		final BlockingQueue<Sampler> subSamplers = new ArrayBlockingQueue<>(samplers.size());
-		subSamplers.addAll(samplers);
+		world.updateAccelerationStructure();
+		for (Sampler sampler : samplers)
+			sampler.prepare();
 
-		for (Sampler subSampler : subSamplers)
-			Global.RENDER_EXECUTOR.execute(() -> {
-				Optional<Sample> sample;
-				do {
-					sample = subSampler.getNextSample();
+		double totalCost = 0d;
+		long totalSamples = 0;
+		for (Sampler sampler : samplers) {
+			totalCost += estimateTileCost(sampler, sampler.getMinFilmX(), sampler.getMinFilmY(),
+					sampler.getMaxFilmX(), sampler.getMaxFilmY());
+			totalSamples += sampler.totalSamples();
+		}
 
-					if (!sample.isPresent()) {
-						subSamplers.remove(subSampler);
-						if (subSamplers.isEmpty())
-							try {
-								samplesQueue.put(Optional.empty());
-							} catch (InterruptedException e) {
-								e.printStackTrace();
-							}
-						return;
-					}
+		final double tileCost = totalCost / ( (double) pool.getParallelism() * (double) TILES_PER_WORKER );
 
-					try {
-						samplesQueue.put(sample);
+		final List<RenderTileTask> tasks = new ArrayList<>(samplers.size());
+		for (Sampler sampler : samplers)
+			tasks.add(new RenderTileTask(this, world, sampler, sampler.getMinFilmX(), sampler.getMinFilmY(),
+					sampler.getMaxFilmX(), sampler.getMaxFilmY(), tileCost));
 
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						sample = Optional.empty();
-					}
+		samplesWaitingToRender.addAndGet(totalSamples);
+		renderTask = pool.submit(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
 
-				} while (sample.isPresent());
-			});
+	/**
+	 * Block until the render begun by the last call to {@link #render(World)}
+	 * is finished. Returns immediately if no render has been begun.
+	 */
+	public void awaitRender() {
 
-		Global.RENDER_EXECUTOR.execute(() -> {
-			Optional<Sample> currentSample;
+		final ForkJoinTask<?> task = renderTask;
+		if (task != null)
+			task.join();
+	}
 
-			try {
+	/**
+	 * Estimate the relative cost of rendering the given part of the given
+	 * {@link Sampler}'s domain. The render is split into tiles until each
+	 * tile's estimated cost is no more than
+	 * <code>1 / ({@link #TILES_PER_WORKER} &times; parallelism)</code> of the
+	 * whole.
+	 * <p>
+	 * By default, every {@link Sample} is assumed to cost the same, and so a
+	 * tile's cost is simply the number of Samples it holds. Implementations
+	 * that know more about where in the image their work lies may override
+	 * this.
+	 * </p>
+	 * 
+	 * @param sampler
+	 * @param minFilmX
+	 * @param minFilmY
+	 * @param maxFilmX
+	 * @param maxFilmY
+	 * @return
+	 */
+	protected double estimateTileCost(Sampler sampler, int minFilmX, int minFilmY, int maxFilmX, int maxFilmY) {
 
-				while (( currentSample = samplesQueue.take() ).isPresent()) {
+		return (double) ( maxFilmX - minFilmX + 1 ) * (double) ( maxFilmY - minFilmY + 1 )
+				* (double) sampler.getSamplesPerPixel();
+	}
 
-					this.samplesCurrentlyRenderingCount.acquire();
+	/**
+	 * Render every {@link Sample} in the given tile to the configured
+	 * {@link Film}, on the current thread.
+	 * 
+	 * @param world
+	 * @param tile
+	 */
+	private void renderTile(World world, Sampler tile) {
 
-					Global.RENDER_EXECUTOR.submit(new RenderSampleRunnable(this, world, currentSample.get(),
-							getCamera(), getFilm(), samplesCurrentlyRenderingCount));
-				}
+		final long sampleCount = tile.totalSamples();
+		samplesWaitingToRender.addAndGet(-sampleCount);
+		samplesCurrentlyRendering.addAndGet(sampleCount);
 
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+		final double sampleWeight = 1d / (double) tile.getSamplesPerPixel();
+		final List<Sample> samples = new ArrayList<>(PACKET_SIZE);
 
-			this.finishedGettingSamples = true;
+		Optional<Sample> sample;
+		do {
+			samples.clear();
+			while (samples.size() < PACKET_SIZE && ( sample = tile.getNextSample() ).isPresent())
+				samples.add(sample.get());
 
-		});
+			renderSamples(world, tile, samples, sampleWeight);
+
+		} while (samples.size() == PACKET_SIZE);
+
+		samplesCurrentlyRendering.addAndGet(-sampleCount);
+	}
+
+	/**
+	 * Render the given {@link Sample}s to the configured {@link Film},
+	 * tracing their primary Rays together as a single {@link RayPacket}.
+	 * 
+	 * @param world
+	 * @param tile
+	 * @param samples
+	 * @param sampleWeight
+	 */
+	private void renderSamples(World world, Sampler tile, List<Sample> samples, double sampleWeight) {
+
+		if (samples.isEmpty())
+			return;
+
+		RayPacket packet;
+		try {
+			packet = camera.getRayPacket(samples);
+			world.getClosestInteractions(packet);
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			//
+			// Fall back to tracing each Sample on its own.
+			packet = null;
+		}
+
+		for (int i = 0; i < samples.size(); i++) {
+
+			final Sample currentSample = samples.get(i);
+			try {
+
+				final Spectrum spectrum = ( ( packet == null )
+						? followRay(camera.getRay(currentSample), world, currentSample)
+						: followRay(packet.getRay(i), packet.getInteraction(i), world, currentSample) )
+								.multiply(sampleWeight);
+
+				if (tile.isSampleAcceptable(currentSample, spectrum))
+					film.addSample(currentSample, spectrum);
+
+			} catch (Throwable t) {
+				t.printStackTrace();
+			}
+		}
 	}
 
 	/**
@@ -174,12 +302,35 @@ public abstract class AbstractIntegrator {
 	public abstract Spectrum followRay(Ray ray, World world, Sample sample);
 
 	/**
-	 * @return <code>true</code> if the configured Sampler has no more
-	 *         {@link Sample}s to pick up
+	 * Estimate the radiant energy obtained by backtracing along the given
+	 * {@link Ray}, whose closest {@link Interaction} in the given World has
+	 * already been found. This is called for each primary Ray, once its
+	 * {@link RayPacket} has been traced.
+	 * <p>
+	 * By default, this ignores the given Interaction, and simply calls
+	 * {@link #followRay(Ray, World, Sample)}. Implementations should override
+	 * this to avoid tracing the Ray a second time.
+	 * </p>
+	 * 
+	 * @param ray
+	 * @param interaction
+	 *            the closest Interaction along <code>ray</code>, if any
+	 * @param world
+	 * @param sample
+	 * @return
+	 */
+	public Spectrum followRay(Ray ray, Optional<Interaction> interaction, World world, Sample sample) {
+
+		return followRay(ray, world, sample);
+	}
+
+	/**
+	 * @return <code>true</code> if every tile of the current render has been
+	 *         picked up by a worker
 	 */
 	public boolean isFinishedGettingSamples() {
 
-		return finishedGettingSamples;
+		return renderTask != null && samplesWaitingToRender.get() == 0;
 	}
 
 	/**
@@ -188,29 +339,31 @@ public abstract class AbstractIntegrator {
 	 */
 	public boolean isFinishedRenderingSamples() {
 
-		return finishedGettingSamples && countSamplesWaitingToRender() == 0 && countSamplesCurrentlyRendering() == 0;
+		final ForkJoinTask<?> task = renderTask;
+		return task != null && task.isDone();
 	}
 
 	/**
-	 * Count the number of Samples which this Integrator has picked up from its
-	 * {@link Sampler} and not yet begun processing.
+	 * Count the number of Samples which belong to tiles that no worker has yet
+	 * picked up.
 	 * 
 	 * @return
 	 */
-	public int countSamplesWaitingToRender() {
+	public long countSamplesWaitingToRender() {
 
-		return samplesQueue.size();
+		return samplesWaitingToRender.get();
 	}
 
 	/**
-	 * Count the number of {@link Sample}s currently being rendered by this
-	 * Integrator.
+	 * Count the number of {@link Sample}s which belong to tiles currently being
+	 * rendered by this Integrator (whether or not each Sample has itself been
+	 * rendered yet).
 	 * 
 	 * @return
 	 */
-	public int countSamplesCurrentlyRendering() {
+	public long countSamplesCurrentlyRendering() {
 
-		return MAX_RENDERING_SAMPLES - samplesCurrentlyRenderingCount.availablePermits();
+		return samplesCurrentlyRendering.get();
 	}
 
 	public Camera getCamera() {
@@ -234,68 +387,69 @@ public abstract class AbstractIntegrator {
 	}
 
 	/**
-	 * {@link Runnable} implementation that renders a single {@link Sample} to
-	 * the given {@link Film}.
-	 * <p>
-	 * Note that this will not execute the ray-following on a separate thread.
-	 * Instead, you should execute multiple RenderSampleTasks on separate
-	 * threads to achieve multithreading.
-	 * </p>
-	 * 
-	 * @author snowjak88
-	 * @see FollowRayCallable
-	 * @see AbstractIntegrator#followRay(Ray, World, Sample)
+	 * @return the registry of additional sample-dimensions shared by this
+	 *         Integrator's {@link Sampler}s
+	 */
+	public SampleDimensions getSampleDimensions() {
+
+		return sampleDimensions;
+	}
+
+	/**
+	 * Renders the given part of a {@link Sampler}'s domain -- either directly,
+	 * if it is small enough to be a single tile, or else by splitting it in
+	 * half along its longer side.
 	 */
-	public static class RenderSampleRunnable implements Runnable {
+	private static class RenderTileTask extends RecursiveAction {
+
+		private static final long			serialVersionUID	= 2471690418846223851L;
 
 		private final AbstractIntegrator	integrator;
 		private final World					world;
-		private final Sample				sample;
-		private final Camera				camera;
-		private final Film					film;
-		private final Semaphore				samplesCurrentlyRenderingCount;
+		private final Sampler				sampler;
+		private final int					minFilmX, minFilmY, maxFilmX, maxFilmY;
+		private final double				tileCost;
 
-		public RenderSampleRunnable(AbstractIntegrator integrator, World world, Sample sample, Camera camera, Film film,
-				Semaphore samplesCurrentlyRenderingCount) {
-
-			super();
+		public RenderTileTask(AbstractIntegrator integrator, World world, Sampler sampler, int minFilmX,
+				int minFilmY, int maxFilmX, int maxFilmY, double tileCost) {
 			this.integrator = integrator;
 			this.world = world;
-			this.sample = sample;
-			this.camera = camera;
-			this.film = film;
-			this.samplesCurrentlyRenderingCount = samplesCurrentlyRenderingCount;
+			this.sampler = sampler;
+			this.minFilmX = minFilmX;
+			this.minFilmY = minFilmY;
+			this.maxFilmX = maxFilmX;
+			this.maxFilmY = maxFilmY;
+			this.tileCost = tileCost;
 		}
 
 		@Override
-		public void run() {
-
-			try {
-
-				//
-				// Set up the initial ray to follow.
-				final Ray ray = camera.getRay(sample);
-
-				//
-				// Follow the ray.
-				//
-				// (notice that the initial ray-follow, at least, is kept on
-				// this
-				// same thread)
-				final Spectrum spectrum = integrator
-						.followRay(ray, world, sample)
-							.multiply(1d / (double) sample.getSampler().getSamplesPerPixel());
-
-				if (sample.getSampler().isSampleAcceptable(sample, spectrum))
-					film.addSample(sample, spectrum);
-
-				this.samplesCurrentlyRenderingCount.release();
-
-			} catch (Throwable t) {
-				t.printStackTrace();
+		protected void compute() {
+
+			final int sizeX = maxFilmX - minFilmX + 1, sizeY = maxFilmY - minFilmY + 1;
+
+			if (( sizeX > 1 || sizeY > 1 ) && integrator.estimateTileCost(sampler, minFilmX, minFilmY, maxFilmX,
+					maxFilmY) > tileCost) {
+
+				if (sizeX >= sizeY) {
+					final int midX = minFilmX + ( sizeX >>> 1 );
+					invokeAll(
+							new RenderTileTask(integrator, world, sampler, minFilmX, minFilmY, midX - 1, maxFilmY,
+									tileCost),
+							new RenderTileTask(integrator, world, sampler, midX, minFilmY, maxFilmX, maxFilmY,
+									tileCost));
+				} else {
+					final int midY = minFilmY + ( sizeY >>> 1 );
+					invokeAll(
+							new RenderTileTask(integrator, world, sampler, minFilmX, minFilmY, maxFilmX, midY - 1,
+									tileCost),
+							new RenderTileTask(integrator, world, sampler, minFilmX, midY, maxFilmX, maxFilmY,
+									tileCost));
+				}
+				return;
 			}
-		}
 
+			integrator.renderTile(world, sampler.getTile(minFilmX, minFilmY, maxFilmX, maxFilmY));
+		}
 	}
 
 	/**
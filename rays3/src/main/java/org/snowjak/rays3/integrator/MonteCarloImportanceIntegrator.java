@@ -17,6 +17,7 @@ import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.geometry.shape.Primitive;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.SampleDimensions;
 import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.spectrum.RGB;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
@@ -29,7 +30,10 @@ import org.snowjak.rays3.spectrum.Spectrum;
  */
 public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 
-	private final int samplesPerInteraction;
+	private final int	samplesPerInteraction;
+
+	private final int	emissiveSurfaceDimension, emissiveW_iDimension, emissiveL_eDimension, emissiveF_rDimension;
+	private final int	indirectW_iDimension, indirectW_iProbDimension, indirectF_rDimension, L_eDimension;
 
 	/**
 	 * Construct a new {@link MonteCarloImportanceIntegrator}.
@@ -59,12 +63,26 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 
 		super(camera, film, samplers, maxRayDepth);
 		this.samplesPerInteraction = samplesPerInteraction;
+
+		final SampleDimensions dimensions = getSampleDimensions();
+		this.emissiveSurfaceDimension = dimensions.register2D("sample-emissive-surface", samplesPerInteraction);
+		this.emissiveW_iDimension = dimensions.register2D("sample-emissive-W_i", samplesPerInteraction);
+		this.emissiveL_eDimension = dimensions.register2D("sample-emissive-L_e", samplesPerInteraction);
+		this.emissiveF_rDimension = dimensions.register2D("sample-emissive-f_r", samplesPerInteraction);
+		this.indirectW_iDimension = dimensions.register2D("sample-indirect-W_i", samplesPerInteraction);
+		this.indirectW_iProbDimension = dimensions.register2D("sample-indirect-W_i-prob", samplesPerInteraction);
+		this.indirectF_rDimension = dimensions.register2D("sample-indirect-f_r", samplesPerInteraction);
+		this.L_eDimension = dimensions.register2D("sample-L_e", 1);
 	}
 
 	@Override
 	public Spectrum followRay(Ray ray, World world, Sample sample) {
 
-		final Optional<Interaction> op_interaction = world.getClosestInteraction(ray);
+		return followRay(ray, world.getClosestInteraction(ray), world, sample);
+	}
+
+	@Override
+	public Spectrum followRay(Ray ray, Optional<Interaction> op_interaction, World world, Sample sample) {
 
 		if (!op_interaction.isPresent())
 			return RGBSpectrum.BLACK;
@@ -77,7 +95,7 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 		// If the surface normal is pointing "the wrong way", we should do so.
 		final Interaction relativeInteraction;
 
-		if (interaction.getNormal().asVector().normalize().dotProduct(interaction.getW_e()) < 0d)
+		if (interaction.getNormal().asVector().dotProduct(interaction.getW_e()) < 0d)
 			relativeInteraction = new Interaction(interaction, interaction.getNormal().negate());
 		else
 			relativeInteraction = interaction;
@@ -96,9 +114,6 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 		double totalProb_direct = 0d;
 		double totalProb_indirect = 0d;
 		
-		//
-		//
-		final int twinSampleGridPerInteraction = (int) ceil(sqrt(samplesPerInteraction));
 		//
 		//
 		// First, sample all known emissives, to estimate direct illumination.
@@ -111,24 +126,28 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 				// emissive shape.
 				//
 				final Point emissiveSurfacePoint = p.sampleSurfacePoint(
-						sample.getAdditionalTwinSample("sample-emissive-surface", twinSampleGridPerInteraction), point);
+						sample.getAdditionalTwinSample(emissiveSurfaceDimension), point);
 				final Vector toEmissiveSurface = new Vector(point, emissiveSurfacePoint);
 
 				final double cos_i = bsdf.cos_i(relativeInteraction, toEmissiveSurface);
 				if (cos_i <= 0d)
 					continue;
 
+				//
+				// Locate the emissive surface along that direction, and then
+				// check that nothing else lies in between.
 				final Ray toEmissiveSurfaceRay = new Ray(point, toEmissiveSurface);
-				final Optional<Interaction> op_emissiveInteraction = world.getClosestInteraction(toEmissiveSurfaceRay);
+				final Optional<Interaction> op_emissiveInteraction = world.getClosestInteraction(toEmissiveSurfaceRay,
+						p);
 				if (!op_emissiveInteraction.isPresent())
 					continue;
 
 				final Interaction emissiveInteraction = op_emissiveInteraction.get();
-				if (emissiveInteraction.getPrimitive() != p)
+				if (world.isOccluded(point, emissiveInteraction.getPoint()))
 					continue;
 
 				final double pdfW_i = bsdf.pdfW_i(relativeInteraction, sample,
-						sample.getAdditionalTwinSample("sample-emissive-W_i", twinSampleGridPerInteraction), toEmissiveSurface)
+						sample.getAdditionalTwinSample(emissiveW_iDimension), toEmissiveSurface)
 						* ( p.getShape().computeSolidAngle(point) / ( 2d * PI ) );
 				final double sampleProb = Global.isNear(pdfW_i, 0d) ? 0d : 1d / pdfW_i;
 
@@ -137,13 +156,13 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 				final Spectrum radianceFromEmissive = p
 						.getBsdf()
 							.sampleL_e(emissiveInteraction, sample,
-									sample.getAdditionalTwinSample("sample-emissive-L_e", twinSampleGridPerInteraction))
+									sample.getAdditionalTwinSample(emissiveL_eDimension))
 							.multiply(1d / ( emissiveDistance * emissiveDistance ));
 
 				totalProb_direct += sampleProb;
 				totalW_i_direct = totalW_i_direct.add(radianceFromEmissive
 						.multiply(bsdf.f_r(relativeInteraction, sample,
-								sample.getAdditionalTwinSample("sample-emissive-f_r", twinSampleGridPerInteraction),
+								sample.getAdditionalTwinSample(emissiveF_rDimension),
 								toEmissiveSurface))
 							.multiply(cos_i)
 							.multiply(sampleProb));
@@ -169,9 +188,9 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 				// its
 				// PDF.
 				final Vector sampledDirection = bsdf.sampleW_i(relativeInteraction, sample,
-						sample.getAdditionalTwinSample("sample-indirect-W_i", twinSampleGridPerInteraction));
+						sample.getAdditionalTwinSample(indirectW_iDimension));
 				final double pdfW_i = bsdf.pdfW_i(relativeInteraction, sample,
-						sample.getAdditionalTwinSample("sample-indirect-W_i-prob", twinSampleGridPerInteraction),
+						sample.getAdditionalTwinSample(indirectW_iProbDimension),
 						sampledDirection);
 				final double sampledProb = Global.isNear(pdfW_i, 0d) ? 0d : 1d / pdfW_i;
 				
@@ -179,12 +198,12 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 				// Perform Russian-roulette elimination on paths that will not contribute much to the total light estimate.
 				//
 				Spectrum indirectContribution =
-									bsdf.f_r(relativeInteraction, sample, sample.getAdditionalTwinSample("sample-indirect-f_r", twinSampleGridPerInteraction), sampledDirection)
+									bsdf.f_r(relativeInteraction, sample, sample.getAdditionalTwinSample(indirectF_rDimension), sampledDirection)
 										.multiply(bsdf.cos_i(relativeInteraction, sampledDirection));
 				final RGB indirectContrib_rgb = indirectContribution.toRGB();
 				final double maxIndirectContribComponent = max(max(indirectContrib_rgb.getRed(), indirectContrib_rgb.getGreen()), indirectContrib_rgb.getBlue());
 				
-				final double russianRouletteProbability = Global.RND.nextDouble();
+				final double russianRouletteProbability = sample.getRandom().nextDouble();
 				if (russianRouletteProbability >= maxIndirectContribComponent)
 					continue;
 				else
@@ -213,7 +232,7 @@ public class MonteCarloImportanceIntegrator extends AbstractIntegrator {
 		//
 		//
 		return bsdf
-				.sampleL_e(relativeInteraction, sample, sample.getAdditionalTwinSample("sample-L_e", twinSampleGridPerInteraction))
+				.sampleL_e(relativeInteraction, sample, sample.getAdditionalTwinSample(L_eDimension))
 					.add(totalW_i_direct.multiply(1d / 2d))
 					.add(totalW_i_indirect.multiply(1d / 2d));
 	}
@@ -13,6 +13,7 @@ import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.SampleDimensions;
 import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
 import org.snowjak.rays3.spectrum.Spectrum;
@@ -32,6 +33,9 @@ import org.snowjak.rays3.spectrum.Spectrum;
  */
 public class SimplePathTracingIntegrator extends AbstractIntegrator {
 
+	private final int	emissiveSurfaceDimension, emissiveL_eDimension, emissiveF_rDimension;
+	private final int	indirectW_iDimension, indirectF_rDimension, L_eDimension;
+
 	/**
 	 * Construct a new {@link SimplePathTracingIntegrator}.
 	 * 
@@ -52,12 +56,24 @@ public class SimplePathTracingIntegrator extends AbstractIntegrator {
 	 */
 	public SimplePathTracingIntegrator(Camera camera, Film film, Collection<Sampler> samplers, int maxRayDepth) {
 		super(camera, film, samplers, maxRayDepth);
+
+		final SampleDimensions dimensions = getSampleDimensions();
+		this.emissiveSurfaceDimension = dimensions.register2D("sample-emissive-surface", 1);
+		this.emissiveL_eDimension = dimensions.register2D("sample-emissive-L_e", 1);
+		this.emissiveF_rDimension = dimensions.register2D("sample-emissive-f_r", 1);
+		this.indirectW_iDimension = dimensions.register2D("sample-indirect-W_i", 1);
+		this.indirectF_rDimension = dimensions.register2D("sample-indirect-f_r", 1);
+		this.L_eDimension = dimensions.register2D("sample-L_e", 1);
 	}
 
 	@Override
 	public Spectrum followRay(Ray ray, World world, Sample sample) {
 
-		final Optional<Interaction> op_interaction = world.getClosestInteraction(ray);
+		return followRay(ray, world.getClosestInteraction(ray), world, sample);
+	}
+
+	@Override
+	public Spectrum followRay(Ray ray, Optional<Interaction> op_interaction, World world, Sample sample) {
 
 		if (op_interaction.isPresent()) {
 
@@ -66,8 +82,10 @@ public class SimplePathTracingIntegrator extends AbstractIntegrator {
 			//
 			// If the interacting ray is on the opposite side of the surface
 			// from its normal, then swap the two indices of refraction.
+			// (Only the sign of this dot-product matters, and so neither
+			// vector need be normalized.)
 			final Interaction relativeInteraction;
-			if (interaction.getW_e().normalize().dotProduct(interaction.getNormal().asVector().normalize()) < 0d) {
+			if (interaction.getW_e().dotProduct(interaction.getNormal().asVector()) < 0d) {
 				relativeInteraction = new Interaction(interaction, interaction.getNormal().negate());
 
 			} else {
@@ -98,28 +116,29 @@ public class SimplePathTracingIntegrator extends AbstractIntegrator {
 			// illumination.
 			final Spectrum directRadiance = world.getEmissives().stream().map(p -> {
 				final Point emissiveSurfacePoint = p
-						.sampleSurfacePoint(sample.getAdditionalTwinSample("sample-emissive-surface", 1), point);
+						.sampleSurfacePoint(sample.getAdditionalTwinSample(emissiveSurfaceDimension), point);
 				final Vector toEmissiveVector = new Vector(point, emissiveSurfacePoint);
 
-				if (toEmissiveVector.normalize().dotProduct(interaction.getNormal().asVector().normalize()) <= 0d)
+				if (toEmissiveVector.dotProduct(interaction.getNormal().asVector()) <= 0d)
 					return RGBSpectrum.BLACK;
 
 				final Ray toEmissiveSurfaceRay = new Ray(point, toEmissiveVector);
-				final Optional<Interaction> op_emissiveInteraction = world.getClosestInteraction(toEmissiveSurfaceRay);
+				final Optional<Interaction> op_emissiveInteraction = world.getClosestInteraction(toEmissiveSurfaceRay,
+						p);
 				if (!op_emissiveInteraction.isPresent())
 					return RGBSpectrum.BLACK;
 
 				final Interaction emissiveInteraction = op_emissiveInteraction.get();
 				final double emissiveDistance = emissiveInteraction.getInteractingRay().getCurrT();
 
-				if (emissiveInteraction.getPrimitive() != p)
+				if (world.isOccluded(point, emissiveInteraction.getPoint()))
 					return RGBSpectrum.BLACK;
 
 				final Spectrum emissiveRadiance = p.getBsdf().sampleL_e(emissiveInteraction, sample,
-						sample.getAdditionalTwinSample("sample-emisive-L_e", 1));
+						sample.getAdditionalTwinSample(emissiveL_eDimension));
 				return emissiveRadiance
 						.multiply(bsdf.f_r(relativeInteraction, sample,
-								sample.getAdditionalTwinSample("sample-emissive-f_r", 1), toEmissiveVector))
+								sample.getAdditionalTwinSample(emissiveF_rDimension), toEmissiveVector))
 							.multiply(bsdf.cos_i(relativeInteraction, toEmissiveVector))
 							.multiply(1d / ( emissiveDistance * emissiveDistance ));
 			}).reduce(RGBSpectrum.BLACK, Spectrum::add);
@@ -135,12 +154,12 @@ public class SimplePathTracingIntegrator extends AbstractIntegrator {
 				// illumination.
 
 				final Vector reflectedDirection = bsdf.sampleW_i(relativeInteraction, sample,
-						sample.getAdditionalTwinSample("sample-indirect-W_i", 1));
+						sample.getAdditionalTwinSample(indirectW_iDimension));
 				final Ray reflectedRay = new Ray(point, reflectedDirection, ray);
 
 				indirectRadiance = followRay(reflectedRay, world, sample)
 						.multiply(bsdf.f_r(relativeInteraction, sample,
-								sample.getAdditionalTwinSample("sample-indirect-f_r", 1), reflectedDirection))
+								sample.getAdditionalTwinSample(indirectF_rDimension), reflectedDirection))
 							.multiply(bsdf.cos_i(relativeInteraction, reflectedDirection));
 
 			} else {
@@ -155,7 +174,7 @@ public class SimplePathTracingIntegrator extends AbstractIntegrator {
 			//
 			//
 			final Spectrum result = bsdf
-					.sampleL_e(relativeInteraction, sample, sample.getAdditionalTwinSample("sample-L_e", 1))
+					.sampleL_e(relativeInteraction, sample, sample.getAdditionalTwinSample(L_eDimension))
 						.add(incidentRadiance);
 			return result;
 
@@ -57,4 +57,64 @@ public interface Interactable extends Transformable {
 	 * @return
 	 */
 	public Interaction getLocalIntersection(Ray ray);
+
+	/**
+	 * Given a {@link Ray} (expressed in global coordinates), determine whether
+	 * this object intersects that Ray anywhere strictly between its
+	 * {@link Ray#getMinT() min-T} and {@link Ray#getMaxT() max-T} -- i.e.,
+	 * whether this object blocks the segment between those two points.
+	 * <p>
+	 * Unlike {@link #getIntersection(Ray)}, this need not compute a full
+	 * {@link Interaction} (normals, surface-parameterization, etc.), and
+	 * implementations are encouraged to override it with something cheaper.
+	 * By default, this uses the closest intersection computed by
+	 * {@link #getIntersection(Ray)}.
+	 * </p>
+	 * 
+	 * @param ray
+	 * @return
+	 */
+	public default boolean isOccluding(Ray ray) {
+
+		if (!isInteracting(ray))
+			return false;
+
+		final Interaction interaction = getIntersection(ray);
+		if (interaction == null)
+			return false;
+
+		final double t = interaction.getInteractingRay().getCurrT();
+		return ( t > ray.getMinT() && t < ray.getMaxT() );
+	}
+
+	/**
+	 * Given a {@link Ray} (expressed in object-local coordinates), determine
+	 * whether this object intersects that Ray anywhere strictly between its
+	 * {@link Ray#getMinT() min-T} and {@link Ray#getMaxT() max-T}.
+	 * 
+	 * @param ray
+	 * @return
+	 * @see #isOccluding(Ray)
+	 */
+	public default boolean isLocalOccluding(Ray ray) {
+
+		if (!isLocalInteracting(ray))
+			return false;
+
+		final Interaction interaction = getLocalIntersection(ray);
+		if (interaction == null)
+			return false;
+
+		final double t = interaction.getInteractingRay().getCurrT();
+		return ( t > ray.getMinT() && t < ray.getMaxT() );
+	}
+
+	/**
+	 * Compute the {@link AABB} (expressed in global coordinates) which
+	 * completely encloses this object, or <code>null</code> if this object is
+	 * unbounded (e.g., an infinite plane).
+	 * 
+	 * @return
+	 */
+	public AABB getBoundingBox();
 }
@@ -0,0 +1,305 @@
+package org.snowjak.rays3.intersect;
+
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.camera.Camera;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.accel.AccelerationStructure;
+
+/**
+ * A RayPacket is a small bundle of {@link Ray}s -- typically, the primary rays
+ * for a small block of neighbouring pixels (see
+ * {@link Camera#getRayPacket(double, double, int, int)}), or for a batch of a
+ * tile's Samples (see {@link Camera#getRayPacket(java.util.List)}) -- which are
+ * to be traced through the {@link World} together. Because such Rays are
+ * <em>coherent</em> (they start from nearly the same place and travel in
+ * nearly the same direction), an {@link AccelerationStructure} can test each of
+ * its nodes once for the whole packet, rather than once for each Ray.
+ * <p>
+ * A RayPacket copies its Rays' origins and reciprocal directions into flat
+ * arrays, for quick access during traversal. It also records, for each Ray,
+ * the closest {@link Interaction} found so far.
+ * </p>
+ * <p>
+ * Each RayPacket has a common direction -- the sign of its Rays' summed
+ * direction, along each axis. Those Rays which do not travel in that common
+ * direction are not <em>coherent</em> with the packet, and should be traced
+ * individually.
+ * </p>
+ * <p>
+ * A RayPacket also keeps the range of its coherent Rays' origins and
+ * reciprocal directions, so that a bounding-box can be tested against all of
+ * them at once (see {@link #isPossiblyIntersecting(double, double, double,
+ * double, double, double)}).
+ * </p>
+ * <p>
+ * <strong>Note</strong> that a RayPacket is mutable, and is not thread-safe.
+ * </p>
+ * 
+ * @author snowjak88
+ * @see World#getClosestInteractions(RayPacket)
+ */
+public class RayPacket {
+
+	private final Ray[]			rays;
+	private final double[]		originX, originY, originZ;
+	private final double[]		invDirX, invDirY, invDirZ;
+	private final boolean		negativeX, negativeY, negativeZ;
+	private final boolean[]		coherent;
+
+	private final boolean		hasRange;
+	private final double[]		minOrigin, maxOrigin, minInvDir, maxInvDir;
+
+	private final Interaction[]	interactions;
+	private final double[]		closestT;
+
+	/**
+	 * Create a new RayPacket containing the given {@link Ray}s.
+	 * 
+	 * @param rays
+	 */
+	public RayPacket(Ray... rays) {
+
+		this.rays = rays;
+
+		final int size = rays.length;
+		this.originX = new double[size];
+		this.originY = new double[size];
+		this.originZ = new double[size];
+		this.invDirX = new double[size];
+		this.invDirY = new double[size];
+		this.invDirZ = new double[size];
+		this.coherent = new boolean[size];
+		this.interactions = new Interaction[size];
+		this.closestT = new double[size];
+
+		double sumX = 0d, sumY = 0d, sumZ = 0d;
+		for (int i = 0; i < size; i++) {
+			originX[i] = rays[i].getOrigin().getX();
+			originY[i] = rays[i].getOrigin().getY();
+			originZ[i] = rays[i].getOrigin().getZ();
+			invDirX[i] = 1d / rays[i].getDirection().getX();
+			invDirY[i] = 1d / rays[i].getDirection().getY();
+			invDirZ[i] = 1d / rays[i].getDirection().getZ();
+
+			sumX += rays[i].getDirection().getX();
+			sumY += rays[i].getDirection().getY();
+			sumZ += rays[i].getDirection().getZ();
+		}
+
+		this.negativeX = sumX < 0d;
+		this.negativeY = sumY < 0d;
+		this.negativeZ = sumZ < 0d;
+
+		for (int i = 0; i < size; i++)
+			coherent[i] = ( invDirX[i] < 0d ) == negativeX && ( invDirY[i] < 0d ) == negativeY
+					&& ( invDirZ[i] < 0d ) == negativeZ;
+
+		//
+		// Find the range of the coherent Rays' origins and reciprocal
+		// directions. (If any of those Rays runs parallel to an axis, its
+		// reciprocal direction is infinite, and we can't use these ranges.)
+		this.minOrigin = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY };
+		this.maxOrigin = new double[] { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		this.minInvDir = minOrigin.clone();
+		this.maxInvDir = maxOrigin.clone();
+
+		boolean hasRange = false;
+		for (int i = 0; i < size; i++)
+			if (coherent[i]) {
+				hasRange = true;
+				updateRange(0, originX[i], invDirX[i]);
+				updateRange(1, originY[i], invDirY[i]);
+				updateRange(2, originZ[i], invDirZ[i]);
+			}
+
+		for (int axis = 0; axis < 3; axis++)
+			hasRange &= !Double.isInfinite(minInvDir[axis]) && !Double.isInfinite(maxInvDir[axis]);
+		this.hasRange = hasRange;
+
+		reset();
+	}
+
+	private void updateRange(int axis, double origin, double invDir) {
+
+		minOrigin[axis] = FastMath.min(minOrigin[axis], origin);
+		maxOrigin[axis] = FastMath.max(maxOrigin[axis], origin);
+		minInvDir[axis] = FastMath.min(minInvDir[axis], invDir);
+		maxInvDir[axis] = FastMath.max(maxInvDir[axis], invDir);
+	}
+
+	/**
+	 * Conservatively determine whether any of this packet's coherent
+	 * {@link Ray}s could intersect the given bounding-box, by testing the box
+	 * against the whole range of the packet's origins and directions at once.
+	 * <p>
+	 * If this method returns <code>false</code>, none of the packet's coherent
+	 * Rays intersect the box. If it returns <code>true</code>, some of them
+	 * might.
+	 * </p>
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	public boolean isPossiblyIntersecting(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ) {
+
+		if (!hasRange)
+			return true;
+
+		final double tNear = FastMath.max(getMinEntry(0, minX, maxX),
+				FastMath.max(getMinEntry(1, minY, maxY), getMinEntry(2, minZ, maxZ)));
+		final double tFar = FastMath.min(getMaxExit(0, minX, maxX),
+				FastMath.min(getMaxExit(1, minY, maxY), getMaxExit(2, minZ, maxZ)));
+
+		return tFar >= 0d && tNear <= tFar;
+	}
+
+	/**
+	 * @return the least distance at which any of the coherent Rays could cross
+	 *         the near slab of the given axis
+	 */
+	private double getMinEntry(int axis, double min, double max) {
+
+		final double near = ( isNegative(axis) ) ? max : min;
+		return FastMath.min(
+				FastMath.min(( near - minOrigin[axis] ) * minInvDir[axis], ( near - minOrigin[axis] ) * maxInvDir[axis]),
+				FastMath.min(( near - maxOrigin[axis] ) * minInvDir[axis], ( near - maxOrigin[axis] ) * maxInvDir[axis]));
+	}
+
+	/**
+	 * @return the greatest distance at which any of the coherent Rays could
+	 *         cross the far slab of the given axis
+	 */
+	private double getMaxExit(int axis, double min, double max) {
+
+		final double far = ( isNegative(axis) ) ? min : max;
+		return FastMath.max(
+				FastMath.max(( far - minOrigin[axis] ) * minInvDir[axis], ( far - minOrigin[axis] ) * maxInvDir[axis]),
+				FastMath.max(( far - maxOrigin[axis] ) * minInvDir[axis], ( far - maxOrigin[axis] ) * maxInvDir[axis]));
+	}
+
+	/**
+	 * Forget any {@link Interaction}s recorded against this packet's Rays.
+	 */
+	public void reset() {
+
+		for (int i = 0; i < rays.length; i++) {
+			interactions[i] = null;
+			closestT[i] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * @return the number of {@link Ray}s in this packet
+	 */
+	public int size() {
+
+		return rays.length;
+	}
+
+	public Ray getRay(int index) {
+
+		return rays[index];
+	}
+
+	public double getOriginX(int index) {
+
+		return originX[index];
+	}
+
+	public double getOriginY(int index) {
+
+		return originY[index];
+	}
+
+	public double getOriginZ(int index) {
+
+		return originZ[index];
+	}
+
+	public double getInvDirX(int index) {
+
+		return invDirX[index];
+	}
+
+	public double getInvDirY(int index) {
+
+		return invDirY[index];
+	}
+
+	public double getInvDirZ(int index) {
+
+		return invDirZ[index];
+	}
+
+	/**
+	 * @param axis
+	 *            <code>0</code>, <code>1</code>, or <code>2</code>, for the X-,
+	 *            Y-, or Z-axis respectively
+	 * @return <code>true</code> if this packet's common direction is negative
+	 *         along the given axis
+	 */
+	public boolean isNegative(int axis) {
+
+		return ( axis == 0 ) ? negativeX : ( axis == 1 ) ? negativeY : negativeZ;
+	}
+
+	/**
+	 * @param index
+	 * @return <code>true</code> if the given {@link Ray} travels in this
+	 *         packet's common direction, and so may be traced along with it
+	 */
+	public boolean isCoherent(int index) {
+
+		return coherent[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the closest {@link Interaction} recorded for the given
+	 *         {@link Ray}
+	 */
+	public Optional<Interaction> getInteraction(int index) {
+
+		return Optional.ofNullable(interactions[index]);
+	}
+
+	/**
+	 * @param index
+	 * @return the distance to the closest {@link Interaction} recorded for the
+	 *         given {@link Ray}, or {@link Double#POSITIVE_INFINITY} if none has
+	 *         been recorded
+	 */
+	public double getClosestT(int index) {
+
+		return closestT[index];
+	}
+
+	/**
+	 * Record the given {@link Interaction} as the closest yet found for the
+	 * given {@link Ray}.
+	 * 
+	 * @param index
+	 * @param interaction
+	 *            if <code>null</code>, this method does nothing
+	 */
+	public void setInteraction(int index, Interaction interaction) {
+
+		if (interaction == null)
+			return;
+
+		interactions[index] = interaction;
+		closestT[index] = interaction.getInteractingRay().getCurrT();
+	}
+
+}
@@ -0,0 +1,98 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.Optional;
+
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.RayPacket;
+
+/**
+ * An AccelerationStructure organizes a set of {@link Interactable}s so that
+ * {@link Ray}-queries against them can be answered without testing every one
+ * of them in turn.
+ * <p>
+ * Implementations must be safe to query from many threads at once, once they
+ * have been built.
+ * </p>
+ * 
+ * @author snowjak88
+ * @see World#buildAccelerationStructure()
+ */
+public interface AccelerationStructure {
+
+	/**
+	 * Search for the closest {@link Interaction} between the given {@link Ray}
+	 * (expressed in global coordinates) and any of the {@link Interactable}s
+	 * contained in this structure (that is not behind the Ray).
+	 * 
+	 * @param ray
+	 * @return
+	 */
+	public Optional<Interaction> getClosestInteraction(Ray ray);
+
+	/**
+	 * Search for the closest {@link Interaction} for each {@link Ray} in the
+	 * given {@link RayPacket}, recording each one in the packet (see
+	 * {@link RayPacket#setInteraction(int, Interaction)}).
+	 * <p>
+	 * By default, each Ray is simply traced on its own (see
+	 * {@link #getClosestInteraction(Ray)}). Implementations may override this
+	 * to trace coherent Rays together.
+	 * </p>
+	 * 
+	 * @param packet
+	 */
+	public default void getClosestInteractions(RayPacket packet) {
+
+		for (int i = 0; i < packet.size(); i++)
+			packet.setInteraction(i, getClosestInteraction(packet.getRay(i)).orElse(null));
+	}
+
+	/**
+	 * Determine whether any of the {@link Interactable}s contained in this
+	 * structure intersect the given {@link Ray} (expressed in global
+	 * coordinates) strictly between its {@link Ray#getMinT() min-T} and
+	 * {@link Ray#getMaxT() max-T}.
+	 * <p>
+	 * This is an "any-hit" query: implementations should stop at the first
+	 * such Interactable they find, and should not compute any
+	 * {@link Interaction}s.
+	 * </p>
+	 * 
+	 * @param ray
+	 * @return
+	 * @see Interactable#isOccluding(Ray)
+	 */
+	public boolean isOccluded(Ray ray);
+
+	/**
+	 * @return the number of {@link Interactable}s contained in this structure
+	 */
+	public int getElementCount();
+
+	/**
+	 * Update this structure to reflect any changes in the bounds of its
+	 * {@link Interactable}s (e.g., because they have been transformed), without
+	 * re-building it from scratch.
+	 * <p>
+	 * Refitting cannot account for Interactables that have been added or
+	 * removed. Nor can it change the structure's overall shape, and so the
+	 * refitted structure may become much slower to query than a freshly-built
+	 * one would be. If this method returns <code>false</code>, the structure
+	 * should be re-built.
+	 * </p>
+	 * <p>
+	 * By default, structures cannot be refitted at all.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if this structure was refitted and is still of
+	 *         acceptable quality, <code>false</code> if it should be re-built
+	 */
+	public default boolean refit() {
+
+		return false;
+	}
+
+}
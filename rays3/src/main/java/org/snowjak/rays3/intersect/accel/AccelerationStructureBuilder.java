@@ -0,0 +1,31 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.Collection;
+
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.intersect.Interactable;
+
+/**
+ * An AccelerationStructureBuilder knows how to organize a collection of
+ * {@link Interactable}s into an {@link AccelerationStructure}.
+ * <p>
+ * Each {@link World} is configured with an AccelerationStructureBuilder (see
+ * {@link World#setAccelerationStructureBuilder(AccelerationStructureBuilder)}),
+ * which it uses whenever it (re-)builds its AccelerationStructure.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@FunctionalInterface
+public interface AccelerationStructureBuilder {
+
+	/**
+	 * Build a new {@link AccelerationStructure} over the given
+	 * {@link Interactable}s.
+	 * 
+	 * @param elements
+	 * @return
+	 */
+	public AccelerationStructure build(Collection<? extends Interactable> elements);
+
+}
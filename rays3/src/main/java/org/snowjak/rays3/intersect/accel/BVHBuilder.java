@@ -0,0 +1,80 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.Collection;
+
+import org.snowjak.rays3.intersect.Interactable;
+
+/**
+ * A BVHBuilder knows how to construct the tree of {@link BVHNode}s for a
+ * {@link BoundingVolumeHierarchy}.
+ * <p>
+ * Builders work on the elements' bounding-boxes alone, which are handed over
+ * packed into a single <code>double[]</code> -- 6 values per element,
+ * <code>{ minX, minY, minZ, maxX, maxY, maxZ }</code>. Elements are referred to
+ * by their index into that array.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public interface BVHBuilder extends AccelerationStructureBuilder {
+
+	/**
+	 * Build a tree of {@link BVHNode}s over the elements whose bounds are given
+	 * in <code>bounds</code>.
+	 * <p>
+	 * <code>order</code> initially holds the indices of every element
+	 * (<code>0 .. n-1</code>). The builder must re-order this array such that
+	 * every leaf node refers to a contiguous range of it.
+	 * </p>
+	 * 
+	 * @param bounds
+	 *            the packed bounding-boxes of every element
+	 * @param order
+	 *            the element-ordering to be re-arranged
+	 * @return the root of the constructed tree
+	 */
+	public BVHNode buildTree(double[] bounds, int[] order);
+
+	/**
+	 * Describe every setting of this builder that affects the shape of the
+	 * trees it builds (e.g., bucket-counts, leaf-sizes, code-lengths). Two
+	 * builders that report the same configuration must build identical trees
+	 * over identical elements.
+	 * <p>
+	 * This is used to identify cached hierarchies (see
+	 * {@link CachingBVHBuilder}). By default, a builder's configuration is
+	 * simply its class-name -- builders with adjustable settings should
+	 * override this.
+	 * </p>
+	 * 
+	 * @return a description of this builder's configuration
+	 */
+	public default String getConfiguration() {
+
+		return getClass().getName();
+	}
+
+	@Override
+	public default AccelerationStructure build(Collection<? extends Interactable> elements) {
+
+		return new BoundingVolumeHierarchy(elements, this);
+	}
+
+	/**
+	 * Get an {@link AccelerationStructureBuilder} which uses this BVHBuilder to
+	 * build <em>quantized</em> {@link BoundingVolumeHierarchy}s -- e.g.:
+	 * 
+	 * <pre>
+	 * world.setAccelerationStructureBuilder(new SAHBVHBuilder().quantized());
+	 * </pre>
+	 * 
+	 * @return an AccelerationStructureBuilder building quantized hierarchies
+	 * @see BoundingVolumeHierarchy#BoundingVolumeHierarchy(Collection,
+	 *      BVHBuilder, boolean)
+	 */
+	public default AccelerationStructureBuilder quantized() {
+
+		return elements -> new BoundingVolumeHierarchy(elements, this, true);
+	}
+
+}
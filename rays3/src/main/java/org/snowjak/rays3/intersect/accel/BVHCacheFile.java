@@ -0,0 +1,288 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.snowjak.rays3.intersect.Interactable;
+
+/**
+ * Reads and writes {@link BoundingVolumeHierarchy}s to and from a simple,
+ * versioned binary file-format. Files are read back by memory-mapping them, so
+ * that even very large hierarchies can be loaded with little more than a
+ * handful of bulk copies.
+ * <p>
+ * A BVH file does not contain the hierarchy's elements themselves -- only
+ * their indices within the collection of elements the hierarchy was originally
+ * built over. When reading a file back, you must supply that same collection
+ * (in the same order), along with the same key that the file was written with.
+ * (See
+ * {@link CachingBVHBuilder#computeKey(Collection, BVHBuilder, boolean)}.)
+ * </p>
+ * <p>
+ * The file-format (all values big-endian) is:
+ * 
+ * <pre>
+ *   int     magic-number ("RBVH")
+ *   int     format-version
+ *   long    key
+ *   int     flags (bit 0: quantized)
+ *   int     element-count
+ *   int     bounded element-count
+ *   int     node-count
+ *   int     depth
+ *   int[]   element-indices (bounded elements, in hierarchy-order)
+ *   int[]   element-indices (unbounded elements)
+ *   int[]   node-info (2 per node)
+ * then, if full-precision:
+ *   double[] node-bounds (6 per node)
+ * or, if quantized:
+ *   double[] quantization-origin (3)
+ *   double[] quantization-step (3)
+ *   char[]   quantized node-bounds (6 per node)
+ * </pre>
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class BVHCacheFile {
+
+	/**
+	 * Every BVH file begins with this magic-number.
+	 */
+	public static final int		MAGIC			= 0x52425648;
+
+	/**
+	 * The current version of the file-format. Files written with any other
+	 * version are ignored.
+	 */
+	public static final int		FORMAT_VERSION	= 1;
+
+	private static final int	FLAG_QUANTIZED	= 1;
+
+	private static final int	HEADER_SIZE		= 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+
+	private BVHCacheFile() {
+		// Not instantiable.
+	}
+
+	/**
+	 * Write the given {@link BoundingVolumeHierarchy} to the given file. The
+	 * file is first written under a temporary name, and then moved into place
+	 * -- so that another process never sees a partially-written file.
+	 * 
+	 * @param file
+	 * @param bvh
+	 * @param elements
+	 *            the {@link Interactable}s that <code>bvh</code> was built over
+	 * @param key
+	 * @throws IOException
+	 */
+	public static void write(Path file, BoundingVolumeHierarchy bvh, Collection<? extends Interactable> elements,
+			long key) throws IOException {
+
+		final Map<Interactable, Integer> indices = new IdentityHashMap<>(elements.size());
+		for (Interactable element : elements)
+			indices.put(element, indices.size());
+
+		final Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporaryFile), 65536))) {
+
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(key);
+				out.writeInt(( bvh.isQuantized() ) ? FLAG_QUANTIZED : 0);
+				out.writeInt(elements.size());
+				out.writeInt(bvh.getElements().length);
+				out.writeInt(bvh.getNodeCount());
+				out.writeInt(bvh.getDepth());
+
+				for (Interactable element : bvh.getElements())
+					out.writeInt(indices.get(element));
+				for (Interactable element : bvh.getUnboundedElements())
+					out.writeInt(indices.get(element));
+
+				for (int info : bvh.getNodeInfo())
+					out.writeInt(info);
+
+				if (bvh.isQuantized()) {
+					for (double origin : bvh.getQuantizationOrigin())
+						out.writeDouble(origin);
+					for (double step : bvh.getQuantizationStep())
+						out.writeDouble(step);
+					for (char bound : bvh.getQuantizedBounds())
+						out.writeChar(bound);
+				} else
+					for (double bound : bvh.getNodeBounds())
+						out.writeDouble(bound);
+			}
+
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * Attempt to read a {@link BoundingVolumeHierarchy} back from the given
+	 * file.
+	 * 
+	 * @param file
+	 * @param elements
+	 *            the {@link Interactable}s that the hierarchy was originally
+	 *            built over
+	 * @param key
+	 * @return the hierarchy, or <code>null</code> if the file does not exist,
+	 *         was written with a different key or format-version, or is
+	 *         otherwise unreadable
+	 */
+	public static BoundingVolumeHierarchy read(Path file, Collection<? extends Interactable> elements, long key) {
+
+		if (!Files.isRegularFile(file))
+			return null;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+				return null;
+
+			final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer, elements, key);
+
+		} catch (IOException | BufferUnderflowException e) {
+			return null;
+		}
+	}
+
+	private static BoundingVolumeHierarchy read(ByteBuffer buffer, Collection<? extends Interactable> elements,
+			long key) {
+
+		if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != key)
+			return null;
+
+		final int flags = buffer.getInt();
+		final int elementCount = buffer.getInt(), boundedCount = buffer.getInt(), nodeCount = buffer.getInt(),
+				depth = buffer.getInt();
+		final boolean quantized = ( flags & FLAG_QUANTIZED ) != 0;
+
+		if (elementCount != elements.size() || boundedCount < 0 || boundedCount > elementCount || nodeCount < 0
+				|| depth < 0)
+			return null;
+
+		final long expectedSize = HEADER_SIZE + 4L * elementCount + 8L * nodeCount
+				+ ( ( quantized ) ? 6L * 8L + 12L * nodeCount : 48L * nodeCount );
+		if (buffer.capacity() != expectedSize)
+			return null;
+
+		final int[] indices = getInts(buffer, elementCount);
+		final int[] nodeInfo = getInts(buffer, nodeCount * 2);
+
+		double[] nodeBounds = null, quantizationOrigin = null, quantizationStep = null;
+		char[] quantizedBounds = null;
+		if (quantized) {
+			quantizationOrigin = getDoubles(buffer, 3);
+			quantizationStep = getDoubles(buffer, 3);
+			quantizedBounds = new char[nodeCount * 6];
+			buffer.asCharBuffer().get(quantizedBounds);
+		} else
+			nodeBounds = getDoubles(buffer, nodeCount * 6);
+
+		if (( nodeCount == 0 ) != ( boundedCount == 0 ) || !isConsistent(nodeInfo, boundedCount, depth))
+			return null;
+
+		final Interactable[] elementArray = elements.toArray(new Interactable[elementCount]);
+		final Interactable[] bounded = new Interactable[boundedCount],
+				unbounded = new Interactable[elementCount - boundedCount];
+		final boolean[] isUsed = new boolean[elementCount];
+		for (int i = 0; i < elementCount; i++) {
+			final int index = indices[i];
+			if (index < 0 || index >= elementCount || isUsed[index])
+				return null;
+			isUsed[index] = true;
+
+			if (i < boundedCount)
+				bounded[i] = elementArray[index];
+			else
+				unbounded[i - boundedCount] = elementArray[index];
+		}
+
+		return new BoundingVolumeHierarchy(bounded, unbounded, nodeInfo, nodeBounds, quantizedBounds,
+				quantizationOrigin, quantizationStep, depth);
+	}
+
+	/**
+	 * Check that every node refers only to valid element-ranges and to nodes
+	 * following it, that no node has more than one parent, and that the
+	 * hierarchy is no deeper than advertised -- so that a damaged file cannot
+	 * send a traversal out of bounds (or around in circles).
+	 */
+	private static boolean isConsistent(int[] nodeInfo, int boundedCount, int depth) {
+
+		final int nodeCount = nodeInfo.length / 2;
+		final int[] nodeDepths = new int[nodeCount];
+		if (nodeCount > 0)
+			nodeDepths[0] = 1;
+
+		for (int node = 0; node < nodeCount; node++) {
+			final int first = nodeInfo[node * 2], info = nodeInfo[node * 2 + 1];
+			if (nodeDepths[node] == 0 || nodeDepths[node] > depth)
+				return false;
+
+			if (info > 0) {
+				if (first < 0 || first > boundedCount - info)
+					return false;
+			} else {
+				if (info == 0 || info < -3 || first <= node + 1 || first >= nodeCount)
+					return false;
+				//
+				// A child which already has a depth already has a parent.
+				if (nodeDepths[node + 1] != 0 || nodeDepths[first] != 0)
+					return false;
+				nodeDepths[node + 1] = nodeDepths[node] + 1;
+				nodeDepths[first] = nodeDepths[node] + 1;
+			}
+		}
+
+		return true;
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int count) {
+
+		final int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+
+	private static double[] getDoubles(ByteBuffer buffer, int count) {
+
+		final double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.snowjak.rays3.intersect.accel;
+
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * A single node in a {@link BoundingVolumeHierarchy}, as produced by a
+ * {@link BVHBuilder}. (Once built, the hierarchy flattens its tree of BVHNodes
+ * into arrays.)
+ * <p>
+ * An interior node has exactly two children, and records the axis along which
+ * its elements were split (so that traversal can visit the nearer child
+ * first). A leaf node has no children, and instead refers to a contiguous
+ * range of elements (<code>[firstElement, firstElement + elementCount)</code>)
+ * in its hierarchy's ordered element-array.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class BVHNode {
+
+	private final AABB		bounds;
+	private final BVHNode	left, right;
+	private final int		splitAxis;
+	private final int		firstElement, elementCount;
+
+	/**
+	 * Create a new interior BVHNode.
+	 * 
+	 * @param bounds
+	 * @param left
+	 * @param right
+	 * @param splitAxis
+	 *            <code>0</code>, <code>1</code>, or <code>2</code>, for the X-,
+	 *            Y-, or Z-axis respectively
+	 */
+	public BVHNode(AABB bounds, BVHNode left, BVHNode right, int splitAxis) {
+		this.bounds = bounds;
+		this.left = left;
+		this.right = right;
+		this.splitAxis = splitAxis;
+		this.firstElement = -1;
+		this.elementCount = 0;
+	}
+
+	/**
+	 * Create a new leaf BVHNode.
+	 * 
+	 * @param bounds
+	 * @param firstElement
+	 * @param elementCount
+	 */
+	public BVHNode(AABB bounds, int firstElement, int elementCount) {
+		this.bounds = bounds;
+		this.left = null;
+		this.right = null;
+		this.splitAxis = -1;
+		this.firstElement = firstElement;
+		this.elementCount = elementCount;
+	}
+
+	/**
+	 * @return <code>true</code> if this node has no children
+	 */
+	public boolean isLeaf() {
+
+		return ( left == null );
+	}
+
+	public AABB getBounds() {
+
+		return bounds;
+	}
+
+	public BVHNode getLeft() {
+
+		return left;
+	}
+
+	public BVHNode getRight() {
+
+		return right;
+	}
+
+	public int getSplitAxis() {
+
+		return splitAxis;
+	}
+
+	public int getFirstElement() {
+
+		return firstElement;
+	}
+
+	public int getElementCount() {
+
+		return elementCount;
+	}
+
+}
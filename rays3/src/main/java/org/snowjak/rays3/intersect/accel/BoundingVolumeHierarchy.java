@@ -0,0 +1,844 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.RayPacket;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * A Bounding-Volume Hierarchy is a binary tree of {@link AABB}s, each of which
+ * encloses all of the {@link Interactable}s beneath it. A {@link Ray} need only
+ * descend into those nodes whose AABB it intersects, so that a closest-hit
+ * query need only test a handful of Interactables (rather than every one of
+ * them).
+ * <p>
+ * The shape of the tree is determined by a {@link BVHBuilder}. By default,
+ * the {@link SAHBVHBuilder} is used.
+ * </p>
+ * <p>
+ * Once built, the tree of {@link BVHNode}s is flattened (in depth-first order)
+ * into a few primitive arrays, so that traversal need not chase references
+ * around the heap:
+ * <ul>
+ * <li>each node's bounds are stored as 6 consecutive values (<code>{ minX,
+ * minY, minZ, maxX, maxY, maxZ }</code>), either as <code>double</code>s or
+ * -- if this hierarchy is <em>quantized</em> -- as 16-bit fractions of the
+ * root's extent (rounded outward, so that each node still encloses everything
+ * beneath it)</li>
+ * <li>each node's topology is stored as 2 consecutive <code>int</code>s. For a
+ * leaf node, these are the index of its first element and its (positive)
+ * element-count. For an interior node, these are the index of its second child
+ * (its first child always immediately follows it), and <code>-1 -
+ * splitAxis</code>.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Interactables which report no bounding-box (see
+ * {@link Interactable#getBoundingBox()}) cannot be placed in the hierarchy.
+ * These are kept aside, and are tested against every Ray.
+ * </p>
+ * <p>
+ * Coherent {@link RayPacket}s are traced through the hierarchy together (see
+ * {@link #getClosestInteractions(RayPacket)}), so that each node is visited
+ * once for the whole packet.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class BoundingVolumeHierarchy implements AccelerationStructure {
+
+	/**
+	 * Leaves are always split if they would contain more than this many
+	 * elements.
+	 */
+	public static final int				MAX_ELEMENTS_PER_LEAF	= 4;
+
+	/**
+	 * The cost of traversing a single node, relative to the cost of testing a
+	 * single element for intersection.
+	 */
+	public static final double			TRAVERSAL_COST			= 0.125d;
+
+	/**
+	 * A refitted hierarchy whose {@link #getCost() cost} has grown by more than
+	 * this factor (over its cost when first built) should be re-built.
+	 */
+	public static final double			MAX_REFIT_DEGRADATION	= 1.5d;
+
+	/**
+	 * The largest value of a quantized bound.
+	 */
+	private static final int			QUANTIZED_MAX			= 0xffff;
+
+	/**
+	 * Estimated size (in bytes) of an array's header, assuming a 64-bit JVM
+	 * with compressed object-pointers.
+	 */
+	private static final int			ARRAY_HEADER_SIZE		= 16;
+
+	/**
+	 * Estimated size (in bytes) of an object-reference, assuming a 64-bit JVM
+	 * with compressed object-pointers.
+	 */
+	private static final int			REFERENCE_SIZE			= 4;
+
+	private final Interactable[]		elements;
+	private final Interactable[]		unboundedElements;
+
+	private final int					nodeCount;
+	private final int[]					nodeInfo;
+	private final double[]				nodeBounds;
+	private final char[]				quantizedBounds;
+	private final double[]				quantizationOrigin, quantizationStep;
+
+	private final int					depth;
+	private final ThreadLocal<int[]>	traversalStack, packetTraversalStack;
+	private final double				buildCost;
+
+	/**
+	 * Build a new BoundingVolumeHierarchy over the given {@link Interactable}s,
+	 * using the {@link SAHBVHBuilder}.
+	 * 
+	 * @param elements
+	 * @see #BoundingVolumeHierarchy(Collection, BVHBuilder, boolean)
+	 */
+	public BoundingVolumeHierarchy(Collection<? extends Interactable> elements) {
+		this(elements, new SAHBVHBuilder());
+	}
+
+	/**
+	 * Build a new (full-precision) BoundingVolumeHierarchy over the given
+	 * {@link Interactable}s, using the given {@link BVHBuilder}.
+	 * 
+	 * @param elements
+	 * @param builder
+	 * @see #BoundingVolumeHierarchy(Collection, BVHBuilder, boolean)
+	 */
+	public BoundingVolumeHierarchy(Collection<? extends Interactable> elements, BVHBuilder builder) {
+		this(elements, builder, false);
+	}
+
+	/**
+	 * Build a new BoundingVolumeHierarchy over the given {@link Interactable}s,
+	 * using the given {@link BVHBuilder}. Each Interactable's bounding-box is
+	 * computed (and fixed) at this time -- if any of these Interactables are
+	 * subsequently transformed, this hierarchy must be {@link #refit()
+	 * refitted} or re-built.
+	 * <p>
+	 * A <em>quantized</em> hierarchy stores its node-bounds in a quarter of the
+	 * space, at the cost of somewhat looser bounds (and so somewhat more
+	 * node-visits per Ray).
+	 * </p>
+	 * 
+	 * @param elements
+	 * @param builder
+	 * @param quantized
+	 */
+	public BoundingVolumeHierarchy(Collection<? extends Interactable> elements, BVHBuilder builder,
+			boolean quantized) {
+
+		final List<Interactable> bounded = new ArrayList<>(elements.size());
+		final List<Interactable> unbounded = new ArrayList<>();
+		final List<AABB> boxes = new ArrayList<>(elements.size());
+
+		for (Interactable element : elements) {
+			final AABB box = element.getBoundingBox();
+			if (box == null)
+				unbounded.add(element);
+			else {
+				bounded.add(element);
+				boxes.add(box);
+			}
+		}
+
+		final int count = bounded.size();
+		final double[] bounds = new double[count * 6];
+		final int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			boxes.get(i).copyInto(bounds, i * 6);
+			order[i] = i;
+		}
+
+		final BVHNode root = ( count == 0 ) ? null : builder.buildTree(bounds, order);
+
+		this.elements = new Interactable[count];
+		for (int i = 0; i < count; i++)
+			this.elements[i] = bounded.get(order[i]);
+
+		this.unboundedElements = unbounded.toArray(new Interactable[unbounded.size()]);
+
+		//
+		// Flatten the tree. Once that's done, the tree itself is no longer
+		// needed.
+		this.nodeCount = getNodeCount(root);
+		this.depth = getDepth(root);
+		this.nodeInfo = new int[nodeCount * 2];
+
+		final double[] flatBounds = new double[nodeCount * 6];
+		if (root != null)
+			flatten(root, 0, flatBounds, nodeInfo);
+
+		if (quantized) {
+			this.nodeBounds = null;
+			this.quantizedBounds = new char[nodeCount * 6];
+			this.quantizationOrigin = new double[3];
+			this.quantizationStep = new double[3];
+			quantize(flatBounds);
+		} else {
+			this.nodeBounds = flatBounds;
+			this.quantizedBounds = null;
+			this.quantizationOrigin = null;
+			this.quantizationStep = null;
+		}
+
+		final int stackSize = FastMath.max(depth, 1);
+		this.traversalStack = ThreadLocal.withInitial(() -> new int[stackSize]);
+		this.packetTraversalStack = ThreadLocal.withInitial(() -> new int[stackSize * 2]);
+
+		this.buildCost = getCost();
+	}
+
+	/**
+	 * Re-assemble a BoundingVolumeHierarchy from its already-flattened arrays
+	 * (e.g., as read back by {@link BVHCacheFile}).
+	 * 
+	 * @param elements
+	 * @param unboundedElements
+	 * @param nodeInfo
+	 * @param nodeBounds
+	 *            full-precision node-bounds, or <code>null</code> if
+	 *            <code>quantizedBounds</code> is given
+	 * @param quantizedBounds
+	 * @param quantizationOrigin
+	 * @param quantizationStep
+	 * @param depth
+	 */
+	BoundingVolumeHierarchy(Interactable[] elements, Interactable[] unboundedElements, int[] nodeInfo,
+			double[] nodeBounds, char[] quantizedBounds, double[] quantizationOrigin, double[] quantizationStep,
+			int depth) {
+
+		this.elements = elements;
+		this.unboundedElements = unboundedElements;
+
+		this.nodeCount = nodeInfo.length / 2;
+		this.nodeInfo = nodeInfo;
+		this.nodeBounds = nodeBounds;
+		this.quantizedBounds = quantizedBounds;
+		this.quantizationOrigin = quantizationOrigin;
+		this.quantizationStep = quantizationStep;
+
+		this.depth = depth;
+		final int stackSize = FastMath.max(depth, 1);
+		this.traversalStack = ThreadLocal.withInitial(() -> new int[stackSize]);
+		this.packetTraversalStack = ThreadLocal.withInitial(() -> new int[stackSize * 2]);
+
+		this.buildCost = getCost();
+	}
+
+	private static int getNodeCount(BVHNode node) {
+
+		if (node == null)
+			return 0;
+
+		if (node.isLeaf())
+			return 1;
+
+		return 1 + getNodeCount(node.getLeft()) + getNodeCount(node.getRight());
+	}
+
+	private static int getDepth(BVHNode node) {
+
+		if (node == null)
+			return 0;
+
+		if (node.isLeaf())
+			return 1;
+
+		return 1 + FastMath.max(getDepth(node.getLeft()), getDepth(node.getRight()));
+	}
+
+	/**
+	 * Write the given node (and all its descendants) into the flattened arrays,
+	 * starting at the given index.
+	 * 
+	 * @return the next free index following this node's sub-tree
+	 */
+	private static int flatten(BVHNode node, int index, double[] flatBounds, int[] nodeInfo) {
+
+		node.getBounds().copyInto(flatBounds, index * 6);
+
+		if (node.isLeaf()) {
+			nodeInfo[index * 2 + 0] = node.getFirstElement();
+			nodeInfo[index * 2 + 1] = node.getElementCount();
+			return index + 1;
+		}
+
+		final int secondChild = flatten(node.getLeft(), index + 1, flatBounds, nodeInfo);
+		nodeInfo[index * 2 + 0] = secondChild;
+		nodeInfo[index * 2 + 1] = -1 - node.getSplitAxis();
+
+		return flatten(node.getRight(), secondChild, flatBounds, nodeInfo);
+	}
+
+	/**
+	 * (Re-)compute this hierarchy's quantized node-bounds from the given
+	 * full-precision node-bounds.
+	 */
+	private void quantize(double[] flatBounds) {
+
+		if (nodeCount == 0)
+			return;
+
+		//
+		// Every node is enclosed by the root, so the root's extent serves as
+		// the quantization grid.
+		for (int axis = 0; axis < 3; axis++) {
+			quantizationOrigin[axis] = flatBounds[axis];
+			quantizationStep[axis] = ( flatBounds[3 + axis] - flatBounds[axis] ) / QUANTIZED_MAX;
+
+			//
+			// Guard against round-off -- the largest quantized value must
+			// still reach the root's maximum.
+			while (quantizationStep[axis] > 0d && quantizationOrigin[axis]
+					+ QUANTIZED_MAX * quantizationStep[axis] < flatBounds[3 + axis])
+				quantizationStep[axis] = FastMath.nextUp(quantizationStep[axis]);
+		}
+
+		for (int node = 0; node < nodeCount; node++)
+			for (int axis = 0; axis < 3; axis++) {
+				final double origin = quantizationOrigin[axis], step = quantizationStep[axis];
+				final double min = flatBounds[node * 6 + axis], max = flatBounds[node * 6 + 3 + axis];
+
+				int qMin = 0, qMax = 0;
+				if (step > 0d) {
+					qMin = (int) FastMath.max(0d, FastMath.floor(( min - origin ) / step));
+					qMax = (int) FastMath.min(QUANTIZED_MAX, FastMath.ceil(( max - origin ) / step));
+
+					//
+					// Guard against round-off -- the decoded bounds must never
+					// be any tighter than the originals.
+					while (qMin > 0 && origin + qMin * step > min)
+						qMin--;
+					while (qMax < QUANTIZED_MAX && origin + qMax * step < max)
+						qMax++;
+				}
+
+				quantizedBounds[node * 6 + axis] = (char) qMin;
+				quantizedBounds[node * 6 + 3 + axis] = (char) qMax;
+			}
+	}
+
+	/**
+	 * Get one of the given node's bounds.
+	 * 
+	 * @param node
+	 * @param bound
+	 *            <code>0</code> through <code>5</code>, for <code>{ minX, minY,
+	 *            minZ, maxX, maxY, maxZ }</code>
+	 * @return
+	 */
+	double getNodeBound(int node, int bound) {
+
+		if (nodeBounds != null)
+			return nodeBounds[node * 6 + bound];
+
+		final int axis = bound % 3;
+		return quantizationOrigin[axis] + quantizedBounds[node * 6 + bound] * quantizationStep[axis];
+	}
+
+	private boolean isNodeIntersecting(int node, double originX, double originY, double originZ, double invDirX,
+			double invDirY, double invDirZ, double minT, double maxT) {
+
+		if (nodeBounds != null) {
+			final int b = node * 6;
+			return AABB.isIntersecting(nodeBounds[b + 0], nodeBounds[b + 1], nodeBounds[b + 2], nodeBounds[b + 3],
+					nodeBounds[b + 4], nodeBounds[b + 5], originX, originY, originZ, invDirX, invDirY, invDirZ, minT,
+					maxT);
+		}
+
+		return AABB.isIntersecting(getNodeBound(node, 0), getNodeBound(node, 1), getNodeBound(node, 2),
+				getNodeBound(node, 3), getNodeBound(node, 4), getNodeBound(node, 5), originX, originY, originZ,
+				invDirX, invDirY, invDirZ, minT, maxT);
+	}
+
+	@Override
+	public Optional<Interaction> getClosestInteraction(Ray ray) {
+
+		Interaction closest = null;
+		double closestT = Double.POSITIVE_INFINITY;
+
+		for (Interactable element : unboundedElements) {
+			final Interaction interaction = getInteraction(element, ray, closestT);
+			if (interaction != null) {
+				closest = interaction;
+				closestT = interaction.getInteractingRay().getCurrT();
+			}
+		}
+
+		if (nodeCount == 0)
+			return Optional.ofNullable(closest);
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double invDirX = 1d / ray.getDirection().getX(), invDirY = 1d / ray.getDirection().getY(),
+				invDirZ = 1d / ray.getDirection().getZ();
+		final boolean negativeX = invDirX < 0d, negativeY = invDirY < 0d, negativeZ = invDirZ < 0d;
+
+		//
+		// Walk the tree depth-first, always visiting the nearer child first
+		// (and deferring the farther child to the stack). Any node which lies
+		// beyond the closest intersection found so far is skipped entirely.
+		final int[] stack = traversalStack.get();
+		int stackSize = 0;
+		int node = 0;
+
+		while (true) {
+
+			if (isNodeIntersecting(node, originX, originY, originZ, invDirX, invDirY, invDirZ, 0d, closestT)) {
+
+				final int info = nodeInfo[node * 2 + 1];
+				if (info > 0) {
+
+					final int firstElement = nodeInfo[node * 2];
+					for (int i = firstElement; i < firstElement + info; i++) {
+						final Interaction interaction = getInteraction(elements[i], ray, closestT);
+						if (interaction != null) {
+							closest = interaction;
+							closestT = interaction.getInteractingRay().getCurrT();
+						}
+					}
+
+				} else {
+
+					final int splitAxis = -1 - info;
+					final boolean isNegative = ( splitAxis == 0 ) ? negativeX
+							: ( splitAxis == 1 ) ? negativeY : negativeZ;
+					if (isNegative) {
+						stack[stackSize++] = node + 1;
+						node = nodeInfo[node * 2];
+					} else {
+						stack[stackSize++] = nodeInfo[node * 2];
+						node = node + 1;
+					}
+					continue;
+
+				}
+			}
+
+			if (stackSize == 0)
+				break;
+			node = stack[--stackSize];
+		}
+
+		return Optional.ofNullable(closest);
+	}
+
+	/**
+	 * Trace the given {@link RayPacket} through this hierarchy.
+	 * <p>
+	 * The packet's coherent Rays are traced together, visiting children in the
+	 * order given by the packet's common direction. At each node, we look for
+	 * the first Ray (at or after the first Ray that reached this node's parent)
+	 * that intersects the node -- if there is none, the whole node is skipped.
+	 * Rays before that first one are simply carried along, unexamined, until
+	 * the traversal returns to a node they do reach.
+	 * </p>
+	 * <p>
+	 * Rays that are not coherent with the packet (see
+	 * {@link RayPacket#isCoherent(int)}) are traced individually.
+	 * </p>
+	 */
+	@Override
+	public void getClosestInteractions(RayPacket packet) {
+
+		final int size = packet.size();
+
+		for (int r = 0; r < size; r++)
+			if (!packet.isCoherent(r))
+				packet.setInteraction(r, getClosestInteraction(packet.getRay(r)).orElse(null));
+
+		for (Interactable element : unboundedElements)
+			for (int r = 0; r < size; r++)
+				if (packet.isCoherent(r))
+					packet.setInteraction(r, getInteraction(element, packet.getRay(r), packet.getClosestT(r)));
+
+		if (nodeCount == 0)
+			return;
+
+		//
+		// Each stack-entry holds a node, and the first Ray that needs to be
+		// considered against it.
+		final int[] stack = packetTraversalStack.get();
+		int stackSize = 0;
+		int node = 0, firstRay = 0;
+
+		while (true) {
+
+			int r = size;
+			if (isNodeIntersecting(node, packet)) {
+				r = firstRay;
+				while (r < size && !( packet.isCoherent(r) && isNodeIntersecting(node, packet, r) ))
+					r++;
+			}
+
+			if (r < size) {
+
+				final int info = nodeInfo[node * 2 + 1];
+				if (info > 0) {
+
+					final int firstElement = nodeInfo[node * 2];
+					for (int j = r; j < size; j++) {
+						if (!packet.isCoherent(j) || ( j > r && !isNodeIntersecting(node, packet, j) ))
+							continue;
+
+						final Ray ray = packet.getRay(j);
+						for (int i = firstElement; i < firstElement + info; i++)
+							packet.setInteraction(j, getInteraction(elements[i], ray, packet.getClosestT(j)));
+					}
+
+				} else {
+
+					if (packet.isNegative(-1 - info)) {
+						stack[stackSize * 2] = node + 1;
+						node = nodeInfo[node * 2];
+					} else {
+						stack[stackSize * 2] = nodeInfo[node * 2];
+						node = node + 1;
+					}
+					stack[stackSize * 2 + 1] = r;
+					stackSize++;
+					firstRay = r;
+					continue;
+
+				}
+			}
+
+			if (stackSize == 0)
+				break;
+			stackSize--;
+			node = stack[stackSize * 2];
+			firstRay = stack[stackSize * 2 + 1];
+		}
+	}
+
+	private boolean isNodeIntersecting(int node, RayPacket packet) {
+
+		if (nodeBounds != null) {
+			final int b = node * 6;
+			return packet.isPossiblyIntersecting(nodeBounds[b + 0], nodeBounds[b + 1], nodeBounds[b + 2],
+					nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5]);
+		}
+
+		return packet.isPossiblyIntersecting(getNodeBound(node, 0), getNodeBound(node, 1), getNodeBound(node, 2),
+				getNodeBound(node, 3), getNodeBound(node, 4), getNodeBound(node, 5));
+	}
+
+	private boolean isNodeIntersecting(int node, RayPacket packet, int ray) {
+
+		return isNodeIntersecting(node, packet.getOriginX(ray), packet.getOriginY(ray), packet.getOriginZ(ray),
+				packet.getInvDirX(ray), packet.getInvDirY(ray), packet.getInvDirZ(ray), 0d, packet.getClosestT(ray));
+	}
+
+	@Override
+	public boolean isOccluded(Ray ray) {
+
+		for (Interactable element : unboundedElements)
+			if (element.isOccluding(ray))
+				return true;
+
+		if (nodeCount == 0)
+			return false;
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double invDirX = 1d / ray.getDirection().getX(), invDirY = 1d / ray.getDirection().getY(),
+				invDirZ = 1d / ray.getDirection().getZ();
+		final double minT = ray.getMinT(), maxT = ray.getMaxT();
+
+		//
+		// Any blocker will do, so there's no need to order the traversal.
+		final int[] stack = traversalStack.get();
+		int stackSize = 0;
+		int node = 0;
+
+		while (true) {
+
+			if (isNodeIntersecting(node, originX, originY, originZ, invDirX, invDirY, invDirZ, minT, maxT)) {
+
+				final int info = nodeInfo[node * 2 + 1];
+				if (info > 0) {
+
+					final int firstElement = nodeInfo[node * 2];
+					for (int i = firstElement; i < firstElement + info; i++)
+						if (elements[i].isOccluding(ray))
+							return true;
+
+				} else {
+
+					stack[stackSize++] = nodeInfo[node * 2];
+					node = node + 1;
+					continue;
+
+				}
+			}
+
+			if (stackSize == 0)
+				break;
+			node = stack[--stackSize];
+		}
+
+		return false;
+	}
+
+	@Override
+	public int getElementCount() {
+
+		return elements.length + unboundedElements.length;
+	}
+
+	/**
+	 * Recompute the bounds of every node in this hierarchy, from the bottom up,
+	 * using the current bounding-boxes of each element.
+	 * 
+	 * @return <code>false</code> if any element has become unbounded, or if
+	 *         this hierarchy's {@link #getCost() cost} has degraded by more than
+	 *         {@link #MAX_REFIT_DEGRADATION}
+	 */
+	@Override
+	public boolean refit() {
+
+		if (nodeCount == 0)
+			return true;
+
+		final double[] flatBounds = ( nodeBounds != null ) ? nodeBounds : new double[nodeCount * 6];
+
+		//
+		// Every node's children follow it in the flattened arrays -- so walking
+		// those arrays backwards guarantees that we always visit children
+		// before their parents.
+		for (int node = nodeCount - 1; node >= 0; node--) {
+
+			AABB.setEmpty(flatBounds, node * 6);
+
+			final int info = nodeInfo[node * 2 + 1];
+			if (info > 0) {
+
+				final int firstElement = nodeInfo[node * 2];
+				for (int i = firstElement; i < firstElement + info; i++) {
+					final AABB box = elements[i].getBoundingBox();
+					if (box == null)
+						return false;
+
+					box.unionInto(flatBounds, node * 6);
+				}
+
+			} else {
+
+				AABB.union(flatBounds, node * 6, flatBounds, ( node + 1 ) * 6);
+				AABB.union(flatBounds, node * 6, flatBounds, nodeInfo[node * 2] * 6);
+
+			}
+		}
+
+		if (quantizedBounds != null)
+			quantize(flatBounds);
+
+		return ( getCost() <= buildCost * MAX_REFIT_DEGRADATION );
+	}
+
+	/**
+	 * Compute the expected cost of tracing a {@link Ray} through this hierarchy
+	 * (as estimated by the surface-area heuristic), measured in units of
+	 * element intersection-tests. This is a measure of this hierarchy's
+	 * quality -- the lower the better.
+	 * 
+	 * @return
+	 * @see #TRAVERSAL_COST
+	 */
+	public double getCost() {
+
+		if (nodeCount == 0)
+			return 0d;
+
+		final double rootArea = getNodeSurfaceArea(0);
+		if (rootArea <= 0d)
+			return elements.length;
+
+		double cost = 0d;
+		for (int node = 0; node < nodeCount; node++) {
+			final int info = nodeInfo[node * 2 + 1];
+			cost += getNodeSurfaceArea(node) * ( ( info > 0 ) ? info : TRAVERSAL_COST );
+		}
+
+		return cost / rootArea;
+	}
+
+	double getNodeSurfaceArea(int node) {
+
+		final double dx = getNodeBound(node, 3) - getNodeBound(node, 0),
+				dy = getNodeBound(node, 4) - getNodeBound(node, 1), dz = getNodeBound(node, 5) - getNodeBound(node, 2);
+
+		return 2d * ( dx * dy + dy * dz + dz * dx );
+	}
+
+	/**
+	 * @return this hierarchy's {@link #getCost() cost} when it was first built
+	 */
+	public double getBuildCost() {
+
+		return buildCost;
+	}
+
+	/**
+	 * Compute the {@link Interaction} between the given element and
+	 * {@link Ray}, if it lies in front of the Ray and closer than
+	 * <code>closestT</code>; otherwise, return <code>null</code>.
+	 */
+	static Interaction getInteraction(Interactable element, Ray ray, double closestT) {
+
+		if (!element.isInteracting(ray))
+			return null;
+
+		final Interaction interaction = element.getIntersection(ray);
+		if (interaction == null)
+			return null;
+
+		final double t = interaction.getInteractingRay().getCurrT();
+		if (t > 0d && t < closestT)
+			return interaction;
+
+		return null;
+	}
+
+	/**
+	 * Estimate the number of bytes occupied by this hierarchy's nodes and
+	 * element-arrays (but not the elements themselves), assuming a 64-bit JVM
+	 * with compressed object-pointers.
+	 * 
+	 * @return
+	 * @see #getMemoryReport()
+	 */
+	public long getMemoryFootprint() {
+
+		return getNodeMemoryFootprint() + getElementMemoryFootprint();
+	}
+
+	/**
+	 * @return the estimated number of bytes occupied by this hierarchy's nodes
+	 */
+	public long getNodeMemoryFootprint() {
+
+		long bytes = ARRAY_HEADER_SIZE + (long) nodeInfo.length * Integer.BYTES;
+		if (nodeBounds != null)
+			bytes += ARRAY_HEADER_SIZE + (long) nodeBounds.length * Double.BYTES;
+		else
+			bytes += ARRAY_HEADER_SIZE + (long) quantizedBounds.length * Character.BYTES
+					+ 2 * ( ARRAY_HEADER_SIZE + 3 * Double.BYTES );
+
+		return bytes;
+	}
+
+	/**
+	 * @return the estimated number of bytes occupied by this hierarchy's
+	 *         element-arrays (i.e., by the references to each element, but not
+	 *         by the elements themselves)
+	 */
+	public long getElementMemoryFootprint() {
+
+		return 2 * ARRAY_HEADER_SIZE + (long) ( elements.length + unboundedElements.length ) * REFERENCE_SIZE;
+	}
+
+	/**
+	 * @return a human-readable summary of this hierarchy's size and estimated
+	 *         memory-footprint
+	 * @see #getMemoryFootprint()
+	 */
+	public String getMemoryReport() {
+
+		final long nodeBytes = getNodeMemoryFootprint(), elementBytes = getElementMemoryFootprint();
+
+		return String.format(
+				"BVH: %,d nodes (depth %d, %s bounds), %,d elements (%,d unbounded)%n"
+						+ "  nodes:    %,d bytes (%.1f bytes/node)%n" + "  elements: %,d bytes%n"
+						+ "  total:    %,d bytes",
+				nodeCount, depth, ( isQuantized() ) ? "quantized" : "full-precision", getElementCount(),
+				unboundedElements.length, nodeBytes, ( nodeCount == 0 ) ? 0d : (double) nodeBytes / nodeCount,
+				elementBytes, nodeBytes + elementBytes);
+	}
+
+	/**
+	 * @return the bounded elements of this hierarchy, in the order referred to
+	 *         by its leaf nodes
+	 */
+	public Interactable[] getElements() {
+
+		return elements;
+	}
+
+	/**
+	 * @return those elements which could not be placed in this hierarchy
+	 *         because they are unbounded
+	 */
+	public Interactable[] getUnboundedElements() {
+
+		return unboundedElements;
+	}
+
+	/**
+	 * @return the number of nodes in this hierarchy
+	 */
+	public int getNodeCount() {
+
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of levels in this hierarchy
+	 */
+	public int getDepth() {
+
+		return depth;
+	}
+
+	/**
+	 * @return <code>true</code> if this hierarchy stores its node-bounds in
+	 *         quantized form
+	 */
+	public boolean isQuantized() {
+
+		return ( quantizedBounds != null );
+	}
+
+	int[] getNodeInfo() {
+
+		return nodeInfo;
+	}
+
+	double[] getNodeBounds() {
+
+		return nodeBounds;
+	}
+
+	char[] getQuantizedBounds() {
+
+		return quantizedBounds;
+	}
+
+	double[] getQuantizationOrigin() {
+
+		return quantizationOrigin;
+	}
+
+	double[] getQuantizationStep() {
+
+		return quantizationStep;
+	}
+
+}
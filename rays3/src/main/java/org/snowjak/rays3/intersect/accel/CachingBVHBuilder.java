@@ -0,0 +1,245 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Matrix;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.bound.AABB;
+import org.snowjak.rays3.transform.Transform;
+
+/**
+ * A CachingBVHBuilder builds {@link BoundingVolumeHierarchy}s just like any
+ * other {@link BVHBuilder} -- but saves each hierarchy it builds to disk (see
+ * {@link BVHCacheFile}), and loads it back again (rather than re-building it)
+ * the next time it's asked to build a hierarchy over the same elements.
+ * <p>
+ * Each cached hierarchy is identified by a {@link #computeKey(Collection,
+ * BVHBuilder, boolean) key}, computed from the type, {@link Transform}s, and
+ * bounding-box of each element (in order), along with the
+ * {@link BVHBuilder#getConfiguration() configuration} of the underlying
+ * BVHBuilder and whether the hierarchy is quantized. If a {@link World}'s
+ * elements change in any way that would affect its hierarchy, the key changes
+ * too -- and the hierarchy is simply re-built (and cached anew). Similarly, if
+ * a cache-file is missing, was written by a different format-version, or
+ * cannot be read, the hierarchy is quietly re-built.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that stale cache-files are never deleted -- it is up
+ * to you to clear out the cache-directory from time to time.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class CachingBVHBuilder implements BVHBuilder {
+
+	private static final long	FNV_OFFSET_BASIS	= 0xcbf29ce484222325L;
+	private static final long	FNV_PRIME			= 0x100000001b3L;
+
+	private final Path			cacheDirectory;
+	private final BVHBuilder	builder;
+	private final boolean		quantized;
+
+	private final AtomicInteger	cacheHits			= new AtomicInteger(), cacheMisses = new AtomicInteger();
+
+	/**
+	 * Create a new CachingBVHBuilder, storing its hierarchies in the given
+	 * directory, and using a {@link SAHBVHBuilder} to build them.
+	 * 
+	 * @param cacheDirectory
+	 */
+	public CachingBVHBuilder(Path cacheDirectory) {
+		this(cacheDirectory, new SAHBVHBuilder(), false);
+	}
+
+	/**
+	 * Create a new CachingBVHBuilder, storing its hierarchies in the given
+	 * directory, and using the given {@link BVHBuilder} to build them.
+	 * 
+	 * @param cacheDirectory
+	 * @param builder
+	 * @param quantized
+	 *            <code>true</code> if hierarchies should be built with
+	 *            quantized node-bounds
+	 * @see BoundingVolumeHierarchy#BoundingVolumeHierarchy(Collection,
+	 *      BVHBuilder, boolean)
+	 */
+	public CachingBVHBuilder(Path cacheDirectory, BVHBuilder builder, boolean quantized) {
+		this.cacheDirectory = cacheDirectory;
+		this.builder = builder;
+		this.quantized = quantized;
+	}
+
+	@Override
+	public AccelerationStructure build(Collection<? extends Interactable> elements) {
+
+		//
+		// Take a snapshot of the given elements, so that we're certain to
+		// see them in the same order every time.
+		final List<Interactable> snapshot = new ArrayList<>(elements);
+
+		final long key = computeKey(snapshot);
+		final Path cacheFile = getCacheFile(key);
+
+		final BoundingVolumeHierarchy cached = BVHCacheFile.read(cacheFile, snapshot, key);
+		if (cached != null) {
+			cacheHits.incrementAndGet();
+			return cached;
+		}
+
+		cacheMisses.incrementAndGet();
+		final BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(snapshot, builder, quantized);
+
+		try {
+			BVHCacheFile.write(cacheFile, bvh, snapshot, key);
+		} catch (IOException e) {
+			//
+			// Failing to cache this hierarchy is no reason to fail to render
+			// with it.
+		}
+
+		return bvh;
+	}
+
+	@Override
+	public BVHNode buildTree(double[] bounds, int[] order) {
+
+		return builder.buildTree(bounds, order);
+	}
+
+	/**
+	 * @return a new CachingBVHBuilder, sharing this one's cache-directory and
+	 *         underlying {@link BVHBuilder}, which builds (and caches)
+	 *         quantized hierarchies
+	 */
+	@Override
+	public CachingBVHBuilder quantized() {
+
+		return new CachingBVHBuilder(cacheDirectory, builder, true);
+	}
+
+	@Override
+	public String getConfiguration() {
+
+		return builder.getConfiguration();
+	}
+
+	/**
+	 * @param key
+	 * @return the file in which the hierarchy with the given key is cached
+	 */
+	public Path getCacheFile(long key) {
+
+		return cacheDirectory.resolve(String.format("bvh-%016x.bin", key));
+	}
+
+	/**
+	 * Compute the key identifying the {@link BoundingVolumeHierarchy} which
+	 * this CachingBVHBuilder would build over the given elements.
+	 * 
+	 * @param elements
+	 * @return
+	 * @see #computeKey(Collection, BVHBuilder, boolean)
+	 */
+	public long computeKey(Collection<? extends Interactable> elements) {
+
+		return computeKey(elements, builder, quantized);
+	}
+
+	/**
+	 * Compute the key identifying the {@link BoundingVolumeHierarchy} which
+	 * the given {@link BVHBuilder} would build over the given elements.
+	 * <p>
+	 * This is a 64-bit FNV-1a hash of:
+	 * <ul>
+	 * <li>the cache's {@link BVHCacheFile#FORMAT_VERSION format-version}</li>
+	 * <li>the given BVHBuilder's {@link BVHBuilder#getConfiguration()
+	 * configuration}, and whether the hierarchy is to be quantized</li>
+	 * <li>for each element (in order): its type, its world-to-local
+	 * {@link Transform}s, and its bounding-box</li>
+	 * </ul>
+	 * </p>
+	 * 
+	 * @param elements
+	 * @param builder
+	 * @param quantized
+	 * @return
+	 */
+	public static long computeKey(Collection<? extends Interactable> elements, BVHBuilder builder,
+			boolean quantized) {
+
+		long hash = FNV_OFFSET_BASIS;
+		hash = hash(hash, BVHCacheFile.FORMAT_VERSION);
+		hash = hash(hash, builder.getConfiguration());
+		hash = hash(hash, ( quantized ) ? 1 : 0);
+		hash = hash(hash, elements.size());
+
+		for (Interactable element : elements) {
+			hash = hash(hash, element.getClass().getName().hashCode());
+
+			final List<Transform> transforms = element.getWorldToLocalTransforms();
+			hash = hash(hash, transforms.size());
+			for (Transform transform : transforms) {
+				final Matrix matrix = transform.getWorldToLocal();
+				for (int row = 0; row < 4; row++)
+					for (int column = 0; column < 4; column++)
+						hash = hash(hash, Double.doubleToLongBits(matrix.get(row, column)));
+			}
+
+			final AABB box = element.getBoundingBox();
+			if (box == null)
+				hash = hash(hash, 0);
+			else {
+				hash = hash(hash, 1);
+				hash = hash(hash, Double.doubleToLongBits(box.getMinExtent().getX()));
+				hash = hash(hash, Double.doubleToLongBits(box.getMinExtent().getY()));
+				hash = hash(hash, Double.doubleToLongBits(box.getMinExtent().getZ()));
+				hash = hash(hash, Double.doubleToLongBits(box.getMaxExtent().getX()));
+				hash = hash(hash, Double.doubleToLongBits(box.getMaxExtent().getY()));
+				hash = hash(hash, Double.doubleToLongBits(box.getMaxExtent().getZ()));
+			}
+		}
+
+		return hash;
+	}
+
+	private static long hash(long hash, String value) {
+
+		hash = hash(hash, value.length());
+		for (int i = 0; i < value.length(); i++)
+			hash = hash(hash, value.charAt(i));
+		return hash;
+	}
+
+	private static long hash(long hash, long value) {
+
+		for (int i = 0; i < 8; i++) {
+			hash ^= ( value >>> ( i * 8 ) ) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the number of hierarchies that have been loaded from the cache
+	 */
+	public int getCacheHits() {
+
+		return cacheHits.get();
+	}
+
+	/**
+	 * @return the number of hierarchies that had to be built (because they
+	 *         could not be loaded from the cache)
+	 */
+	public int getCacheMisses() {
+
+		return cacheMisses.get();
+	}
+
+}
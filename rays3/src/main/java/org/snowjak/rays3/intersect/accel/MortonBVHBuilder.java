@@ -0,0 +1,439 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * Builds a {@link BoundingVolumeHierarchy} as a <em>linear BVH</em> (LBVH):
+ * <ol>
+ * <li>each element's centroid is quantized onto a regular grid spanning all
+ * centroids, and the grid-coordinates interleaved into a single Morton code
+ * (which orders the elements along a Z-order space-filling curve)</li>
+ * <li>the elements are sorted by their Morton codes</li>
+ * <li>the hierarchy is emitted top-down by splitting each range of elements
+ * wherever the highest differing bit of their Morton codes changes from
+ * <code>0</code> to <code>1</code> -- which, because of the bit-interleaving,
+ * is always a split along one of the three axes</li>
+ * </ol>
+ * Every step is executed in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * This is much faster than the {@link SAHBVHBuilder}, at the cost of producing
+ * a somewhat lower-quality tree (and so slower Ray-queries). It is best suited
+ * to very large scenes, where the time spent building the hierarchy would
+ * otherwise dominate.
+ * </p>
+ * <p>
+ * By default, Morton codes are 30 bits long (10 bits per axis). Scenes whose
+ * elements are very unevenly distributed may benefit from longer (up to 63-bit)
+ * codes, as otherwise many elements may share the same grid-cell (and hence the
+ * same code).
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class MortonBVHBuilder implements BVHBuilder {
+
+	/**
+	 * The largest number of bits that can be allotted to each axis, such that a
+	 * whole Morton code will fit into a single <code>long</code>.
+	 */
+	public static final int		MAX_BITS_PER_AXIS	= 21;
+
+	/**
+	 * Ranges of elements smaller than this are processed sequentially, rather
+	 * than being split into further parallel tasks.
+	 */
+	private static final int	PARALLEL_THRESHOLD	= 4096;
+
+	/**
+	 * Ranges of elements smaller than this are sorted by insertion-sort.
+	 */
+	private static final int	INSERTION_THRESHOLD	= 32;
+
+	private final int			bitsPerAxis;
+	private final ForkJoinPool	pool;
+
+	/**
+	 * Construct a new MortonBVHBuilder using 30-bit Morton codes (10 bits per
+	 * axis), executing on the common {@link ForkJoinPool}.
+	 */
+	public MortonBVHBuilder() {
+		this(10);
+	}
+
+	/**
+	 * Construct a new MortonBVHBuilder using Morton codes with the given number
+	 * of bits per axis, executing on the common {@link ForkJoinPool}.
+	 * 
+	 * @param bitsPerAxis
+	 * @see #MortonBVHBuilder(int, ForkJoinPool)
+	 */
+	public MortonBVHBuilder(int bitsPerAxis) {
+		this(bitsPerAxis, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Construct a new MortonBVHBuilder using Morton codes with the given number
+	 * of bits per axis (i.e., <code>10</code> for 30-bit codes, or
+	 * <code>21</code> for 63-bit codes), executing on the given
+	 * {@link ForkJoinPool}.
+	 * 
+	 * @param bitsPerAxis
+	 *            between <code>1</code> and {@link #MAX_BITS_PER_AXIS}
+	 * @param pool
+	 * @throws IllegalArgumentException
+	 *             if <code>bitsPerAxis</code> is out of range
+	 */
+	public MortonBVHBuilder(int bitsPerAxis, ForkJoinPool pool) {
+		if (bitsPerAxis < 1 || bitsPerAxis > MAX_BITS_PER_AXIS)
+			throw new IllegalArgumentException(
+					"Morton codes must use between 1 and " + MAX_BITS_PER_AXIS + " bits per axis!");
+
+		this.bitsPerAxis = bitsPerAxis;
+		this.pool = pool;
+	}
+
+	@Override
+	public BVHNode buildTree(double[] bounds, int[] order) {
+
+		final int count = order.length;
+		if (count == 0)
+			return null;
+
+		final double[] centroidBounds = pool.invoke(new CentroidBoundsTask(bounds, 0, count));
+
+		final double cells = (double) ( 1 << bitsPerAxis );
+		final double[] scale = new double[3];
+		for (int axis = 0; axis < 3; axis++) {
+			final double extent = centroidBounds[3 + axis] - centroidBounds[axis];
+			scale[axis] = ( extent > 0d ) ? cells / extent : 0d;
+		}
+
+		final long[] codes = new long[count];
+		pool.invoke(new MortonCodeTask(bounds, codes, centroidBounds, scale, bitsPerAxis, 0, count));
+
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		pool.invoke(new SortTask(codes, order, new long[count], new int[count], 0, count));
+
+		return pool.invoke(new EmitTask(bounds, codes, order, 0, count));
+	}
+
+	@Override
+	public String getConfiguration() {
+
+		//
+		// The pool affects only how quickly the tree is built, not its shape.
+		return getClass().getName() + "[bitsPerAxis=" + bitsPerAxis + ", maxLeafElements="
+				+ BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF + "]";
+	}
+
+	/**
+	 * Spread the lowest 21 bits of the given value so that there are two
+	 * <code>0</code> bits between each of them.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	static long spreadBits(long value) {
+
+		long x = value & 0x1fffffL;
+		x = ( x | x << 32 ) & 0x1f00000000ffffL;
+		x = ( x | x << 16 ) & 0x1f0000ff0000ffL;
+		x = ( x | x << 8 ) & 0x100f00f00f00f00fL;
+		x = ( x | x << 4 ) & 0x10c30c30c30c30c3L;
+		x = ( x | x << 2 ) & 0x1249249249249249L;
+		return x;
+	}
+
+	/**
+	 * Interleave the given (already-quantized) grid-coordinates into a single
+	 * Morton code. The X-coordinate occupies the most-significant bit of each
+	 * triplet, and the Z-coordinate the least.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	static long mortonCode(long x, long y, long z) {
+
+		return ( spreadBits(x) << 2 ) | ( spreadBits(y) << 1 ) | spreadBits(z);
+	}
+
+	private static double centroid(double[] bounds, int element, int axis) {
+
+		return 0.5d * ( bounds[element * 6 + axis] + bounds[element * 6 + 3 + axis] );
+	}
+
+	/**
+	 * Computes the bounds (<code>{ minX, minY, minZ, maxX, maxY, maxZ }</code>)
+	 * of the centroids of the elements <code>[start, end)</code>.
+	 */
+	private static class CentroidBoundsTask extends RecursiveTask<double[]> {
+
+		private static final long	serialVersionUID	= 5013939937094361563L;
+
+		private final double[]		bounds;
+		private final int			start, end;
+
+		public CentroidBoundsTask(double[] bounds, int start, int end) {
+			this.bounds = bounds;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected double[] compute() {
+
+			if (end - start > PARALLEL_THRESHOLD) {
+				final int mid = ( start + end ) >>> 1;
+				final CentroidBoundsTask left = new CentroidBoundsTask(bounds, start, mid);
+				left.fork();
+				final double[] result = new CentroidBoundsTask(bounds, mid, end).compute();
+				final double[] leftResult = left.join();
+				for (int axis = 0; axis < 3; axis++) {
+					result[axis] = FastMath.min(result[axis], leftResult[axis]);
+					result[3 + axis] = FastMath.max(result[3 + axis], leftResult[3 + axis]);
+				}
+				return result;
+			}
+
+			final double[] result = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.NEGATIVE_INFINITY };
+			for (int i = start; i < end; i++)
+				for (int axis = 0; axis < 3; axis++) {
+					final double centroid = centroid(bounds, i, axis);
+					result[axis] = FastMath.min(result[axis], centroid);
+					result[3 + axis] = FastMath.max(result[3 + axis], centroid);
+				}
+			return result;
+		}
+	}
+
+	/**
+	 * Computes the Morton code of each element <code>[start, end)</code>.
+	 */
+	private static class MortonCodeTask extends RecursiveAction {
+
+		private static final long	serialVersionUID	= -3402717839475447312L;
+
+		private final double[]		bounds;
+		private final long[]		codes;
+		private final double[]		centroidBounds, scale;
+		private final int			bitsPerAxis;
+		private final int			start, end;
+
+		public MortonCodeTask(double[] bounds, long[] codes, double[] centroidBounds, double[] scale,
+				int bitsPerAxis, int start, int end) {
+			this.bounds = bounds;
+			this.codes = codes;
+			this.centroidBounds = centroidBounds;
+			this.scale = scale;
+			this.bitsPerAxis = bitsPerAxis;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start > PARALLEL_THRESHOLD) {
+				final int mid = ( start + end ) >>> 1;
+				invokeAll(new MortonCodeTask(bounds, codes, centroidBounds, scale, bitsPerAxis, start, mid),
+						new MortonCodeTask(bounds, codes, centroidBounds, scale, bitsPerAxis, mid, end));
+				return;
+			}
+
+			final long maxCell = ( 1L << bitsPerAxis ) - 1L;
+			for (int i = start; i < end; i++) {
+				final long x = quantize(i, 0, maxCell), y = quantize(i, 1, maxCell), z = quantize(i, 2, maxCell);
+				codes[i] = mortonCode(x, y, z);
+			}
+		}
+
+		private long quantize(int element, int axis, long maxCell) {
+
+			final long cell = (long) ( ( centroid(bounds, element, axis) - centroidBounds[axis] ) * scale[axis] );
+			return FastMath.max(0L, FastMath.min(cell, maxCell));
+		}
+	}
+
+	/**
+	 * Sorts <code>codes[start .. end)</code> into ascending order (and
+	 * <code>order[start .. end)</code> along with it), by merge-sort.
+	 */
+	private static class SortTask extends RecursiveAction {
+
+		private static final long	serialVersionUID	= 1757839203815009862L;
+
+		private final long[]		codes, codesScratch;
+		private final int[]			order, orderScratch;
+		private final int			start, end;
+
+		public SortTask(long[] codes, int[] order, long[] codesScratch, int[] orderScratch, int start, int end) {
+			this.codes = codes;
+			this.order = order;
+			this.codesScratch = codesScratch;
+			this.orderScratch = orderScratch;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start <= INSERTION_THRESHOLD) {
+				for (int i = start + 1; i < end; i++) {
+					final long code = codes[i];
+					final int element = order[i];
+					int j = i - 1;
+					while (j >= start && codes[j] > code) {
+						codes[j + 1] = codes[j];
+						order[j + 1] = order[j];
+						j--;
+					}
+					codes[j + 1] = code;
+					order[j + 1] = element;
+				}
+				return;
+			}
+
+			final int mid = ( start + end ) >>> 1;
+			final SortTask left = new SortTask(codes, order, codesScratch, orderScratch, start, mid),
+					right = new SortTask(codes, order, codesScratch, orderScratch, mid, end);
+			if (end - start > PARALLEL_THRESHOLD)
+				invokeAll(left, right);
+			else {
+				left.compute();
+				right.compute();
+			}
+
+			if (codes[mid - 1] <= codes[mid])
+				return;
+
+			int l = start, r = mid, i = start;
+			while (l < mid && r < end)
+				if (codes[l] <= codes[r]) {
+					codesScratch[i] = codes[l];
+					orderScratch[i++] = order[l++];
+				} else {
+					codesScratch[i] = codes[r];
+					orderScratch[i++] = order[r++];
+				}
+			while (l < mid) {
+				codesScratch[i] = codes[l];
+				orderScratch[i++] = order[l++];
+			}
+			while (r < end) {
+				codesScratch[i] = codes[r];
+				orderScratch[i++] = order[r++];
+			}
+
+			System.arraycopy(codesScratch, start, codes, start, end - start);
+			System.arraycopy(orderScratch, start, order, start, end - start);
+		}
+	}
+
+	/**
+	 * Emits the sub-tree covering the (sorted) elements <code>[start,
+	 * end)</code>.
+	 */
+	private static class EmitTask extends RecursiveTask<BVHNode> {
+
+		private static final long	serialVersionUID	= -6284512402883126016L;
+
+		private final double[]		bounds;
+		private final long[]		codes;
+		private final int[]			order;
+		private final int			start, end;
+
+		public EmitTask(double[] bounds, long[] codes, int[] order, int start, int end) {
+			this.bounds = bounds;
+			this.codes = codes;
+			this.order = order;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected BVHNode compute() {
+
+			final int count = end - start;
+
+			if (count <= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF) {
+				double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+						minZ = Double.POSITIVE_INFINITY;
+				double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY,
+						maxZ = Double.NEGATIVE_INFINITY;
+				for (int i = start; i < end; i++) {
+					final int b = order[i] * 6;
+					minX = FastMath.min(minX, bounds[b + 0]);
+					minY = FastMath.min(minY, bounds[b + 1]);
+					minZ = FastMath.min(minZ, bounds[b + 2]);
+					maxX = FastMath.max(maxX, bounds[b + 3]);
+					maxY = FastMath.max(maxY, bounds[b + 4]);
+					maxZ = FastMath.max(maxZ, bounds[b + 5]);
+				}
+				return new BVHNode(new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ)), start,
+						count);
+			}
+
+			//
+			// Every code in this range shares the same prefix, down to the
+			// highest bit at which the first and last codes differ. Split
+			// where that bit changes. (If every code is identical, just split
+			// the range in half.)
+			final int mid, splitAxis;
+			final long differingBits = codes[start] ^ codes[end - 1];
+			if (differingBits == 0L) {
+				mid = ( start + end ) >>> 1;
+				splitAxis = 0;
+
+			} else {
+				final int splitBit = 63 - Long.numberOfLeadingZeros(differingBits);
+				splitAxis = 2 - ( splitBit % 3 );
+
+				int low = start, high = end - 1;
+				while (low < high) {
+					final int probe = ( low + high ) >>> 1;
+					if (( ( codes[probe] >>> splitBit ) & 1L ) == 0L)
+						low = probe + 1;
+					else
+						high = probe;
+				}
+				mid = low;
+			}
+
+			final EmitTask leftTask = new EmitTask(bounds, codes, order, start, mid),
+					rightTask = new EmitTask(bounds, codes, order, mid, end);
+			final BVHNode left, right;
+			if (count > PARALLEL_THRESHOLD) {
+				leftTask.fork();
+				right = rightTask.compute();
+				left = leftTask.join();
+			} else {
+				left = leftTask.compute();
+				right = rightTask.compute();
+			}
+
+			final AABB leftBounds = left.getBounds(), rightBounds = right.getBounds();
+			final AABB nodeBounds = new AABB(
+					new Point(FastMath.min(leftBounds.getMinExtent().getX(), rightBounds.getMinExtent().getX()),
+							FastMath.min(leftBounds.getMinExtent().getY(), rightBounds.getMinExtent().getY()),
+							FastMath.min(leftBounds.getMinExtent().getZ(), rightBounds.getMinExtent().getZ())),
+					new Point(FastMath.max(leftBounds.getMaxExtent().getX(), rightBounds.getMaxExtent().getX()),
+							FastMath.max(leftBounds.getMaxExtent().getY(), rightBounds.getMaxExtent().getY()),
+							FastMath.max(leftBounds.getMaxExtent().getZ(), rightBounds.getMaxExtent().getZ())));
+
+			return new BVHNode(nodeBounds, left, right, splitAxis);
+		}
+	}
+
+}
@@ -0,0 +1,277 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.integrator.AbstractIntegrator;
+import org.snowjak.rays3.intersect.Interaction;
+
+/**
+ * A RayBatch collects {@link Ray}s from many different paths, and then traces
+ * them all through a {@link World} at once.
+ * <p>
+ * Secondary Rays (reflections, bounces toward lights, and so on) -- as
+ * generated by (e.g.) {@link AbstractIntegrator#followRay(Ray, World,
+ * org.snowjak.rays3.sample.Sample) followRay()} -- are scattered all over the
+ * scene, and point every which way. Traced in the order they're generated,
+ * each Ray visits a largely-different part of the World's
+ * {@link AccelerationStructure} from the last one, and so spends much of its
+ * time waiting on memory.
+ * </p>
+ * <p>
+ * A sorted RayBatch therefore re-orders its Rays before tracing them: first by
+ * direction-octant (the signs of their directions), and then by the cell
+ * (within a <code>2^9 x 2^9 x 2^9</code> grid spanning the batch's origins)
+ * containing their origins, in Morton order. Rays which start near each other
+ * and point the same way are thus traced one after another, and tend to visit
+ * the same nodes.
+ * </p>
+ * <p>
+ * Each RayBatch keeps running statistics on the Rays it has traced -- how many
+ * hit something, and how quickly they were traced (including the time taken to
+ * sort them) -- so that sorted and unsorted tracing can be compared.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that a RayBatch is not thread-safe.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class RayBatch {
+
+	/**
+	 * Ray-origins are quantized to this many bits per axis, when sorting.
+	 */
+	public static final int	ORIGIN_BITS_PER_AXIS	= 9;
+
+	private static final int	INDEX_BITS				= 31;
+	private static final long	INDEX_MASK				= ( 1L << INDEX_BITS ) - 1L;
+
+	private Ray[]				rays;
+	private Interaction[]		interactions;
+	private int					size;
+
+	private boolean				sorted;
+
+	private long				tracedRayCount, hitCount, traceNanos;
+
+	/**
+	 * Create a new, empty, sorted RayBatch.
+	 */
+	public RayBatch() {
+		this(1024, true);
+	}
+
+	/**
+	 * Create a new, empty RayBatch.
+	 * 
+	 * @param initialCapacity
+	 * @param sorted
+	 *            <code>true</code> if this batch's Rays should be sorted before
+	 *            they are traced
+	 */
+	public RayBatch(int initialCapacity, boolean sorted) {
+		this.rays = new Ray[FastMath.max(initialCapacity, 1)];
+		this.interactions = new Interaction[rays.length];
+		this.size = 0;
+		this.sorted = sorted;
+	}
+
+	/**
+	 * Add a {@link Ray} to this batch.
+	 * 
+	 * @param ray
+	 * @return the index of the new Ray within this batch, by which its
+	 *         {@link #getInteraction(int) Interaction} may be retrieved after
+	 *         tracing
+	 */
+	public int add(Ray ray) {
+
+		if (size == rays.length) {
+			rays = Arrays.copyOf(rays, rays.length * 2);
+			interactions = Arrays.copyOf(interactions, rays.length);
+		}
+
+		rays[size] = ray;
+		interactions[size] = null;
+		return size++;
+	}
+
+	/**
+	 * Remove all {@link Ray}s (and their {@link Interaction}s) from this batch.
+	 * Statistics are retained (see {@link #resetStatistics()}).
+	 */
+	public void clear() {
+
+		Arrays.fill(rays, 0, size, null);
+		Arrays.fill(interactions, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Trace every {@link Ray} in this batch through the given {@link World},
+	 * recording each Ray's closest {@link Interaction}.
+	 * 
+	 * @param world
+	 * @see World#getClosestInteraction(Ray)
+	 */
+	public void trace(World world) {
+
+		final long start = System.nanoTime();
+
+		final int[] order = getTraceOrder();
+		int hits = 0;
+		for (int i = 0; i < size; i++) {
+			final int index = order[i];
+			interactions[index] = world.getClosestInteraction(rays[index]).orElse(null);
+			if (interactions[index] != null)
+				hits++;
+		}
+
+		traceNanos += System.nanoTime() - start;
+		tracedRayCount += size;
+		hitCount += hits;
+	}
+
+	/**
+	 * @return the order in which this batch's {@link Ray}s will be traced (as
+	 *         indices into this batch)
+	 */
+	public int[] getTraceOrder() {
+
+		final int[] order = new int[size];
+		if (!sorted) {
+			for (int i = 0; i < size; i++)
+				order[i] = i;
+			return order;
+		}
+
+		//
+		// Find the bounds of this batch's Ray-origins, so that we can
+		// quantize them.
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			final double x = rays[i].getOrigin().getX(), y = rays[i].getOrigin().getY(),
+					z = rays[i].getOrigin().getZ();
+			minX = FastMath.min(minX, x);
+			minY = FastMath.min(minY, y);
+			minZ = FastMath.min(minZ, z);
+			maxX = FastMath.max(maxX, x);
+			maxY = FastMath.max(maxY, y);
+			maxZ = FastMath.max(maxZ, z);
+		}
+
+		final double cells = ( 1 << ORIGIN_BITS_PER_AXIS ) - 1;
+		final double scaleX = ( maxX > minX ) ? cells / ( maxX - minX ) : 0d,
+				scaleY = ( maxY > minY ) ? cells / ( maxY - minY ) : 0d,
+				scaleZ = ( maxZ > minZ ) ? cells / ( maxZ - minZ ) : 0d;
+
+		//
+		// Each sort-key holds (from most- to least-significant bits) the Ray's
+		// direction-octant, the Morton code of its origin-cell, and its index.
+		final long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			final Ray ray = rays[i];
+
+			final long octant = ( ( ray.getDirection().getX() < 0d ) ? 4 : 0 )
+					| ( ( ray.getDirection().getY() < 0d ) ? 2 : 0 ) | ( ( ray.getDirection().getZ() < 0d ) ? 1 : 0 );
+			final long cell = MortonBVHBuilder.mortonCode((long) ( ( ray.getOrigin().getX() - minX ) * scaleX ),
+					(long) ( ( ray.getOrigin().getY() - minY ) * scaleY ),
+					(long) ( ( ray.getOrigin().getZ() - minZ ) * scaleZ ));
+
+			keys[i] = ( octant << ( 3 * ORIGIN_BITS_PER_AXIS + INDEX_BITS ) ) | ( cell << INDEX_BITS ) | i;
+		}
+
+		Arrays.sort(keys);
+
+		for (int i = 0; i < size; i++)
+			order[i] = (int) ( keys[i] & INDEX_MASK );
+		return order;
+	}
+
+	/**
+	 * @return the number of {@link Ray}s in this batch
+	 */
+	public int size() {
+
+		return size;
+	}
+
+	public Ray getRay(int index) {
+
+		return rays[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the closest {@link Interaction} found for the given {@link Ray}
+	 *         when this batch was last {@link #trace(World) traced}
+	 */
+	public Optional<Interaction> getInteraction(int index) {
+
+		return Optional.ofNullable(interactions[index]);
+	}
+
+	/**
+	 * @return <code>true</code> if this batch's {@link Ray}s are sorted before
+	 *         they are traced
+	 */
+	public boolean isSorted() {
+
+		return sorted;
+	}
+
+	public void setSorted(boolean sorted) {
+
+		this.sorted = sorted;
+	}
+
+	/**
+	 * @return the total number of {@link Ray}s traced by this batch
+	 */
+	public long getTracedRayCount() {
+
+		return tracedRayCount;
+	}
+
+	/**
+	 * @return the total number of {@link Ray}s traced by this batch that hit
+	 *         something
+	 */
+	public long getHitCount() {
+
+		return hitCount;
+	}
+
+	/**
+	 * @return the fraction of traced {@link Ray}s that hit something
+	 */
+	public double getHitRate() {
+
+		return ( tracedRayCount == 0 ) ? 0d : (double) hitCount / (double) tracedRayCount;
+	}
+
+	/**
+	 * @return the average number of {@link Ray}s traced per second, including
+	 *         the time taken to sort them
+	 */
+	public double getRaysPerSecond() {
+
+		return ( traceNanos == 0 ) ? 0d : tracedRayCount * 1e9 / traceNanos;
+	}
+
+	/**
+	 * Reset this batch's running statistics.
+	 */
+	public void resetStatistics() {
+
+		tracedRayCount = 0;
+		hitCount = 0;
+		traceNanos = 0;
+	}
+
+}
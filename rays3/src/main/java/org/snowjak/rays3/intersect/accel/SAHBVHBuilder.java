@@ -0,0 +1,223 @@
+package org.snowjak.rays3.intersect.accel;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * Builds a {@link BoundingVolumeHierarchy} top-down using the
+ * <em>surface-area heuristic</em> (SAH): at each node, candidate split-planes
+ * are evaluated by binning the elements' centroids, and each candidate is
+ * scored by the expected cost of tracing a Ray through the two resulting
+ * children (which is proportional to each child's surface-area and
+ * element-count). If no split is cheaper than simply testing every element, a
+ * leaf is created.
+ * <p>
+ * This builder produces high-quality trees, but is comparatively slow to run.
+ * See {@link MortonBVHBuilder} for a faster alternative.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class SAHBVHBuilder implements BVHBuilder {
+
+	/**
+	 * The number of buckets into which element-centroids are binned when
+	 * evaluating candidate split-planes.
+	 */
+	private static final int SAH_BUCKETS = 16;
+
+	@Override
+	public BVHNode buildTree(double[] bounds, int[] order) {
+
+		if (order.length == 0)
+			return null;
+
+		return build(bounds, order, 0, order.length);
+	}
+
+	@Override
+	public String getConfiguration() {
+
+		return getClass().getName() + "[buckets=" + SAH_BUCKETS + ", maxLeafElements="
+				+ BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF + ", traversalCost="
+				+ BoundingVolumeHierarchy.TRAVERSAL_COST + "]";
+	}
+
+	/**
+	 * Recursively build the sub-tree covering the elements indexed by
+	 * <code>order[start .. end)</code>, re-ordering that range so that each
+	 * leaf's elements are contiguous.
+	 */
+	private static BVHNode build(double[] bounds, int[] order, int start, int end) {
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		final double[] centroidMin = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY };
+		final double[] centroidMax = new double[] { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+
+		for (int i = start; i < end; i++) {
+			final int b = order[i] * 6;
+			minX = FastMath.min(minX, bounds[b + 0]);
+			minY = FastMath.min(minY, bounds[b + 1]);
+			minZ = FastMath.min(minZ, bounds[b + 2]);
+			maxX = FastMath.max(maxX, bounds[b + 3]);
+			maxY = FastMath.max(maxY, bounds[b + 4]);
+			maxZ = FastMath.max(maxZ, bounds[b + 5]);
+
+			for (int axis = 0; axis < 3; axis++) {
+				final double centroid = centroid(bounds, order[i], axis);
+				centroidMin[axis] = FastMath.min(centroidMin[axis], centroid);
+				centroidMax[axis] = FastMath.max(centroidMax[axis], centroid);
+			}
+		}
+
+		final AABB nodeBounds = new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
+		final int count = end - start;
+
+		if (count == 1)
+			return new BVHNode(nodeBounds, start, count);
+
+		int axis = 0;
+		for (int a = 1; a < 3; a++)
+			if (centroidMax[a] - centroidMin[a] > centroidMax[axis] - centroidMin[axis])
+				axis = a;
+
+		final double extent = centroidMax[axis] - centroidMin[axis];
+		int mid;
+
+		if (extent <= 0d) {
+			//
+			// All centroids coincide -- there's no useful split-plane.
+			if (count <= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF)
+				return new BVHNode(nodeBounds, start, count);
+			mid = ( start + end ) / 2;
+
+		} else {
+
+			//
+			// Bin every element's centroid into one of SAH_BUCKETS buckets.
+			final int[] bucketCounts = new int[SAH_BUCKETS];
+			final double[] bucketBounds = new double[SAH_BUCKETS * 6];
+			for (int i = 0; i < SAH_BUCKETS; i++)
+				emptyBounds(bucketBounds, i);
+
+			for (int i = start; i < end; i++) {
+				final int bucket = bucket(centroid(bounds, order[i], axis), centroidMin[axis], extent);
+				bucketCounts[bucket]++;
+				unionBounds(bucketBounds, bucket, bounds, order[i]);
+			}
+
+			//
+			// Sweep from each side, accumulating the area and count of
+			// everything to the left (and right) of each candidate plane.
+			final double[] leftArea = new double[SAH_BUCKETS - 1], rightArea = new double[SAH_BUCKETS - 1];
+			final int[] leftCount = new int[SAH_BUCKETS - 1], rightCount = new int[SAH_BUCKETS - 1];
+			final double[] sweep = new double[6];
+
+			emptyBounds(sweep, 0);
+			int sweepCount = 0;
+			for (int i = 0; i < SAH_BUCKETS - 1; i++) {
+				unionBounds(sweep, 0, bucketBounds, i);
+				sweepCount += bucketCounts[i];
+				leftArea[i] = surfaceArea(sweep, 0);
+				leftCount[i] = sweepCount;
+			}
+
+			emptyBounds(sweep, 0);
+			sweepCount = 0;
+			for (int i = SAH_BUCKETS - 1; i > 0; i--) {
+				unionBounds(sweep, 0, bucketBounds, i);
+				sweepCount += bucketCounts[i];
+				rightArea[i - 1] = surfaceArea(sweep, 0);
+				rightCount[i - 1] = sweepCount;
+			}
+
+			//
+			// A degenerate node (with no surface-area, e.g. one whose elements
+			// all lie along a line) would give every split a cost of 0/0. Its
+			// splits are instead scored by how unevenly they divide its
+			// elements -- i.e., it is split as near to its median as the
+			// buckets allow.
+			final double nodeArea = nodeBounds.getSurfaceArea();
+			final boolean degenerate = !( nodeArea > 0d );
+			int bestSplit = -1;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < SAH_BUCKETS - 1; i++) {
+				if (leftCount[i] == 0 || rightCount[i] == 0)
+					continue;
+
+				final double cost = ( degenerate ) ? FastMath.abs(leftCount[i] - rightCount[i])
+						: BoundingVolumeHierarchy.TRAVERSAL_COST
+								+ ( leftCount[i] * leftArea[i] + rightCount[i] * rightArea[i] ) / nodeArea;
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestSplit = i;
+				}
+			}
+
+			if (bestSplit < 0 || ( count <= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF
+					&& ( degenerate || bestCost >= (double) count ) ))
+				return new BVHNode(nodeBounds, start, count);
+
+			//
+			// Partition the range so that every element in a bucket to the
+			// left of the chosen plane comes first.
+			int left = start, right = end - 1;
+			while (left <= right) {
+				if (bucket(centroid(bounds, order[left], axis), centroidMin[axis], extent) <= bestSplit)
+					left++;
+				else {
+					final int temp = order[left];
+					order[left] = order[right];
+					order[right] = temp;
+					right--;
+				}
+			}
+			mid = left;
+		}
+
+		final BVHNode leftChild = build(bounds, order, start, mid);
+		final BVHNode rightChild = build(bounds, order, mid, end);
+
+		return new BVHNode(nodeBounds, leftChild, rightChild, axis);
+	}
+
+	private static double centroid(double[] bounds, int element, int axis) {
+
+		return 0.5d * ( bounds[element * 6 + axis] + bounds[element * 6 + 3 + axis] );
+	}
+
+	private static int bucket(double centroid, double centroidMin, double extent) {
+
+		return FastMath.min((int) ( SAH_BUCKETS * ( ( centroid - centroidMin ) / extent ) ), SAH_BUCKETS - 1);
+	}
+
+	private static void emptyBounds(double[] bounds, int index) {
+
+		for (int axis = 0; axis < 3; axis++) {
+			bounds[index * 6 + axis] = Double.POSITIVE_INFINITY;
+			bounds[index * 6 + 3 + axis] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	private static void unionBounds(double[] into, int intoIndex, double[] from, int fromIndex) {
+
+		for (int axis = 0; axis < 3; axis++) {
+			into[intoIndex * 6 + axis] = FastMath.min(into[intoIndex * 6 + axis], from[fromIndex * 6 + axis]);
+			into[intoIndex * 6 + 3 + axis] = FastMath.max(into[intoIndex * 6 + 3 + axis],
+					from[fromIndex * 6 + 3 + axis]);
+		}
+	}
+
+	private static double surfaceArea(double[] bounds, int index) {
+
+		final double dx = bounds[index * 6 + 3] - bounds[index * 6 + 0],
+				dy = bounds[index * 6 + 4] - bounds[index * 6 + 1], dz = bounds[index * 6 + 5] - bounds[index * 6 + 2];
+
+		return 2d * ( dx * dy + dy * dz + dz * dx );
+	}
+
+}
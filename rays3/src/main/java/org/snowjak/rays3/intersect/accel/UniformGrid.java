@@ -0,0 +1,658 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+/**
+ * A UniformGrid divides the space enclosing its {@link Interactable}s into a
+ * regular lattice of equally-sized cells, each of which lists every
+ * Interactable overlapping it. A {@link Ray} is walked from cell to cell, in
+ * order, by a 3D digital differential analyzer (after Amanatides &amp; Woo) --
+ * so that a closest-hit query can stop at the first cell containing a hit.
+ * <p>
+ * For scenes of evenly-distributed, similarly-sized Interactables, a grid is
+ * both cheaper to build and faster to traverse than a
+ * {@link BoundingVolumeHierarchy}. For scenes of very uneven density, a grid
+ * may be built in <em>two-level</em> mode: a coarse top-level grid, any of
+ * whose crowded cells are subdivided by a grid of their own.
+ * </p>
+ * <p>
+ * The grid's resolution is chosen automatically, so that it has (roughly)
+ * <code>density</code> cells for every Interactable, as near to cubical as
+ * possible. Cell-contents are stored in a single flattened array (with each
+ * cell's contents given as an offset into that array), and each thread keeps
+ * its own "mailbox", so that an Interactable overlapping several cells is
+ * tested only once per Ray.
+ * </p>
+ * <p>
+ * To use a UniformGrid for a {@link World}, set its builder to (e.g.)
+ * <code>UniformGrid::new</code>. Interactables which report no bounding-box
+ * (see {@link Interactable#getBoundingBox()}) are kept aside, and are tested
+ * against every Ray.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class UniformGrid implements AccelerationStructure {
+
+	/**
+	 * By default, a grid will have about this many cells for every element.
+	 */
+	public static final double		DEFAULT_DENSITY		= 2d;
+
+	/**
+	 * A grid will never have more than this many cells along any one axis.
+	 */
+	public static final int			MAX_RESOLUTION		= 256;
+
+	/**
+	 * A grid will never have more than this many cells in total.
+	 */
+	public static final int			MAX_CELLS			= 1 << 22;
+
+	/**
+	 * In two-level mode, the top-level grid's density is reduced by this
+	 * factor.
+	 */
+	public static final double		TOP_LEVEL_DENSITY	= 1d / 8d;
+
+	/**
+	 * In two-level mode, any top-level cell which overlaps more than this many
+	 * elements is given a grid of its own.
+	 */
+	public static final int			SUBGRID_THRESHOLD	= 8;
+
+	private final Interactable[]	elements;
+	private final Interactable[]	unboundedElements;
+
+	private final double			minX, minY, minZ, maxX, maxY, maxZ;
+	private final int				resolutionX, resolutionY, resolutionZ;
+	private final double			cellSizeX, cellSizeY, cellSizeZ;
+
+	private final int[]				cellStart;
+	private final int[]				cellElements;
+	private final UniformGrid[]		subGrids;
+	private final int				subGridCount;
+
+	private final ThreadLocal<int[]>	mailboxes;
+
+	/**
+	 * Build a new single-level UniformGrid over the given {@link Interactable}s,
+	 * with the {@link #DEFAULT_DENSITY default density}.
+	 * 
+	 * @param elements
+	 */
+	public UniformGrid(Collection<? extends Interactable> elements) {
+		this(elements, DEFAULT_DENSITY, false);
+	}
+
+	/**
+	 * Build a new UniformGrid over the given {@link Interactable}s, with the
+	 * {@link #DEFAULT_DENSITY default density}.
+	 * 
+	 * @param elements
+	 * @param twoLevel
+	 */
+	public UniformGrid(Collection<? extends Interactable> elements, boolean twoLevel) {
+		this(elements, DEFAULT_DENSITY, twoLevel);
+	}
+
+	/**
+	 * Build a new UniformGrid over the given {@link Interactable}s. Each
+	 * Interactable's bounding-box is computed (and fixed) at this time -- if any
+	 * of these Interactables are subsequently transformed, this grid must be
+	 * re-built.
+	 * 
+	 * @param elements
+	 * @param density
+	 *            the desired number of cells per element
+	 * @param twoLevel
+	 *            <code>true</code> if crowded cells should be subdivided by
+	 *            grids of their own
+	 */
+	public UniformGrid(Collection<? extends Interactable> elements, double density, boolean twoLevel) {
+		this(new ElementSet(elements), density, twoLevel);
+	}
+
+	private UniformGrid(ElementSet elementSet, double density, boolean twoLevel) {
+
+		this.elements = elementSet.bounded;
+		this.unboundedElements = elementSet.unbounded;
+		this.mailboxes = ThreadLocal.withInitial(() -> new int[elements.length + 1]);
+
+		final double[] bounds = elementSet.bounds;
+		this.minX = bounds[0];
+		this.minY = bounds[1];
+		this.minZ = bounds[2];
+		this.maxX = bounds[3];
+		this.maxY = bounds[4];
+		this.maxZ = bounds[5];
+
+		final int[] resolution = getResolution(bounds, elements.length,
+				( twoLevel ) ? density * TOP_LEVEL_DENSITY : density);
+		this.resolutionX = resolution[0];
+		this.resolutionY = resolution[1];
+		this.resolutionZ = resolution[2];
+
+		this.cellSizeX = ( maxX - minX ) / resolutionX;
+		this.cellSizeY = ( maxY - minY ) / resolutionY;
+		this.cellSizeZ = ( maxZ - minZ ) / resolutionZ;
+
+		//
+		// Count how many elements overlap each cell, and so find where each
+		// cell's contents should begin in the flattened array ...
+		final int cellCount = resolutionX * resolutionY * resolutionZ;
+		final double[] boxes = elementSet.boxes;
+		final int[] ranges = new int[elements.length * 6];
+
+		this.cellStart = new int[cellCount + 1];
+		for (int e = 0; e < elements.length; e++) {
+			ranges[e * 6 + 0] = getCellX(boxes[e * 6 + 0]);
+			ranges[e * 6 + 1] = getCellY(boxes[e * 6 + 1]);
+			ranges[e * 6 + 2] = getCellZ(boxes[e * 6 + 2]);
+			ranges[e * 6 + 3] = getCellX(boxes[e * 6 + 3]);
+			ranges[e * 6 + 4] = getCellY(boxes[e * 6 + 4]);
+			ranges[e * 6 + 5] = getCellZ(boxes[e * 6 + 5]);
+
+			for (int z = ranges[e * 6 + 2]; z <= ranges[e * 6 + 5]; z++)
+				for (int y = ranges[e * 6 + 1]; y <= ranges[e * 6 + 4]; y++)
+					for (int x = ranges[e * 6 + 0]; x <= ranges[e * 6 + 3]; x++)
+						cellStart[getCell(x, y, z) + 1]++;
+		}
+
+		for (int cell = 0; cell < cellCount; cell++)
+			cellStart[cell + 1] += cellStart[cell];
+
+		//
+		// ... and then fill in each cell's contents.
+		this.cellElements = new int[cellStart[cellCount]];
+		final int[] cursor = Arrays.copyOf(cellStart, cellCount);
+		for (int e = 0; e < elements.length; e++)
+			for (int z = ranges[e * 6 + 2]; z <= ranges[e * 6 + 5]; z++)
+				for (int y = ranges[e * 6 + 1]; y <= ranges[e * 6 + 4]; y++)
+					for (int x = ranges[e * 6 + 0]; x <= ranges[e * 6 + 3]; x++)
+						cellElements[cursor[getCell(x, y, z)]++] = e;
+
+		//
+		// In two-level mode, give each crowded cell a grid of its own.
+		int subGridCount = 0;
+		if (twoLevel) {
+			this.subGrids = new UniformGrid[cellCount];
+			for (int cell = 0; cell < cellCount; cell++)
+				if (cellStart[cell + 1] - cellStart[cell] > SUBGRID_THRESHOLD) {
+					subGrids[cell] = new UniformGrid(new ElementSet(this, cell, boxes), density, false);
+					subGridCount++;
+				}
+		} else
+			this.subGrids = null;
+
+		this.subGridCount = subGridCount;
+	}
+
+	/**
+	 * Choose a grid-resolution for the given bounds, so that the grid has
+	 * (roughly) <code>density</code> cells for every element, as near to
+	 * cubical as possible.
+	 */
+	private static int[] getResolution(double[] bounds, int elementCount, double density) {
+
+		final double extentX = bounds[3] - bounds[0], extentY = bounds[4] - bounds[1],
+				extentZ = bounds[5] - bounds[2];
+		final double maxExtent = FastMath.max(extentX, FastMath.max(extentY, extentZ));
+
+		if (elementCount == 0 || !( maxExtent > 0d ) || Double.isInfinite(maxExtent))
+			return new int[] { 1, 1, 1 };
+
+		//
+		// Treat flat (or nearly-flat) grids as if they were a single cell
+		// thick.
+		final double minExtent = maxExtent / MAX_RESOLUTION;
+		final double volume = FastMath.max(extentX, minExtent) * FastMath.max(extentY, minExtent)
+				* FastMath.max(extentZ, minExtent);
+
+		double cellsPerUnit = FastMath.cbrt(density * elementCount / volume);
+		int[] resolution;
+		do {
+			resolution = new int[] { getResolution(extentX, cellsPerUnit), getResolution(extentY, cellsPerUnit),
+					getResolution(extentZ, cellsPerUnit) };
+			cellsPerUnit *= 0.9d;
+		} while ((long) resolution[0] * resolution[1] * resolution[2] > MAX_CELLS);
+
+		return resolution;
+	}
+
+	private static int getResolution(double extent, double cellsPerUnit) {
+
+		return (int) FastMath.max(1, FastMath.min(MAX_RESOLUTION, FastMath.round(extent * cellsPerUnit)));
+	}
+
+	private int getCellX(double x) {
+
+		return clamp((int) ( ( x - minX ) / cellSizeX ), resolutionX);
+	}
+
+	private int getCellY(double y) {
+
+		return clamp((int) ( ( y - minY ) / cellSizeY ), resolutionY);
+	}
+
+	private int getCellZ(double z) {
+
+		return clamp((int) ( ( z - minZ ) / cellSizeZ ), resolutionZ);
+	}
+
+	private static int clamp(int cell, int resolution) {
+
+		return ( cell < 0 ) ? 0 : ( cell >= resolution ) ? resolution - 1 : cell;
+	}
+
+	private int getCell(int x, int y, int z) {
+
+		return ( z * resolutionY + y ) * resolutionX + x;
+	}
+
+	/**
+	 * Begin a new Ray-query against this grid's mailbox.
+	 * 
+	 * @return the stamp identifying the current Ray in the given mailbox
+	 */
+	private int nextStamp(int[] mailbox) {
+
+		int stamp = ++mailbox[elements.length];
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(mailbox, 0);
+			stamp = mailbox[elements.length] = 1;
+		}
+
+		return stamp;
+	}
+
+	@Override
+	public Optional<Interaction> getClosestInteraction(Ray ray) {
+
+		Interaction closest = null;
+		double closestT = Double.POSITIVE_INFINITY;
+
+		for (Interactable element : unboundedElements) {
+			final Interaction interaction = getInteraction(element, ray, closestT);
+			if (interaction != null) {
+				closest = interaction;
+				closestT = interaction.getInteractingRay().getCurrT();
+			}
+		}
+
+		return Optional.ofNullable(getClosestInteraction(ray, closest));
+	}
+
+	/**
+	 * Walk the given {@link Ray} through this grid, looking for an
+	 * {@link Interaction} closer than <code>closest</code>.
+	 * 
+	 * @param ray
+	 * @param closest
+	 *            the closest Interaction found so far, or <code>null</code>
+	 * @return the closest Interaction found
+	 */
+	private Interaction getClosestInteraction(Ray ray, Interaction closest) {
+
+		if (elements.length == 0)
+			return closest;
+
+		double closestT = ( closest == null ) ? Double.POSITIVE_INFINITY : closest.getInteractingRay().getCurrT();
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double dirX = ray.getDirection().getX(), dirY = ray.getDirection().getY(),
+				dirZ = ray.getDirection().getZ();
+
+		final double tEnter = AABB.getEntryDistance(minX, minY, minZ, maxX, maxY, maxZ, originX, originY, originZ,
+				1d / dirX, 1d / dirY, 1d / dirZ, 0d, closestT);
+		if (Double.isNaN(tEnter))
+			return closest;
+
+		//
+		// Set up the DDA: for each axis, the cell we start in, the distance
+		// at which we cross into the next cell, and the distance between
+		// successive crossings.
+		int cellX = getCellX(originX + tEnter * dirX), cellY = getCellY(originY + tEnter * dirY),
+				cellZ = getCellZ(originZ + tEnter * dirZ);
+
+		final int stepX = ( dirX > 0d ) ? 1 : -1, stepY = ( dirY > 0d ) ? 1 : -1, stepZ = ( dirZ > 0d ) ? 1 : -1;
+		final int endX = ( dirX > 0d ) ? resolutionX : -1, endY = ( dirY > 0d ) ? resolutionY : -1,
+				endZ = ( dirZ > 0d ) ? resolutionZ : -1;
+
+		double nextX = getNextCrossing(originX, dirX, minX, cellSizeX, cellX),
+				nextY = getNextCrossing(originY, dirY, minY, cellSizeY, cellY),
+				nextZ = getNextCrossing(originZ, dirZ, minZ, cellSizeZ, cellZ);
+		final double deltaX = ( dirX == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeX / dirX),
+				deltaY = ( dirY == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeY / dirY),
+				deltaZ = ( dirZ == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeZ / dirZ);
+
+		final int[] mailbox = mailboxes.get();
+		final int stamp = nextStamp(mailbox);
+
+		while (true) {
+
+			final int cell = getCell(cellX, cellY, cellZ);
+			if (subGrids != null && subGrids[cell] != null) {
+
+				closest = subGrids[cell].getClosestInteraction(ray, closest);
+				if (closest != null)
+					closestT = closest.getInteractingRay().getCurrT();
+
+			} else {
+
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					final int e = cellElements[i];
+					if (mailbox[e] == stamp)
+						continue;
+					mailbox[e] = stamp;
+
+					final Interaction interaction = getInteraction(elements[e], ray, closestT);
+					if (interaction != null) {
+						closest = interaction;
+						closestT = interaction.getInteractingRay().getCurrT();
+					}
+				}
+
+			}
+
+			//
+			// Any Interaction we haven't found yet must lie beyond the next
+			// cell-boundary -- so if we've already found one closer than that,
+			// we're done.
+			if (nextX < nextY && nextX < nextZ) {
+				if (closestT <= nextX)
+					break;
+				cellX += stepX;
+				if (cellX == endX)
+					break;
+				nextX += deltaX;
+			} else if (nextY < nextZ) {
+				if (closestT <= nextY)
+					break;
+				cellY += stepY;
+				if (cellY == endY)
+					break;
+				nextY += deltaY;
+			} else {
+				if (closestT <= nextZ || nextZ == Double.POSITIVE_INFINITY)
+					break;
+				cellZ += stepZ;
+				if (cellZ == endZ)
+					break;
+				nextZ += deltaZ;
+			}
+		}
+
+		return closest;
+	}
+
+	@Override
+	public boolean isOccluded(Ray ray) {
+
+		for (Interactable element : unboundedElements)
+			if (element.isOccluding(ray))
+				return true;
+
+		if (elements.length == 0)
+			return false;
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double dirX = ray.getDirection().getX(), dirY = ray.getDirection().getY(),
+				dirZ = ray.getDirection().getZ();
+		final double maxT = ray.getMaxT();
+
+		final double tEnter = AABB.getEntryDistance(minX, minY, minZ, maxX, maxY, maxZ, originX, originY, originZ,
+				1d / dirX, 1d / dirY, 1d / dirZ, ray.getMinT(), maxT);
+		if (Double.isNaN(tEnter))
+			return false;
+
+		int cellX = getCellX(originX + tEnter * dirX), cellY = getCellY(originY + tEnter * dirY),
+				cellZ = getCellZ(originZ + tEnter * dirZ);
+
+		final int stepX = ( dirX > 0d ) ? 1 : -1, stepY = ( dirY > 0d ) ? 1 : -1, stepZ = ( dirZ > 0d ) ? 1 : -1;
+		final int endX = ( dirX > 0d ) ? resolutionX : -1, endY = ( dirY > 0d ) ? resolutionY : -1,
+				endZ = ( dirZ > 0d ) ? resolutionZ : -1;
+
+		double nextX = getNextCrossing(originX, dirX, minX, cellSizeX, cellX),
+				nextY = getNextCrossing(originY, dirY, minY, cellSizeY, cellY),
+				nextZ = getNextCrossing(originZ, dirZ, minZ, cellSizeZ, cellZ);
+		final double deltaX = ( dirX == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeX / dirX),
+				deltaY = ( dirY == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeY / dirY),
+				deltaZ = ( dirZ == 0d ) ? Double.POSITIVE_INFINITY : FastMath.abs(cellSizeZ / dirZ);
+
+		final int[] mailbox = mailboxes.get();
+		final int stamp = nextStamp(mailbox);
+
+		while (true) {
+
+			final int cell = getCell(cellX, cellY, cellZ);
+			if (subGrids != null && subGrids[cell] != null) {
+
+				if (subGrids[cell].isOccluded(ray))
+					return true;
+
+			} else {
+
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					final int e = cellElements[i];
+					if (mailbox[e] == stamp)
+						continue;
+					mailbox[e] = stamp;
+
+					if (elements[e].isOccluding(ray))
+						return true;
+				}
+
+			}
+
+			if (nextX < nextY && nextX < nextZ) {
+				if (nextX > maxT)
+					break;
+				cellX += stepX;
+				if (cellX == endX)
+					break;
+				nextX += deltaX;
+			} else if (nextY < nextZ) {
+				if (nextY > maxT)
+					break;
+				cellY += stepY;
+				if (cellY == endY)
+					break;
+				nextY += deltaY;
+			} else {
+				if (nextZ > maxT)
+					break;
+				cellZ += stepZ;
+				if (cellZ == endZ)
+					break;
+				nextZ += deltaZ;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return the distance along the Ray at which it will cross from the given
+	 *         cell into the next, along a single axis
+	 */
+	private static double getNextCrossing(double origin, double direction, double gridMin, double cellSize,
+			int cell) {
+
+		if (direction > 0d)
+			return ( gridMin + ( cell + 1 ) * cellSize - origin ) / direction;
+		if (direction < 0d)
+			return ( gridMin + cell * cellSize - origin ) / direction;
+
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Compute the {@link Interaction} between the given element and
+	 * {@link Ray}, if it lies in front of the Ray and closer than
+	 * <code>closestT</code>; otherwise, return <code>null</code>.
+	 */
+	private static Interaction getInteraction(Interactable element, Ray ray, double closestT) {
+
+		if (!element.isInteracting(ray))
+			return null;
+
+		final Interaction interaction = element.getIntersection(ray);
+		if (interaction == null)
+			return null;
+
+		final double t = interaction.getInteractingRay().getCurrT();
+		if (t > 0d && t < closestT)
+			return interaction;
+
+		return null;
+	}
+
+	@Override
+	public int getElementCount() {
+
+		return elements.length + unboundedElements.length;
+	}
+
+	/**
+	 * @param axis
+	 *            <code>0</code>, <code>1</code>, or <code>2</code>, for the X-,
+	 *            Y-, or Z-axis respectively
+	 * @return the number of cells along the given axis of this grid
+	 */
+	public int getResolution(int axis) {
+
+		return ( axis == 0 ) ? resolutionX : ( axis == 1 ) ? resolutionY : resolutionZ;
+	}
+
+	/**
+	 * @return the total number of cells in this grid (not counting the cells
+	 *         of any sub-grids)
+	 */
+	public int getCellCount() {
+
+		return resolutionX * resolutionY * resolutionZ;
+	}
+
+	/**
+	 * @return the number of this grid's cells which have been subdivided by
+	 *         grids of their own
+	 */
+	public int getSubGridCount() {
+
+		return subGridCount;
+	}
+
+	/**
+	 * @return those elements which could not be placed in this grid because
+	 *         they are unbounded
+	 */
+	public Interactable[] getUnboundedElements() {
+
+		return unboundedElements;
+	}
+
+	/**
+	 * The bounded and unbounded elements of a grid, along with the bounds of
+	 * each bounded element and the bounds of the grid as a whole.
+	 */
+	private static class ElementSet {
+
+		private final Interactable[]	bounded, unbounded;
+		private final double[]			boxes;
+		private final double[]			bounds;
+
+		public ElementSet(Collection<? extends Interactable> elements) {
+
+			final List<Interactable> bounded = new ArrayList<>(elements.size());
+			final List<Interactable> unbounded = new ArrayList<>();
+			final List<AABB> boxes = new ArrayList<>(elements.size());
+
+			for (Interactable element : elements) {
+				final AABB box = element.getBoundingBox();
+				if (box == null)
+					unbounded.add(element);
+				else {
+					bounded.add(element);
+					boxes.add(box);
+				}
+			}
+
+			this.bounded = bounded.toArray(new Interactable[bounded.size()]);
+			this.unbounded = unbounded.toArray(new Interactable[unbounded.size()]);
+			this.boxes = new double[this.bounded.length * 6];
+			for (int i = 0; i < this.bounded.length; i++) {
+				final AABB box = boxes.get(i);
+				this.boxes[i * 6 + 0] = box.getMinExtent().getX();
+				this.boxes[i * 6 + 1] = box.getMinExtent().getY();
+				this.boxes[i * 6 + 2] = box.getMinExtent().getZ();
+				this.boxes[i * 6 + 3] = box.getMaxExtent().getX();
+				this.boxes[i * 6 + 4] = box.getMaxExtent().getY();
+				this.boxes[i * 6 + 5] = box.getMaxExtent().getZ();
+			}
+
+			this.bounds = getUnion(this.boxes, this.bounded.length);
+		}
+
+		/**
+		 * Collect the elements overlapping the given cell of the given grid.
+		 * The resulting bounds are clipped to that cell -- those parts of
+		 * these elements which lie outside of it are taken care of by other
+		 * cells.
+		 */
+		public ElementSet(UniformGrid grid, int cell, double[] gridBoxes) {
+
+			final int count = grid.cellStart[cell + 1] - grid.cellStart[cell];
+			this.bounded = new Interactable[count];
+			this.unbounded = new Interactable[0];
+			this.boxes = new double[count * 6];
+			for (int i = 0; i < count; i++) {
+				final int e = grid.cellElements[grid.cellStart[cell] + i];
+				this.bounded[i] = grid.elements[e];
+				System.arraycopy(gridBoxes, e * 6, this.boxes, i * 6, 6);
+			}
+
+			final int x = cell % grid.resolutionX, y = ( cell / grid.resolutionX ) % grid.resolutionY,
+					z = cell / ( grid.resolutionX * grid.resolutionY );
+
+			this.bounds = getUnion(this.boxes, count);
+			bounds[0] = FastMath.max(bounds[0], grid.minX + x * grid.cellSizeX);
+			bounds[1] = FastMath.max(bounds[1], grid.minY + y * grid.cellSizeY);
+			bounds[2] = FastMath.max(bounds[2], grid.minZ + z * grid.cellSizeZ);
+			bounds[3] = FastMath.min(bounds[3], grid.minX + ( x + 1 ) * grid.cellSizeX);
+			bounds[4] = FastMath.min(bounds[4], grid.minY + ( y + 1 ) * grid.cellSizeY);
+			bounds[5] = FastMath.min(bounds[5], grid.minZ + ( z + 1 ) * grid.cellSizeZ);
+		}
+
+		private static double[] getUnion(double[] boxes, int count) {
+
+			if (count == 0)
+				return new double[6];
+
+			final double[] union = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.NEGATIVE_INFINITY };
+			for (int i = 0; i < count; i++)
+				for (int axis = 0; axis < 3; axis++) {
+					union[axis] = FastMath.min(union[axis], boxes[i * 6 + axis]);
+					union[axis + 3] = FastMath.max(union[axis + 3], boxes[i * 6 + axis + 3]);
+				}
+
+			return union;
+		}
+	}
+
+}
@@ -0,0 +1,465 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interactable;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.bound.IntersectionKernels;
+
+/**
+ * A Wide Bounding-Volume Hierarchy is a bounding-volume hierarchy whose nodes
+ * have up to <code>width</code> (usually 4 or 8) children, rather than just 2
+ * (as in a {@link BoundingVolumeHierarchy}). It is built by
+ * <em>collapsing</em> an ordinary (binary) hierarchy: each wide node takes the
+ * place of a binary node, and (repeatedly) replaces whichever of its children
+ * has the largest surface-area with that child's own two children, until it
+ * has <code>width</code> children (or only leaves).
+ * <p>
+ * A wide hierarchy is only a half (or a third) as deep as its binary
+ * counterpart, and so a {@link Ray} makes fewer, larger steps through it. At
+ * each step, all the bounds of a node's children are tested together (see
+ * {@link IntersectionKernels#intersectBoxes(double[], int, int, double, double, double, double, double, double, double, double, double[])
+ * IntersectionKernels.intersectBoxes()}), and so are stored together as a
+ * structure-of-arrays: each node holds <code>6 * width</code> consecutive
+ * values -- all its children's minimum-X values, then all their minimum-Y
+ * values, and so on.
+ * </p>
+ * <p>
+ * Each child is described by 2 consecutive <code>int</code>s. For a leaf,
+ * these are the index of its first element and its (positive) element-count.
+ * For an interior node, these are its index and <code>0</code>. A node's
+ * children are always stored after it.
+ * </p>
+ * <p>
+ * Closest-hit queries visit each node's children in order of the distance at
+ * which the {@link Ray} enters them, and skip any child that lies beyond the
+ * closest intersection found so far.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that, as measured by
+ * <code>WideBoundingVolumeHierarchyBenchmark</code>, a wide hierarchy is not
+ * (yet) any faster than its binary counterpart: closest-hit queries are slower
+ * in scenes of 10<sup>5</sup> or more primitives, and shadow-Rays are 15-45%
+ * slower at every scene-size. A {@link World} therefore never uses one by
+ * default. To use a WideBoundingVolumeHierarchy anyway, set the World's
+ * builder to (e.g.) <code>WideBoundingVolumeHierarchy::new</code>.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class WideBoundingVolumeHierarchy implements AccelerationStructure {
+
+	/**
+	 * By default, each node has up to this many children.
+	 */
+	public static final int					DEFAULT_WIDTH	= 4;
+
+	private final Interactable[]			elements;
+	private final Interactable[]			unboundedElements;
+
+	private final int						width;
+	private final int						nodeCount, depth;
+	private final double[]					childBounds;
+	private final int[]						childInfo;
+	private final int[]						childCounts;
+
+	private final ThreadLocal<Traversal>	traversal;
+
+	/**
+	 * Build a new WideBoundingVolumeHierarchy, of the {@link #DEFAULT_WIDTH
+	 * default width}, over the given {@link Interactable}s, using the
+	 * {@link SAHBVHBuilder}.
+	 * 
+	 * @param elements
+	 */
+	public WideBoundingVolumeHierarchy(Collection<? extends Interactable> elements) {
+		this(elements, new SAHBVHBuilder(), DEFAULT_WIDTH);
+	}
+
+	/**
+	 * Build a new WideBoundingVolumeHierarchy over the given
+	 * {@link Interactable}s, by building an ordinary
+	 * {@link BoundingVolumeHierarchy} with the given {@link BVHBuilder} and
+	 * then collapsing it.
+	 * 
+	 * @param elements
+	 * @param builder
+	 * @param width
+	 * @see #WideBoundingVolumeHierarchy(BoundingVolumeHierarchy, int)
+	 */
+	public WideBoundingVolumeHierarchy(Collection<? extends Interactable> elements, BVHBuilder builder, int width) {
+		this(new BoundingVolumeHierarchy(elements, builder), width);
+	}
+
+	/**
+	 * Collapse the given (binary) {@link BoundingVolumeHierarchy} into a new
+	 * WideBoundingVolumeHierarchy. The new hierarchy shares the given
+	 * hierarchy's elements (and their bounds, as they were when it was built
+	 * or last refitted).
+	 * 
+	 * @param hierarchy
+	 * @param width
+	 *            between <code>2</code> and
+	 *            {@link IntersectionKernels#MAX_LANES}
+	 * @throws IllegalArgumentException
+	 *             if <code>width</code> is out of range
+	 */
+	public WideBoundingVolumeHierarchy(BoundingVolumeHierarchy hierarchy, int width) {
+		if (width < 2 || width > IntersectionKernels.MAX_LANES)
+			throw new IllegalArgumentException(
+					"Nodes must have between 2 and " + IntersectionKernels.MAX_LANES + " children!");
+
+		this.width = width;
+		this.elements = hierarchy.getElements();
+		this.unboundedElements = hierarchy.getUnboundedElements();
+
+		if (hierarchy.getNodeCount() == 0) {
+			this.nodeCount = 0;
+			this.depth = 0;
+		} else {
+			this.nodeCount = getNodeCount(hierarchy, 0);
+			this.depth = getDepth(hierarchy, 0);
+		}
+
+		this.childBounds = new double[nodeCount * 6 * width];
+		this.childInfo = new int[nodeCount * width * 2];
+		this.childCounts = new int[nodeCount];
+		if (nodeCount > 0)
+			collapse(hierarchy, 0, 0, 1);
+
+		//
+		// Every node pushes (at most) all its children onto the stack, having
+		// first been popped off it itself.
+		final int stackSize = FastMath.max(depth, 1) * ( width - 1 ) + 1;
+		this.traversal = ThreadLocal.withInitial(() -> new Traversal(stackSize, width));
+	}
+
+	/**
+	 * Gather (into <code>children</code>) the binary nodes which are to become
+	 * the children of the wide node taking the place of the given binary node.
+	 * 
+	 * @return the number of children gathered
+	 */
+	private int gatherChildren(BoundingVolumeHierarchy hierarchy, int binaryNode, int[] children) {
+
+		final int[] binaryInfo = hierarchy.getNodeInfo();
+
+		//
+		// A binary hierarchy consisting of a single leaf becomes a wide node
+		// with a single leaf-child.
+		if (binaryInfo[binaryNode * 2 + 1] > 0) {
+			children[0] = binaryNode;
+			return 1;
+		}
+
+		children[0] = binaryNode + 1;
+		children[1] = binaryInfo[binaryNode * 2];
+		int count = 2;
+
+		while (count < width) {
+
+			int largest = -1;
+			double largestArea = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < count; i++)
+				if (binaryInfo[children[i] * 2 + 1] <= 0) {
+					final double area = hierarchy.getNodeSurfaceArea(children[i]);
+					if (area > largestArea) {
+						largest = i;
+						largestArea = area;
+					}
+				}
+
+			if (largest < 0)
+				break;
+
+			final int opened = children[largest];
+			children[largest] = opened + 1;
+			children[count++] = binaryInfo[opened * 2];
+		}
+
+		return count;
+	}
+
+	private int getNodeCount(BoundingVolumeHierarchy hierarchy, int binaryNode) {
+
+		final int[] children = new int[width];
+		final int count = gatherChildren(hierarchy, binaryNode, children);
+
+		int nodes = 1;
+		for (int i = 0; i < count; i++)
+			if (hierarchy.getNodeInfo()[children[i] * 2 + 1] <= 0)
+				nodes += getNodeCount(hierarchy, children[i]);
+
+		return nodes;
+	}
+
+	private int getDepth(BoundingVolumeHierarchy hierarchy, int binaryNode) {
+
+		final int[] children = new int[width];
+		final int count = gatherChildren(hierarchy, binaryNode, children);
+
+		int depth = 0;
+		for (int i = 0; i < count; i++)
+			if (hierarchy.getNodeInfo()[children[i] * 2 + 1] <= 0)
+				depth = FastMath.max(depth, getDepth(hierarchy, children[i]));
+
+		return 1 + depth;
+	}
+
+	/**
+	 * Write the wide node taking the place of the given binary node (and all
+	 * its descendants) into the flattened arrays, at the given index.
+	 * 
+	 * @return the next free index following this node's sub-tree
+	 */
+	private int collapse(BoundingVolumeHierarchy hierarchy, int binaryNode, int node, int nextNode) {
+
+		final int[] binaryInfo = hierarchy.getNodeInfo();
+		final int[] children = new int[width];
+		final int count = gatherChildren(hierarchy, binaryNode, children);
+
+		childCounts[node] = count;
+
+		//
+		// Unused lanes are given empty bounds -- though any hits on them are
+		// masked off anyway.
+		for (int bound = 0; bound < 6; bound++)
+			for (int lane = 0; lane < width; lane++)
+				childBounds[( node * 6 + bound ) * width + lane] = ( lane < count )
+						? hierarchy.getNodeBound(children[lane], bound)
+						: ( bound < 3 ) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+
+		for (int lane = 0; lane < count; lane++) {
+
+			final int child = children[lane], slot = node * width + lane;
+			final int info = binaryInfo[child * 2 + 1];
+
+			if (info > 0) {
+				childInfo[slot * 2 + 0] = binaryInfo[child * 2];
+				childInfo[slot * 2 + 1] = info;
+			} else {
+				childInfo[slot * 2 + 0] = nextNode;
+				childInfo[slot * 2 + 1] = 0;
+				nextNode = collapse(hierarchy, child, nextNode, nextNode + 1);
+			}
+		}
+
+		return nextNode;
+	}
+
+	/**
+	 * Test the given {@link Ray} against all of the given node's children.
+	 * 
+	 * @return a bit-mask of those children which the Ray hits
+	 */
+	private int intersectChildren(int node, double originX, double originY, double originZ, double invDirX,
+			double invDirY, double invDirZ, double minT, double maxT, double[] entryDistances) {
+
+		final int hits = IntersectionKernels.intersectBoxes(childBounds, node * 6 * width, width, originX, originY,
+				originZ, invDirX, invDirY, invDirZ, minT, maxT, entryDistances);
+
+		return hits & ( -1 >>> ( Integer.SIZE - childCounts[node] ) );
+	}
+
+	@Override
+	public Optional<Interaction> getClosestInteraction(Ray ray) {
+
+		Interaction closest = null;
+		double closestT = Double.POSITIVE_INFINITY;
+
+		for (Interactable element : unboundedElements) {
+			final Interaction interaction = BoundingVolumeHierarchy.getInteraction(element, ray, closestT);
+			if (interaction != null) {
+				closest = interaction;
+				closestT = interaction.getInteractingRay().getCurrT();
+			}
+		}
+
+		if (nodeCount == 0)
+			return Optional.ofNullable(closest);
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double invDirX = 1d / ray.getDirection().getX(), invDirY = 1d / ray.getDirection().getY(),
+				invDirZ = 1d / ray.getDirection().getZ();
+
+		//
+		// Each stack-entry holds a node (or, for a leaf, -1 - its child-slot),
+		// and the distance at which the Ray enters it. The children of each
+		// node are pushed farthest-first, so that the nearest is always
+		// visited next.
+		final Traversal traversal = this.traversal.get();
+		final int[] stack = traversal.stack, lanes = traversal.lanes;
+		final double[] stackDistances = traversal.stackDistances, entryDistances = traversal.entryDistances;
+
+		int stackSize = 0;
+		stack[stackSize] = 0;
+		stackDistances[stackSize++] = 0d;
+
+		while (stackSize > 0) {
+
+			stackSize--;
+			if (stackDistances[stackSize] > closestT)
+				continue;
+
+			final int entry = stack[stackSize];
+			if (entry < 0) {
+
+				final int slot = -1 - entry;
+				final int firstElement = childInfo[slot * 2], elementCount = childInfo[slot * 2 + 1];
+				for (int i = firstElement; i < firstElement + elementCount; i++) {
+					final Interaction interaction = BoundingVolumeHierarchy.getInteraction(elements[i], ray,
+							closestT);
+					if (interaction != null) {
+						closest = interaction;
+						closestT = interaction.getInteractingRay().getCurrT();
+					}
+				}
+				continue;
+
+			}
+
+			int hits = intersectChildren(entry, originX, originY, originZ, invDirX, invDirY, invDirZ, 0d, closestT,
+					entryDistances);
+
+			//
+			// Insertion-sort the children we hit, farthest first.
+			int hitCount = 0;
+			for (; hits != 0; hits &= hits - 1) {
+				final int lane = Integer.numberOfTrailingZeros(hits);
+				int i = hitCount++;
+				while (i > 0 && entryDistances[lanes[i - 1]] < entryDistances[lane]) {
+					lanes[i] = lanes[i - 1];
+					i--;
+				}
+				lanes[i] = lane;
+			}
+
+			for (int i = 0; i < hitCount; i++) {
+				final int slot = entry * width + lanes[i];
+				stack[stackSize] = ( childInfo[slot * 2 + 1] > 0 ) ? -1 - slot : childInfo[slot * 2];
+				stackDistances[stackSize++] = entryDistances[lanes[i]];
+			}
+		}
+
+		return Optional.ofNullable(closest);
+	}
+
+	@Override
+	public boolean isOccluded(Ray ray) {
+
+		for (Interactable element : unboundedElements)
+			if (element.isOccluding(ray))
+				return true;
+
+		if (nodeCount == 0)
+			return false;
+
+		final double originX = ray.getOrigin().getX(), originY = ray.getOrigin().getY(),
+				originZ = ray.getOrigin().getZ();
+		final double invDirX = 1d / ray.getDirection().getX(), invDirY = 1d / ray.getDirection().getY(),
+				invDirZ = 1d / ray.getDirection().getZ();
+		final double minT = ray.getMinT(), maxT = ray.getMaxT();
+
+		//
+		// Any blocker will do, so there's no need to order the traversal --
+		// and leaves can be tested as soon as they're found.
+		final Traversal traversal = this.traversal.get();
+		final int[] stack = traversal.stack;
+		final double[] entryDistances = traversal.entryDistances;
+
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+
+		while (stackSize > 0) {
+
+			final int node = stack[--stackSize];
+			int hits = intersectChildren(node, originX, originY, originZ, invDirX, invDirY, invDirZ, minT, maxT,
+					entryDistances);
+
+			for (; hits != 0; hits &= hits - 1) {
+				final int slot = node * width + Integer.numberOfTrailingZeros(hits);
+				final int elementCount = childInfo[slot * 2 + 1];
+
+				if (elementCount > 0) {
+					final int firstElement = childInfo[slot * 2];
+					for (int i = firstElement; i < firstElement + elementCount; i++)
+						if (elements[i].isOccluding(ray))
+							return true;
+				} else
+					stack[stackSize++] = childInfo[slot * 2];
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public int getElementCount() {
+
+		return elements.length + unboundedElements.length;
+	}
+
+	/**
+	 * @return the maximum number of children per node
+	 */
+	public int getWidth() {
+
+		return width;
+	}
+
+	/**
+	 * @return the number of (interior) nodes in this hierarchy
+	 */
+	public int getNodeCount() {
+
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of levels of (interior) nodes in this hierarchy
+	 */
+	public int getDepth() {
+
+		return depth;
+	}
+
+	/**
+	 * @return the average number of children per node -- i.e., how well this
+	 *         hierarchy's nodes fill their {@link #getWidth() width}
+	 */
+	public double getAverageChildCount() {
+
+		if (nodeCount == 0)
+			return 0d;
+
+		long children = 0;
+		for (int node = 0; node < nodeCount; node++)
+			children += childCounts[node];
+
+		return (double) children / nodeCount;
+	}
+
+	/**
+	 * Per-thread scratch-space for traversing the hierarchy.
+	 */
+	private static class Traversal {
+
+		final int[]		stack;
+		final double[]	stackDistances;
+		final double[]	entryDistances;
+		final int[]		lanes;
+
+		Traversal(int stackSize, int width) {
+			this.stack = new int[stackSize];
+			this.stackDistances = new double[stackSize];
+			this.entryDistances = new double[width];
+			this.lanes = new int[width];
+		}
+	}
+
+}
@@ -2,13 +2,13 @@ package org.snowjak.rays3.intersect.bound;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.apache.commons.math3.util.FastMath;
+import org.snowjak.rays3.geometry.Matrix;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.transform.CompositeTransform;
 import org.snowjak.rays3.transform.Transform;
 
 /**
@@ -17,12 +17,24 @@ import org.snowjak.rays3.transform.Transform;
  * rejection of Shapes when performing Ray-intersection testing. Unlike a
  * more-general "bounding box", an AABB is always axis-aligned (i.e., it can be
  * represented by only 2 points in global coordinates).
+ * <p>
+ * Where many boxes must be handled at once, they may instead be "packed" into
+ * a <code>double[]</code>, 6 values per box (<code>{ minX, minY, minZ, maxX,
+ * maxY, maxZ }</code>), and transformed or combined in place with the static
+ * methods here -- without allocating an AABB (or any Points) for each one.
+ * </p>
  * 
  * @author snowjak88
  */
 public class AABB {
 
-	private Point minExtent, maxExtent;
+	/**
+	 * Multiplier applied to far slab-distances, to guard against missed
+	 * intersections due to floating-point round-off.
+	 */
+	static final double			SLAB_PADDING	= 1d + 1e-9;
+
+	private Point				minExtent, maxExtent;
 
 	/**
 	 * Given an existing AABB (assumed to be given in object-local coordinates),
@@ -32,9 +44,30 @@ public class AABB {
 	 * 
 	 * @param copyOf
 	 * @param localToWorld
+	 * @see #AABB(AABB, Matrix)
 	 */
 	public AABB(AABB copyOf, List<Transform> localToWorld) {
-		this(copyOf.getCorners(), localToWorld);
+		this(copyOf, compose(localToWorld));
+	}
+
+	/**
+	 * Given an existing AABB (assumed to be given in object-local coordinates),
+	 * and a local-to-world {@link Matrix} (e.g., as composed by a
+	 * {@link CompositeTransform}), compute the corresponding AABB in global
+	 * coordinates.
+	 * 
+	 * @param copyOf
+	 * @param localToWorld
+	 * @see #transform(double[], int, Matrix, double[], int)
+	 */
+	public AABB(AABB copyOf, Matrix localToWorld) {
+
+		final double[] bounds = new double[6];
+		copyOf.copyInto(bounds, 0);
+		transform(bounds, 0, localToWorld, bounds, 0);
+
+		this.minExtent = new Point(bounds[0], bounds[1], bounds[2]);
+		this.maxExtent = new Point(bounds[3], bounds[4], bounds[5]);
 	}
 
 	/**
@@ -48,11 +81,17 @@ public class AABB {
 	 */
 	public AABB(Collection<Point> localPoints, List<Transform> localToWorld) {
 
-		this(localPoints.stream().map(p -> {
-			for (Transform t : localToWorld)
-				p = t.localToWorld(p);
-			return p;
-		}).collect(Collectors.toCollection(LinkedList::new)));
+		final Matrix matrix = compose(localToWorld);
+		final double[] bounds = new double[6], point = new double[3];
+		setEmpty(bounds, 0);
+
+		for (Point p : localPoints) {
+			matrix.multiplyPoint(p.getX(), p.getY(), p.getZ(), point, 0);
+			union(bounds, 0, point[0], point[1], point[2], point[0], point[1], point[2]);
+		}
+
+		this.minExtent = new Point(bounds[0], bounds[1], bounds[2]);
+		this.maxExtent = new Point(bounds[3], bounds[4], bounds[5]);
 	}
 
 	/**
@@ -91,6 +130,19 @@ public class AABB {
 		this.maxExtent = maxExtent;
 	}
 
+	/**
+	 * Compose the given list of local-to-world {@link Transform}s into a single
+	 * local-to-world {@link Matrix}.
+	 */
+	private static Matrix compose(List<Transform> localToWorld) {
+
+		Matrix composed = Matrix.IDENTITY;
+		for (Transform t : localToWorld)
+			composed = t.getLocalToWorld().multiply(composed);
+
+		return composed;
+	}
+
 	/**
 	 * Given a set of {@link AABB}s, compute the AABB that encompasses them all.
 	 * 
@@ -99,10 +151,157 @@ public class AABB {
 	 */
 	public static AABB union(Collection<AABB> boundingBoxes) {
 
-		return new AABB(boundingBoxes.stream().collect(LinkedList::new, (l, aabb) -> {
-			l.add(aabb.minExtent);
-			l.add(aabb.maxExtent);
-		}, LinkedList::addAll));
+		final double[] bounds = new double[6];
+		setEmpty(bounds, 0);
+		for (AABB box : boundingBoxes)
+			box.unionInto(bounds, 0);
+
+		return new AABB(new Point(bounds[0], bounds[1], bounds[2]), new Point(bounds[3], bounds[4], bounds[5]));
+	}
+
+	/**
+	 * Transform the packed box at <code>bounds[offset]</code> by the given
+	 * {@link Matrix}, writing the smallest packed box that encloses the result
+	 * into <code>result[resultOffset]</code> (which may overlap the original).
+	 * <p>
+	 * For an affine Matrix, this is computed in closed form (after Arvo,
+	 * <em>Transforming Axis-Aligned Bounding Boxes</em>): each of the new box's
+	 * extents is the Matrix's translation plus, for each of the original axes,
+	 * the smaller (or larger) of that axis's two extents scaled by the
+	 * corresponding Matrix element. This gives exactly the box around the 8
+	 * transformed corners, but without having to transform each of them.
+	 * Otherwise, the 8 corners are transformed after all.
+	 * </p>
+	 * 
+	 * @param bounds
+	 * @param offset
+	 * @param matrix
+	 * @param result
+	 * @param resultOffset
+	 */
+	public static void transform(double[] bounds, int offset, Matrix matrix, double[] result, int resultOffset) {
+
+		final double minX = bounds[offset + 0], minY = bounds[offset + 1], minZ = bounds[offset + 2],
+				maxX = bounds[offset + 3], maxY = bounds[offset + 4], maxZ = bounds[offset + 5];
+
+		if (!matrix.isAffine()) {
+			final double[] corners = new double[8 * 3];
+			for (int corner = 0; corner < 8; corner++)
+				matrix.multiplyPoint(( ( corner & 1 ) == 0 ) ? minX : maxX, ( ( corner & 2 ) == 0 ) ? minY : maxY,
+						( ( corner & 4 ) == 0 ) ? minZ : maxZ, corners, corner * 3);
+
+			setEmpty(result, resultOffset);
+			for (int corner = 0; corner < 8; corner++) {
+				final int c = corner * 3;
+				union(result, resultOffset, corners[c], corners[c + 1], corners[c + 2], corners[c], corners[c + 1],
+						corners[c + 2]);
+			}
+			return;
+		}
+
+		for (int row = 0; row < 3; row++) {
+
+			double min = matrix.get(row, 3), max = min;
+
+			double a = matrix.get(row, 0) * minX, b = matrix.get(row, 0) * maxX;
+			min += FastMath.min(a, b);
+			max += FastMath.max(a, b);
+
+			a = matrix.get(row, 1) * minY;
+			b = matrix.get(row, 1) * maxY;
+			min += FastMath.min(a, b);
+			max += FastMath.max(a, b);
+
+			a = matrix.get(row, 2) * minZ;
+			b = matrix.get(row, 2) * maxZ;
+			min += FastMath.min(a, b);
+			max += FastMath.max(a, b);
+
+			result[resultOffset + row] = min;
+			result[resultOffset + 3 + row] = max;
+		}
+	}
+
+	/**
+	 * Set the packed box at <code>bounds[offset]</code> to the "empty" box
+	 * (with infinite minimum- and negative-infinite maximum-extents), which
+	 * encloses nothing and is the starting-point for a
+	 * {@link #union(double[], int, double, double, double, double, double, double)
+	 * union}.
+	 * 
+	 * @param bounds
+	 * @param offset
+	 */
+	public static void setEmpty(double[] bounds, int offset) {
+
+		bounds[offset + 0] = Double.POSITIVE_INFINITY;
+		bounds[offset + 1] = Double.POSITIVE_INFINITY;
+		bounds[offset + 2] = Double.POSITIVE_INFINITY;
+		bounds[offset + 3] = Double.NEGATIVE_INFINITY;
+		bounds[offset + 4] = Double.NEGATIVE_INFINITY;
+		bounds[offset + 5] = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Expand the packed box at <code>bounds[offset]</code> to enclose the box
+	 * given by the indicated extents.
+	 * 
+	 * @param bounds
+	 * @param offset
+	 */
+	public static void union(double[] bounds, int offset, double minX, double minY, double minZ, double maxX,
+			double maxY, double maxZ) {
+
+		bounds[offset + 0] = FastMath.min(bounds[offset + 0], minX);
+		bounds[offset + 1] = FastMath.min(bounds[offset + 1], minY);
+		bounds[offset + 2] = FastMath.min(bounds[offset + 2], minZ);
+		bounds[offset + 3] = FastMath.max(bounds[offset + 3], maxX);
+		bounds[offset + 4] = FastMath.max(bounds[offset + 4], maxY);
+		bounds[offset + 5] = FastMath.max(bounds[offset + 5], maxZ);
+	}
+
+	/**
+	 * Expand the packed box at <code>bounds[offset]</code> to enclose the
+	 * packed box at <code>other[otherOffset]</code>.
+	 * 
+	 * @param bounds
+	 * @param offset
+	 * @param other
+	 * @param otherOffset
+	 */
+	public static void union(double[] bounds, int offset, double[] other, int otherOffset) {
+
+		union(bounds, offset, other[otherOffset + 0], other[otherOffset + 1], other[otherOffset + 2],
+				other[otherOffset + 3], other[otherOffset + 4], other[otherOffset + 5]);
+	}
+
+	/**
+	 * Expand the packed box at <code>bounds[offset]</code> to enclose this
+	 * AABB.
+	 * 
+	 * @param bounds
+	 * @param offset
+	 */
+	public void unionInto(double[] bounds, int offset) {
+
+		union(bounds, offset, minExtent.getX(), minExtent.getY(), minExtent.getZ(), maxExtent.getX(),
+				maxExtent.getY(), maxExtent.getZ());
+	}
+
+	/**
+	 * Write this AABB, packed, into <code>bounds[offset]</code>.
+	 * 
+	 * @param bounds
+	 * @param offset
+	 */
+	public void copyInto(double[] bounds, int offset) {
+
+		bounds[offset + 0] = minExtent.getX();
+		bounds[offset + 1] = minExtent.getY();
+		bounds[offset + 2] = minExtent.getZ();
+		bounds[offset + 3] = maxExtent.getX();
+		bounds[offset + 4] = maxExtent.getY();
+		bounds[offset + 5] = maxExtent.getZ();
 	}
 
 	/**
@@ -179,6 +378,127 @@ public class AABB {
 		return true;
 	}
 
+	/**
+	 * Given a {@link Ray} (expressed in global coordinates), determine if that
+	 * Ray intersects this AABB anywhere within the interval
+	 * <code>[minT, maxT]</code> along its length.
+	 * <p>
+	 * Unlike {@link #isIntersecting(Ray)}, this will reject AABBs that lie
+	 * entirely behind the Ray's origin, or entirely beyond <code>maxT</code>
+	 * -- which makes it suitable for pruning acceleration-structures against
+	 * the closest intersection found so far.
+	 * </p>
+	 * 
+	 * @param ray
+	 * @param minT
+	 * @param maxT
+	 * @return
+	 */
+	public boolean isIntersecting(Ray ray, double minT, double maxT) {
+
+		return isIntersecting(minExtent.getX(), minExtent.getY(), minExtent.getZ(), maxExtent.getX(),
+				maxExtent.getY(), maxExtent.getZ(), ray.getOrigin().getX(), ray.getOrigin().getY(),
+				ray.getOrigin().getZ(), 1d / ray.getDirection().getX(), 1d / ray.getDirection().getY(),
+				1d / ray.getDirection().getZ(), minT, maxT);
+	}
+
+	/**
+	 * Slab-test a ray (given as its origin and the reciprocals of its direction
+	 * components) against the box given by the indicated extents, within the
+	 * interval <code>[minT, maxT]</code>.
+	 * <p>
+	 * Degenerate slabs (where the ray runs parallel to, and exactly along, one
+	 * of the box's faces) produce <code>NaN</code>s, which are deliberately
+	 * ignored so that such rays are conservatively reported as intersecting.
+	 * The far distance is also padded slightly, so that floating-point error
+	 * never causes a true intersection to be missed.
+	 * </p>
+	 * 
+	 * @return
+	 * @see #getEntryDistance(double, double, double, double, double, double,
+	 *      double, double, double, double, double, double, double, double)
+	 */
+	public static boolean isIntersecting(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ, double originX, double originY, double originZ, double invDirX, double invDirY,
+			double invDirZ, double minT, double maxT) {
+
+		return !Double.isNaN(getEntryDistance(minX, minY, minZ, maxX, maxY, maxZ, originX, originY, originZ, invDirX,
+				invDirY, invDirZ, minT, maxT));
+	}
+
+	/**
+	 * Slab-test a ray against the box given by the indicated extents, exactly
+	 * as {@link #isIntersecting(double, double, double, double, double, double,
+	 * double, double, double, double, double, double, double, double)
+	 * isIntersecting()} does -- but report the distance at which the ray
+	 * enters the box (clamped to <code>minT</code>).
+	 * 
+	 * @return the distance at which the ray enters the box, or
+	 *         <code>NaN</code> if it does not intersect the box within
+	 *         <code>[minT, maxT]</code>
+	 */
+	public static double getEntryDistance(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ, double originX, double originY, double originZ, double invDirX, double invDirY,
+			double invDirZ, double minT, double maxT) {
+
+		double tNear = minT, tFar = maxT;
+
+		double t0 = ( minX - originX ) * invDirX, t1 = ( maxX - originX ) * invDirX;
+		if (t0 > t1) {
+			final double temp = t0;
+			t0 = t1;
+			t1 = temp;
+		}
+		t1 *= SLAB_PADDING;
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+		if (tNear > tFar)
+			return Double.NaN;
+
+		t0 = ( minY - originY ) * invDirY;
+		t1 = ( maxY - originY ) * invDirY;
+		if (t0 > t1) {
+			final double temp = t0;
+			t0 = t1;
+			t1 = temp;
+		}
+		t1 *= SLAB_PADDING;
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+		if (tNear > tFar)
+			return Double.NaN;
+
+		t0 = ( minZ - originZ ) * invDirZ;
+		t1 = ( maxZ - originZ ) * invDirZ;
+		if (t0 > t1) {
+			final double temp = t0;
+			t0 = t1;
+			t1 = temp;
+		}
+		t1 *= SLAB_PADDING;
+		if (t0 > tNear)
+			tNear = t0;
+		if (t1 < tFar)
+			tFar = t1;
+
+		return ( tNear <= tFar ) ? tNear : Double.NaN;
+	}
+
+	/**
+	 * @return the total surface-area of this AABB
+	 */
+	public double getSurfaceArea() {
+
+		final double dx = maxExtent.getX() - minExtent.getX(), dy = maxExtent.getY() - minExtent.getY(),
+				dz = maxExtent.getZ() - minExtent.getZ();
+
+		return 2d * ( dx * dy + dy * dz + dz * dx );
+	}
+
 	public Point getMinExtent() {
 
 		return minExtent;
@@ -0,0 +1,346 @@
+package org.snowjak.rays3.intersect.bound;
+
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Kernels which test a single ray against several boxes (or spheres) at once.
+ * <p>
+ * The boxes (or spheres) are given as a structure-of-arrays -- all their
+ * minimum-X values together, then all their minimum-Y values, and so on -- so
+ * that a node's worth of boxes shares a handful of cache-lines, and a caller
+ * can test all of them in one call rather than chasing one object per box.
+ * </p>
+ * <p>
+ * Two implementations are available, and the faster is chosen when this class
+ * is first loaded:
+ * <ul>
+ * <li>a SIMD implementation (<code>VectorIntersectionKernels</code>, built
+ * from <code>src/vector/java</code>), which tests a vector-register's worth of
+ * lanes with each instruction using the incubating
+ * <code>jdk.incubator.vector</code> API. It is used only if it was compiled
+ * (which needs JDK 16 or later) and the running JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>.</li>
+ * <li>a scalar implementation, used otherwise, which tests each lane in turn
+ * and lets it give up as soon as it is known to miss. (HotSpot has no
+ * conditional-move for doubles, and a branch-free scalar lane-body measured
+ * slower than these early-outs.)</li>
+ * </ul>
+ * Both give identical results. The SIMD implementation may be disabled by
+ * setting the system-property <code>{@value #SCALAR_PROPERTY}</code> to
+ * <code>true</code>.
+ * </p>
+ * <p>
+ * Each kernel reports which lanes were hit as a bit-mask (bit <code>i</code>
+ * set if lane <code>i</code> was hit), and so can test at most 32 lanes at a
+ * time.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class IntersectionKernels {
+
+	/**
+	 * The largest number of lanes that may be tested in a single call.
+	 */
+	public static final int				MAX_LANES		= Integer.SIZE;
+
+	/**
+	 * The system-property which, if <code>true</code>, forces the scalar
+	 * kernels to be used even where the SIMD kernels are available.
+	 */
+	public static final String			SCALAR_PROPERTY	= "rays3.scalarKernels";
+
+	/**
+	 * The scalar kernels, always available.
+	 */
+	static final Implementation			SCALAR			= new ScalarImplementation();
+
+	/**
+	 * The SIMD kernels, or <code>null</code> if they are not available in this
+	 * JVM.
+	 */
+	static final Implementation			VECTOR			= loadVectorImplementation();
+
+	private static final Implementation	IMPLEMENTATION	= ( VECTOR != null
+			&& !Boolean.getBoolean(SCALAR_PROPERTY) ) ? VECTOR : SCALAR;
+
+	private IntersectionKernels() {
+		// Not instantiable.
+	}
+
+	/**
+	 * @return <code>true</code> if these kernels are using SIMD instructions,
+	 *         <code>false</code> if they have fallen back to scalar code
+	 */
+	public static boolean isVectorized() {
+
+		return IMPLEMENTATION != SCALAR;
+	}
+
+	/**
+	 * Attempt to load the SIMD kernels. These are compiled separately (against
+	 * a newer JDK than the rest of this project), and so are loaded by name.
+	 * Any failure to load or link them -- a missing class, an older JVM, or a
+	 * JVM without the <code>jdk.incubator.vector</code> module -- is taken to
+	 * mean that they are unavailable.
+	 * 
+	 * @return the SIMD kernels, or <code>null</code> if they are unavailable
+	 */
+	private static Implementation loadVectorImplementation() {
+
+		try {
+			final Implementation vector = (Implementation) Class
+					.forName(IntersectionKernels.class.getPackage().getName() + ".VectorIntersectionKernels")
+					.getDeclaredConstructor()
+					.newInstance();
+
+			//
+			// Exercise each kernel once, so that a missing Vector API shows
+			// up now rather than part-way through a render.
+			final double[] scratch = new double[6];
+			vector.intersectBoxes(scratch, 0, 1, 0d, 0d, 0d, 1d, 1d, 1d, 0d, Double.POSITIVE_INFINITY, scratch);
+			vector.intersectSpheres(scratch, 0, 1, 0d, 0d, 0d, 1d, 0d, 0d, 0d, Double.POSITIVE_INFINITY, scratch);
+
+			return vector;
+
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Slab-test a ray (given as its origin and the reciprocals of its direction
+	 * components) against <code>width</code> boxes, within the interval
+	 * <code>[minT, maxT]</code>. Each box is tested exactly as
+	 * {@link AABB#getEntryDistance(double, double, double, double, double, double, double, double, double, double, double, double, double, double)
+	 * AABB.getEntryDistance()} would test it.
+	 * <p>
+	 * The boxes' extents are read from <code>bounds</code>, starting at
+	 * <code>offset</code>, as 6 consecutive rows of <code>width</code> values:
+	 * 
+	 * <pre>
+	 *   minX[0..width), minY[0..width), minZ[0..width),
+	 *   maxX[0..width), maxY[0..width), maxZ[0..width)
+	 * </pre>
+	 * </p>
+	 * 
+	 * @param bounds
+	 * @param offset
+	 * @param width
+	 *            no more than {@link #MAX_LANES}
+	 * @param originX
+	 * @param originY
+	 * @param originZ
+	 * @param invDirX
+	 * @param invDirY
+	 * @param invDirZ
+	 * @param minT
+	 * @param maxT
+	 * @param entryDistances
+	 *            receives (in its first <code>width</code> elements) the
+	 *            distance at which the ray enters each box that it hits
+	 *            (clamped to <code>minT</code>). Values for missed boxes are
+	 *            undefined.
+	 * @return a bit-mask of those boxes which the ray hits
+	 */
+	public static int intersectBoxes(double[] bounds, int offset, int width, double originX, double originY,
+			double originZ, double invDirX, double invDirY, double invDirZ, double minT, double maxT,
+			double[] entryDistances) {
+
+		return IMPLEMENTATION.intersectBoxes(bounds, offset, width, originX, originY, originZ, invDirX, invDirY,
+				invDirZ, minT, maxT, entryDistances);
+	}
+
+	/**
+	 * Test a ray (given as its origin and normalized direction) against
+	 * <code>count</code> spheres, reporting the first intersection with each
+	 * that lies within the open interval <code>(minT, maxT)</code>.
+	 * <p>
+	 * The spheres are read from <code>spheres</code>, starting at
+	 * <code>offset</code>, as 4 consecutive rows of <code>count</code> values:
+	 * 
+	 * <pre>
+	 *   centerX[0..count), centerY[0..count), centerZ[0..count),
+	 *   radius<sup>2</sup>[0..count)
+	 * </pre>
+	 * </p>
+	 * 
+	 * @param spheres
+	 * @param offset
+	 * @param count
+	 *            no more than {@link #MAX_LANES}
+	 * @param originX
+	 * @param originY
+	 * @param originZ
+	 * @param dirX
+	 * @param dirY
+	 * @param dirZ
+	 * @param minT
+	 * @param maxT
+	 * @param distances
+	 *            receives (in its first <code>count</code> elements) the
+	 *            distance to each sphere that the ray hits. Values for missed
+	 *            spheres are undefined.
+	 * @return a bit-mask of those spheres which the ray hits
+	 */
+	public static int intersectSpheres(double[] spheres, int offset, int count, double originX, double originY,
+			double originZ, double dirX, double dirY, double dirZ, double minT, double maxT, double[] distances) {
+
+		return IMPLEMENTATION.intersectSpheres(spheres, offset, count, originX, originY, originZ, dirX, dirY, dirZ,
+				minT, maxT, distances);
+	}
+
+	/**
+	 * A set of kernels, as described by {@link IntersectionKernels}.
+	 */
+	interface Implementation {
+
+		/**
+		 * @see IntersectionKernels#intersectBoxes(double[], int, int, double,
+		 *      double, double, double, double, double, double, double,
+		 *      double[])
+		 */
+		public int intersectBoxes(double[] bounds, int offset, int width, double originX, double originY,
+				double originZ, double invDirX, double invDirY, double invDirZ, double minT, double maxT,
+				double[] entryDistances);
+
+		/**
+		 * @see IntersectionKernels#intersectSpheres(double[], int, int, double,
+		 *      double, double, double, double, double, double, double,
+		 *      double[])
+		 */
+		public int intersectSpheres(double[] spheres, int offset, int count, double originX, double originY,
+				double originZ, double dirX, double dirY, double dirZ, double minT, double maxT,
+				double[] distances);
+	}
+
+	/**
+	 * The scalar kernels, which test each lane in turn.
+	 */
+	static final class ScalarImplementation implements Implementation {
+
+		@Override
+		public int intersectBoxes(double[] bounds, int offset, int width, double originX, double originY,
+				double originZ, double invDirX, double invDirY, double invDirZ, double minT, double maxT,
+				double[] entryDistances) {
+
+			return intersectBoxes(bounds, offset, width, 0, originX, originY, originZ, invDirX, invDirY, invDirZ,
+					minT, maxT, entryDistances);
+		}
+
+		/**
+		 * As {@link #intersectBoxes(double[], int, int, double, double, double, double, double, double, double, double, double[])},
+		 * but testing only lanes <code>[firstLane, width)</code>.
+		 */
+		static int intersectBoxes(double[] bounds, int offset, int width, int firstLane, double originX,
+				double originY, double originZ, double invDirX, double invDirY, double invDirZ, double minT,
+				double maxT, double[] entryDistances) {
+
+			final int minX = offset, minY = minX + width, minZ = minY + width, maxX = minZ + width, maxY = maxX + width,
+					maxZ = maxY + width;
+			final double padding = AABB.SLAB_PADDING;
+
+			int hits = 0;
+			lanes: for (int lane = firstLane; lane < width; lane++) {
+
+				double tNear = minT, tFar = maxT;
+
+				//
+				// As in AABB.getEntryDistance(), a NaN slab-distance (from a
+				// ray running exactly along one of the box's faces) fails
+				// every comparison, and so is ignored.
+				double t0 = ( bounds[minX + lane] - originX ) * invDirX,
+						t1 = ( bounds[maxX + lane] - originX ) * invDirX;
+				if (t0 > t1) {
+					final double swap = t0;
+					t0 = t1;
+					t1 = swap;
+				}
+				t1 *= padding;
+				if (t0 > tNear)
+					tNear = t0;
+				if (t1 < tFar)
+					tFar = t1;
+				if (tNear > tFar)
+					continue lanes;
+
+				t0 = ( bounds[minY + lane] - originY ) * invDirY;
+				t1 = ( bounds[maxY + lane] - originY ) * invDirY;
+				if (t0 > t1) {
+					final double swap = t0;
+					t0 = t1;
+					t1 = swap;
+				}
+				t1 *= padding;
+				if (t0 > tNear)
+					tNear = t0;
+				if (t1 < tFar)
+					tFar = t1;
+				if (tNear > tFar)
+					continue lanes;
+
+				t0 = ( bounds[minZ + lane] - originZ ) * invDirZ;
+				t1 = ( bounds[maxZ + lane] - originZ ) * invDirZ;
+				if (t0 > t1) {
+					final double swap = t0;
+					t0 = t1;
+					t1 = swap;
+				}
+				t1 *= padding;
+				if (t0 > tNear)
+					tNear = t0;
+				if (t1 < tFar)
+					tFar = t1;
+				if (tNear > tFar)
+					continue lanes;
+
+				entryDistances[lane] = tNear;
+				hits |= 1 << lane;
+			}
+
+			return hits;
+		}
+
+		@Override
+		public int intersectSpheres(double[] spheres, int offset, int count, double originX, double originY,
+				double originZ, double dirX, double dirY, double dirZ, double minT, double maxT, double[] distances) {
+
+			return intersectSpheres(spheres, offset, count, 0, originX, originY, originZ, dirX, dirY, dirZ, minT,
+					maxT, distances);
+		}
+
+		/**
+		 * As {@link #intersectSpheres(double[], int, int, double, double, double, double, double, double, double, double, double[])},
+		 * but testing only lanes <code>[firstLane, count)</code>.
+		 */
+		static int intersectSpheres(double[] spheres, int offset, int count, int firstLane, double originX,
+				double originY, double originZ, double dirX, double dirY, double dirZ, double minT, double maxT,
+				double[] distances) {
+
+			final int centerX = offset, centerY = centerX + count, centerZ = centerY + count, radius2 = centerZ + count;
+
+			int hits = 0;
+			for (int lane = firstLane; lane < count; lane++) {
+
+				final double lx = spheres[centerX + lane] - originX, ly = spheres[centerY + lane] - originY,
+						lz = spheres[centerZ + lane] - originZ;
+
+				final double t_ca = lx * dirX + ly * dirY + lz * dirZ;
+				final double t_hc2 = spheres[radius2 + lane] - ( ( lx * lx + ly * ly + lz * lz ) - ( t_ca * t_ca ) );
+				if (t_hc2 < 0d)
+					continue;
+
+				final double t_hc = FastMath.sqrt(t_hc2);
+				final double t = ( t_ca - t_hc > minT ) ? t_ca - t_hc : t_ca + t_hc;
+				if (t <= minT || t >= maxT)
+					continue;
+
+				distances[lane] = t;
+				hits |= 1 << lane;
+			}
+
+			return hits;
+		}
+	}
+
+}
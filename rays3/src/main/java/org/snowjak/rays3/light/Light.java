@@ -6,14 +6,13 @@ import java.util.List;
 import java.util.function.DoubleFunction;
 
 import org.apache.commons.math3.util.FastMath;
-import org.snowjak.rays3.Global;
 import org.snowjak.rays3.World;
 import org.snowjak.rays3.geometry.Point;
-import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
 import org.snowjak.rays3.spectrum.Spectrum;
+import org.snowjak.rays3.transform.CompositeTransform;
 import org.snowjak.rays3.transform.Transform;
 import org.snowjak.rays3.transform.Transformable;
 
@@ -29,6 +28,7 @@ public abstract class Light implements Transformable {
 
 	private final LinkedList<Transform>	worldToLocal	= new LinkedList<>();
 	private final LinkedList<Transform>	localToWorld	= new LinkedList<>();
+	private CompositeTransform			compositeTransform	= null;
 
 	/**
 	 * Construct a new Light of the given radiance per unit-solid-angle, and the
@@ -134,6 +134,10 @@ public abstract class Light implements Transformable {
 	 * from the given Point -- or, more properly, if any {@link Interaction}s
 	 * can be detected when tracing a Ray from <code>pointFrom</code> to
 	 * <code>lightSurfacePoint</code>.
+	 * <p>
+	 * This uses {@link World#isOccluded(Point, Point)}, and so does not
+	 * actually compute any of those Interactions.
+	 * </p>
 	 * 
 	 * @param world
 	 * @param pointFrom
@@ -142,18 +146,7 @@ public abstract class Light implements Transformable {
 	 */
 	public static boolean isVisibleFrom(World world, Point pointFrom, Point lightSurfacePoint) {
 
-		final Vector toLight = new Vector(lightSurfacePoint).subtract(new Vector(pointFrom));
-		final Ray ray = new Ray(pointFrom, toLight.normalize());
-
-		return world
-				.getPrimitives()
-					.stream()
-					.filter(p -> p.isInteracting(ray))
-					.map(p -> p.getIntersection(ray))
-					.filter(i -> i != null)
-					.filter(i -> i.getInteractingRay().getCurrT() > 0d
-							&& !Global.isNear(i.getInteractingRay().getCurrT(), 0d))
-					.allMatch(i -> i.getInteractingRay().getCurrT() > toLight.getMagnitude());
+		return !world.isOccluded(pointFrom, lightSurfacePoint);
 	}
 
 	/**
@@ -178,6 +171,15 @@ public abstract class Light implements Transformable {
 		return this.falloffType;
 	}
 
+	@Override
+	public Transform getCompositeTransform() {
+
+		if (compositeTransform == null)
+			compositeTransform = new CompositeTransform(worldToLocal);
+
+		return compositeTransform;
+	}
+
 	@Override
 	public List<Transform> getWorldToLocalTransforms() {
 
@@ -195,6 +197,8 @@ public abstract class Light implements Transformable {
 
 		worldToLocal.addLast(transform);
 		localToWorld.addFirst(transform);
+
+		compositeTransform = null;
 	}
 
 	/**
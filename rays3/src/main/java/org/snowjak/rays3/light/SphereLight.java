@@ -7,7 +7,6 @@ import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import java.util.List;
 
-import org.snowjak.rays3.Global;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.sample.Sample;
@@ -69,12 +68,12 @@ public class SphereLight extends Light {
 		//
 		//
 		//
-		final double sin2_theta = Global.RND.nextDouble();
+		final double sin2_theta = sample.getRandom().nextDouble();
 		final double cos2_theta = 1d - sin2_theta;
 		final double sin_theta = sqrt(sin2_theta);
 		final double cos_theta = sqrt(cos2_theta);
 
-		final double orientation = Global.RND.nextDouble() * 2d * PI;
+		final double orientation = sample.getRandom().nextDouble() * 2d * PI;
 		//
 		//
 		//
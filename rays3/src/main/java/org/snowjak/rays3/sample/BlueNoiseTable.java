@@ -0,0 +1,387 @@
+package org.snowjak.rays3.sample;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * A precomputed set of well-spaced ("blue-noise") points on the unit square
+ * (or interval), chosen by Mitchell's best-candidate algorithm: each point is
+ * the best of several random candidates -- the one farthest from every point
+ * already chosen. Distances are measured toroidally (i.e., wrapping around
+ * at the edges), so a table may be shifted by any offset (modulo 1) without
+ * spoiling its spacing -- which is how {@link BestCandidateSampler} gives each
+ * pixel its own points from the same table. Because points are chosen one
+ * after another, every prefix of a table is well-spaced too.
+ * <p>
+ * Tables are only ever computed once, and then shared (see
+ * {@link #get(int, int)}). A table is first looked for among this class's
+ * resources (as written by {@link #write(OutputStream)}), and otherwise
+ * computed -- evaluating each point's candidates in parallel.
+ * </p>
+ * <p>
+ * Points are stored quantized to 16 bits per coordinate. The binary format
+ * (all values big-endian) is:
+ * 
+ * <pre>
+ *   int     magic-number ("RBNT")
+ *   int     format-version
+ *   int     dimensions
+ *   int     point-count
+ *   char[]  quantized points (dimensions per point)
+ * </pre>
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class BlueNoiseTable {
+
+	/**
+	 * Every blue-noise table file begins with this magic-number.
+	 */
+	public static final int									MAGIC					= 0x52424E54;
+
+	/**
+	 * The current version of the file-format. Files written with any other
+	 * version are ignored.
+	 */
+	public static final int									FORMAT_VERSION			= 1;
+
+	/**
+	 * The number of candidates considered for each point, per point already
+	 * chosen.
+	 */
+	private static final int								CANDIDATES_PER_POINT	= 2;
+
+	/**
+	 * Below this many candidates per point, it's not worth evaluating them in
+	 * parallel.
+	 */
+	private static final int								PARALLEL_THRESHOLD		= 256;
+
+	/**
+	 * No table may hold more than this many points. (Larger tables would be
+	 * impractically slow to compute, and a file claiming to hold one is
+	 * presumed corrupt.)
+	 */
+	public static final int									MAX_POINT_COUNT			= 1 << 20;
+
+	private static final long								SEED					= 0x9E3779B97F4A7C15L;
+
+	private static final Map<Long, BlueNoiseTable>			TABLES					= new ConcurrentHashMap<>();
+
+	private final int										dimensions, pointCount;
+	private final char[]									points;
+
+	private BlueNoiseTable(int dimensions, int pointCount, char[] points) {
+		this.dimensions = dimensions;
+		this.pointCount = pointCount;
+		this.points = points;
+	}
+
+	/**
+	 * Get the table of the given number of points, loading or computing it if
+	 * this is the first time it's been asked for.
+	 * 
+	 * @param dimensions
+	 *            <code>1</code> or <code>2</code>
+	 * @param pointCount
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if <code>dimensions</code> is not 1 or 2, or
+	 *             <code>pointCount</code> is not between 1 and
+	 *             {@link #MAX_POINT_COUNT}
+	 */
+	public static BlueNoiseTable get(int dimensions, int pointCount) {
+
+		checkShape(dimensions, pointCount);
+		return TABLES.computeIfAbsent(( (long) dimensions << 32 ) | pointCount,
+				k -> load(dimensions, pointCount));
+	}
+
+	private static BlueNoiseTable load(int dimensions, int pointCount) {
+
+		final InputStream resource = BlueNoiseTable.class.getResourceAsStream(getResourceName(dimensions, pointCount));
+		if (resource != null)
+			try (InputStream in = resource) {
+				final BlueNoiseTable table = read(in);
+				if (table != null && table.dimensions == dimensions && table.pointCount == pointCount)
+					return table;
+			} catch (IOException e) {
+				// Fall through and compute the table instead.
+			}
+
+		return generate(dimensions, pointCount);
+	}
+
+	/**
+	 * @param dimensions
+	 * @param pointCount
+	 * @return the name of the resource from which the given table is loaded,
+	 *         if it exists
+	 */
+	public static String getResourceName(int dimensions, int pointCount) {
+
+		return "blue-noise-" + dimensions + "d-" + pointCount + ".bin";
+	}
+
+	/**
+	 * Compute a new table of the given number of points. The same table is
+	 * computed every time.
+	 * 
+	 * @param dimensions
+	 *            <code>1</code> or <code>2</code>
+	 * @param pointCount
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if <code>dimensions</code> is not 1 or 2, or
+	 *             <code>pointCount</code> is not between 1 and
+	 *             {@link #MAX_POINT_COUNT}
+	 */
+	public static BlueNoiseTable generate(int dimensions, int pointCount) {
+
+		checkShape(dimensions, pointCount);
+
+		final SplittableRandom random = new SplittableRandom(SEED);
+		final PointGrid grid = new PointGrid(dimensions, pointCount);
+		final double[] candidates = new double[dimensions * CANDIDATES_PER_POINT * pointCount];
+		final double[] distancesSq = new double[CANDIDATES_PER_POINT * pointCount];
+
+		for (int d = 0; d < dimensions; d++)
+			candidates[d] = random.nextDouble();
+		grid.add(candidates, 0);
+
+		for (int n = 1; n < pointCount; n++) {
+
+			final int candidateCount = CANDIDATES_PER_POINT * n;
+			for (int i = 0; i < dimensions * candidateCount; i++)
+				candidates[i] = random.nextDouble();
+
+			IntStream candidateIndices = IntStream.range(0, candidateCount);
+			if (candidateCount >= PARALLEL_THRESHOLD)
+				candidateIndices = candidateIndices.parallel();
+
+			candidateIndices.forEach(c -> distancesSq[c] = grid.getNearestDistanceSq(candidates, c));
+
+			int best = 0;
+			for (int c = 1; c < candidateCount; c++)
+				if (distancesSq[c] > distancesSq[best])
+					best = c;
+
+			grid.add(candidates, best);
+		}
+
+		final char[] points = new char[dimensions * pointCount];
+		for (int i = 0; i < points.length; i++)
+			points[i] = (char) ( grid.points[i] * 65536d );
+
+		return new BlueNoiseTable(dimensions, pointCount, points);
+	}
+
+	private static void checkShape(int dimensions, int pointCount) {
+
+		if (dimensions != 1 && dimensions != 2)
+			throw new IllegalArgumentException("Blue-noise tables must have 1 or 2 dimensions!");
+		if (pointCount < 1)
+			throw new IllegalArgumentException("Blue-noise tables must have at least 1 point!");
+		if (pointCount > MAX_POINT_COUNT)
+			throw new IllegalArgumentException("Blue-noise tables must have at most " + MAX_POINT_COUNT + " points!");
+	}
+
+	/**
+	 * Write this table to the given stream.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+
+		final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.writeInt(dimensions);
+		data.writeInt(pointCount);
+		for (char point : points)
+			data.writeChar(point);
+
+		data.flush();
+	}
+
+	/**
+	 * Attempt to read a table back from the given stream.
+	 * 
+	 * @param in
+	 * @return the table, or <code>null</code> if the stream was written with
+	 *         a different format-version or is otherwise unreadable (including
+	 *         if it claims to hold more than {@link #MAX_POINT_COUNT} points)
+	 * @throws IOException
+	 */
+	public static BlueNoiseTable read(InputStream in) throws IOException {
+
+		final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+		if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION)
+			return null;
+
+		final int dimensions = data.readInt(), pointCount = data.readInt();
+		if (( dimensions != 1 && dimensions != 2 ) || pointCount < 1 || pointCount > MAX_POINT_COUNT)
+			return null;
+
+		final char[] points = new char[dimensions * pointCount];
+		for (int i = 0; i < points.length; i++)
+			points[i] = data.readChar();
+
+		return new BlueNoiseTable(dimensions, pointCount, points);
+	}
+
+	/**
+	 * Get one coordinate of one of this table's points, shifted by the given
+	 * offset and wrapped back onto <code>[0, 1)</code>.
+	 * 
+	 * @param point
+	 * @param dimension
+	 * @param shift
+	 *            on <code>[0, 1)</code>
+	 * @return
+	 */
+	public double get(int point, int dimension, double shift) {
+
+		final double value = ( (double) points[dimensions * point + dimension] + 0.5d ) / 65536d + shift;
+		return ( value >= 1d ) ? value - 1d : value;
+	}
+
+	public int getDimensions() {
+
+		return dimensions;
+	}
+
+	public int getPointCount() {
+
+		return pointCount;
+	}
+
+	/**
+	 * Holds the points chosen so far in a uniform grid of cells (about one per
+	 * point, once the table is full), wrapping around at the edges -- so that
+	 * a candidate's nearest point may be found by searching outward from the
+	 * candidate's own cell, rather than by checking every point.
+	 */
+	private static class PointGrid {
+
+		private final int		dimensions, cellsPerSide;
+		private final double[]	points;
+		private final int[]		firstInCell, nextInCell;
+		private int				pointCount;
+
+		public PointGrid(int dimensions, int capacity) {
+			this.dimensions = dimensions;
+			this.cellsPerSide = ( dimensions == 1 ) ? capacity : Math.max(1, (int) Math.sqrt(capacity));
+			this.points = new double[dimensions * capacity];
+			this.firstInCell = new int[( dimensions == 1 ) ? cellsPerSide : cellsPerSide * cellsPerSide];
+			this.nextInCell = new int[capacity];
+			this.pointCount = 0;
+
+			Arrays.fill(firstInCell, -1);
+		}
+
+		/**
+		 * Add the given candidate as the next point.
+		 */
+		public void add(double[] candidates, int candidate) {
+
+			final int point = pointCount++;
+			for (int d = 0; d < dimensions; d++)
+				points[dimensions * point + d] = candidates[dimensions * candidate + d];
+
+			final int cell = getCell(points[dimensions * point], getY(points, point));
+			nextInCell[point] = firstInCell[cell];
+			firstInCell[cell] = point;
+		}
+
+		/**
+		 * @return the squared toroidal distance from the given candidate to
+		 *         the nearest point
+		 */
+		public double getNearestDistanceSq(double[] candidates, int candidate) {
+
+			final double x = candidates[dimensions * candidate], y = getY(candidates, candidate);
+			final int cellX = (int) ( x * cellsPerSide ), cellY = (int) ( y * cellsPerSide );
+			final int maxRadiusY = ( dimensions == 1 ) ? 0 : Integer.MAX_VALUE;
+
+			double nearestSq = Double.MAX_VALUE;
+			for (int radius = 0;; radius++) {
+
+				//
+				// Once the search wraps all the way around, every cell has
+				// been searched.
+				if (2 * radius + 1 >= cellsPerSide)
+					return getNearestDistanceSq(x, y, 0, pointCount, nearestSq);
+
+				//
+				// Search the ring of cells at this radius.
+				final int radiusY = Math.min(radius, maxRadiusY);
+				for (int dx = -radius; dx <= radius; dx++)
+					for (int dy = -radiusY; dy <= radiusY; dy++)
+						if (Math.abs(dx) == radius || Math.abs(dy) == radius) {
+							final int cell = getCell(Math.floorMod(cellX + dx, cellsPerSide),
+									Math.floorMod(cellY + dy, cellsPerSide));
+							for (int point = firstInCell[cell]; point >= 0; point = nextInCell[point])
+								nearestSq = getNearestDistanceSq(x, y, point, point + 1, nearestSq);
+						}
+
+				//
+				// Every point outside of the cells searched so far is at
+				// least this far away.
+				final double searchedRadius = (double) radius / (double) cellsPerSide;
+				if (nearestSq <= searchedRadius * searchedRadius)
+					return nearestSq;
+			}
+		}
+
+		private double getNearestDistanceSq(double x, double y, int fromPoint, int toPoint, double nearestSq) {
+
+			for (int point = fromPoint; point < toPoint; point++) {
+
+				final double deltaX = getToroidalDelta(x, points[dimensions * point]),
+						deltaY = getToroidalDelta(y, getY(points, point));
+				final double distanceSq = deltaX * deltaX + deltaY * deltaY;
+				if (distanceSq < nearestSq)
+					nearestSq = distanceSq;
+			}
+
+			return nearestSq;
+		}
+
+		private static double getToroidalDelta(double a, double b) {
+
+			final double delta = Math.abs(a - b);
+			return ( delta > 0.5d ) ? 1d - delta : delta;
+		}
+
+		private double getY(double[] values, int point) {
+
+			return ( dimensions == 1 ) ? 0d : values[dimensions * point + 1];
+		}
+
+		private int getCell(double x, double y) {
+
+			return getCell((int) ( x * cellsPerSide ), (int) ( y * cellsPerSide ));
+		}
+
+		private int getCell(int cellX, int cellY) {
+
+			return cellX + cellsPerSide * cellY;
+		}
+	}
+
+}
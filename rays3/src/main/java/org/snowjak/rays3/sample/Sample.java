@@ -1,11 +1,8 @@
 package org.snowjak.rays3.sample;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
 
-import org.snowjak.rays3.Global;
 import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.spectrum.Spectrum;
 
@@ -21,22 +18,36 @@ import org.snowjak.rays3.spectrum.Spectrum;
  * <li>Spectrum to sample (nm)</li>
  * </ul>
  * </p>
+ * <p>
+ * A Sample also carries values for each of the additional dimensions
+ * registered with its {@link Sampler}'s {@link SampleDimensions} (see
+ * {@link #getAdditionalTwinSample(int)}). These are pre-generated by the
+ * Sampler into a single flat array, and handed out in turn.
+ * </p>
+ * <p>
+ * Each Sample also carries its own random stream (see {@link #getRandom()}),
+ * from which anything rendering the Sample should draw whatever random numbers
+ * it needs.
+ * </p>
  * 
  * @author snowjak88
  */
 public class Sample {
 
-	private Sampler										sampler;
+	private Sampler					sampler;
 
-	private final double								imageX, imageY;
-	private final double								lensU, lensV;
-	private final double								t;
-	private final Spectrum								wavelength;
+	private final double			imageX, imageY;
+	private final double			lensU, lensV;
+	private final double			t;
+	private final Spectrum			wavelength;
+	private final SplittableRandom	random;
 
-	private final Function<Integer, Supplier<Double>>	singleSampleSupplier;
-	private final Function<Integer, Supplier<Point2D>>	twinSampleSupplier;
-	private final Map<String, Supplier<Double>>			singleSampleSupplierMap;
-	private final Map<String, Supplier<Point2D>>		twinSampleSupplierMap;
+	private final SampleDimensions	dimensions;
+	private final double[]			dimensionValues;
+
+	private double[][]				dimensionSources;
+	private int[]					dimensionPositions, dimensionEnds;
+	private DimensionSupplier[]		dimensionSuppliers;
 
 	/**
 	 * Construct a new Sample.
@@ -53,8 +64,8 @@ public class Sample {
 	 * <code>null</code> (i.e., no particular wavelength).
 	 * </p>
 	 * <p>
-	 * For the embedded {@link Supplier}s, default implementations are provided
-	 * (relying on Java's built-in psuedo-random number generation).
+	 * This Sample's random stream is seeded from its coordinates. Its
+	 * additional dimensions' values are generated as they are first asked for.
 	 * </p>
 	 * 
 	 * @param sampler
@@ -76,8 +87,8 @@ public class Sample {
 	 * <code>null</code> (i.e., no particular wavelength).
 	 * </p>
 	 * <p>
-	 * For the embedded {@link Supplier}s, default implementations are provided
-	 * (relying on Java's built-in psuedo-random number generation).
+	 * This Sample's random stream is seeded from its coordinates. Its
+	 * additional dimensions' values are generated as they are first asked for.
 	 * </p>
 	 * 
 	 * @param sampler
@@ -93,8 +104,8 @@ public class Sample {
 	/**
 	 * Construct a new Sample.
 	 * <p>
-	 * For the embedded {@link Supplier}s, default implementations are provided
-	 * (relying on Java's built-in psuedo-random number generation).
+	 * This Sample's random stream is seeded from its coordinates. Its
+	 * additional dimensions' values are generated as they are first asked for.
 	 * </p>
 	 * 
 	 * @param sampler
@@ -107,39 +118,30 @@ public class Sample {
 	 */
 	public Sample(Sampler sampler, double imageX, double imageY, double lensU, double lensV, double t,
 			Spectrum wavelength) {
-		this(sampler, imageX, imageY, lensU, lensV, t, wavelength, new Function<Integer, Supplier<Double>>() {
-
-			@Override
-			public Supplier<Double> apply(Integer period) {
-
-				return new Supplier<Double>() {
-
-					@Override
-					public Double get() {
-
-						return Global.RND.nextDouble();
-					}
-
-				};
-			}
-
-		}, new Function<Integer, Supplier<Point2D>>() {
-
-			@Override
-			public Supplier<Point2D> apply(Integer period) {
-
-				return new Supplier<Point2D>() {
-
-					@Override
-					public Point2D get() {
-
-						return new Point2D(Global.RND.nextDouble(), Global.RND.nextDouble());
-					}
-
-				};
-			}
+		this(sampler, imageX, imageY, lensU, lensV, t, wavelength,
+				getDefaultRandom(imageX, imageY, lensU, lensV, t));
+	}
 
-		});
+	/**
+	 * Construct a new Sample.
+	 * <p>
+	 * This Sample's additional dimensions' values are generated as they are
+	 * first asked for.
+	 * </p>
+	 * 
+	 * @param sampler
+	 * @param imageX
+	 * @param imageY
+	 * @param lensU
+	 * @param lensV
+	 * @param t
+	 * @param wavelength
+	 * @param random
+	 *            this Sample's random stream
+	 */
+	public Sample(Sampler sampler, double imageX, double imageY, double lensU, double lensV, double t,
+			Spectrum wavelength, SplittableRandom random) {
+		this(sampler, imageX, imageY, lensU, lensV, t, wavelength, random, null);
 	}
 
 	/**
@@ -152,12 +154,16 @@ public class Sample {
 	 * @param lensV
 	 * @param t
 	 * @param wavelength
-	 * @param singleSampleSupplier
-	 * @param twinSampleSupplier
+	 * @param random
+	 *            this Sample's random stream
+	 * @param dimensionValues
+	 *            values for each of the Sampler's additional
+	 *            {@link SampleDimensions}, laid out as described there, or
+	 *            <code>null</code> to generate them as they are first asked
+	 *            for
 	 */
 	public Sample(Sampler sampler, double imageX, double imageY, double lensU, double lensV, double t,
-			Spectrum wavelength, Function<Integer, Supplier<Double>> singleSampleSupplier,
-			Function<Integer, Supplier<Point2D>> twinSampleSupplier) {
+			Spectrum wavelength, SplittableRandom random, double[] dimensionValues) {
 
 		this.sampler = sampler;
 		this.imageX = imageX;
@@ -166,10 +172,19 @@ public class Sample {
 		this.lensV = lensV;
 		this.t = t;
 		this.wavelength = wavelength;
-		this.singleSampleSupplier = singleSampleSupplier;
-		this.twinSampleSupplier = twinSampleSupplier;
-		this.singleSampleSupplierMap = new HashMap<>();
-		this.twinSampleSupplierMap = new HashMap<>();
+		this.random = random;
+		this.dimensions = ( sampler == null ) ? null : sampler.getSampleDimensions();
+		this.dimensionValues = dimensionValues;
+	}
+
+	private static SplittableRandom getDefaultRandom(double imageX, double imageY, double lensU, double lensV,
+			double t) {
+
+		long seed = Sampler.hash(Sampler.DEFAULT_SEED, Double.doubleToLongBits(imageX));
+		seed = Sampler.hash(seed, Double.doubleToLongBits(imageY));
+		seed = Sampler.hash(seed, Double.doubleToLongBits(lensU));
+		seed = Sampler.hash(seed, Double.doubleToLongBits(lensV));
+		return new SplittableRandom(Sampler.hash(seed, Double.doubleToLongBits(t)));
 	}
 
 	/**
@@ -230,31 +245,242 @@ public class Sample {
 	}
 
 	/**
-	 * Return the {@link Supplier} of additional single (i.e.,
-	 * <code>double</code>) samples corresponding to the given name. If no such
-	 * Supplier exists already, create one (using the specified
-	 * <code>period</code> if applicable).
+	 * Get this Sample's own random stream. Anything which needs a random number
+	 * while rendering this Sample (e.g., to choose a direction to sample, or to
+	 * decide whether to terminate a path) should draw it from here.
+	 * <p>
+	 * A Sample is rendered by a single thread, so this stream is not
+	 * synchronized. Nor is it shared with any other Sample, and so a Sample
+	 * always draws the same numbers however many threads are rendering.
+	 * </p>
+	 * 
+	 * @return
+	 */
+	public SplittableRandom getRandom() {
+
+		return random;
+	}
+
+	/**
+	 * Get the next value of the given single (i.e., <code>double</code>)
+	 * dimension. Once all of the dimension's pre-generated values have been
+	 * handed out, the {@link Sampler} generates a fresh set.
+	 * 
+	 * @param dimension
+	 *            a handle returned by {@link SampleDimensions#register1D(String, int)}
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given dimension is not registered as a single
+	 *             dimension
+	 */
+	public double getNextAdditionalSingleSample(int dimension) {
+
+		final int position = advance(dimension, false);
+		return dimensionSources[dimension][position];
+	}
+
+	/**
+	 * Get the next value of the given twin (i.e., {@link Point2D}) dimension.
+	 * Once all of the dimension's pre-generated values have been handed out,
+	 * the {@link Sampler} generates a fresh set.
+	 * 
+	 * @param dimension
+	 *            a handle returned by {@link SampleDimensions#register2D(String, int)}
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given dimension is not registered as a twin
+	 *             dimension
+	 */
+	public Point2D getNextAdditionalTwinSample(int dimension) {
+
+		final int position = advance(dimension, true);
+		final double[] source = dimensionSources[dimension];
+		return new Point2D(source[position], source[position + 1]);
+	}
+
+	/**
+	 * Move the given twin dimension on to its next value (as
+	 * {@link #getNextAdditionalTwinSample(int)} does), and return that value's
+	 * X-coordinate. Its Y-coordinate may then be had from
+	 * {@link #getAdditionalTwinSampleY(int)}. Unlike
+	 * <code>getNextAdditionalTwinSample(int)</code>, this allocates nothing.
+	 * 
+	 * @param dimension
+	 *            a handle returned by {@link SampleDimensions#register2D(String, int)}
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given dimension is not registered as a twin
+	 *             dimension
+	 */
+	public double getNextAdditionalTwinSampleX(int dimension) {
+
+		final int position = advance(dimension, true);
+		return dimensionSources[dimension][position];
+	}
+
+	/**
+	 * Get the Y-coordinate of the given twin dimension's current value -- i.e.,
+	 * of the value whose X-coordinate was most recently returned by
+	 * {@link #getNextAdditionalTwinSampleX(int)}.
+	 * 
+	 * @param dimension
+	 *            a handle returned by {@link SampleDimensions#register2D(String, int)}
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given dimension is not registered as a twin
+	 *             dimension
+	 * @throws IllegalStateException
+	 *             if the given dimension has not yet been drawn from
+	 */
+	public double getAdditionalTwinSampleY(int dimension) {
+
+		checkDimension(dimension, true);
+
+		//
+		// A dimension which has not yet been drawn from is still positioned
+		// at the start of its values.
+		final double[] source = ( dimensionSources == null ) ? null : dimensionSources[dimension];
+		final int position = ( dimensionPositions == null ) ? 0 : dimensionPositions[dimension];
+		final int start = ( source != null && source == dimensionValues ) ? dimensions.getOffset(dimension) : 0;
+		if (source == null || position <= start)
+			throw new IllegalStateException(
+					"Sample-dimension \"" + dimensions.getName(dimension) + "\" has not yet been drawn from!");
+
+		return source[position - 1];
+	}
+
+	/**
+	 * Return a {@link DoubleSupplier} of successive values of the given single
+	 * dimension (see {@link #getNextAdditionalSingleSample(int)}). The same
+	 * Supplier is returned every time for the same dimension.
+	 * 
+	 * @param dimension
+	 * @return
+	 */
+	public DoubleSupplier getAdditionalSingleSampleSupplier(int dimension) {
+
+		return getDimensionSupplier(dimension, false);
+	}
+
+	/**
+	 * Return a {@link TwinSampleSupplier} of successive values of the given
+	 * twin dimension (see {@link #getNextAdditionalTwinSampleX(int)} and
+	 * {@link #getAdditionalTwinSampleY(int)}). The same Supplier is returned
+	 * every time for the same dimension.
+	 * 
+	 * @param dimension
+	 * @return
+	 */
+	public TwinSampleSupplier getAdditionalTwinSample(int dimension) {
+
+		return getDimensionSupplier(dimension, true);
+	}
+
+	private DimensionSupplier getDimensionSupplier(int dimension, boolean twin) {
+
+		checkDimension(dimension, twin);
+
+		if (dimensionSuppliers == null)
+			dimensionSuppliers = new DimensionSupplier[dimensions.getDimensionCount()];
+		if (dimensionSuppliers[dimension] == null)
+			dimensionSuppliers[dimension] = new DimensionSupplier(dimension);
+
+		return dimensionSuppliers[dimension];
+	}
+
+	private void checkDimension(int dimension, boolean twin) {
+
+		if (dimensions == null || dimension < 0 || dimension >= dimensions.getDimensionCount())
+			throw new IllegalArgumentException("Sample-dimension " + dimension + " is not registered!");
+		if (dimensions.isTwin(dimension) != twin)
+			throw new IllegalArgumentException("Sample-dimension \"" + dimensions.getName(dimension) + "\" is not a "
+					+ ( twin ? "twin" : "single" ) + " dimension!");
+	}
+
+	/**
+	 * Move the given dimension on to its next value, generating a fresh set of
+	 * values if necessary, and return the position of that value in
+	 * <code>dimensionSources[dimension]</code>.
 	 */
-	public Supplier<Double> getAdditionalSingleSampleSupplier(String name, int period) {
+	private int advance(int dimension, boolean twin) {
+
+		checkDimension(dimension, twin);
+
+		if (dimensionPositions == null) {
+
+			final int dimensionCount = dimensions.getDimensionCount();
+			dimensionSources = new double[dimensionCount][];
+			dimensionPositions = new int[dimensionCount];
+			dimensionEnds = new int[dimensionCount];
 
-		if (!singleSampleSupplierMap.containsKey(name))
-			singleSampleSupplierMap.put(name, singleSampleSupplier.apply(period));
+			//
+			// Without pre-generated values, every dimension starts out used
+			// up, and so generates its first set on demand.
+			if (dimensionValues != null)
+				for (int d = 0; d < dimensionCount; d++) {
+					dimensionSources[d] = dimensionValues;
+					dimensionPositions[d] = dimensions.getOffset(d);
+					dimensionEnds[d] = dimensions.getOffset(d)
+							+ ( dimensions.isTwin(d) ? 2 : 1 ) * dimensions.getCount(d);
+				}
+		}
 
-		return singleSampleSupplierMap.get(name);
+		final int width = twin ? 2 : 1;
+
+		if (dimensionPositions[dimension] == dimensionEnds[dimension]) {
+
+			final int count = dimensions.getCount(dimension);
+			double[] source = dimensionSources[dimension];
+			if (source == null || source == dimensionValues)
+				source = new double[width * count];
+
+			sampler.generateDimension(source, 0, count, twin, random);
+
+			dimensionSources[dimension] = source;
+			dimensionPositions[dimension] = 0;
+			dimensionEnds[dimension] = source.length;
+		}
+
+		final int position = dimensionPositions[dimension];
+		dimensionPositions[dimension] += width;
+		return position;
 	}
 
 	/**
-	 * Return the {@link Supplier} of additional twin (i.e., {@link Point2D})
-	 * samples corresponding to the given name. If no such Supplier exists
-	 * already, create one (using the specified <code>period</code> if
-	 * applicable).
+	 * Hands out successive values of a single dimension, as either a
+	 * {@link DoubleSupplier} or a {@link TwinSampleSupplier}.
 	 */
-	public Supplier<Point2D> getAdditionalTwinSample(String name, int period) {
+	private class DimensionSupplier implements DoubleSupplier, TwinSampleSupplier {
+
+		private final int dimension;
+
+		public DimensionSupplier(int dimension) {
+			this.dimension = dimension;
+		}
+
+		@Override
+		public double getAsDouble() {
+
+			return getNextAdditionalSingleSample(dimension);
+		}
+
+		@Override
+		public double nextX() {
+
+			return getNextAdditionalTwinSampleX(dimension);
+		}
+
+		@Override
+		public double getY() {
+
+			return getAdditionalTwinSampleY(dimension);
+		}
 
-		if (!twinSampleSupplierMap.containsKey(name))
-			twinSampleSupplierMap.put(name, twinSampleSupplier.apply(period));
+		@Override
+		public Point2D get() {
 
-		return twinSampleSupplierMap.get(name);
+			return getNextAdditionalTwinSample(dimension);
+		}
 	}
 
 }
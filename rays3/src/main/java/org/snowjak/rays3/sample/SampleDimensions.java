@@ -0,0 +1,169 @@
+package org.snowjak.rays3.sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A registry of the additional dimensions -- beyond image-position, lens and
+ * time -- which an integrator will draw from each {@link Sample}.
+ * <p>
+ * An integrator registers each of its dimensions once, at setup, giving it a
+ * name (for diagnostics) and the number of values it expects to draw from
+ * each Sample. In exchange it receives an <code>int</code> handle, with which
+ * it then asks each Sample for that dimension's values (see
+ * {@link Sample#getNextAdditionalSingleSample(int)} and
+ * {@link Sample#getAdditionalTwinSample(int)}).
+ * </p>
+ * <p>
+ * The registry also lays out every dimension's values, end-to-end, in a single
+ * flat array, which a {@link Sampler} fills once for each Sample it generates
+ * (see {@link Sampler#generateDimensionValues(java.util.SplittableRandom)}).
+ * Twin (2D) values are stored as interleaved <code>(x, y)</code> pairs.
+ * </p>
+ * <p>
+ * Dimensions should all be registered before rendering begins.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class SampleDimensions {
+
+	private final List<String>	names;
+	private int[]				counts, offsets;
+	private boolean[]			twins;
+	private int					valueCount;
+
+	public SampleDimensions() {
+		this.names = new ArrayList<>();
+		this.counts = new int[8];
+		this.offsets = new int[8];
+		this.twins = new boolean[8];
+		this.valueCount = 0;
+	}
+
+	/**
+	 * Register a new dimension of single (i.e., <code>double</code>) values.
+	 * If a single dimension of that name and count is already registered,
+	 * return that instead.
+	 * 
+	 * @param name
+	 * @param count
+	 *            the number of values to pre-generate for each Sample
+	 * @return the new dimension's handle
+	 * @throws IllegalArgumentException
+	 *             if <code>count</code> is not positive, or if a dimension of
+	 *             that name is registered with a different shape
+	 */
+	public int register1D(String name, int count) {
+
+		return register(name, count, false);
+	}
+
+	/**
+	 * Register a new dimension of twin (i.e., 2D) values. If a twin dimension
+	 * of that name and count is already registered, return that instead.
+	 * 
+	 * @param name
+	 * @param count
+	 *            the number of values to pre-generate for each Sample
+	 * @return the new dimension's handle
+	 * @throws IllegalArgumentException
+	 *             if <code>count</code> is not positive, or if a dimension of
+	 *             that name is registered with a different shape
+	 */
+	public int register2D(String name, int count) {
+
+		return register(name, count, true);
+	}
+
+	private synchronized int register(String name, int count, boolean twin) {
+
+		if (count < 1)
+			throw new IllegalArgumentException("Sample-dimension must have at least 1 value per Sample!");
+
+		final int existing = names.indexOf(name);
+		if (existing >= 0) {
+			if (counts[existing] != count || twins[existing] != twin)
+				throw new IllegalArgumentException(
+						"Sample-dimension \"" + name + "\" is already registered with a different shape!");
+			return existing;
+		}
+
+		final int dimension = names.size();
+		if (dimension == counts.length) {
+			counts = Arrays.copyOf(counts, dimension * 2);
+			offsets = Arrays.copyOf(offsets, dimension * 2);
+			twins = Arrays.copyOf(twins, dimension * 2);
+		}
+
+		names.add(name);
+		counts[dimension] = count;
+		offsets[dimension] = valueCount;
+		twins[dimension] = twin;
+		valueCount += ( twin ? 2 : 1 ) * count;
+
+		return dimension;
+	}
+
+	/**
+	 * @return the number of dimensions registered
+	 */
+	public int getDimensionCount() {
+
+		return names.size();
+	}
+
+	/**
+	 * @param name
+	 * @return the handle of the dimension registered under the given name, or
+	 *         <code>-1</code> if there is none
+	 */
+	public int getDimension(String name) {
+
+		return names.indexOf(name);
+	}
+
+	public String getName(int dimension) {
+
+		return names.get(dimension);
+	}
+
+	/**
+	 * @param dimension
+	 * @return the number of values pre-generated for the given dimension
+	 */
+	public int getCount(int dimension) {
+
+		return counts[dimension];
+	}
+
+	/**
+	 * @param dimension
+	 * @return <code>true</code> if the given dimension holds twin (2D) values
+	 */
+	public boolean isTwin(int dimension) {
+
+		return twins[dimension];
+	}
+
+	/**
+	 * @param dimension
+	 * @return the offset of the given dimension's first value in the flat
+	 *         array of values
+	 */
+	public int getOffset(int dimension) {
+
+		return offsets[dimension];
+	}
+
+	/**
+	 * @return the total length of the flat array of values, across every
+	 *         dimension
+	 */
+	public int getValueCount() {
+
+		return valueCount;
+	}
+
+}
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.SplittableRandom;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
@@ -19,13 +20,28 @@ import org.snowjak.rays3.spectrum.Spectrum;
 
 /**
  * A Sampler is responsible for generating useful {@link Sample}s.
+ * <p>
+ * All of a Sampler's randomness is drawn from per-pixel random streams (see
+ * {@link #getPixelRandom(int, int)}), seeded only by the Sampler's seed and
+ * the pixel's coordinates. A pixel's Samples are therefore the same however
+ * the image is divided among Samplers, tiles and threads, and any pixel may be
+ * re-rendered exactly.
+ * </p>
  * 
  * @author snowjak88
  */
 public abstract class Sampler {
 
+	/**
+	 * The seed given to every new Sampler, unless changed with
+	 * {@link #setSeed(long)}.
+	 */
+	public static final long			DEFAULT_SEED		= 0L;
+
 	private final int					minFilmX, minFilmY, maxFilmX, maxFilmY;
 	private final int					samplesPerPixel;
+	private long						seed				= DEFAULT_SEED;
+	private SampleDimensions			sampleDimensions	= new SampleDimensions();
 
 	private final Runnable				samplesPregenerator;
 	private final CountDownLatch		samplesPregeneratedLatch;
@@ -164,21 +180,54 @@ public abstract class Sampler {
 
 			final int midX = ( getMaxFilmX() - getMinFilmX() ) / 2 + getMinFilmX();
 			return Arrays.asList(
-					splitSubSampler(getMinFilmX(), getMinFilmY(), midX, getMaxFilmY(), getPregenerateBufferSize() / 2),
-					splitSubSampler(midX + 1, getMinFilmY(), getMaxFilmX(), getMaxFilmY(),
-							getPregenerateBufferSize() / 2));
+					split(getMinFilmX(), getMinFilmY(), midX, getMaxFilmY(), getPregenerateBufferSize() / 2),
+					split(midX + 1, getMinFilmY(), getMaxFilmX(), getMaxFilmY(), getPregenerateBufferSize() / 2));
 
 		} else {
 
 			final int midY = ( getMaxFilmY() - getMinFilmY() ) / 2 + getMinFilmY();
 			return Arrays.asList(
-					splitSubSampler(getMinFilmX(), getMinFilmY(), getMaxFilmX(), midY, getPregenerateBufferSize() / 2),
-					splitSubSampler(getMinFilmX(), midY + 1, getMaxFilmX(), getMaxFilmY(),
-							getPregenerateBufferSize() / 2));
+					split(getMinFilmX(), getMinFilmY(), getMaxFilmX(), midY, getPregenerateBufferSize() / 2),
+					split(getMinFilmX(), midY + 1, getMaxFilmX(), getMaxFilmY(), getPregenerateBufferSize() / 2));
 
 		}
 	}
 
+	/**
+	 * Create a new Sampler covering the given part of this Sampler's domain,
+	 * which generates its {@link Sample}s only as they are asked for (i.e.,
+	 * does not pre-generate them).
+	 * <p>
+	 * A tile is meant to be worked through by a single thread, and so gains
+	 * nothing from another thread generating Samples ahead of it.
+	 * </p>
+	 * 
+	 * @param minFilmX
+	 * @param minFilmY
+	 * @param maxFilmX
+	 * @param maxFilmY
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given extents do not lie within this Sampler's
+	 *             domain
+	 */
+	public Sampler getTile(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY) {
+
+		if (minFilmX < getMinFilmX() || minFilmY < getMinFilmY() || maxFilmX > getMaxFilmX()
+				|| maxFilmY > getMaxFilmY() || minFilmX > maxFilmX || minFilmY > maxFilmY)
+			throw new IllegalArgumentException("Tile must lie within this Sampler's domain!");
+
+		return split(minFilmX, minFilmY, maxFilmX, maxFilmY, 0);
+	}
+
+	private Sampler split(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY, int pregenerateBufferSize) {
+
+		final Sampler subSampler = splitSubSampler(minFilmX, minFilmY, maxFilmX, maxFilmY, pregenerateBufferSize);
+		subSampler.setSeed(seed);
+		subSampler.setSampleDimensions(sampleDimensions);
+		return subSampler;
+	}
+
 	/**
 	 * Split off a new sub-Sampler off of this Sampler, using the given
 	 * film-extents as the sub-Sampler's new domain.
@@ -193,6 +242,88 @@ public abstract class Sampler {
 	protected abstract Sampler splitSubSampler(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY,
 			int pregenerateBufferSize);
 
+	/**
+	 * Get a new random stream for the given pixel. The stream depends only on
+	 * this Sampler's seed and the pixel's coordinates, so the same pixel always
+	 * gets the same stream.
+	 * <p>
+	 * Implementations should draw all of a pixel's random numbers from its
+	 * stream -- and give each of its Samples a stream {@link SplittableRandom#split()
+	 * split} from it -- in the order that they generate the pixel's Samples.
+	 * </p>
+	 * 
+	 * @param filmX
+	 * @param filmY
+	 * @return
+	 */
+	public SplittableRandom getPixelRandom(int filmX, int filmY) {
+
+		return new SplittableRandom(hash(seed, ( (long) filmX << 32 ) | ( filmY & 0xFFFFFFFFL )));
+	}
+
+	/**
+	 * Generate a fresh set of values for every one of this Sampler's
+	 * additional {@link SampleDimensions}, laid out as a single flat array.
+	 * 
+	 * @param random
+	 *            the random stream of the Sample being generated
+	 * @return
+	 * @see #generateDimension(double[], int, int, boolean, SplittableRandom)
+	 */
+	protected double[] generateDimensionValues(SplittableRandom random) {
+
+		final SampleDimensions dimensions = sampleDimensions;
+		final double[] values = new double[dimensions.getValueCount()];
+
+		for (int dimension = 0; dimension < dimensions.getDimensionCount(); dimension++)
+			generateDimension(values, dimensions.getOffset(dimension), dimensions.getCount(dimension),
+					dimensions.isTwin(dimension), random);
+
+		return values;
+	}
+
+	/**
+	 * Fill <code>values</code>, starting at <code>offset</code>, with
+	 * <code>count</code> values of a single dimension (interleaved
+	 * <code>(x, y)</code> pairs if <code>twin</code>), each on
+	 * <code>[0, 1)</code>.
+	 * <p>
+	 * Besides being used to generate each new {@link Sample}, this is called
+	 * from rendering threads whenever a Sample has used up all of a dimension's
+	 * values. Implementations must therefore draw only upon the given random
+	 * stream, and not upon this Sampler's own state.
+	 * </p>
+	 * <p>
+	 * By default, every value is drawn independently and uniformly.
+	 * </p>
+	 * 
+	 * @param values
+	 * @param offset
+	 * @param count
+	 * @param twin
+	 * @param random
+	 */
+	protected void generateDimension(double[] values, int offset, int count, boolean twin, SplittableRandom random) {
+
+		final int end = offset + ( twin ? 2 : 1 ) * count;
+		for (int i = offset; i < end; i++)
+			values[i] = random.nextDouble();
+	}
+
+	/**
+	 * Combine a seed with a value, scrambling the result thoroughly enough that
+	 * neighbouring values (e.g., adjacent pixels) give unrelated seeds.
+	 * (Without this, two seeds a multiple of {@link SplittableRandom}'s
+	 * increment apart would give overlapping streams.)
+	 */
+	static long hash(long seed, long value) {
+
+		long z = seed ^ ( value * 0x9E3779B97F4A7C15L );
+		z = ( z ^ ( z >>> 33 ) ) * 0xFF51AFD7ED558CCDL;
+		z = ( z ^ ( z >>> 33 ) ) * 0xC4CEB9FE1A85EC53L;
+		return z ^ ( z >>> 33 );
+	}
+
 	/**
 	 * @return a count of those {@link Sample}s that have been pre-generated and
 	 *         stored in this Sampler's internal queue
@@ -254,6 +385,20 @@ public abstract class Sampler {
 		return result;
 	}
 
+	/**
+	 * Prepare this Sampler to generate Samples, once all of its additional
+	 * {@link SampleDimensions} have been registered. This is called (on the
+	 * caller's thread) before any of a render's tiles are dispatched, so that
+	 * any expensive set-up need not be done on a rendering thread.
+	 * <p>
+	 * By default, this does nothing.
+	 * </p>
+	 */
+	public void prepare() {
+
+		// Nothing to prepare by default.
+	}
+
 	/**
 	 * If this Sampler was configued to do any {@link Sample} pre-generation,
 	 * generate those Samples now.
@@ -347,6 +492,48 @@ public abstract class Sampler {
 		return maxFilmY - minFilmY + 1;
 	}
 
+	/**
+	 * @return the seed from which this Sampler's per-pixel random streams are
+	 *         derived
+	 * @see #getPixelRandom(int, int)
+	 */
+	public long getSeed() {
+
+		return seed;
+	}
+
+	/**
+	 * Set the seed from which this Sampler's per-pixel random streams are
+	 * derived. Sub-Samplers and tiles take their parent's seed when they are
+	 * split off.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the registry of additional dimensions for which this Sampler
+	 *         generates values
+	 */
+	public SampleDimensions getSampleDimensions() {
+
+		return sampleDimensions;
+	}
+
+	/**
+	 * Set the registry of additional dimensions for which this Sampler
+	 * generates values. Sub-Samplers and tiles share their parent's registry.
+	 * 
+	 * @param sampleDimensions
+	 */
+	public void setSampleDimensions(SampleDimensions sampleDimensions) {
+
+		this.sampleDimensions = sampleDimensions;
+	}
+
 	public int getPregenerateBufferSize() {
 
 		return pregenerateBufferSize;
@@ -1,6 +1,7 @@
 package org.snowjak.rays3.sample;
 
-import org.snowjak.rays3.Global;
+import java.util.SplittableRandom;
+
 import org.snowjak.rays3.film.Film;
 import org.snowjak.rays3.spectrum.Spectrum;
 
@@ -13,8 +14,9 @@ import org.snowjak.rays3.spectrum.Spectrum;
  */
 public class SimplePseudorandomSampler extends Sampler {
 
-	private int	currFilmX, currFilmY;
-	private int	currSamplePerPixel;
+	private int					currFilmX, currFilmY;
+	private int					currSamplePerPixel;
+	private SplittableRandom	pixelRandom;
 
 	public SimplePseudorandomSampler(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY, int samplesPerPixel) {
 		this(minFilmX, minFilmY, maxFilmX, maxFilmY, samplesPerPixel, 0);
@@ -56,14 +58,20 @@ public class SimplePseudorandomSampler extends Sampler {
 				return null;
 		}
 
+		if (currSamplePerPixel == 0)
+			pixelRandom = getPixelRandom(currFilmX, currFilmY);
+		final SplittableRandom sampleRandom = pixelRandom.split();
+
 		final double currImageX = Film.convertDiscreteToContinuous(currFilmX),
 				currImageY = Film.convertDiscreteToContinuous(currFilmY);
 
-		final double imageXScatter = Global.RND.nextDouble() - 0.5d, imageYScatter = Global.RND.nextDouble() - 0.5d;
+		final double imageXScatter = sampleRandom.nextDouble() - 0.5d,
+				imageYScatter = sampleRandom.nextDouble() - 0.5d;
 
 		final double imageX_scattered = currImageX + imageXScatter, imageY_scattered = currImageY + imageYScatter;
 
-		return new Sample(this, imageX_scattered, imageY_scattered, Global.RND.nextDouble(), Global.RND.nextDouble());
+		return new Sample(this, imageX_scattered, imageY_scattered, sampleRandom.nextDouble(),
+				sampleRandom.nextDouble(), 0.5d, null, sampleRandom);
 	}
 
 	@Override
@@ -0,0 +1,268 @@
+package org.snowjak.rays3.sample;
+
+import java.util.SplittableRandom;
+
+import org.snowjak.rays3.spectrum.Spectrum;
+
+/**
+ * Implements low-discrepancy sampling, using shuffled, Owen-scrambled Sobol
+ * points.
+ * <p>
+ * Each pixel's image-plane, lens and time samples -- and each additional
+ * {@link SampleDimensions dimension} -- are drawn from their own
+ * 2-dimensional Sobol sequence (the first two Sobol dimensions, which together
+ * form a (0,2)-sequence). Each sequence is given its own nested-uniform
+ * ("Owen") scramble and its own shuffling of the sample-index, both seeded by
+ * hashing this Sampler's seed, the pixel's coordinates and the dimension. The
+ * dimensions are therefore decorrelated from one another, while each one
+ * remains well-stratified across the pixel's samples.
+ * </p>
+ * <p>
+ * Any sample, of any pixel, can be computed directly and in constant time (see
+ * {@link #getSample(int, int, int)}), without stepping through the pixels or
+ * samples before it.
+ * </p>
+ * <p>
+ * See Burley, "Practical Hash-based Owen Scrambling" (JCGT, 2020).
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class SobolSampler extends Sampler {
+
+	/**
+	 * The index of the first additional {@link SampleDimensions dimension},
+	 * after image-plane, lens and time.
+	 */
+	private static final int	FIRST_ADDITIONAL_DIMENSION	= 3;
+
+	/**
+	 * The generator-matrix of the second Sobol dimension (the first being the
+	 * identity -- i.e., the van der Corput sequence), one column per index-bit.
+	 */
+	private static final int[]	SOBOL_MATRIX_1				= new int[32];
+
+	static {
+		SOBOL_MATRIX_1[0] = 1 << 31;
+		for (int i = 1; i < SOBOL_MATRIX_1.length; i++)
+			SOBOL_MATRIX_1[i] = SOBOL_MATRIX_1[i - 1] ^ ( SOBOL_MATRIX_1[i - 1] >>> 1 );
+	}
+
+	private int					currFilmX, currFilmY, currPixelSample;
+
+	/**
+	 * Create a new SobolSampler.
+	 * <p>
+	 * <strong>Note</strong> that <code>samplesPerPixel</code> should be a
+	 * power of 2. If necessary, this number is <strong>rounded up</strong>.
+	 * </p>
+	 * 
+	 * @param minFilmX
+	 * @param minFilmY
+	 * @param maxFilmX
+	 * @param maxFilmY
+	 * @param samplesPerPixel
+	 */
+	public SobolSampler(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY, int samplesPerPixel) {
+		this(minFilmX, minFilmY, maxFilmX, maxFilmY, samplesPerPixel, 0);
+	}
+
+	/**
+	 * Create a new SobolSampler.
+	 * <p>
+	 * <strong>Note</strong> that <code>samplesPerPixel</code> should be a
+	 * power of 2. If necessary, this number is <strong>rounded up</strong>.
+	 * </p>
+	 * 
+	 * @param minFilmX
+	 * @param minFilmY
+	 * @param maxFilmX
+	 * @param maxFilmY
+	 * @param samplesPerPixel
+	 * @param pregenerateBufferSize
+	 */
+	public SobolSampler(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY, int samplesPerPixel,
+			int pregenerateBufferSize) {
+		super(minFilmX, minFilmY, maxFilmX, maxFilmY, roundUpToPowerOf2(samplesPerPixel), pregenerateBufferSize);
+
+		currFilmX = getMinFilmX();
+		currFilmY = getMinFilmY();
+		currPixelSample = -1;
+	}
+
+	@Override
+	protected Sampler splitSubSampler(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY,
+			int pregenerateBufferSize) {
+
+		return new SobolSampler(minFilmX, minFilmY, maxFilmX, maxFilmY, getSamplesPerPixel(),
+				pregenerateBufferSize);
+	}
+
+	@Override
+	protected Sample generateNextSample() {
+
+		currPixelSample++;
+		if (currPixelSample >= getSamplesPerPixel()) {
+
+			currPixelSample = 0;
+			currFilmY++;
+
+			if (currFilmY > getMaxFilmY()) {
+				currFilmY = getMinFilmY();
+				currFilmX++;
+
+				if (currFilmX > getMaxFilmX())
+					return null;
+			}
+		}
+
+		return getSample(currFilmX, currFilmY, currPixelSample);
+	}
+
+	/**
+	 * Compute the given sample of the given pixel. This depends only on this
+	 * Sampler's seed and {@link SampleDimensions}, and not on any other state,
+	 * so may be called from any thread and for any pixel.
+	 * 
+	 * @param filmX
+	 * @param filmY
+	 * @param sampleIndex
+	 *            the sample's index within its pixel -- ordinarily on
+	 *            <code>[0, samplesPerPixel)</code>, although later samples
+	 *            continue the same sequence
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if <code>sampleIndex</code> is negative
+	 */
+	public Sample getSample(int filmX, int filmY, int sampleIndex) {
+
+		if (sampleIndex < 0)
+			throw new IllegalArgumentException("Sample-index must not be negative!");
+
+		final long pixelSeed = hash(getSeed(), ( (long) filmX << 32 ) | ( filmY & 0xFFFFFFFFL ));
+
+		final double imageX = getScrambledSobol(sampleIndex, 0, getDimensionSeed(pixelSeed, 0)),
+				imageY = getScrambledSobol(sampleIndex, 1, getDimensionSeed(pixelSeed, 0));
+		final double lensU = getScrambledSobol(sampleIndex, 0, getDimensionSeed(pixelSeed, 1)),
+				lensV = getScrambledSobol(sampleIndex, 1, getDimensionSeed(pixelSeed, 1));
+		final double t = getScrambledSobol(sampleIndex, 0, getDimensionSeed(pixelSeed, 2));
+
+		final SplittableRandom sampleRandom = new SplittableRandom(hash(pixelSeed, sampleIndex));
+
+		//
+		// Each additional dimension's values, across all of the pixel's
+		// samples, are successive points of the same sequence.
+		final SampleDimensions dimensions = getSampleDimensions();
+		final double[] values = new double[dimensions.getValueCount()];
+		for (int dimension = 0; dimension < dimensions.getDimensionCount(); dimension++) {
+
+			final int count = dimensions.getCount(dimension), offset = dimensions.getOffset(dimension);
+			final int dimensionSeed = getDimensionSeed(pixelSeed, FIRST_ADDITIONAL_DIMENSION + dimension);
+
+			if (dimensions.isTwin(dimension))
+				for (int i = 0; i < count; i++) {
+					values[offset + 2 * i] = getScrambledSobol(sampleIndex * count + i, 0, dimensionSeed);
+					values[offset + 2 * i + 1] = getScrambledSobol(sampleIndex * count + i, 1, dimensionSeed);
+				}
+			else
+				for (int i = 0; i < count; i++)
+					values[offset + i] = getScrambledSobol(sampleIndex * count + i, 0, dimensionSeed);
+		}
+
+		return new Sample(this, imageX + (double) filmX, imageY + (double) filmY, lensU, lensV, t, null,
+				sampleRandom, values);
+	}
+
+	/**
+	 * Once a {@link Sample} has used up a dimension's values, its fresh values
+	 * are the first <code>count</code> points of a new sequence, scrambled by
+	 * a seed drawn from the Sample's random stream.
+	 */
+	@Override
+	protected void generateDimension(double[] values, int offset, int count, boolean twin, SplittableRandom random) {
+
+		final int seed = random.nextInt();
+
+		if (twin)
+			for (int i = 0; i < count; i++) {
+				values[offset + 2 * i] = getScrambledSobol(i, 0, seed);
+				values[offset + 2 * i + 1] = getScrambledSobol(i, 1, seed);
+			}
+		else
+			for (int i = 0; i < count; i++)
+				values[offset + i] = getScrambledSobol(i, 0, seed);
+	}
+
+	@Override
+	public boolean isSampleAcceptable(Sample sample, Spectrum result) {
+
+		// All samples are always considered to be acceptable -- i.e., we have
+		// no criterion for rejecting Sample results.
+		return true;
+	}
+
+	private static int getDimensionSeed(long pixelSeed, int dimension) {
+
+		return (int) hash(pixelSeed, dimension);
+	}
+
+	/**
+	 * Compute the given point, in the given Sobol dimension (<code>0</code> or
+	 * <code>1</code>), of the sequence identified by <code>seed</code>. The
+	 * index is shuffled, and the resulting point scrambled, by nested-uniform
+	 * scrambles seeded from <code>seed</code>; both dimensions of the same
+	 * sequence share the same shuffle, but not the same scramble.
+	 * <p>
+	 * The shuffle maps the first 2<sup>m</sup> indices to indices whose low
+	 * <code>m</code> bits are all different, and the leading <code>m</code>
+	 * bits of each Sobol dimension depend only on those bits -- so the first
+	 * 2<sup>m</sup> points of every sequence still form a (0,m,2)-net.
+	 * </p>
+	 * 
+	 * @param index
+	 * @param sobolDimension
+	 * @param seed
+	 * @return a value on <code>[0, 1)</code>
+	 */
+	static double getScrambledSobol(int index, int sobolDimension, int seed) {
+
+		final int shuffled = nestedUniformScramble(index, (int) hash(seed, 0x5EED));
+
+		int result = 0;
+		if (sobolDimension == 0)
+			result = Integer.reverse(shuffled);
+		else
+			for (int bit = 0, i = shuffled; i != 0; bit++, i >>>= 1)
+				if (( i & 1 ) != 0)
+					result ^= SOBOL_MATRIX_1[bit];
+
+		result = nestedUniformScramble(result, (int) hash(seed, sobolDimension));
+
+		return ( result & 0xFFFFFFFFL ) * 0x1p-32;
+	}
+
+	/**
+	 * Apply a nested-uniform ("Owen") scramble to the bits of <code>x</code>,
+	 * from most- to least-significant. Each bit is flipped (or not) depending
+	 * only on the bits above it.
+	 */
+	private static int nestedUniformScramble(int x, int seed) {
+
+		//
+		// The hash below flips each bit depending only on the bits *below*
+		// it, so apply it to the reversed bits.
+		x = Integer.reverse(x);
+		x ^= x * 0x3d20adea;
+		x += seed;
+		x *= ( seed >>> 16 ) | 1;
+		x ^= x * 0x05526c56;
+		x ^= x * 0x53a22864;
+		return Integer.reverse(x);
+	}
+
+	private static int roundUpToPowerOf2(int n) {
+
+		return ( n <= 1 ) ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+}
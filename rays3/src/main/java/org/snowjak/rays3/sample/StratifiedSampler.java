@@ -4,10 +4,9 @@ import static org.apache.commons.math3.util.FastMath.ceil;
 import static org.apache.commons.math3.util.FastMath.pow;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
-import java.util.function.Function;
+import java.util.SplittableRandom;
 import java.util.function.Supplier;
 
-import org.snowjak.rays3.Global;
 import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.spectrum.Spectrum;
 
@@ -33,6 +32,7 @@ public class StratifiedSampler extends Sampler {
 
 	private Supplier<Point2D>	imageSamples, lensSamples;
 	private Supplier<Double>	timeSamples;
+	private SplittableRandom	pixelRandom;
 
 	/**
 	 * Create a new StratifiedSampler.
@@ -71,10 +71,6 @@ public class StratifiedSampler extends Sampler {
 		currPixelSample = -1;
 
 		gridSideSize = (int) ceil(sqrt((double) samplesPerPixel));
-
-		imageSamples = new Stratified2DSupplier(gridSideSize);
-		lensSamples = new Stratified2DSupplier(gridSideSize);
-		timeSamples = new Stratified1DSupplier(gridSideSize);
 	}
 
 	@Override
@@ -103,28 +99,82 @@ public class StratifiedSampler extends Sampler {
 			}
 		}
 
+		//
+		// Each pixel gets its own strata, drawn from its own random stream.
+		if (currPixelSample == 0) {
+			final SplittableRandom pixelRandom = getPixelRandom(currFilmX, currFilmY);
+			imageSamples = new Stratified2DSupplier(gridSideSize, pixelRandom);
+			lensSamples = new Stratified2DSupplier(gridSideSize, pixelRandom);
+			timeSamples = new Stratified1DSupplier(gridSideSize, pixelRandom);
+			this.pixelRandom = pixelRandom;
+		}
+
 		final Point2D imageSample = imageSamples.get();
 		final Point2D lensSample = lensSamples.get();
 		final double timeSample = timeSamples.get();
 
-		return new Sample(this, imageSample.getX() + (double) currFilmX, imageSample.getY() + (double) currFilmY,
-				lensSample.getX(), lensSample.getY(), timeSample, null, new Function<Integer, Supplier<Double>>() {
-
-					@Override
-					public Supplier<Double> apply(Integer period) {
+		final SplittableRandom sampleRandom = pixelRandom.split();
 
-						return new Stratified1DSupplier(period);
-					}
-
-				}, new Function<Integer, Supplier<Point2D>>() {
+		return new Sample(this, imageSample.getX() + (double) currFilmX, imageSample.getY() + (double) currFilmY,
+				lensSample.getX(), lensSample.getY(), timeSample, null, sampleRandom,
+				generateDimensionValues(sampleRandom));
+	}
 
-					@Override
-					public Supplier<Point2D> apply(Integer period) {
+	/**
+	 * Each dimension's values are stratified across <code>[0, 1)</code> (or,
+	 * for twin dimensions, across a <code>ceil(sqrt(count))</code>-square
+	 * grid, of which <code>count</code> cells are chosen) and then shuffled, so
+	 * that successive values -- and the values of different dimensions -- are
+	 * not correlated with one another.
+	 */
+	@Override
+	protected void generateDimension(double[] values, int offset, int count, boolean twin, SplittableRandom random) {
+
+		if (!twin) {
+
+			final double cellWidth = 1d / (double) count;
+			for (int i = 0; i < count; i++)
+				values[offset + i] = ( (double) i + random.nextDouble() ) * cellWidth;
+
+		} else {
+
+			final int sideLength = (int) ceil(sqrt((double) count));
+			final double cellWidth = 1d / (double) sideLength;
+
+			//
+			// If count isn't square, we can't use every cell -- so choose
+			// which cells to use at random.
+			int[] cells = null;
+			if (sideLength * sideLength != count) {
+				cells = new int[sideLength * sideLength];
+				for (int i = 0; i < cells.length; i++)
+					cells[i] = i;
+				for (int i = 0; i < count; i++) {
+					final int j = i + random.nextInt(cells.length - i);
+					final int swap = cells[i];
+					cells[i] = cells[j];
+					cells[j] = swap;
+				}
+			}
 
-						return new Stratified2DSupplier((int) ceil(sqrt((double) period)));
-					}
+			for (int i = 0; i < count; i++) {
+				final int cell = ( cells == null ) ? i : cells[i];
+				values[offset + 2 * i] = ( (double) ( cell / sideLength ) + random.nextDouble() ) * cellWidth;
+				values[offset + 2 * i + 1] = ( (double) ( cell % sideLength ) + random.nextDouble() ) * cellWidth;
+			}
+		}
 
-				});
+		//
+		// Shuffle the values (or pairs of values).
+		final int width = twin ? 2 : 1;
+		for (int i = count - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			for (int k = 0; k < width; k++) {
+				final double swap = values[offset + width * i + k];
+				values[offset + width * i + k] = values[offset + width * j + k];
+				values[offset + width * j + k] = swap;
+			}
+		}
 	}
 
 	@Override
@@ -139,17 +189,20 @@ public class StratifiedSampler extends Sampler {
 	 * Supplies stratified <code>double</code> samples on the interval
 	 * <code>[0..1]</code>, from smallest to largest. When the current set of
 	 * stratified samples is completely scanned, this Supplier automatically
-	 * compiles a new set of samples.
+	 * compiles a new set of samples. Samples are jittered using the given
+	 * random stream.
 	 * 
 	 * @author snowjak88
 	 */
 	public static class Stratified1DSupplier implements Supplier<Double> {
 
-		private double[]	stratum;
-		private int			currentElement;
+		private final SplittableRandom	random;
+		private double[]				stratum;
+		private int						currentElement;
 
-		public Stratified1DSupplier(int length) {
-			this.stratum = generate1DStratum(length);
+		public Stratified1DSupplier(int length, SplittableRandom random) {
+			this.random = random;
+			this.stratum = generate1DStratum(length, random);
 			this.currentElement = -1;
 		}
 
@@ -159,7 +212,7 @@ public class StratifiedSampler extends Sampler {
 			currentElement++;
 
 			if (currentElement >= stratum.length) {
-				stratum = generate1DStratum(stratum.length);
+				stratum = generate1DStratum(stratum.length, random);
 				currentElement = 0;
 			}
 
@@ -172,17 +225,20 @@ public class StratifiedSampler extends Sampler {
 	 * Supplies stratified {@link Point2D} samples on the interval
 	 * <code>[(0,0), (1,1)]</code>, by columns first. When the current set of
 	 * stratified samples is completely scanned, this Supplier automatically
-	 * compiles a new set of samples.
+	 * compiles a new set of samples. Samples are jittered using the given
+	 * random stream.
 	 * 
 	 * @author snowjak88
 	 */
 	public static class Stratified2DSupplier implements Supplier<Point2D> {
 
-		private Point2D[][]	stratum;
-		private int			currentI, currentJ;
+		private final SplittableRandom	random;
+		private Point2D[][]				stratum;
+		private int						currentI, currentJ;
 
-		public Stratified2DSupplier(int sideLength) {
-			this.stratum = generate2DStratum(sideLength);
+		public Stratified2DSupplier(int sideLength, SplittableRandom random) {
+			this.random = random;
+			this.stratum = generate2DStratum(sideLength, random);
 			this.currentI = 0;
 			this.currentJ = -1;
 		}
@@ -199,7 +255,7 @@ public class StratifiedSampler extends Sampler {
 				if (currentI >= stratum.length) {
 					currentI = 0;
 					currentJ = 0;
-					stratum = generate2DStratum(stratum.length);
+					stratum = generate2DStratum(stratum.length, random);
 				}
 			}
 
@@ -208,14 +264,14 @@ public class StratifiedSampler extends Sampler {
 
 	}
 
-	public static double[] generate1DStratum(int length) {
+	public static double[] generate1DStratum(int length, SplittableRandom random) {
 
 		final double[] results = new double[length];
 
 		final double sampleWidth = 1d / (double) length;
 		for (int i = 0; i < length; i++) {
 
-			final double jitter = Global.RND.nextDouble();
+			final double jitter = random.nextDouble();
 			results[i] = ( (double) i * sampleWidth ) + ( jitter * sampleWidth );
 
 		}
@@ -223,7 +279,7 @@ public class StratifiedSampler extends Sampler {
 		return results;
 	}
 
-	public static Point2D[][] generate2DStratum(int sideLength) {
+	public static Point2D[][] generate2DStratum(int sideLength, SplittableRandom random) {
 
 		final Point2D[][] cells = new Point2D[sideLength][sideLength];
 		final double cellLengthX = 1d / ( (double) sideLength );
@@ -234,8 +290,8 @@ public class StratifiedSampler extends Sampler {
 
 			for (int j = 0; j < cells[0].length; j++) {
 
-				final double jitterX = Global.RND.nextDouble();
-				final double jitterY = Global.RND.nextDouble();
+				final double jitterX = random.nextDouble();
+				final double jitterY = random.nextDouble();
 
 				final double x = ( (double) i * cellLengthX ) + ( jitterX * cellLengthX );
 				final double y = ( (double) j * cellLengthY ) + ( jitterY * cellLengthY );
@@ -0,0 +1,84 @@
+package org.snowjak.rays3.sample;
+
+import java.util.function.Supplier;
+
+import org.snowjak.rays3.geometry.Point2D;
+
+/**
+ * Supplies successive values of a twin (i.e., 2-dimensional) sample-dimension.
+ * <p>
+ * Each value may be read either as a whole {@link Point2D} (see
+ * {@link #get()}), or -- without allocating anything -- one coordinate at a
+ * time:
+ *
+ * <pre>
+ * final double u = supplier.nextX();
+ * final double v = supplier.getY();
+ * </pre>
+ * </p>
+ *
+ * @author snowjak88
+ * @see Sample#getAdditionalTwinSample(int)
+ */
+public interface TwinSampleSupplier extends Supplier<Point2D> {
+
+	/**
+	 * Move on to the next value, and return its X-coordinate.
+	 *
+	 * @return
+	 */
+	public double nextX();
+
+	/**
+	 * @return the Y-coordinate of the value whose X-coordinate was most
+	 *         recently returned by {@link #nextX()}
+	 * @throws IllegalStateException
+	 *             if {@link #nextX()} has not yet been called
+	 */
+	public double getY();
+
+	@Override
+	public default Point2D get() {
+
+		final double x = nextX();
+		return new Point2D(x, getY());
+	}
+
+	/**
+	 * Adapt the given {@link Supplier} of {@link Point2D}s into a
+	 * TwinSampleSupplier.
+	 *
+	 * @param supplier
+	 * @return
+	 */
+	public static TwinSampleSupplier of(Supplier<Point2D> supplier) {
+
+		return new TwinSampleSupplier() {
+
+			private Point2D current;
+
+			@Override
+			public double nextX() {
+
+				current = supplier.get();
+				return current.getX();
+			}
+
+			@Override
+			public double getY() {
+
+				if (current == null)
+					throw new IllegalStateException("No value has been supplied yet!");
+
+				return current.getY();
+			}
+
+			@Override
+			public Point2D get() {
+
+				return supplier.get();
+			}
+		};
+	}
+
+}
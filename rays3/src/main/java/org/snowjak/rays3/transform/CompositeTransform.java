@@ -0,0 +1,133 @@
+package org.snowjak.rays3.transform;
+
+import java.util.List;
+
+import org.snowjak.rays3.geometry.Matrix;
+import org.snowjak.rays3.geometry.Normal;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+
+/**
+ * Represents a whole list of {@link Transform}s, collapsed into a single
+ * Transform. The world-to-local and local-to-world forms of the list are each
+ * composed into a single affine Matrix -- so that transforming a Point,
+ * Vector, Normal, or Ray costs a single matrix-vector product, no matter how
+ * many Transforms are in the list.
+ * <p>
+ * As with {@link ScaleTransform}, a Ray's curr-, min-, and max-T are re-scaled
+ * to match its transformed direction.
+ * </p>
+ * 
+ * @author snowjak88
+ * @see Transformable#getCompositeTransform()
+ */
+public class CompositeTransform implements Transform {
+
+	private final Matrix	worldToLocal, localToWorld;
+
+	/**
+	 * Collapse the given list of world-to-local {@link Transform}s into a
+	 * single CompositeTransform.
+	 * 
+	 * @param worldToLocal
+	 * @see Transformable#getWorldToLocalTransforms()
+	 */
+	public CompositeTransform(List<Transform> worldToLocal) {
+
+		Matrix composedWorldToLocal = Matrix.IDENTITY, composedLocalToWorld = Matrix.IDENTITY;
+		for (Transform t : worldToLocal) {
+			composedWorldToLocal = t.getWorldToLocal().multiply(composedWorldToLocal);
+			composedLocalToWorld = composedLocalToWorld.multiply(t.getLocalToWorld());
+		}
+
+		this.worldToLocal = composedWorldToLocal;
+		this.localToWorld = composedLocalToWorld;
+	}
+
+	@Override
+	public Point worldToLocal(Point point) {
+
+		return worldToLocal.multiply(point);
+	}
+
+	@Override
+	public Point localToWorld(Point point) {
+
+		return localToWorld.multiply(point);
+	}
+
+	@Override
+	public Vector worldToLocal(Vector vector) {
+
+		return worldToLocal.multiply(vector);
+	}
+
+	@Override
+	public Vector localToWorld(Vector vector) {
+
+		return localToWorld.multiply(vector);
+	}
+
+	@Override
+	public Ray worldToLocal(Ray ray) {
+
+		return transform(worldToLocal, ray);
+	}
+
+	@Override
+	public Ray localToWorld(Ray ray) {
+
+		return transform(localToWorld, ray);
+	}
+
+	@Override
+	public Normal worldToLocal(Normal normal) {
+
+		return worldToLocal.transformNormal(normal);
+	}
+
+	@Override
+	public Normal localToWorld(Normal normal) {
+
+		return localToWorld.transformNormal(normal);
+	}
+
+	@Override
+	public Interaction worldToLocal(Interaction interaction) {
+
+		return new Interaction(worldToLocal(interaction.getPoint()), worldToLocal(interaction.getInteractingRay()),
+				worldToLocal(interaction.getNormal()), interaction.getParam(), interaction.getPrimitive());
+	}
+
+	@Override
+	public Interaction localToWorld(Interaction interaction) {
+
+		return new Interaction(localToWorld(interaction.getPoint()), localToWorld(interaction.getInteractingRay()),
+				localToWorld(interaction.getNormal()), interaction.getParam(), interaction.getPrimitive());
+	}
+
+	private static Ray transform(Matrix matrix, Ray ray) {
+
+		final Vector direction = ray.getDirection();
+		final Vector transformedDirection = matrix.multiply(direction);
+		final double scale = transformedDirection.getMagnitude() / direction.getMagnitude();
+
+		return new Ray(matrix.multiply(ray.getOrigin()), transformedDirection, ray.getDepth(),
+				ray.getCurrT() * scale, ray.getMinT() * scale, ray.getMaxT() * scale, ray.getWeight());
+	}
+
+	@Override
+	public Matrix getWorldToLocal() {
+
+		return worldToLocal;
+	}
+
+	@Override
+	public Matrix getLocalToWorld() {
+
+		return localToWorld;
+	}
+
+}
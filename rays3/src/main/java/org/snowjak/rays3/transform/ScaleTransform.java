@@ -14,8 +14,7 @@ import org.snowjak.rays3.intersect.Interaction;
  */
 public class ScaleTransform implements Transform {
 
-	private Matrix	worldToLocal	= null, worldToLocal_inverseTranspose = null;
-	private Matrix	localToWorld	= null, localToWorld_inverseTranspose = null;
+	private final Matrix	worldToLocal, localToWorld;
 
 	/**
 	 * Create a new ScaleTransform, with the specified
@@ -42,25 +41,25 @@ public class ScaleTransform implements Transform {
 	@Override
 	public Point worldToLocal(Point point) {
 
-		return new Point(apply(worldToLocal, point.getX(), point.getY(), point.getZ(), 1d));
+		return worldToLocal.multiply(point);
 	}
 
 	@Override
 	public Point localToWorld(Point point) {
 
-		return new Point(apply(localToWorld, point.getX(), point.getY(), point.getZ(), 1d));
+		return localToWorld.multiply(point);
 	}
 
 	@Override
 	public Vector worldToLocal(Vector vector) {
 
-		return new Vector(apply(worldToLocal, vector.getX(), vector.getY(), vector.getZ(), 1d));
+		return worldToLocal.multiply(vector);
 	}
 
 	@Override
 	public Vector localToWorld(Vector vector) {
 
-		return new Vector(apply(localToWorld, vector.getX(), vector.getY(), vector.getZ(), 1d));
+		return localToWorld.multiply(vector);
 	}
 
 	@Override
@@ -94,19 +93,13 @@ public class ScaleTransform implements Transform {
 	@Override
 	public Normal worldToLocal(Normal normal) {
 
-		if (worldToLocal_inverseTranspose == null)
-			worldToLocal_inverseTranspose = worldToLocal.inverse().transpose();
-
-		return new Normal(apply(worldToLocal_inverseTranspose, normal.getX(), normal.getY(), normal.getZ(), 1d));
+		return worldToLocal.transformNormal(normal);
 	}
 
 	@Override
 	public Normal localToWorld(Normal normal) {
 
-		if (localToWorld_inverseTranspose == null)
-			localToWorld_inverseTranspose = localToWorld.inverse().transpose();
-
-		return new Normal(apply(localToWorld_inverseTranspose, normal.getX(), normal.getY(), normal.getZ(), 1d));
+		return localToWorld.transformNormal(normal);
 	}
 
 	@Override
@@ -123,11 +116,6 @@ public class ScaleTransform implements Transform {
 				localToWorld(interaction.getNormal()), interaction.getParam(), interaction.getPrimitive());
 	}
 
-	private double[] apply(Matrix matrix, double... coordinates) {
-
-		return matrix.multiply(coordinates);
-	}
-
 	@Override
 	public Matrix getWorldToLocal() {
 
@@ -13,6 +13,11 @@ import org.snowjak.rays3.intersect.Interaction;
  * Indicates that an object is associated with one or more {@link Transform}s,
  * and can use those Transforms to convert points in its object-local
  * coordinate-space to world/global and vice versa.
+ * <p>
+ * Each of the <code>worldToLocal()</code> and <code>localToWorld()</code>
+ * methods applies this Transformable's {@link #getCompositeTransform()
+ * composite Transform}, rather than applying each Transform in turn.
+ * </p>
  * 
  * @author snowjak88
  */
@@ -41,6 +46,22 @@ public interface Transformable {
 	 */
 	public void appendTransform(Transform transform);
 
+	/**
+	 * Get a single {@link Transform} equivalent to this Transformable's whole
+	 * list of Transforms (see {@link CompositeTransform}).
+	 * <p>
+	 * By default, this is composed anew on every call. Implementations should
+	 * instead cache it, discarding it whenever
+	 * {@link #appendTransform(Transform)} is called.
+	 * </p>
+	 * 
+	 * @return
+	 */
+	public default Transform getCompositeTransform() {
+
+		return new CompositeTransform(getWorldToLocalTransforms());
+	}
+
 	/**
 	 * Transform the given Point from world- to this-object-local coordinates.
 	 * 
@@ -49,11 +70,7 @@ public interface Transformable {
 	 */
 	public default Point worldToLocal(Point point) {
 
-		Point working = point;
-		for (Transform t : getWorldToLocalTransforms())
-			working = t.worldToLocal(working);
-
-		return working;
+		return getCompositeTransform().worldToLocal(point);
 	}
 
 	/**
@@ -64,11 +81,7 @@ public interface Transformable {
 	 */
 	public default Point localToWorld(Point point) {
 
-		Point working = point;
-		for (Transform t : getLocalToWorldTransforms())
-			working = t.localToWorld(working);
-
-		return working;
+		return getCompositeTransform().localToWorld(point);
 	}
 
 	/**
@@ -79,11 +92,7 @@ public interface Transformable {
 	 */
 	public default Vector worldToLocal(Vector vector) {
 
-		Vector working = vector;
-		for (Transform t : getWorldToLocalTransforms())
-			working = t.worldToLocal(working);
-
-		return working;
+		return getCompositeTransform().worldToLocal(vector);
 	}
 
 	/**
@@ -94,11 +103,7 @@ public interface Transformable {
 	 */
 	public default Vector localToWorld(Vector vector) {
 
-		Vector working = vector;
-		for (Transform t : getLocalToWorldTransforms())
-			working = t.localToWorld(working);
-
-		return working;
+		return getCompositeTransform().localToWorld(vector);
 	}
 
 	/**
@@ -109,11 +114,7 @@ public interface Transformable {
 	 */
 	public default Ray worldToLocal(Ray ray) {
 
-		Ray working = ray;
-		for (Transform t : getWorldToLocalTransforms())
-			working = t.worldToLocal(working);
-
-		return working;
+		return getCompositeTransform().worldToLocal(ray);
 	}
 
 	/**
@@ -124,11 +125,7 @@ public interface Transformable {
 	 */
 	public default Ray localToWorld(Ray ray) {
 
-		Ray working = ray;
-		for (Transform t : getLocalToWorldTransforms())
-			working = t.localToWorld(working);
-
-		return working;
+		return getCompositeTransform().localToWorld(ray);
 	}
 
 	/**
@@ -139,11 +136,7 @@ public interface Transformable {
 	 */
 	public default Normal worldToLocal(Normal normal) {
 
-		Normal working = normal;
-		for (Transform t : getWorldToLocalTransforms())
-			working = t.worldToLocal(working);
-
-		return working;
+		return getCompositeTransform().worldToLocal(normal);
 	}
 
 	/**
@@ -154,11 +147,7 @@ public interface Transformable {
 	 */
 	public default Normal localToWorld(Normal normal) {
 
-		Normal working = normal;
-		for (Transform t : getLocalToWorldTransforms())
-			working = t.localToWorld(working);
-
-		return working;
+		return getCompositeTransform().localToWorld(normal);
 	}
 
 	/**
@@ -170,11 +159,7 @@ public interface Transformable {
 	 */
 	public default Interaction worldToLocal(Interaction interaction) {
 
-		Interaction working = interaction;
-		for (Transform t : getWorldToLocalTransforms())
-			working = t.worldToLocal(working);
-
-		return working;
+		return getCompositeTransform().worldToLocal(interaction);
 	}
 
 	/**
@@ -186,11 +171,7 @@ public interface Transformable {
 	 */
 	public default Interaction localToWorld(Interaction interaction) {
 
-		Interaction working = interaction;
-		for (Transform t : getLocalToWorldTransforms())
-			working = t.localToWorld(working);
-
-		return working;
+		return getCompositeTransform().localToWorld(interaction);
 	}
 
 	/**
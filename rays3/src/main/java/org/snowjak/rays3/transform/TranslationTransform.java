@@ -41,13 +41,13 @@ public class TranslationTransform implements Transform {
 	@Override
 	public Point worldToLocal(Point point) {
 
-		return new Point(apply(worldToLocal, point.getX(), point.getY(), point.getZ(), 1d));
+		return worldToLocal.multiply(point);
 	}
 
 	@Override
 	public Point localToWorld(Point point) {
 
-		return new Point(apply(localToWorld, point.getX(), point.getY(), point.getZ(), 1d));
+		return localToWorld.multiply(point);
 	}
 
 	/**
@@ -114,11 +114,6 @@ public class TranslationTransform implements Transform {
 				localToWorld(interaction.getNormal()), interaction.getParam(), interaction.getPrimitive());
 	}
 
-	private double[] apply(Matrix matrix, double... coordinates) {
-
-		return matrix.multiply(coordinates);
-	}
-
 	@Override
 	public Matrix getWorldToLocal() {
 
@@ -15,6 +15,7 @@ import org.snowjak.rays3.geometry.shape.Primitive;
 import org.snowjak.rays3.geometry.shape.SphereShape;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.sample.SimplePseudorandomSampler;
 import org.snowjak.rays3.spectrum.RGB;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
@@ -28,6 +29,7 @@ public class LambertianBDRFTest {
 	private Primitive		primitive;
 	private Interaction		interaction;
 	private Sample			sample;
+	private int				dimension;
 
 	@Before
 	public void setUp() throws Exception {
@@ -36,7 +38,9 @@ public class LambertianBDRFTest {
 		final Spectrum emissive = RGBSpectrum.BLACK;
 		this.bdrf = new LambertianBRDF(texture, emissive);
 
-		sample = new Sample(new SimplePseudorandomSampler(0, 0, 15, 15, 1), 8.5, 8.5, 0.5, 0.5);
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 15, 15, 1);
+		dimension = sampler.getSampleDimensions().register2D("test", 1);
+		sample = new Sample(sampler, 8.5, 8.5, 0.5, 0.5);
 		primitive = new Primitive(new SphereShape(1.0), bdrf);
 		interaction = new Interaction(new Point(0, 1, 0),
 				new Ray(new Point(-1, 2, 0), new Vector(1, -1, 0).normalize()), new Normal(Vector.J),
@@ -46,7 +50,7 @@ public class LambertianBDRFTest {
 	@Test
 	public void testF_r() {
 
-		final Spectrum reflected = bdrf.f_r(interaction, sample, sample.getAdditionalTwinSample("test", 1), Vector.J);
+		final Spectrum reflected = bdrf.f_r(interaction, sample, sample.getAdditionalTwinSample(dimension), Vector.J);
 
 		assertEquals("Reflected-Red was not as expected!", 1d, reflected.toRGB().getRed(), 0.00001);
 		assertEquals("Reflected-Green was not as expected!", 0d, reflected.toRGB().getGreen(), 0.00001);
@@ -56,7 +60,7 @@ public class LambertianBDRFTest {
 	@Test
 	public void testsampleL_e() {
 
-		Spectrum emissive = bdrf.sampleL_e(interaction, sample, sample.getAdditionalTwinSample("test", 1));
+		Spectrum emissive = bdrf.sampleL_e(interaction, sample, sample.getAdditionalTwinSample(dimension));
 
 		assertEquals("Emissive-Red was not as expected!", 0d, emissive.toRGB().getRed(), 0.00001);
 		assertEquals("Emissive-Green was not as expected!", 0d, emissive.toRGB().getGreen(), 0.00001);
@@ -69,7 +73,7 @@ public class LambertianBDRFTest {
 		for (int i = 0; i < 32; i++) {
 
 			final Vector sampledReflection = bdrf.sampleW_i(interaction, sample,
-					sample.getAdditionalTwinSample("test", 1));
+					sample.getAdditionalTwinSample(dimension));
 			final double dotProduct = sampledReflection
 					.normalize()
 						.dotProduct(interaction.getNormal().asVector().normalize());
@@ -82,7 +86,7 @@ public class LambertianBDRFTest {
 	public void testPdfW_i() {
 
 		assertEquals("PDF of w_i should always be 1 / (2 * pi)", 1d / ( 2d * PI ),
-				bdrf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample("test", 1), null), 0.00001);
+				bdrf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample(dimension), null), 0.00001);
 	}
 
 }
@@ -10,6 +10,7 @@ import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.sample.SimplePseudorandomSampler;
 import org.snowjak.rays3.spectrum.RGB;
 import org.snowjak.rays3.spectrum.RGBSpectrum;
@@ -24,9 +25,11 @@ public class PerfectSpecularBRDFTest {
 		final BSDF bsdf = new PerfectSpecularBRDF();
 		final Interaction interaction = new Interaction(new Point(0, 0, 0),
 				new Ray(new Point(-1, 1, 0), new Vector(1, -1, 0)), new Normal(Vector.J), new Point2D(1, 1), null);
-		final Sample sample = new Sample(new SimplePseudorandomSampler(0, 0, 31, 31, 1), 8.0, 8.0);
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 31, 31, 1);
+		final int dimension = sampler.getSampleDimensions().register2D("test", 1);
+		final Sample sample = new Sample(sampler, 8.0, 8.0);
 
-		final Vector w_i = bsdf.sampleW_i(interaction, sample, sample.getAdditionalTwinSample("test", 1)).normalize();
+		final Vector w_i = bsdf.sampleW_i(interaction, sample, sample.getAdditionalTwinSample(dimension)).normalize();
 		final Vector expected = BSDF
 				.getPerfectSpecularReflectionVector(interaction.getW_e(), interaction.getNormal())
 					.normalize();
@@ -42,15 +45,17 @@ public class PerfectSpecularBRDFTest {
 		final BSDF bsdf = new PerfectSpecularBRDF();
 		final Interaction interaction = new Interaction(new Point(0, 0, 0),
 				new Ray(new Point(-1, 1, 0), new Vector(1, -1, 0)), new Normal(Vector.J), new Point2D(1, 1), null);
-		final Sample sample = new Sample(new SimplePseudorandomSampler(0, 0, 31, 31, 1), 8.0, 8.0);
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 31, 31, 1);
+		final int dimension = sampler.getSampleDimensions().register2D("test", 1);
+		final Sample sample = new Sample(sampler, 8.0, 8.0);
 
 		final Vector w_i_perfect = new Vector(1, 1, 0).normalize();
 		final Vector w_i_imperfect = new Vector(1, 0.333, 0).normalize();
 
 		assertEquals("Perfect reflection should have PDF = 1!", 1.0,
-				bsdf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample("test", 1), w_i_perfect), 0.00001);
+				bsdf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample(dimension), w_i_perfect), 0.00001);
 		assertEquals("Imperfect reflection should have PDF = 0!", 0.0,
-				bsdf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample("test", 1), w_i_imperfect), 0.00001);
+				bsdf.pdfW_i(interaction, sample, sample.getAdditionalTwinSample(dimension), w_i_imperfect), 0.00001);
 	}
 
 	@Test
@@ -59,14 +64,16 @@ public class PerfectSpecularBRDFTest {
 		final BSDF bsdf = new PerfectSpecularBRDF(new ConstantTexture(new RGBSpectrum(RGB.RED)));
 		final Interaction interaction = new Interaction(new Point(0, 0, 0),
 				new Ray(new Point(-1, 1, 0), new Vector(1, -1, 0)), new Normal(Vector.J), new Point2D(1, 1), null);
-		final Sample sample = new Sample(new SimplePseudorandomSampler(0, 0, 31, 31, 1), 8.0, 8.0);
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 31, 31, 1);
+		final int dimension = sampler.getSampleDimensions().register2D("test", 1);
+		final Sample sample = new Sample(sampler, 8.0, 8.0);
 
 		final Vector w_i_perfect = new Vector(1, 1, 0).normalize();
 		final Vector w_i_imperfect = new Vector(1, 0.333, 0).normalize();
 
-		final Spectrum f_r_perfect = bsdf.f_r(interaction, sample, sample.getAdditionalTwinSample("test", 1),
+		final Spectrum f_r_perfect = bsdf.f_r(interaction, sample, sample.getAdditionalTwinSample(dimension),
 				w_i_perfect);
-		final Spectrum f_r_imperfect = bsdf.f_r(interaction, sample, sample.getAdditionalTwinSample("test", 1),
+		final Spectrum f_r_imperfect = bsdf.f_r(interaction, sample, sample.getAdditionalTwinSample(dimension),
 				w_i_imperfect);
 
 		assertEquals("f_r for perfect reflection (RED) not as expected!", 1.0, f_r_perfect.toRGB().getRed(), 0.00001);
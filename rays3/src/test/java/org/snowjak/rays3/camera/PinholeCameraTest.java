@@ -2,13 +2,17 @@ package org.snowjak.rays3.camera;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.snowjak.rays3.geometry.Point;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.RayPacket;
 import org.snowjak.rays3.sample.Sample;
 import org.snowjak.rays3.sample.Sampler;
 import org.snowjak.rays3.sample.StratifiedSampler;
@@ -92,4 +96,31 @@ public class PinholeCameraTest {
 
 	}
 
+	@Test
+	public void testGetRayPacket_samples() {
+
+		final Random rnd = new Random(42);
+		final List<Sample> samples = new ArrayList<>();
+		for (int i = 0; i < 64; i++)
+			samples.add(new Sample(null, 20d + rnd.nextDouble() * 8d, 30d + rnd.nextDouble() * 8d,
+					rnd.nextDouble(), rnd.nextDouble()));
+
+		final RayPacket packet = camera.getRayPacket(samples);
+
+		assertEquals("Packet size not as expected!", samples.size(), packet.size());
+		for (int i = 0; i < samples.size(); i++) {
+			final Ray expected = camera.getRay(samples.get(i)), actual = packet.getRay(i);
+
+			assertEquals("Ray origin-X not as expected!", expected.getOrigin().getX(), actual.getOrigin().getX(), 0d);
+			assertEquals("Ray origin-Y not as expected!", expected.getOrigin().getY(), actual.getOrigin().getY(), 0d);
+			assertEquals("Ray origin-Z not as expected!", expected.getOrigin().getZ(), actual.getOrigin().getZ(), 0d);
+			assertEquals("Ray direction-X not as expected!", expected.getDirection().getX(),
+					actual.getDirection().getX(), 0d);
+			assertEquals("Ray direction-Y not as expected!", expected.getDirection().getY(),
+					actual.getDirection().getY(), 0d);
+			assertEquals("Ray direction-Z not as expected!", expected.getDirection().getZ(),
+					actual.getDirection().getZ(), 0d);
+		}
+	}
+
 }
@@ -0,0 +1,217 @@
+package org.snowjak.rays3.geometry;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snowjak.rays3.Global;
+import org.snowjak.rays3.transform.RotationTransform;
+import org.snowjak.rays3.transform.ScaleTransform;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+/**
+ * Compares {@link Matrix} -- with its flat storage and fused affine
+ * operations -- against the array-of-arrays implementation it replaced
+ * (reproduced here as {@link ArrayMatrix}), when transforming Points and
+ * Vectors, multiplying Matrices, and inverting them.
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=MatrixBenchmark</code>.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MatrixBenchmark {
+
+	private static final int	POINT_COUNT	= 4096;
+
+	private Matrix				matrix;
+	private ArrayMatrix			arrayMatrix;
+
+	private Point[]				points;
+	private Vector[]			vectors;
+	private double[]			coordinates, result;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+
+		matrix = new TranslationTransform(1d, -2d, 3d).getWorldToLocal()
+				.multiply(new RotationTransform(new Vector(1, 1, 0), 30d).getWorldToLocal())
+				.multiply(new ScaleTransform(2d, 0.5d, 3d).getWorldToLocal());
+
+		final double[][] values = new double[4][4];
+		for (int row = 0; row < 4; row++)
+			for (int column = 0; column < 4; column++)
+				values[row][column] = matrix.get(row, column);
+		arrayMatrix = new ArrayMatrix(values);
+
+		points = new Point[POINT_COUNT];
+		vectors = new Vector[POINT_COUNT];
+		coordinates = new double[POINT_COUNT * 3];
+		result = new double[POINT_COUNT * 3];
+		for (int i = 0; i < POINT_COUNT; i++) {
+			points[i] = new Point(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian());
+			vectors[i] = new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian());
+			coordinates[i * 3] = points[i].getX();
+			coordinates[i * 3 + 1] = points[i].getY();
+			coordinates[i * 3 + 2] = points[i].getZ();
+		}
+	}
+
+	@Benchmark
+	public void transformPoints(Blackhole bh) {
+
+		for (int i = 0; i < POINT_COUNT; i++)
+			bh.consume(matrix.multiply(points[i]));
+	}
+
+	@Benchmark
+	public void transformPointsInto(Blackhole bh) {
+
+		final double[] coordinates = this.coordinates, result = this.result;
+		for (int i = 0; i < POINT_COUNT * 3; i += 3)
+			matrix.multiplyPoint(coordinates[i], coordinates[i + 1], coordinates[i + 2], result, i);
+		bh.consume(result);
+	}
+
+	@Benchmark
+	public void transformPointsArrayMatrix(Blackhole bh) {
+
+		for (int i = 0; i < POINT_COUNT; i++)
+			bh.consume(arrayMatrix.multiply(points[i]));
+	}
+
+	@Benchmark
+	public void transformVectors(Blackhole bh) {
+
+		for (int i = 0; i < POINT_COUNT; i++)
+			bh.consume(matrix.multiply(vectors[i]));
+	}
+
+	@Benchmark
+	public void transformVectorsArrayMatrix(Blackhole bh) {
+
+		for (int i = 0; i < POINT_COUNT; i++)
+			bh.consume(arrayMatrix.multiply(vectors[i]));
+	}
+
+	@Benchmark
+	public Matrix multiplyMatrix() {
+
+		return matrix.multiply(matrix);
+	}
+
+	@Benchmark
+	public ArrayMatrix multiplyArrayMatrix() {
+
+		return arrayMatrix.multiply(arrayMatrix);
+	}
+
+	@Benchmark
+	public Matrix invertMatrix() {
+
+		//
+		// Matrix caches its inverse, so we need a fresh instance each time.
+		return matrix.multiply(Matrix.IDENTITY).inverse();
+	}
+
+	@Benchmark
+	public ArrayMatrix invertArrayMatrix() {
+
+		return arrayMatrix.multiply(ArrayMatrix.IDENTITY).inverse();
+	}
+
+	/**
+	 * The previous implementation of {@link Matrix}, backed by a
+	 * <code>double[4][4]</code>, and transforming Points and Vectors through
+	 * {@link Matrix#multiply(double...)}.
+	 */
+	public static class ArrayMatrix {
+
+		public static final ArrayMatrix	IDENTITY	= new ArrayMatrix(
+				new double[][] { { 1d, 0d, 0d, 0d }, { 0d, 1d, 0d, 0d }, { 0d, 0d, 1d, 0d }, { 0d, 0d, 0d, 1d } });
+
+		private final double[][]		values;
+
+		public ArrayMatrix(double[][] values) {
+			this.values = new double[4][4];
+			for (int i = 0; i < 4; i++)
+				for (int j = 0; j < 4; j++)
+					this.values[i][j] = values[i][j];
+		}
+
+		public ArrayMatrix multiply(ArrayMatrix other) {
+
+			double[][] newValues = new double[4][4];
+
+			for (int nvI = 0; nvI < 4; nvI++)
+				for (int nvJ = 0; nvJ < 4; nvJ++) {
+					newValues[nvI][nvJ] = 0d;
+					for (int i = 0; i < 4; i++)
+						newValues[nvI][nvJ] += this.values[nvI][i] * other.values[i][nvJ];
+				}
+
+			return new ArrayMatrix(newValues);
+		}
+
+		public Point multiply(Point point) {
+
+			double[] newVector = this.multiply(new double[] { point.getX(), point.getY(), point.getZ(), 1d });
+			return new Point(newVector[0], newVector[1], newVector[2]);
+		}
+
+		public Vector multiply(Vector vector) {
+
+			double[] newVector = this.multiply(new double[] { vector.getX(), vector.getY(), vector.getZ(), 0d });
+			return new Vector(newVector[0], newVector[1], newVector[2]);
+		}
+
+		public double[] multiply(double... columnVector) {
+
+			double[] newVector = new double[] {
+					values[0][0] * columnVector[0] + values[0][1] * columnVector[1] + values[0][2] * columnVector[2]
+							+ values[0][3],
+					values[1][0] * columnVector[0] + values[1][1] * columnVector[1] + values[1][2] * columnVector[2]
+							+ values[1][3],
+					values[2][0] * columnVector[0] + values[2][1] * columnVector[1] + values[2][2] * columnVector[2]
+							+ values[2][3],
+					values[3][0] * columnVector[0] + values[3][1] * columnVector[1] + values[3][2] * columnVector[2]
+							+ values[3][3] };
+
+			if (!Global.isNear(newVector[3], 0d)) {
+				newVector[0] /= newVector[3];
+				newVector[1] /= newVector[3];
+				newVector[2] /= newVector[3];
+				newVector[3] = 1d;
+			} else {
+				newVector[3] = 0d;
+			}
+
+			return newVector;
+		}
+
+		public ArrayMatrix inverse() {
+
+			return new ArrayMatrix(MatrixUtils.inverse(MatrixUtils.createRealMatrix(this.values)).getData());
+		}
+	}
+
+}
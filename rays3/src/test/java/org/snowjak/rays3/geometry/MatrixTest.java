@@ -81,6 +81,86 @@ public class MatrixTest {
 		//@formatter:on
 	}
 
+	@Test
+	public void testAffineInverse() {
+
+		//@formatter:off
+		final Matrix affine = new Matrix(new double[][] {	{ 2d, 1d, 0d, 3d },
+															{ 0d, 1d, 4d,-1d },
+															{ 1d, 0d, 1d, 2d },
+															{ 0d, 0d, 0d, 1d } });
+		//@formatter:on
+
+		assertTrue(affine.isAffine());
+		assertFalse(a.isAffine());
+
+		final Matrix product = affine.multiply(affine.inverse());
+		assertTrue(product.equals(new double[][] { { 1d, 0d, 0d, 0d }, { 0d, 1d, 0d, 0d }, { 0d, 0d, 1d, 0d },
+				{ 0d, 0d, 0d, 1d } }, 0.0001));
+		assertSame(affine, affine.inverse().inverse());
+
+		assertEquals(6d, affine.determinant(), 0.0001);
+	}
+
+	@Test
+	public void testMultiplyPointVector() {
+
+		//@formatter:off
+		final Matrix affine = new Matrix(	2d, 1d, 0d, 3d,
+											0d, 1d, 4d,-1d,
+											1d, 0d, 1d, 2d,
+											0d, 0d, 0d, 1d );
+		//@formatter:on
+
+		final Point point = affine.multiply(new Point(1, 2, 3));
+		assertEquals(7d, point.getX(), 0.0001);
+		assertEquals(13d, point.getY(), 0.0001);
+		assertEquals(6d, point.getZ(), 0.0001);
+
+		final Vector vector = affine.multiply(new Vector(1, 2, 3));
+		assertEquals(4d, vector.getX(), 0.0001);
+		assertEquals(14d, vector.getY(), 0.0001);
+		assertEquals(4d, vector.getZ(), 0.0001);
+
+		final double[] result = new double[5];
+		affine.multiplyPoint(1, 2, 3, result, 1);
+		assertEquals(7d, result[1], 0.0001);
+		assertEquals(13d, result[2], 0.0001);
+		assertEquals(6d, result[3], 0.0001);
+
+		affine.multiplyVector(1, 2, 3, result, 2);
+		assertEquals(4d, result[2], 0.0001);
+		assertEquals(14d, result[3], 0.0001);
+		assertEquals(4d, result[4], 0.0001);
+	}
+
+	@Test
+	public void testTransformNormal() {
+
+		//@formatter:off
+		final Matrix affine = new Matrix(	2d, 1d, 0d, 3d,
+											0d, 1d, 4d,-1d,
+											1d, 0d, 1d, 2d,
+											0d, 0d, 0d, 1d );
+		//@formatter:on
+
+		//
+		// A transformed Normal should remain perpendicular to any transformed
+		// tangent.
+		final Vector tangent = new Vector(1, -2, 0.5);
+		final Normal normal = new Normal(2, 1, 0);
+		assertEquals(0d, tangent.dotProduct(normal.asVector()), 0.0001);
+
+		final Normal transformed = affine.transformNormal(normal);
+		assertEquals(0d, affine.multiply(tangent).dotProduct(transformed.asVector()), 0.0001);
+
+		final double[] result = new double[3];
+		affine.transformNormal(normal.getX(), normal.getY(), normal.getZ(), result, 0);
+		assertEquals(transformed.getX(), result[0], 0.0001);
+		assertEquals(transformed.getY(), result[1], 0.0001);
+		assertEquals(transformed.getZ(), result[2], 0.0001);
+	}
+
 	@Test
 	public void testDeterminant() {
 
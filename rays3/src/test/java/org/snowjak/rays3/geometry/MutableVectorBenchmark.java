@@ -0,0 +1,192 @@
+package org.snowjak.rays3.geometry;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snowjak.rays3.bxdf.BSDF;
+import org.snowjak.rays3.bxdf.LambertianBRDF;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
+import org.snowjak.rays3.spectrum.RGBSpectrum;
+import org.snowjak.rays3.texture.ConstantTexture;
+
+/**
+ * Compares each of the inner-loop computations converted to use
+ * {@link MutableVector} scratch-space against its immutable-{@link Vector}
+ * implementation (reproduced here):
+ * <ul>
+ * <li>{@link LambertianBRDF#sampleW_i(Interaction, org.snowjak.rays3.sample.Sample, TwinSampleSupplier)}
+ * (the same coordinate-frame construction is used by
+ * {@link org.snowjak.rays3.geometry.shape.SphereShape#sampleSurfacePoint(TwinSampleSupplier, Point)})</li>
+ * <li>{@link BSDF#cos_i(Interaction, Vector)}</li>
+ * <li>{@link BSDF#getPerfectSpecularReflectionVector(Vector, Normal)}</li>
+ * </ul>
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=MutableVectorBenchmark</code>.
+ * The bytes allocated per operation by each implementation are also printed
+ * during set-up. (JMH's <code>-prof gc</code> reports the same, as an
+ * allocation-rate.)
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MutableVectorBenchmark {
+
+	private static final int	INTERACTION_COUNT	= 1024;
+
+	private LambertianBRDF		bsdf;
+	private Interaction[]		interactions;
+	private Vector[]			directions;
+	private TwinSampleSupplier	sampleSupplier;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+
+		bsdf = new LambertianBRDF(new ConstantTexture(RGBSpectrum.WHITE));
+
+		interactions = new Interaction[INTERACTION_COUNT];
+		directions = new Vector[INTERACTION_COUNT];
+		for (int i = 0; i < INTERACTION_COUNT; i++) {
+			final Ray ray = new Ray(new Point(0, 0, 0),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()), 0, 1d);
+			interactions[i] = new Interaction(ray.getPointAlong(), ray,
+					new Normal(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()), new Point2D(0d, 0d),
+					null);
+			directions[i] = new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian());
+		}
+
+		final Point2D sample = new Point2D(rnd.nextDouble(), rnd.nextDouble());
+		sampleSupplier = TwinSampleSupplier.of(() -> sample);
+
+		final Blackhole bh = new Blackhole(
+				"Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+
+		System.out.println();
+		report("sampleW_i (mutable)", () -> sampleW_i(bh));
+		report("sampleW_i (immutable)", () -> sampleW_iImmutable(bh));
+		report("cos_i (mutable)", () -> cos_i(bh));
+		report("cos_i (immutable)", () -> cos_iImmutable(bh));
+		report("perfect specular (mutable)", () -> perfectSpecular(bh));
+		report("perfect specular (immutable)", () -> perfectSpecularImmutable(bh));
+	}
+
+	@Benchmark
+	public void sampleW_i(Blackhole bh) {
+
+		for (Interaction interaction : interactions)
+			bh.consume(bsdf.sampleW_i(interaction, null, sampleSupplier));
+	}
+
+	@Benchmark
+	public void sampleW_iImmutable(Blackhole bh) {
+
+		for (Interaction interaction : interactions)
+			bh.consume(sampleW_iImmutable(interaction, sampleSupplier));
+	}
+
+	@Benchmark
+	public void cos_i(Blackhole bh) {
+
+		for (int i = 0; i < INTERACTION_COUNT; i++)
+			bh.consume(bsdf.cos_i(interactions[i], directions[i]));
+	}
+
+	@Benchmark
+	public void cos_iImmutable(Blackhole bh) {
+
+		for (int i = 0; i < INTERACTION_COUNT; i++)
+			bh.consume(cos_iImmutable(interactions[i], directions[i]));
+	}
+
+	@Benchmark
+	public void perfectSpecular(Blackhole bh) {
+
+		for (Interaction interaction : interactions)
+			bh.consume(BSDF.getPerfectSpecularReflectionVector(interaction.getW_e(), interaction.getNormal()));
+	}
+
+	@Benchmark
+	public void perfectSpecularImmutable(Blackhole bh) {
+
+		for (Interaction interaction : interactions)
+			bh.consume(perfectSpecularImmutable(interaction.getW_e(), interaction.getNormal()));
+	}
+
+	private void report(String name, Runnable benchmark) {
+
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+
+		//
+		// Warm up the benchmark (so that it is compiled) before measuring it.
+		for (int i = 0; i < 10000; i++)
+			benchmark.run();
+
+		final int repetitions = 1000;
+		final long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < repetitions; i++)
+			benchmark.run();
+		final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		System.out.println(String.format("%s: %,.1f bytes/op", name,
+				(double) allocated / ( (double) repetitions * INTERACTION_COUNT )));
+	}
+
+	private static Vector sampleW_iImmutable(Interaction interaction, Supplier<Point2D> sampleSupplier) {
+
+		final Point2D sphericalPoint = sampleSupplier.get();
+
+		final double sin2_theta = sphericalPoint.getX();
+		final double cos2_theta = 1d - sin2_theta;
+		final double sin_theta = Math.sqrt(sin2_theta);
+		final double cos_theta = Math.sqrt(cos2_theta);
+
+		final double orientation = sphericalPoint.getY() * 2d * Math.PI;
+		final double x = sin_theta * Math.cos(orientation);
+		final double y = cos_theta;
+		final double z = sin_theta * Math.sin(orientation);
+
+		final Vector j = interaction.getNormal().asVector().normalize();
+		final Vector i = j.orthogonal();
+		final Vector k = i.crossProduct(j);
+
+		return i.multiply(x).add(j.multiply(y)).add(k.multiply(z)).normalize();
+	}
+
+	private static double cos_iImmutable(Interaction interaction, Vector w_i) {
+
+		return interaction.getNormal().asVector().normalize().dotProduct(w_i.normalize());
+	}
+
+	private static Vector perfectSpecularImmutable(Vector w_e, Normal n) {
+
+		final Vector i = w_e.normalize();
+		final Vector nv = n.asVector().normalize();
+
+		final double cos_i = nv.dotProduct(i);
+		return i.negate().add(nv.multiply(2d * cos_i)).normalize();
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.snowjak.rays3.geometry;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.snowjak.rays3.Global;
+
+public class MutableVectorTest {
+
+	@Test
+	public void testNormalize() {
+
+		final MutableVector vect = new MutableVector(-3, 2, 7);
+		assertSame("normalize() should update in place!", vect, vect.normalize());
+		assertEquals(1d, vect.getMagnitude(), 0.00001);
+
+		final Vector expected = new Vector(-3, 2, 7).normalize();
+		assertEquals(expected.getX(), vect.getX(), Global.DOUBLE_TOLERANCE);
+		assertEquals(expected.getY(), vect.getY(), Global.DOUBLE_TOLERANCE);
+		assertEquals(expected.getZ(), vect.getZ(), Global.DOUBLE_TOLERANCE);
+	}
+
+	@Test
+	public void testAddScaled() {
+
+		final Vector expected = new Vector(1, 2, 3).add(new Vector(-2, 0, 5).multiply(3d));
+		final MutableVector actual = new MutableVector(1, 2, 3).addScaled(new MutableVector(-2, 0, 5), 3d);
+
+		assertEquals(expected.getX(), actual.getX(), Global.DOUBLE_TOLERANCE);
+		assertEquals(expected.getY(), actual.getY(), Global.DOUBLE_TOLERANCE);
+		assertEquals(expected.getZ(), actual.getZ(), Global.DOUBLE_TOLERANCE);
+	}
+
+	@Test
+	public void testCrossProduct() {
+
+		final MutableVector i = new MutableVector(Vector.I), j = new MutableVector(Vector.J);
+		final MutableVector cp = new MutableVector().setCrossProduct(i, j);
+		assertEquals(Vector.K.getX(), cp.getX(), Global.DOUBLE_TOLERANCE);
+		assertEquals(Vector.K.getY(), cp.getY(), Global.DOUBLE_TOLERANCE);
+		assertEquals(Vector.K.getZ(), cp.getZ(), Global.DOUBLE_TOLERANCE);
+
+		// The result may overwrite one of the operands.
+		i.setCrossProduct(i, j);
+		assertEquals(Vector.K.getX(), i.getX(), Global.DOUBLE_TOLERANCE);
+		assertEquals(Vector.K.getY(), i.getY(), Global.DOUBLE_TOLERANCE);
+		assertEquals(Vector.K.getZ(), i.getZ(), Global.DOUBLE_TOLERANCE);
+	}
+
+	@Test
+	public void testOrthogonal() {
+
+		final MutableVector basis = new MutableVector(-3d, 5d, 2d);
+		final MutableVector orthogonal = new MutableVector().setOrthogonalTo(basis);
+		assertEquals(0d, basis.dotProduct(orthogonal), 0.000000001);
+		assertEquals(1d, orthogonal.getMagnitude(), 0.000000001);
+
+		final MutableVector self = new MutableVector(0d, 4d, 0d);
+		self.setOrthogonalTo(self);
+		assertEquals(0d, self.getY(), 0.000000001);
+	}
+
+	@Test
+	public void testToVector() {
+
+		final MutableVector vect = new MutableVector().setBetween(new Point(1, 1, 1), new Point(4, -1, 2));
+		final Vector immutable = vect.toVector();
+		vect.negate();
+
+		assertEquals(3d, immutable.getX(), Global.DOUBLE_TOLERANCE);
+		assertEquals(-2d, immutable.getY(), Global.DOUBLE_TOLERANCE);
+		assertEquals(1d, immutable.getZ(), Global.DOUBLE_TOLERANCE);
+	}
+
+}
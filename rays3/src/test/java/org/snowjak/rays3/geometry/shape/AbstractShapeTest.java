@@ -3,7 +3,6 @@ package org.snowjak.rays3.geometry.shape;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Collections;
-import java.util.function.Supplier;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,6 +11,7 @@ import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
 import org.snowjak.rays3.transform.RotationTransform;
 import org.snowjak.rays3.transform.TranslationTransform;
 
@@ -81,7 +81,7 @@ public class AbstractShapeTest {
 			}
 
 			@Override
-			public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier) {
+			public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier) {
 
 				// We don't care about this method for the purposes of this
 				// test.
@@ -89,7 +89,7 @@ public class AbstractShapeTest {
 			}
 
 			@Override
-			public Point sampleSurfacePoint(Supplier<Point2D> sampleSupplier, Point facing) {
+			public Point sampleSurfacePoint(TwinSampleSupplier sampleSupplier, Point facing) {
 
 				// We don't care about this method for the purposes of this
 				// test.
@@ -0,0 +1,206 @@
+package org.snowjak.rays3.geometry.shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class MeshFileTest {
+
+	private Path				directory;
+	private TriangleMeshShape	mesh;
+
+	@Before
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("mesh-file");
+
+		final Random rnd = new Random(42);
+		final int triangleCount = 2000;
+		final double[] positions = new double[triangleCount * 9], normals = new double[triangleCount * 9];
+		final int[] indices = new int[triangleCount * 3];
+		for (int i = 0; i < triangleCount * 9; i++) {
+			positions[i] = rnd.nextDouble() * 10d + rnd.nextGaussian() * ( ( i % 9 == 0 ) ? 0d : 0.5d );
+			normals[i] = rnd.nextGaussian();
+		}
+		for (int i = 0; i < triangleCount * 3; i++)
+			indices[i] = i;
+
+		mesh = new TriangleMeshShape(positions, normals, null, indices, Collections.emptyList());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		for (Path file : Files.list(directory).collect(Collectors.toList()))
+			Files.delete(file);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		final Path file = directory.resolve("mesh.bin");
+		MeshFile.write(file, mesh);
+
+		final TriangleMeshShape mapped = MeshFile.read(file,
+				Arrays.asList(new TranslationTransform(0d, 0d, 0d)));
+		assertTrue("Mapped mesh should be off-heap!", mapped.isOffHeap());
+		assertEquals("Triangle-count not as expected", mesh.getTriangleCount(), mapped.getTriangleCount());
+		assertEquals("Vertex-count not as expected", mesh.getVertexCount(), mapped.getVertexCount());
+
+		final Random rnd = new Random(7);
+		for (int i = 0; i < 500; i++) {
+			final Ray ray = new Ray(
+					new Point(rnd.nextDouble() * 10d, rnd.nextDouble() * 10d, rnd.nextDouble() * 10d),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+
+			final Interaction expected = mesh.getIntersection(ray), actual = mapped.getIntersection(ray);
+			if (expected == null) {
+				assertNull("Expected miss was actually a hit!", actual);
+				continue;
+			}
+
+			assertNotNull("Expected hit was actually a miss!", actual);
+			assertEquals("Hit t not as expected!", expected.getInteractingRay().getCurrT(),
+					actual.getInteractingRay().getCurrT(), 0d);
+			assertEquals("Hit normal X not as expected!", expected.getNormal().getX(), actual.getNormal().getX(),
+					0d);
+			assertEquals("Hit normal Y not as expected!", expected.getNormal().getY(), actual.getNormal().getY(),
+					0d);
+			assertEquals("Hit normal Z not as expected!", expected.getNormal().getZ(), actual.getNormal().getZ(),
+					0d);
+		}
+	}
+
+	@Test
+	public void testReadDamaged() throws IOException {
+
+		final Path file = directory.resolve("mesh.bin");
+		MeshFile.write(file, mesh);
+
+		final byte[] contents = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(contents, contents.length - 1));
+
+		try {
+			MeshFile.read(file, Collections.emptyList());
+			fail("Expected an IOException for a truncated file!");
+		} catch (IOException e) {
+			// Expected.
+		}
+
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22,
+				23, 24, 25, 26, 27, 28, 29, 30, 31, 32 });
+		try {
+			MeshFile.read(file, Collections.emptyList());
+			fail("Expected an IOException for a non-mesh file!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testReadBadIndex() throws IOException {
+
+		final Path file = directory.resolve("mesh.bin");
+		MeshFile.write(file, mesh);
+
+		//
+		// Point the first triangle at a vertex past the end of the mesh.
+		final ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+		contents.putInt(getIndicesStart(contents), mesh.getVertexCount());
+		Files.write(file, contents.array());
+
+		try {
+			MeshFile.read(file, Collections.emptyList());
+			fail("Expected an IOException for an out-of-range index!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testReadBadHierarchy() throws IOException {
+
+		final Path file = directory.resolve("mesh.bin");
+		MeshFile.write(file, mesh);
+
+		//
+		// Point the root's second child back at the root itself.
+		final ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+		contents.putInt(getIndicesStart(contents) + mesh.getTriangleCount() * 3 * 4, 0);
+		Files.write(file, contents.array());
+
+		try {
+			MeshFile.read(file, Collections.emptyList());
+			fail("Expected an IOException for a circular hierarchy!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testReadSharedChild() throws IOException {
+
+		final Path file = directory.resolve("mesh.bin");
+		MeshFile.write(file, mesh);
+
+		//
+		// Turn the first leaf into an interior node, whose children (nodes
+		// X+1 and X+2) already have parents of their own. Raise the
+		// advertised depth, so that only the shared children are at fault.
+		final ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+		final int nodeCount = contents.getInt(20);
+		final int nodeOffsetsStart = getIndicesStart(contents) + mesh.getTriangleCount() * 3 * 4,
+				nodeCountsStart = nodeOffsetsStart + nodeCount * 4, nodeAxesStart = nodeCountsStart + nodeCount * 4;
+
+		int leaf = 0;
+		while (contents.getInt(nodeCountsStart + leaf * 4) == 0)
+			leaf++;
+		assertTrue("Test mesh's hierarchy is too small!", leaf + 2 < nodeCount);
+
+		contents.putInt(24, contents.getInt(24) + 100);
+		contents.putInt(nodeOffsetsStart + leaf * 4, leaf + 2);
+		contents.putInt(nodeCountsStart + leaf * 4, 0);
+		contents.put(nodeAxesStart + leaf, (byte) 0);
+		Files.write(file, contents.array());
+
+		try {
+			MeshFile.read(file, Collections.emptyList());
+			fail("Expected an IOException for a node with two parents!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * @return the offset of the first vertex-index in the given mesh file
+	 *         (which has normals but no texture-coordinates)
+	 */
+	private static int getIndicesStart(ByteBuffer contents) {
+
+		final int vertexCount = contents.getInt(12), nodeCount = contents.getInt(20);
+		return 8 * 4 + vertexCount * 3 * 8 * 2 + nodeCount * 6 * 8;
+	}
+
+}
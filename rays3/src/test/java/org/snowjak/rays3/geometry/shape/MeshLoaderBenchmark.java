@@ -0,0 +1,242 @@
+package org.snowjak.rays3.geometry.shape;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.shape.MeshLoader.MeshData;
+
+/**
+ * Compares {@link MeshLoader}'s memory-mapped, parallel OBJ and PLY reading
+ * against reading an OBJ file line-by-line into a list of {@link Point}s (and
+ * index-arrays), for a heightfield of <code>gridSize x gridSize</code> quads.
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=MeshLoaderBenchmark</code>.
+ * The throughput (in MB/s) and peak heap-use of a single read by each method
+ * are also printed during set-up. These cover only reading the file into
+ * flat arrays; the time taken to then build the mesh's hierarchy (which is
+ * the same regardless of how the file was read) is printed separately.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class MeshLoaderBenchmark {
+
+	@Param({ "1000" })
+	public int	gridSize;
+
+	private Path	directory, objFile, plyFile;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("mesh-loader-benchmark");
+		objFile = directory.resolve("heightfield.obj");
+		plyFile = directory.resolve("heightfield.ply");
+
+		final int vertexCount = ( gridSize + 1 ) * ( gridSize + 1 ), faceCount = gridSize * gridSize;
+		final double[] positions = new double[vertexCount * 3];
+		final int[] indices = new int[faceCount * 6];
+
+		try (BufferedWriter obj = Files.newBufferedWriter(objFile, StandardCharsets.US_ASCII);
+				DataOutputStream ply = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(plyFile), 65536))) {
+
+			ply.write(( "ply\nformat binary_big_endian 1.0\nelement vertex " + vertexCount
+					+ "\nproperty float x\nproperty float y\nproperty float z\nelement face " + faceCount
+					+ "\nproperty list uchar int vertex_indices\nend_header\n" ).getBytes(StandardCharsets.US_ASCII));
+
+			for (int z = 0; z <= gridSize; z++)
+				for (int x = 0; x <= gridSize; x++) {
+					final double height = Math.sin(x * 0.05) * Math.cos(z * 0.07);
+					final int v = z * ( gridSize + 1 ) + x;
+					positions[v * 3] = x;
+					positions[v * 3 + 1] = height;
+					positions[v * 3 + 2] = z;
+
+					obj.write(String.format("v %.6f %.6f %.6f\n", (double) x, height, (double) z));
+					ply.writeFloat(x);
+					ply.writeFloat((float) height);
+					ply.writeFloat(z);
+				}
+
+			for (int z = 0; z < gridSize; z++)
+				for (int x = 0; x < gridSize; x++) {
+					final int v = z * ( gridSize + 1 ) + x;
+					obj.write("f " + ( v + 1 ) + " " + ( v + gridSize + 2 ) + " " + ( v + gridSize + 3 ) + " "
+							+ ( v + 2 ) + "\n");
+					ply.writeByte(4);
+					ply.writeInt(v);
+					ply.writeInt(v + gridSize + 1);
+					ply.writeInt(v + gridSize + 2);
+					ply.writeInt(v + 1);
+
+					final int i = ( z * gridSize + x ) * 6;
+					indices[i] = v;
+					indices[i + 1] = v + gridSize + 1;
+					indices[i + 2] = v + gridSize + 2;
+					indices[i + 3] = v;
+					indices[i + 4] = v + gridSize + 2;
+					indices[i + 5] = v + 1;
+				}
+		}
+
+		//
+		// Warm up each method before reporting on it.
+		for (int i = 0; i < 5; i++) {
+			readOBJ();
+			readPLY();
+			readOBJLineByLine();
+		}
+
+		System.out.println();
+		report("OBJ (mapped)", objFile, this::readOBJ);
+		report("PLY (mapped)", plyFile, this::readPLY);
+		report("OBJ (line-by-line)", objFile, this::readOBJLineByLine);
+
+		final long start = System.nanoTime();
+		new TriangleMeshShape(positions, indices);
+		System.out.println(String.format("Building the mesh's hierarchy: %,.0f ms",
+				( System.nanoTime() - start ) / 1e6));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+
+		Files.deleteIfExists(objFile);
+		Files.deleteIfExists(plyFile);
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public MeshData readOBJ() throws IOException {
+
+		return MeshLoader.readOBJ(objFile, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public MeshData readPLY() throws IOException {
+
+		return MeshLoader.readPLY(plyFile, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public MeshData readOBJLineByLine() throws IOException {
+
+		return readLineByLine(objFile);
+	}
+
+	/**
+	 * Read the given OBJ file the conventional way -- line by line, into a
+	 * list of Points and a list of faces -- and then copy those into flat
+	 * arrays.
+	 */
+	private static MeshData readLineByLine(Path file) throws IOException {
+
+		final List<Point> points = new ArrayList<>();
+		final List<int[]> faces = new ArrayList<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+			String line;
+			while (( line = reader.readLine() ) != null) {
+				final String[] tokens = line.trim().split("\\s+");
+				if (tokens[0].equals("v"))
+					points.add(new Point(Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]),
+							Double.parseDouble(tokens[3])));
+				else if (tokens[0].equals("f")) {
+					final int[] face = new int[tokens.length - 1];
+					for (int i = 0; i < face.length; i++)
+						face[i] = Integer.parseInt(tokens[i + 1].split("/")[0]) - 1;
+					faces.add(face);
+				}
+			}
+		}
+
+		final double[] positions = new double[points.size() * 3];
+		for (int i = 0; i < points.size(); i++) {
+			positions[i * 3] = points.get(i).getX();
+			positions[i * 3 + 1] = points.get(i).getY();
+			positions[i * 3 + 2] = points.get(i).getZ();
+		}
+
+		int triangleCount = 0;
+		for (int[] face : faces)
+			triangleCount += face.length - 2;
+		final int[] indices = new int[triangleCount * 3];
+		int corner = 0;
+		for (int[] face : faces)
+			for (int i = 2; i < face.length; i++) {
+				indices[corner++] = face[0];
+				indices[corner++] = face[i - 1];
+				indices[corner++] = face[i];
+			}
+
+		return new MeshData(positions, null, null, indices);
+	}
+
+	private static void report(String name, Path file, MeshRead read) throws IOException {
+
+		final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				heapPools.add(pool);
+
+		System.gc();
+		long before = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			pool.resetPeakUsage();
+			before += pool.getUsage().getUsed();
+		}
+
+		final long start = System.nanoTime();
+		final MeshData mesh = read.read();
+		final double seconds = ( System.nanoTime() - start ) / 1e9;
+
+		long peak = 0;
+		for (MemoryPoolMXBean pool : heapPools)
+			peak += pool.getPeakUsage().getUsed();
+
+		final double megabytes = Files.size(file) / ( 1024d * 1024d );
+		System.out.println(String.format("%s: %,d triangles, %,.1f MB in %,.0f ms = %,.1f MB/s; peak heap +%,.0f MB",
+				name, mesh.indices.length / 3, megabytes, seconds * 1000d, megabytes / seconds,
+				( peak - before ) / ( 1024d * 1024d )));
+	}
+
+	@FunctionalInterface
+	private interface MeshRead {
+
+		public MeshData read() throws IOException;
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.snowjak.rays3.geometry.shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Point2D;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+
+public class MeshLoaderTest {
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("mesh-loader");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		for (Path file : Files.list(directory).collect(Collectors.toList()))
+			Files.delete(file);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testLoadOBJ() throws IOException {
+
+		//
+		// A unit square in the XZ-plane, written as a single quad (with a
+		// relative index), facing +Y.
+		final Path file = write("square.obj", "# A square\n", "o square\n", "v 0 0 0\n", "v 1.0 0 0\r\n",
+				"v 1 0.0 1e0\n", "  v\t0 0 1\n", "vn 0 1 0\n", "f 1 4 3 -3\n");
+
+		final TriangleMeshShape mesh = MeshLoader.load(file, Collections.emptyList());
+		assertEquals("Triangle-count not as expected", 2, mesh.getTriangleCount());
+		assertEquals("Vertex-count not as expected", 4, mesh.getVertexCount());
+
+		final Interaction hit = mesh.getIntersection(new Ray(new Point(0.25, 1, 0.75), new Vector(0, -1, 0)));
+		assertNotNull("Expected hit was actually a miss!", hit);
+		assertEquals("Hit point X not as expected", 0.25, hit.getPoint().getX(), 0.00001);
+		assertEquals("Hit point Z not as expected", 0.75, hit.getPoint().getZ(), 0.00001);
+		assertEquals("Hit normal Y not as expected", 1d, hit.getNormal().getY(), 0.00001);
+
+		assertNull("Expected miss was actually a hit!",
+				mesh.getIntersection(new Ray(new Point(1.25, 1, 0.75), new Vector(0, -1, 0))));
+	}
+
+	@Test
+	public void testLoadOBJWithSeparateIndices() throws IOException {
+
+		//
+		// Two triangles sharing an edge, but with separately-indexed
+		// texture-coordinates and normals -- so that the shared positions
+		// must be split into distinct vertices.
+		final Path file = write("seam.obj", "v 0 0 0\n", "v 1 0 0\n", "v 1 0 1\n", "v 0 0 1\n", "vt 0 0\n",
+				"vt 1 0\n", "vt 1 1\n", "vt 0 1\n", "vt 0.5 0.5\n", "vn 0 1 0\n", "f 1/1/1 4/4/1 3/3/1\n",
+				"f 1/5/1 3/5/1 2/2/1\n");
+
+		final TriangleMeshShape mesh = MeshLoader.load(file, Collections.emptyList());
+		assertEquals("Triangle-count not as expected", 2, mesh.getTriangleCount());
+		assertEquals("Vertex-count not as expected", 6, mesh.getVertexCount());
+
+		final Interaction hit = mesh.getIntersection(new Ray(new Point(0.25, 1, 0.5), new Vector(0, -1, 0)));
+		assertNotNull("Expected hit was actually a miss!", hit);
+		final Point2D param = hit.getParam();
+		assertEquals("Hit U not as expected", 0.25, param.getX(), 0.00001);
+		assertEquals("Hit V not as expected", 0.5, param.getY(), 0.00001);
+	}
+
+	@Test
+	public void testLoadOBJInParallelChunks() throws IOException {
+
+		//
+		// A grid large enough to be split into several chunks.
+		final int size = 300;
+		final StringBuilder obj = new StringBuilder();
+		for (int z = 0; z <= size; z++)
+			for (int x = 0; x <= size; x++)
+				obj.append("v ").append(x * 0.125).append(" 0.000000000 ").append(z * 0.125).append('\n');
+		for (int z = 0; z < size; z++)
+			for (int x = 0; x < size; x++) {
+				final int v = z * ( size + 1 ) + x + 1;
+				obj.append("f ").append(v).append(' ').append(v + size + 1).append(' ').append(v + size + 2)
+						.append(' ').append(v + 1).append('\n');
+			}
+		final Path file = write("grid.obj", obj.toString());
+
+		final TriangleMeshShape mesh = MeshLoader.load(file, Collections.emptyList(), new ForkJoinPool(4));
+		assertEquals("Triangle-count not as expected", size * size * 2, mesh.getTriangleCount());
+		assertEquals("Vertex-count not as expected", ( size + 1 ) * ( size + 1 ), mesh.getVertexCount());
+
+		final Interaction hit = mesh.getIntersection(new Ray(new Point(17.3, 5, 22.9), new Vector(0, -1, 0)));
+		assertNotNull("Expected hit was actually a miss!", hit);
+		assertEquals("Hit point X not as expected", 17.3, hit.getPoint().getX(), 0.00001);
+		assertEquals("Hit point Z not as expected", 22.9, hit.getPoint().getZ(), 0.00001);
+	}
+
+	@Test
+	public void testLoadMalformedOBJ() throws IOException {
+
+		try {
+			MeshLoader.load(write("bad.obj", "v 0 0 0\n", "v 1 0 0\n", "f 1 2 3\n"), Collections.emptyList());
+			fail("Expected an IOException for a nonexistent vertex!");
+		} catch (IOException e) {
+			// Expected.
+		}
+
+		try {
+			MeshLoader.load(write("bad2.obj", "v 0 zero 0\n"), Collections.emptyList());
+			fail("Expected an IOException for a malformed number!");
+		} catch (IOException e) {
+			// Expected.
+		}
+
+		try {
+			MeshLoader.load(write("empty.obj", "v 0 0 0\n", "v 1 0 0\n", "v 0 1 0\n"), Collections.emptyList());
+			fail("Expected an IOException for a mesh without faces!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testLoadPLY() throws IOException {
+
+		for (ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN }) {
+
+			final String format = ( order == ByteOrder.LITTLE_ENDIAN ) ? "binary_little_endian"
+					: "binary_big_endian";
+			final byte[] header = ( "ply\n" + "format " + format + " 1.0\n" + "comment A square\n"
+					+ "element vertex 4\n" + "property float x\n" + "property float y\n" + "property float z\n"
+					+ "property uchar red\n" + "property float u\n" + "property float v\n" + "element face 1\n"
+					+ "property list uchar int vertex_indices\n" + "property uchar flags\n" + "end_header\n" )
+							.getBytes(StandardCharsets.US_ASCII);
+
+			final ByteBuffer buffer = ByteBuffer.allocate(header.length + 4 * 21 + 1 + 16 + 1).order(order);
+			buffer.put(header);
+			final float[][] vertices = { { 0, 0, 0 }, { 1, 0, 0 }, { 1, 0, 1 }, { 0, 0, 1 } };
+			for (float[] vertex : vertices) {
+				buffer.putFloat(vertex[0]).putFloat(vertex[1]).putFloat(vertex[2]);
+				buffer.put((byte) 255);
+				buffer.putFloat(vertex[0]).putFloat(vertex[2]);
+			}
+			buffer.put((byte) 4).putInt(0).putInt(3).putInt(2).putInt(1);
+			buffer.put((byte) 0);
+
+			final Path file = directory.resolve("square-" + format + ".ply");
+			Files.write(file, buffer.array());
+
+			final TriangleMeshShape mesh = MeshLoader.load(file, Collections.emptyList());
+			assertEquals("Triangle-count not as expected", 2, mesh.getTriangleCount());
+			assertEquals("Vertex-count not as expected", 4, mesh.getVertexCount());
+
+			final Interaction hit = mesh.getIntersection(new Ray(new Point(0.75, 1, 0.25), new Vector(0, -1, 0)));
+			assertNotNull("Expected hit was actually a miss!", hit);
+			assertEquals("Hit point X not as expected", 0.75, hit.getPoint().getX(), 0.00001);
+			assertEquals("Hit point Z not as expected", 0.25, hit.getPoint().getZ(), 0.00001);
+			assertEquals("Hit U not as expected", 0.75, hit.getParam().getX(), 0.00001);
+			assertEquals("Hit V not as expected", 0.25, hit.getParam().getY(), 0.00001);
+		}
+	}
+
+	@Test
+	public void testLoadASCIIPLY() throws IOException {
+
+		try {
+			MeshLoader.load(write("ascii.ply", "ply\n", "format ascii 1.0\n", "element vertex 0\n",
+					"property float x\n", "end_header\n"), Collections.emptyList());
+			fail("Expected an IOException for an ASCII PLY file!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testLoadPLYWithNegativeCount() throws IOException {
+
+		try {
+			MeshLoader.load(write("negative.ply", "ply\n", "format binary_little_endian 1.0\n", "element vertex -1\n",
+					"property float x\n", "end_header\n"), Collections.emptyList());
+			fail("Expected an IOException for a negative element-count!");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	private Path write(String name, String... lines) throws IOException {
+
+		final Path file = directory.resolve(name);
+		Files.write(file, String.join("", lines).getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+
+}
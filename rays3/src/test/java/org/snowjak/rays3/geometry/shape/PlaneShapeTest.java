@@ -12,10 +12,27 @@ import org.snowjak.rays3.geometry.Point2D;
 import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.transform.RotationTransform;
+import org.snowjak.rays3.transform.ScaleTransform;
 import org.snowjak.rays3.transform.TranslationTransform;
 
 public class PlaneShapeTest {
 
+	@Test
+	public void testIsOccluding() {
+
+		final PlaneShape plane = new PlaneShape(Arrays.asList(new TranslationTransform(0, -3, 0)));
+
+		assertTrue("Segment crossing plane should be occluded!",
+				plane.isOccluding(new Ray(new Point(0, 0, 0), new Vector(0, -1, 0), 0, 0d, 0d, 5d)));
+		assertFalse("Segment stopping short of plane should not be occluded!",
+				plane.isOccluding(new Ray(new Point(0, 0, 0), new Vector(0, -1, 0), 0, 0d, 0d, 2d)));
+		assertFalse("Segment pointing away from plane should not be occluded!",
+				plane.isOccluding(new Ray(new Point(0, 0, 0), new Vector(0, 1, 0), 0, 0d, 0d, 5d)));
+		assertFalse("Segment parallel to plane should not be occluded!",
+				plane.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 0d, 5d)));
+	}
+
 	@Test
 	public void testGetSurfaceNearestTo() {
 
@@ -97,4 +114,59 @@ public class PlaneShapeTest {
 		assertEquals("Nearby surface param-Y not as expected!", 2, surfaceParam.getY(), 0.00001);
 	}
 
+	@Test
+	public void testGetIntersection() {
+
+		final PlaneShape plane = new PlaneShape(Arrays.asList(new TranslationTransform(1, -3, 2),
+				new RotationTransform(Vector.K, 45d), new ScaleTransform(3, 3, 3)));
+
+		//
+		// Rotated about Z by 45 degrees, the plane's normal points along
+		// (-1,1,0), and the plane passes through (1,-3,2).
+		Interaction interaction = plane.getIntersection(new Ray(new Point(1, 0, 2), new Vector(0, -1, 0)));
+
+		assertNotNull("Expected hit was actually a miss!", interaction);
+		assertEquals("Surface point-X not as expected!", 1, interaction.getPoint().getX(), 0.00001);
+		assertEquals("Surface point-Y not as expected!", -3, interaction.getPoint().getY(), 0.00001);
+		assertEquals("Surface point-Z not as expected!", 2, interaction.getPoint().getZ(), 0.00001);
+		assertEquals("Ray currT not as expected!", 3, interaction.getInteractingRay().getCurrT(), 0.00001);
+
+		assertEquals("Surface normal-X not as expected!", -Math.sqrt(0.5), interaction.getNormal().getX(), 0.00001);
+		assertEquals("Surface normal-Y not as expected!", Math.sqrt(0.5), interaction.getNormal().getY(), 0.00001);
+		assertEquals("Surface normal-Z not as expected!", 0, interaction.getNormal().getZ(), 0.00001);
+
+		assertEquals("Surface param-X not as expected!", 0, interaction.getParam().getX(), 0.00001);
+		assertEquals("Surface param-Y not as expected!", 0, interaction.getParam().getY(), 0.00001);
+
+		assertNull("Ray pointing away from plane should miss!",
+				plane.getIntersection(new Ray(new Point(1, 0, 2), new Vector(0, 1, 0))));
+		assertTrue("Segment crossing plane should be occluded!",
+				plane.isOccluding(new Ray(new Point(1, 0, 2), new Vector(0, -1, 0), 0, 0d, 0d, 5d)));
+		assertFalse("Segment stopping short of plane should not be occluded!",
+				plane.isOccluding(new Ray(new Point(1, 0, 2), new Vector(0, -1, 0), 0, 0d, 0d, 2d)));
+	}
+
+	@Test
+	public void testIsInteracting() {
+
+		final PlaneShape plane = new PlaneShape(Arrays.asList(new TranslationTransform(1, -3, 2),
+				new RotationTransform(Vector.K, 45d), new ScaleTransform(3, 3, 3)));
+
+		assertTrue("Ray pointing toward plane should interact!",
+				plane.isInteracting(new Ray(new Point(1, 0, 2), new Vector(0, -1, 0))));
+		assertFalse("Ray pointing away from plane should not interact!",
+				plane.isInteracting(new Ray(new Point(1, 0, 2), new Vector(0, 1, 0))));
+		assertFalse("Ray parallel to plane should not interact!",
+				plane.isInteracting(new Ray(new Point(1, 0, 2), new Vector(1, 1, 0).normalize())));
+
+		//
+		// Under a non-uniform scale, the plane can only be intersected in
+		// local-coordinates.
+		final PlaneShape scaled = new PlaneShape(Arrays.asList(new TranslationTransform(1, -3, 2),
+				new RotationTransform(Vector.K, 45d), new ScaleTransform(3, 1, 2)));
+
+		assertTrue("Ray pointing toward scaled plane should interact!",
+				scaled.isInteracting(new Ray(new Point(1, 0, 2), new Vector(0, -1, 0))));
+	}
+
 }
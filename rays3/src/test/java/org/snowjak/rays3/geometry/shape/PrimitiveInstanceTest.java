@@ -0,0 +1,99 @@
+package org.snowjak.rays3.geometry.shape;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.accel.TestScenes;
+import org.snowjak.rays3.transform.RotationTransform;
+import org.snowjak.rays3.transform.ScaleTransform;
+import org.snowjak.rays3.transform.Transform;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class PrimitiveInstanceTest {
+
+	private Random	rnd;
+
+	private World	instancedWorld, flatWorld;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(99);
+
+		//
+		// A little "dumbbell" of two spheres.
+		final List<Transform> leftTransforms = Arrays.asList(new TranslationTransform(-1, 0, 0)),
+				rightTransforms = Arrays.asList(new TranslationTransform(+1, 0, 0));
+		final Primitive left = new Primitive(new SphereShape(0.5, leftTransforms), null),
+				right = new Primitive(new SphereShape(0.25, rightTransforms), null);
+
+		final SharedGeometry dumbbell = new SharedGeometry(Arrays.asList(left, right));
+
+		instancedWorld = new World();
+		flatWorld = new World();
+
+		for (int i = 0; i < 50; i++) {
+			final List<Transform> instanceTransforms = Arrays.asList(
+					new TranslationTransform(rnd.nextDouble() * 20d - 10d, rnd.nextDouble() * 20d - 10d,
+							rnd.nextDouble() * 20d - 10d),
+					new RotationTransform(Vector.J, rnd.nextDouble() * 360d),
+					new ScaleTransform(0.5 + rnd.nextDouble(), 0.5 + rnd.nextDouble(), 0.5 + rnd.nextDouble()));
+
+			instancedWorld.getInstances().add(new PrimitiveInstance(dumbbell, instanceTransforms));
+
+			final List<Transform> flatLeft = new ArrayList<>(instanceTransforms),
+					flatRight = new ArrayList<>(instanceTransforms);
+			flatLeft.addAll(leftTransforms);
+			flatRight.addAll(rightTransforms);
+			flatWorld.getPrimitives().add(new Primitive(new SphereShape(0.5, flatLeft), null));
+			flatWorld.getPrimitives().add(new Primitive(new SphereShape(0.25, flatRight), null));
+		}
+	}
+
+	@Test
+	public void testGetClosestInteraction() {
+
+		instancedWorld.buildAccelerationStructure();
+
+		final int hits = TestScenes.assertClosestInteractionsMatch(flatWorld, instancedWorld,
+				() -> TestScenes.getRandomRay(rnd), 2000);
+
+		assertTrue("Expected at least some rays to hit something!", hits > 50);
+	}
+
+	@Test
+	public void testIsOccluded() {
+
+		instancedWorld.buildAccelerationStructure();
+
+		TestScenes.assertOcclusionMatches(flatWorld, instancedWorld, () -> TestScenes.getRandomPoint(rnd),
+				() -> TestScenes.getRandomPoint(rnd), 2000);
+	}
+
+	@Test
+	public void testSharedGeometry() {
+
+		final PrimitiveInstance first = instancedWorld.getInstances().iterator().next();
+		for (PrimitiveInstance instance : instancedWorld.getInstances())
+			assertSame("Instances should share their geometry!", first.getGeometry(), instance.getGeometry());
+
+		final Ray ray = new Ray(new Point(-1, 0, -10), new Vector(0, 0, 1));
+		final Interaction hit = first.getLocalIntersection(ray);
+
+		assertSame("Interaction should refer to struck primitive!", first.getGeometry().getPrimitives().get(0),
+				hit.getPrimitive());
+	}
+
+}
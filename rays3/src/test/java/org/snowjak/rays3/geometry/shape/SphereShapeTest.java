@@ -1,10 +1,13 @@
 package org.snowjak.rays3.geometry.shape;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -13,6 +16,7 @@ import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.Interaction;
 import org.snowjak.rays3.transform.RotationTransform;
+import org.snowjak.rays3.transform.ScaleTransform;
 import org.snowjak.rays3.transform.TranslationTransform;
 
 public class SphereShapeTest {
@@ -77,4 +81,87 @@ public class SphereShapeTest {
 		assertNull("Expected miss was actually a hit!", miss);
 	}
 
+	@Test
+	public void testIsOccluding() {
+
+		// Sphere spans x = [2, 4] along this Ray.
+		assertTrue("Segment through sphere should be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 0d, 10d)));
+		assertFalse("Segment stopping short of sphere should not be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 0d, 1.5d)));
+		assertTrue("Segment ending inside sphere should be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 0d, 3d)));
+		assertTrue("Segment starting inside sphere should be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 3d, 10d)));
+		assertFalse("Segment starting beyond sphere should not be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0), 0, 0d, 4.5d, 10d)));
+		assertFalse("Segment pointing away from sphere should not be occluded!",
+				sphere.isOccluding(new Ray(new Point(0, 0, 0), new Vector(-1, 0, 0), 0, 0d, 0d, 10d)));
+	}
+
+	@Test
+	public void testGetIntersection_worldSpace() {
+
+		final SphereShape scaled = new SphereShape(1d, Arrays.asList(new TranslationTransform(3d, -1d, 2d),
+				new RotationTransform(Vector.J, 30d), new ScaleTransform(2d, 2d, 2d)));
+
+		final Random rnd = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			final Ray ray = new Ray(new Point(rnd.nextGaussian() * 4d, rnd.nextGaussian() * 4d, rnd.nextGaussian() * 4d),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()), 0, 0d, 0d, 10d);
+
+			final Interaction local = scaled.getLocalIntersection(scaled.worldToLocal(ray));
+			final Interaction expected = ( local == null ) ? null : scaled.localToWorld(local);
+			final Interaction actual = scaled.getIntersection(ray);
+
+			assertEquals("World-space occlusion not as expected!", scaled.isLocalOccluding(scaled.worldToLocal(ray)),
+					scaled.isOccluding(ray));
+
+			if (expected == null) {
+				assertNull("Expected miss was actually a hit!", actual);
+				continue;
+			}
+
+			assertNotNull("Expected hit was actually a miss!", actual);
+			assertEquals("Hit point X not as expected", expected.getPoint().getX(), actual.getPoint().getX(), 0.00001);
+			assertEquals("Hit point Y not as expected", expected.getPoint().getY(), actual.getPoint().getY(), 0.00001);
+			assertEquals("Hit point Z not as expected", expected.getPoint().getZ(), actual.getPoint().getZ(), 0.00001);
+			assertEquals("Hit ray currT not as expected", expected.getInteractingRay().getCurrT(),
+					actual.getInteractingRay().getCurrT(), 0.00001);
+			assertEquals("Hit param U not as expected", expected.getParam().getX(), actual.getParam().getX(), 0.00001);
+			assertEquals("Hit param V not as expected", expected.getParam().getY(), actual.getParam().getY(), 0.00001);
+
+			final Vector expectedNormal = expected.getNormal().asVector().normalize();
+			assertEquals("Hit normal X not as expected", expectedNormal.getX(), actual.getNormal().getX(), 0.00001);
+			assertEquals("Hit normal Y not as expected", expectedNormal.getY(), actual.getNormal().getY(), 0.00001);
+			assertEquals("Hit normal Z not as expected", expectedNormal.getZ(), actual.getNormal().getZ(), 0.00001);
+		}
+	}
+
+	@Test
+	public void testGetIntersection_nonUniformScale() {
+
+		final SphereShape squashed = new SphereShape(1d,
+				Arrays.asList(new TranslationTransform(3d, 0d, 0d), new ScaleTransform(1d, 2d, 1d)));
+
+		final Interaction hit = squashed.getIntersection(new Ray(new Point(3, -5, 0), new Vector(0, 1, 0)));
+
+		assertNotNull("Expected hit was actually a miss!", hit);
+		assertEquals("Hit point Y not as expected", -2d, hit.getPoint().getY(), 0.00001);
+		assertEquals("Hit ray currT not as expected", 3d, hit.getInteractingRay().getCurrT(), 0.00001);
+	}
+
+	@Test
+	public void testComputeSolidAngle() {
+
+		final SphereShape scaled = new SphereShape(1d,
+				Arrays.asList(new TranslationTransform(3d, 0d, 0d), new ScaleTransform(2d, 2d, 2d)));
+
+		// Radius 2, seen from 4 away: a cone of half-angle 30 degrees.
+		assertEquals("Solid angle not as expected", 2d * Math.PI * ( 1d - Math.cos(Math.PI / 6d) ),
+				scaled.computeSolidAngle(new Point(-1, 0, 0)), 0.00001);
+		assertEquals("Solid angle from inside not as expected", 4d * Math.PI,
+				scaled.computeSolidAngle(new Point(3, 1, 0)), 0.00001);
+	}
+
 }
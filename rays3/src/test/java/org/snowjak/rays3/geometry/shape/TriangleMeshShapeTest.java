@@ -0,0 +1,269 @@
+package org.snowjak.rays3.geometry.shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Point2D;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.sample.TwinSampleSupplier;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class TriangleMeshShapeTest {
+
+	private static final int	GRID_SIZE	= 32;
+
+	private TriangleMeshShape	cube, grid;
+
+	@Before
+	public void setUp() throws Exception {
+
+		//
+		// A unit cube, centered on (0,0,0), with outward-facing triangles.
+		//@formatter:off
+		final double[] positions = new double[] {	-0.5, -0.5, -0.5,	+0.5, -0.5, -0.5,	+0.5, +0.5, -0.5,	-0.5, +0.5, -0.5,
+													-0.5, -0.5, +0.5,	+0.5, -0.5, +0.5,	+0.5, +0.5, +0.5,	-0.5, +0.5, +0.5 };
+		final int[] indices = new int[] {	0, 2, 1,	0, 3, 2,
+											4, 5, 6,	4, 6, 7,
+											0, 1, 5,	0, 5, 4,
+											3, 7, 6,	3, 6, 2,
+											0, 4, 7,	0, 7, 3,
+											1, 2, 6,	1, 6, 5 };
+		//@formatter:on
+		cube = new TriangleMeshShape(positions, null, null, indices,
+				Arrays.asList(new TranslationTransform(0d, 0d, 3d)));
+
+		//
+		// A GRID_SIZE x GRID_SIZE grid of unit squares in the XZ-plane, each
+		// split into 2 triangles, with texture-coordinates.
+		final double[] gridPositions = new double[( GRID_SIZE + 1 ) * ( GRID_SIZE + 1 ) * 3];
+		final double[] gridUVs = new double[( GRID_SIZE + 1 ) * ( GRID_SIZE + 1 ) * 2];
+		for (int z = 0; z <= GRID_SIZE; z++)
+			for (int x = 0; x <= GRID_SIZE; x++) {
+				final int vertex = z * ( GRID_SIZE + 1 ) + x;
+				gridPositions[vertex * 3] = x;
+				gridPositions[vertex * 3 + 2] = z;
+				gridUVs[vertex * 2] = (double) x / GRID_SIZE;
+				gridUVs[vertex * 2 + 1] = (double) z / GRID_SIZE;
+			}
+
+		final int[] gridIndices = new int[GRID_SIZE * GRID_SIZE * 6];
+		for (int z = 0; z < GRID_SIZE; z++)
+			for (int x = 0; x < GRID_SIZE; x++) {
+				final int v = z * ( GRID_SIZE + 1 ) + x, i = ( z * GRID_SIZE + x ) * 6;
+				gridIndices[i] = v;
+				gridIndices[i + 1] = v + GRID_SIZE + 1;
+				gridIndices[i + 2] = v + 1;
+				gridIndices[i + 3] = v + 1;
+				gridIndices[i + 4] = v + GRID_SIZE + 1;
+				gridIndices[i + 5] = v + GRID_SIZE + 2;
+			}
+
+		grid = new TriangleMeshShape(gridPositions, null, gridUVs, gridIndices, Collections.emptyList());
+	}
+
+	@Test
+	public void testGetIntersection() {
+
+		final Interaction hit = cube.getIntersection(new Ray(new Point(0.1, 0.2, 0), new Vector(0, 0, 1)));
+
+		assertNotNull("Expected hit was actually a miss!", hit);
+
+		assertEquals("Hit point X not as expected", 0.1d, hit.getPoint().getX(), 0.00001);
+		assertEquals("Hit point Y not as expected", 0.2d, hit.getPoint().getY(), 0.00001);
+		assertEquals("Hit point Z not as expected", 2.5d, hit.getPoint().getZ(), 0.00001);
+
+		assertEquals("Hit normal X not as expected", 0d, hit.getNormal().getX(), 0.00001);
+		assertEquals("Hit normal Y not as expected", 0d, hit.getNormal().getY(), 0.00001);
+		assertEquals("Hit normal Z not as expected", -1d, hit.getNormal().getZ(), 0.00001);
+
+		assertEquals("Hit ray currT not as expected", 2.5d, hit.getInteractingRay().getCurrT(), 0.00001);
+
+		assertNull("Expected miss was actually a hit!",
+				cube.getIntersection(new Ray(new Point(0.6, 0.2, 0), new Vector(0, 0, 1))));
+		assertNull("Expected miss was actually a hit!",
+				cube.getIntersection(new Ray(new Point(0, 0, 0), new Vector(0, 0, -1))));
+	}
+
+	@Test
+	public void testWatertight() {
+
+		//
+		// Rays aimed exactly at the grid's shared edges and vertices must
+		// never slip between its triangles.
+		for (int z = 0; z < GRID_SIZE * 4; z++)
+			for (int x = 0; x < GRID_SIZE * 4; x++) {
+				final double px = 0.5 + x * 0.25, pz = 0.5 + z * 0.25;
+				if (px >= GRID_SIZE || pz >= GRID_SIZE)
+					continue;
+
+				final Ray ray = new Ray(new Point(px - 0.3, 5, pz + 0.7), new Vector(0.3, -5, -0.7));
+				final Interaction hit = grid.getIntersection(ray);
+
+				assertNotNull("Ray through (" + px + ", " + pz + ") slipped through the mesh!", hit);
+				assertEquals("Hit point X not as expected", px, hit.getPoint().getX(), 0.00001);
+				assertEquals("Hit point Z not as expected", pz, hit.getPoint().getZ(), 0.00001);
+			}
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+
+		final Random rnd = new Random(42);
+
+		final int triangleCount = 500;
+		final double[] positions = new double[triangleCount * 9];
+		final int[] indices = new int[triangleCount * 3];
+		for (int i = 0; i < triangleCount; i++) {
+			final double cx = rnd.nextDouble() * 10d, cy = rnd.nextDouble() * 10d, cz = rnd.nextDouble() * 10d;
+			for (int v = 0; v < 3; v++) {
+				positions[i * 9 + v * 3] = cx + rnd.nextGaussian();
+				positions[i * 9 + v * 3 + 1] = cy + rnd.nextGaussian();
+				positions[i * 9 + v * 3 + 2] = cz + rnd.nextGaussian();
+				indices[i * 3 + v] = i * 3 + v;
+			}
+		}
+
+		final TriangleMeshShape mesh = new TriangleMeshShape(positions, indices);
+		final TriangleMeshShape[] triangles = new TriangleMeshShape[triangleCount];
+		for (int i = 0; i < triangleCount; i++)
+			triangles[i] = new TriangleMeshShape(Arrays.copyOfRange(positions, i * 9, i * 9 + 9),
+					new int[] { 0, 1, 2 });
+
+		for (int r = 0; r < 500; r++) {
+			final Ray ray = new Ray(
+					new Point(rnd.nextDouble() * 10d, rnd.nextDouble() * 10d, rnd.nextDouble() * 10d),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+
+			double expectedT = Double.POSITIVE_INFINITY;
+			for (TriangleMeshShape triangle : triangles) {
+				final Interaction hit = triangle.getIntersection(ray);
+				if (hit != null)
+					expectedT = Math.min(expectedT, hit.getInteractingRay().getCurrT());
+			}
+
+			final Interaction hit = mesh.getIntersection(ray);
+			if (Double.isInfinite(expectedT))
+				assertNull("Expected miss was actually a hit!", hit);
+			else {
+				assertNotNull("Expected hit was actually a miss!", hit);
+				assertEquals("Hit t not as expected!", expectedT, hit.getInteractingRay().getCurrT(), 0.00001);
+			}
+		}
+	}
+
+	@Test
+	public void testIsOccluding() {
+
+		assertTrue(cube.isOccluding(new Ray(new Point(0.1, 0.2, 0), new Vector(0, 0, 1), 0, 0d, 0d, 10d)));
+		assertFalse(cube.isOccluding(new Ray(new Point(0.1, 0.2, 0), new Vector(0, 0, 1), 0, 0d, 0d, 2d)));
+		assertTrue(cube.isOccluding(new Ray(new Point(0.1, 0.2, 0), new Vector(0, 0, 1), 0, 0d, 3d, 10d)));
+		assertFalse(cube.isOccluding(new Ray(new Point(0.6, 0.2, 0), new Vector(0, 0, 1), 0, 0d, 0d, 10d)));
+	}
+
+	@Test
+	public void testParam() {
+
+		final Point point = new Point(3.25, 0, 7.5);
+		final Point2D param = grid.getParamFromLocalSurface(point);
+
+		assertEquals("U not as expected", 3.25 / GRID_SIZE, param.getX(), 0.00001);
+		assertEquals("V not as expected", 7.5 / GRID_SIZE, param.getY(), 0.00001);
+
+		final Point surface = grid.getLocalSurfaceFromParam(param);
+		assertEquals("Surface X not as expected", point.getX(), surface.getX(), 0.00001);
+		assertEquals("Surface Y not as expected", point.getY(), surface.getY(), 0.00001);
+		assertEquals("Surface Z not as expected", point.getZ(), surface.getZ(), 0.00001);
+
+		//
+		// Without texture-coordinates, the parameterization should still be
+		// reversible.
+		final Point cubePoint = new Point(0.5, 0.1, -0.3);
+		final Point cubeSurface = cube.getLocalSurfaceFromParam(cube.getParamFromLocalSurface(cubePoint));
+		assertEquals("Surface X not as expected", cubePoint.getX(), cubeSurface.getX(), 0.00001);
+		assertEquals("Surface Y not as expected", cubePoint.getY(), cubeSurface.getY(), 0.00001);
+		assertEquals("Surface Z not as expected", cubePoint.getZ(), cubeSurface.getZ(), 0.00001);
+	}
+
+	@Test
+	public void testSampleSurfacePoint() {
+
+		final Random rnd = new Random(42);
+
+		for (int i = 0; i < 200; i++) {
+			final Point sample = cube.sampleSurfacePoint(
+					TwinSampleSupplier.of(() -> new Point2D(rnd.nextDouble(), rnd.nextDouble())));
+
+			final Point nearest = cube.getSurfaceNearestTo(sample).getPoint();
+			assertEquals("Sample is not on the mesh!", 0d,
+					new Vector(sample, nearest).getMagnitude(), 0.00001);
+
+			final double maxExtent = Math.max(Math.abs(sample.getX()),
+					Math.max(Math.abs(sample.getY()), Math.abs(sample.getZ() - 3d)));
+			assertEquals("Sample is not on the cube's surface!", 0.5d, maxExtent, 0.00001);
+		}
+	}
+
+	@Test
+	public void testComputeSolidAngle() {
+
+		final double solidAngle = cube.computeSolidAngle(new Point(0, 0, -7));
+		assertTrue("Solid angle should be positive!", solidAngle > 0d);
+		assertTrue("Solid angle should be less than a hemisphere!", solidAngle < 2d * Math.PI);
+
+		assertEquals(4d * Math.PI, cube.computeSolidAngle(new Point(0, 0, 3)), 0.00001);
+	}
+
+	@Test
+	public void testToOffHeap() {
+
+		assertFalse("Mesh should be on-heap!", grid.isOffHeap());
+
+		final TriangleMeshShape offHeap = grid.toOffHeap();
+		assertTrue("Mesh should be off-heap!", offHeap.isOffHeap());
+		assertEquals("Triangle-count not as expected", grid.getTriangleCount(), offHeap.getTriangleCount());
+		assertEquals("Vertex-count not as expected", grid.getVertexCount(), offHeap.getVertexCount());
+
+		final Random rnd = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			final Ray ray = new Ray(new Point(rnd.nextDouble() * GRID_SIZE, 5, rnd.nextDouble() * GRID_SIZE),
+					new Vector(rnd.nextGaussian(), -5, rnd.nextGaussian()));
+
+			final Interaction expected = grid.getIntersection(ray), actual = offHeap.getIntersection(ray);
+			if (expected == null) {
+				assertNull("Expected miss was actually a hit!", actual);
+				continue;
+			}
+
+			assertNotNull("Expected hit was actually a miss!", actual);
+			assertEquals("Hit t not as expected!", expected.getInteractingRay().getCurrT(),
+					actual.getInteractingRay().getCurrT(), 0d);
+			assertEquals("Hit U not as expected!", expected.getParam().getX(), actual.getParam().getX(), 0d);
+			assertEquals("Hit V not as expected!", expected.getParam().getY(), actual.getParam().getY(), 0d);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+
+		try {
+			new TriangleMeshShape(new double[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 }, new int[0]);
+			fail("Expected an IllegalArgumentException for a mesh without triangles!");
+		} catch (IllegalArgumentException e) {
+			// Expected.
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+package org.snowjak.rays3.integrator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.camera.Camera;
+import org.snowjak.rays3.camera.PinholeCamera;
+import org.snowjak.rays3.film.Film;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.accel.TestScenes;
+import org.snowjak.rays3.sample.Sample;
+import org.snowjak.rays3.sample.Sampler;
+import org.snowjak.rays3.sample.SimplePseudorandomSampler;
+import org.snowjak.rays3.spectrum.RGBSpectrum;
+import org.snowjak.rays3.spectrum.Spectrum;
+
+public class AbstractIntegratorTest {
+
+	private static final int	WIDTH	= 37, HEIGHT = 23, SAMPLES_PER_PIXEL = 3;
+
+	private ForkJoinPool		pool;
+	private Camera				camera;
+	private CountingFilm		film;
+
+	@Before
+	public void setUp() {
+
+		pool = new ForkJoinPool(4);
+		camera = new PinholeCamera(WIDTH, HEIGHT, 4d, 3d, new Point(0, 0, -5), new Point(0, 0, 0), Vector.J, 5d);
+		film = new CountingFilm(WIDTH, HEIGHT);
+	}
+
+	@After
+	public void tearDown() {
+
+		pool.shutdown();
+	}
+
+	@Test
+	public void testRender() {
+
+		final Collection<Sampler> samplers = new SimplePseudorandomSampler(0, 0, WIDTH - 1, HEIGHT - 1,
+				SAMPLES_PER_PIXEL).getSubSamplers();
+		final ConstantIntegrator integrator = new ConstantIntegrator(camera, film, samplers, pool);
+
+		integrator.render(new World());
+		integrator.awaitRender();
+
+		assertTrue("Render should be finished!", integrator.isFinishedRenderingSamples());
+		assertEquals("No samples should be left waiting!", 0, integrator.countSamplesWaitingToRender());
+		assertEquals("No samples should be left rendering!", 0, integrator.countSamplesCurrentlyRendering());
+
+		assertEquals("Total samples rendered not as expected!", WIDTH * HEIGHT * SAMPLES_PER_PIXEL,
+				integrator.samplesFollowed.get());
+		assertEquals("Total samples added to film not as expected!", WIDTH * HEIGHT * SAMPLES_PER_PIXEL,
+				film.countSamplesAdded());
+		for (int x = 0; x < WIDTH; x++)
+			for (int y = 0; y < HEIGHT; y++)
+				assertEquals("Pixel (" + x + "," + y + ") sample-count not as expected!", SAMPLES_PER_PIXEL,
+						film.getSampleCount(x, y));
+	}
+
+	@Test
+	public void testRender_manyTiles() {
+
+		final ConstantIntegrator integrator = new ConstantIntegrator(camera, film,
+				Arrays.asList(new SimplePseudorandomSampler(0, 0, WIDTH - 1, HEIGHT - 1, SAMPLES_PER_PIXEL)), pool);
+
+		integrator.render(new World());
+		integrator.awaitRender();
+
+		assertTrue("Image should have been split into several tiles per worker!",
+				integrator.tilesEstimated.get() > pool.getParallelism() * AbstractIntegrator.TILES_PER_WORKER);
+		for (int x = 0; x < WIDTH; x++)
+			for (int y = 0; y < HEIGHT; y++)
+				assertEquals("Pixel (" + x + "," + y + ") sample-count not as expected!", SAMPLES_PER_PIXEL,
+						film.getSampleCount(x, y));
+	}
+
+	@Test
+	public void testRender_packets() {
+
+		final World world = TestScenes.createWorld(TestScenes.createScene(new Random(42)));
+		final PacketIntegrator integrator = new PacketIntegrator(camera, film,
+				Arrays.asList(new SimplePseudorandomSampler(0, 0, WIDTH - 1, HEIGHT - 1, SAMPLES_PER_PIXEL)), pool);
+
+		integrator.render(world);
+		integrator.awaitRender();
+
+		assertEquals("Every primary Ray should have been traced in a packet!", WIDTH * HEIGHT * SAMPLES_PER_PIXEL,
+				integrator.packetRaysFollowed.get());
+		assertEquals("No primary Ray should have been traced on its own!", 0, integrator.singleRaysFollowed.get());
+		assertEquals("Packet interactions should match single-Ray interactions!", 0, integrator.mismatches.get());
+		assertTrue("Expected at least some Rays to hit something!", integrator.hits.get() > 0);
+		assertEquals("Total samples added to film not as expected!", WIDTH * HEIGHT * SAMPLES_PER_PIXEL,
+				film.countSamplesAdded());
+	}
+
+	private static class ConstantIntegrator extends AbstractIntegrator {
+
+		private final AtomicInteger	samplesFollowed	= new AtomicInteger(), tilesEstimated = new AtomicInteger();
+
+		public ConstantIntegrator(Camera camera, Film film, Collection<Sampler> samplers, ForkJoinPool pool) {
+			super(camera, film, samplers, 1, pool);
+		}
+
+		@Override
+		protected double estimateTileCost(Sampler sampler, int minFilmX, int minFilmY, int maxFilmX,
+				int maxFilmY) {
+
+			tilesEstimated.incrementAndGet();
+			return super.estimateTileCost(sampler, minFilmX, minFilmY, maxFilmX, maxFilmY);
+		}
+
+		@Override
+		public Spectrum followRay(Ray ray, World world, Sample sample) {
+
+			samplesFollowed.incrementAndGet();
+			return RGBSpectrum.WHITE;
+		}
+	}
+
+	/**
+	 * Checks each packet-traced Interaction against the same Ray traced on its
+	 * own.
+	 */
+	private static class PacketIntegrator extends AbstractIntegrator {
+
+		private final AtomicInteger	packetRaysFollowed	= new AtomicInteger(), singleRaysFollowed = new AtomicInteger();
+		private final AtomicInteger	mismatches			= new AtomicInteger(), hits = new AtomicInteger();
+
+		public PacketIntegrator(Camera camera, Film film, Collection<Sampler> samplers, ForkJoinPool pool) {
+			super(camera, film, samplers, 1, pool);
+		}
+
+		@Override
+		public Spectrum followRay(Ray ray, World world, Sample sample) {
+
+			singleRaysFollowed.incrementAndGet();
+			return RGBSpectrum.WHITE;
+		}
+
+		@Override
+		public Spectrum followRay(Ray ray, Optional<Interaction> interaction, World world, Sample sample) {
+
+			packetRaysFollowed.incrementAndGet();
+
+			final Optional<Interaction> expected = world.getClosestInteraction(ray);
+			if (expected.isPresent() != interaction.isPresent())
+				mismatches.incrementAndGet();
+			else if (expected.isPresent()) {
+				hits.incrementAndGet();
+				if (Math.abs(expected.get().getInteractingRay().getCurrT()
+						- interaction.get().getInteractingRay().getCurrT()) > 0.00001)
+					mismatches.incrementAndGet();
+			}
+
+			return RGBSpectrum.WHITE;
+		}
+	}
+
+	private static class CountingFilm implements Film {
+
+		private final int					width, height;
+		private final AtomicIntegerArray	sampleCounts;
+		private final AtomicInteger			samplesAdded	= new AtomicInteger();
+
+		public CountingFilm(int width, int height) {
+			this.width = width;
+			this.height = height;
+			this.sampleCounts = new AtomicIntegerArray(width * height);
+		}
+
+		@Override
+		public void addSample(Sample sample, Spectrum radiance) {
+
+			final int x = Film.convertContinuousToDiscrete(sample.getImageX()),
+					y = Film.convertContinuousToDiscrete(sample.getImageY());
+			sampleCounts.incrementAndGet(y * width + x);
+			samplesAdded.incrementAndGet();
+		}
+
+		public int getSampleCount(int x, int y) {
+
+			return sampleCounts.get(y * width + x);
+		}
+
+		@Override
+		public int countSamplesAdded() {
+
+			return samplesAdded.get();
+		}
+
+		@Override
+		public int getWidth() {
+
+			return width;
+		}
+
+		@Override
+		public int getHeight() {
+
+			return height;
+		}
+
+		@Override
+		public void writeImage(File imageFile, ImageFormat format) {
+
+			// We don't care about this method for the purposes of these tests.
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snowjak.rays3.camera.PinholeCamera;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+import org.snowjak.rays3.intersect.RayPacket;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+/**
+ * Compares the {@link BoundingVolumeHierarchy} against the single- and
+ * two-level {@link UniformGrid}, both in terms of build-time and trace-time,
+ * over scenes of evenly-distributed and of tightly-clustered spheres.
+ * <p>
+ * Primary camera-rays are traced through the hierarchy both one at a time and
+ * as 8x8 {@link RayPacket}s.
+ * </p>
+ * <p>
+ * Run with
+ * <code>gradlew benchmark -Pbenchmarks=AccelerationStructureBenchmark</code>.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AccelerationStructureBenchmark {
+
+	private static final int		RAY_COUNT	= 4096;
+	private static final int		FILM_SIZE	= 256, PACKET_SIZE = 8;
+
+	@Param({ "1000", "100000" })
+	public int						primitiveCount;
+
+	@Param({ "false", "true" })
+	public boolean					clustered;
+
+	private List<Primitive>			primitives;
+	private Ray[]					rays, cameraRays;
+	private RayPacket[]				cameraPackets;
+
+	private BoundingVolumeHierarchy	hierarchy;
+	private UniformGrid				grid, twoLevelGrid;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+		final double sceneSize = TestScenes.getBenchmarkSceneSize(primitiveCount);
+
+		primitives = clustered ? createClusteredScene(rnd, sceneSize)
+				: TestScenes.createBenchmarkScene(rnd, primitiveCount);
+		rays = TestScenes.createBenchmarkRays(rnd, RAY_COUNT, sceneSize);
+
+		final PinholeCamera camera = new PinholeCamera(FILM_SIZE, FILM_SIZE, 4d, 4d,
+				new Point(0d, 0d, -sceneSize), new Point(0d, 0d, 0d), Vector.J, 4d);
+		cameraRays = new Ray[FILM_SIZE * FILM_SIZE];
+		for (int y = 0; y < FILM_SIZE; y++)
+			for (int x = 0; x < FILM_SIZE; x++)
+				cameraRays[y * FILM_SIZE + x] = camera.getRay(x + 0.5d, y + 0.5d);
+
+		cameraPackets = new RayPacket[( FILM_SIZE / PACKET_SIZE ) * ( FILM_SIZE / PACKET_SIZE )];
+		for (int y = 0; y < FILM_SIZE / PACKET_SIZE; y++)
+			for (int x = 0; x < FILM_SIZE / PACKET_SIZE; x++)
+				cameraPackets[y * ( FILM_SIZE / PACKET_SIZE ) + x] = camera.getRayPacket(x * PACKET_SIZE,
+						y * PACKET_SIZE, PACKET_SIZE, PACKET_SIZE);
+
+		hierarchy = new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder());
+		grid = new UniformGrid(primitives);
+		twoLevelGrid = new UniformGrid(primitives, true);
+
+		System.out.println();
+		System.out.println(String.format("Grid: %d x %d x %d cells", grid.getResolution(0), grid.getResolution(1),
+				grid.getResolution(2)));
+		System.out.println(String.format("Two-level grid: %d x %d x %d cells, %d sub-grids",
+				twoLevelGrid.getResolution(0), twoLevelGrid.getResolution(1), twoLevelGrid.getResolution(2),
+				twoLevelGrid.getSubGridCount()));
+	}
+
+	/**
+	 * A clustered scene puts 90% of its spheres into a handful of small, dense
+	 * clusters.
+	 */
+	private List<Primitive> createClusteredScene(Random rnd, double sceneSize) {
+
+		final Point[] clusters = new Point[8];
+		for (int i = 0; i < clusters.length; i++)
+			clusters[i] = new Point(( rnd.nextDouble() - 0.5 ) * sceneSize, ( rnd.nextDouble() - 0.5 ) * sceneSize,
+					( rnd.nextDouble() - 0.5 ) * sceneSize);
+		final double clusterSize = sceneSize / 20d;
+
+		final List<Primitive> primitives = new ArrayList<>(primitiveCount);
+		for (int i = 0; i < primitiveCount; i++) {
+
+			final TranslationTransform position;
+			final double radius;
+			if (i % 10 != 0) {
+				final Point cluster = clusters[rnd.nextInt(clusters.length)];
+				position = new TranslationTransform(cluster.getX() + rnd.nextGaussian() * clusterSize,
+						cluster.getY() + rnd.nextGaussian() * clusterSize,
+						cluster.getZ() + rnd.nextGaussian() * clusterSize);
+				radius = 0.01 + rnd.nextDouble() * 0.1;
+			} else {
+				position = new TranslationTransform(( rnd.nextDouble() - 0.5 ) * sceneSize,
+						( rnd.nextDouble() - 0.5 ) * sceneSize, ( rnd.nextDouble() - 0.5 ) * sceneSize);
+				radius = 0.1 + rnd.nextDouble();
+			}
+
+			primitives.add(new Primitive(new SphereShape(radius, Arrays.asList(position)), null));
+		}
+
+		return primitives;
+	}
+
+	@Benchmark
+	public BoundingVolumeHierarchy buildBVH() {
+
+		return new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder());
+	}
+
+	@Benchmark
+	public UniformGrid buildGrid() {
+
+		return new UniformGrid(primitives);
+	}
+
+	@Benchmark
+	public UniformGrid buildTwoLevelGrid() {
+
+		return new UniformGrid(primitives, true);
+	}
+
+	@Benchmark
+	public void traceBVH(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(hierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceCameraBVH(Blackhole blackhole) {
+
+		for (Ray ray : cameraRays)
+			blackhole.consume(hierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceCameraPacketBVH(Blackhole blackhole) {
+
+		for (RayPacket packet : cameraPackets) {
+			packet.reset();
+			hierarchy.getClosestInteractions(packet);
+			blackhole.consume(packet);
+		}
+	}
+
+	@Benchmark
+	public void traceGrid(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(grid.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceTwoLevelGrid(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(twoLevelGrid.getClosestInteraction(ray));
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.shape.Primitive;
+
+/**
+ * Compares the {@link SAHBVHBuilder} and {@link MortonBVHBuilder}, both in
+ * terms of the time taken to build a {@link BoundingVolumeHierarchy}, and the
+ * time taken to trace Rays through the resulting hierarchy (with and without
+ * quantized node-bounds).
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=BVHBuilderBenchmark</code>.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BVHBuilderBenchmark {
+
+	private static final int		RAY_COUNT	= 4096;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int						primitiveCount;
+
+	private List<Primitive>			primitives;
+	private Ray[]					rays;
+
+	private BoundingVolumeHierarchy	sahHierarchy, mortonHierarchy, quantizedHierarchy;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+
+		primitives = TestScenes.createBenchmarkScene(rnd, primitiveCount);
+		rays = TestScenes.createBenchmarkRays(rnd, RAY_COUNT, TestScenes.getBenchmarkSceneSize(primitiveCount));
+
+		sahHierarchy = new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder());
+		mortonHierarchy = new BoundingVolumeHierarchy(primitives, new MortonBVHBuilder());
+		quantizedHierarchy = new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder(), true);
+
+		System.out.println();
+		System.out.println(sahHierarchy.getMemoryReport());
+		System.out.println(quantizedHierarchy.getMemoryReport());
+	}
+
+	@Benchmark
+	public BoundingVolumeHierarchy buildSAH() {
+
+		return new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder());
+	}
+
+	@Benchmark
+	public BoundingVolumeHierarchy buildMorton30() {
+
+		return new BoundingVolumeHierarchy(primitives, new MortonBVHBuilder(10));
+	}
+
+	@Benchmark
+	public BoundingVolumeHierarchy buildMorton63() {
+
+		return new BoundingVolumeHierarchy(primitives, new MortonBVHBuilder(21));
+	}
+
+	@Benchmark
+	public void traceSAH(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(sahHierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceMorton(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(mortonHierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceQuantized(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(quantizedHierarchy.getClosestInteraction(ray));
+	}
+
+}
@@ -0,0 +1,250 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.camera.PinholeCamera;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.RayPacket;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class BoundingVolumeHierarchyTest {
+
+	private World	world;
+	private Random	rnd;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(42);
+		world = TestScenes.createWorld(TestScenes.createScene(rnd));
+	}
+
+	@Test
+	public void testGetClosestInteraction() {
+
+		final World linearWorld = TestScenes.createWorld(world.getPrimitives());
+
+		world.buildAccelerationStructure();
+
+		final int hits = TestScenes.assertClosestInteractionsMatch(linearWorld, world,
+				() -> TestScenes.getRandomRay(rnd), 2000);
+
+		assertTrue("Expected at least some rays to hit something!", hits > 100);
+	}
+
+	@Test
+	public void testIsOccluded() {
+
+		final World linearWorld = TestScenes.createWorld(world.getPrimitives());
+
+		world.buildAccelerationStructure();
+
+		final int occluded = TestScenes.assertOcclusionMatches(linearWorld, world,
+				() -> TestScenes.getRandomPoint(rnd), () -> TestScenes.getRandomPoint(rnd), 2000);
+
+		assertTrue("Expected at least some segments to be occluded!", occluded > 100);
+		assertTrue("Expected at least some segments to be unoccluded!", occluded < 1900);
+	}
+
+	@Test
+	public void testRefit() {
+
+		world.buildAccelerationStructure();
+		final AccelerationStructure original = world.getAccelerationStructure();
+
+		//
+		// Nudge every other primitive a little way.
+		int i = 0;
+		for (Primitive p : world.getPrimitives())
+			if (i++ % 2 == 0)
+				p.appendTransform(new TranslationTransform(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5,
+						rnd.nextDouble() - 0.5));
+
+		world.updateAccelerationStructure();
+		assertSame("Small movements should not require a re-build!", original, world.getAccelerationStructure());
+
+		TestScenes.assertClosestInteractionsMatch(TestScenes.createWorld(world.getPrimitives()), world,
+				() -> TestScenes.getRandomRay(rnd), 2000);
+	}
+
+	@Test
+	public void testRefitDegradation() {
+
+		final BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(world.getPrimitives());
+		assertTrue("Un-modified hierarchy should refit successfully!", bvh.refit());
+		assertEquals("Un-modified hierarchy should not change in cost!", bvh.getBuildCost(), bvh.getCost(), 0.00001);
+
+		//
+		// Scramble every primitive's position.
+		for (Primitive p : world.getPrimitives())
+			p.appendTransform(new TranslationTransform(rnd.nextDouble() * 20d - 10d, rnd.nextDouble() * 20d - 10d,
+					rnd.nextDouble() * 20d - 10d));
+
+		assertFalse("Scrambled hierarchy should require a re-build!", bvh.refit());
+		assertTrue("Scrambled hierarchy should be more costly!", bvh.getCost() > bvh.getBuildCost());
+	}
+
+	@Test
+	public void testQuantized() {
+
+		final World linearWorld = TestScenes.createWorld(world.getPrimitives());
+
+		world.setAccelerationStructureBuilder(new SAHBVHBuilder().quantized());
+		world.buildAccelerationStructure();
+		assertTrue("Hierarchy should be quantized!",
+				( (BoundingVolumeHierarchy) world.getAccelerationStructure() ).isQuantized());
+
+		//
+		// Nudge every other primitive, so that we exercise re-quantization
+		// as well.
+		int i = 0;
+		for (Primitive p : world.getPrimitives())
+			if (i++ % 2 == 0)
+				p.appendTransform(new TranslationTransform(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5,
+						rnd.nextDouble() - 0.5));
+		assertTrue("Small movements should not require a re-build!", world.getAccelerationStructure().refit());
+
+		TestScenes.assertClosestInteractionsMatch(linearWorld, world, () -> TestScenes.getRandomRay(rnd), 2000);
+		TestScenes.assertOcclusionMatches(linearWorld, world, () -> TestScenes.getRandomPoint(rnd),
+				() -> TestScenes.getRandomPoint(rnd), 2000);
+	}
+
+	@Test
+	public void testMemoryFootprint() {
+
+		final BoundingVolumeHierarchy full = new BoundingVolumeHierarchy(world.getPrimitives(), new SAHBVHBuilder(),
+				false);
+		final BoundingVolumeHierarchy quantized = new BoundingVolumeHierarchy(world.getPrimitives(),
+				new SAHBVHBuilder(), true);
+
+		assertEquals("Node count should not depend on quantization!", full.getNodeCount(), quantized.getNodeCount());
+		assertTrue("Quantized nodes should be smaller!",
+				quantized.getNodeMemoryFootprint() < full.getNodeMemoryFootprint());
+		assertEquals("Full-precision nodes should take 56 bytes each!",
+				2 * 16 + full.getNodeCount() * ( 2 * 4 + 6 * 8 ), full.getNodeMemoryFootprint());
+		assertEquals("Footprint should be the sum of nodes and elements!",
+				full.getNodeMemoryFootprint() + full.getElementMemoryFootprint(), full.getMemoryFootprint());
+		assertTrue("Report should mention node count!",
+				full.getMemoryReport().contains(String.format("%,d nodes", full.getNodeCount())));
+	}
+
+	@Test
+	public void testGetClosestInteractionsPacket() {
+
+		world.buildAccelerationStructure();
+
+		final PinholeCamera camera = new PinholeCamera(64, 64, 4d, 4d, new Point(0d, 0d, -25d), new Point(0d, 0d, 0d),
+				Vector.J, 4d);
+
+		int hits = 0;
+		for (int y = 0; y < 64; y += 8)
+			for (int x = 0; x < 64; x += 8) {
+
+				final RayPacket packet = camera.getRayPacket(x, y, 8, 8);
+				world.getClosestInteractions(packet);
+
+				for (int i = 0; i < packet.size(); i++) {
+					assertTrue("Camera rays should all be coherent!", packet.isCoherent(i));
+					hits += assertPacketMatchesSingle(packet, i) ? 1 : 0;
+				}
+			}
+
+		assertTrue("Expected at least some rays to hit something!", hits > 100);
+	}
+
+	@Test
+	public void testGetClosestInteractionsIncoherentPacket() {
+
+		world.buildAccelerationStructure();
+
+		for (int p = 0; p < 100; p++) {
+
+			final Ray[] rays = new Ray[16];
+			for (int i = 0; i < rays.length; i++)
+				rays[i] = TestScenes.getRandomRay(rnd);
+
+			final RayPacket packet = new RayPacket(rays);
+			world.getClosestInteractions(packet);
+
+			for (int i = 0; i < packet.size(); i++)
+				assertPacketMatchesSingle(packet, i);
+		}
+	}
+
+	private boolean assertPacketMatchesSingle(RayPacket packet, int index) {
+
+		final Optional<Interaction> expected = world.getClosestInteraction(packet.getRay(index));
+		final Optional<Interaction> actual = packet.getInteraction(index);
+
+		assertEquals("Hit/miss not as expected!", expected.isPresent(), actual.isPresent());
+		if (expected.isPresent())
+			assertEquals("Hit currT not as expected!", expected.get().getInteractingRay().getCurrT(),
+					actual.get().getInteractingRay().getCurrT(), 0.00001);
+
+		return expected.isPresent();
+	}
+
+	@Test
+	public void testUnboundedElements() {
+
+		final BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(world.getPrimitives());
+
+		assertEquals("Bounded element count not as expected!", 200, bvh.getElements().length);
+		assertEquals("Unbounded element count not as expected!", 1, bvh.getUnboundedElements().length);
+		assertTrue("Leaves should have been split!", bvh.getDepth() > 1);
+	}
+
+	@Test
+	public void testBuildDegenerate() {
+
+		//
+		// Zero-size boxes, all along the X-axis, give every node a
+		// surface-area of 0.
+		final int count = 100;
+		final double[] bounds = new double[count * 6];
+		final int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			bounds[i * 6 + 0] = i;
+			bounds[i * 6 + 3] = i;
+			order[i] = i;
+		}
+
+		final BVHNode root = new SAHBVHBuilder().buildTree(bounds, order);
+		assertEquals("Not every element is referenced by a leaf!", count, countLeafElements(root));
+	}
+
+	private static int countLeafElements(BVHNode node) {
+
+		if (node.isLeaf()) {
+			assertTrue("Leaf too large!", node.getElementCount() <= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF);
+			return node.getElementCount();
+		}
+
+		return countLeafElements(node.getLeft()) + countLeafElements(node.getRight());
+	}
+
+	@Test
+	public void testEmpty() {
+
+		final BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(Collections.emptyList());
+
+		assertEquals("Empty hierarchy should have no nodes!", 0, bvh.getNodeCount());
+		assertFalse("Empty hierarchy should report no interactions!",
+				bvh.getClosestInteraction(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).isPresent());
+	}
+
+}
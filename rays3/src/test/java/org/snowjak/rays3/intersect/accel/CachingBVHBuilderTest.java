@@ -0,0 +1,183 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class CachingBVHBuilderTest {
+
+	private Path			cacheDirectory;
+	private List<Primitive>	primitives;
+	private Random			rnd;
+
+	@Before
+	public void setUp() throws IOException {
+
+		cacheDirectory = Files.createTempDirectory("bvh-cache");
+
+		rnd = new Random(77);
+		primitives = TestScenes.createScene(rnd);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		for (Path file : Files.list(cacheDirectory).collect(Collectors.toList()))
+			Files.delete(file);
+		Files.delete(cacheDirectory);
+	}
+
+	@Test
+	public void testCacheHit() {
+
+		final CachingBVHBuilder builder = new CachingBVHBuilder(cacheDirectory);
+
+		final World world = TestScenes.createWorld(primitives);
+		world.setAccelerationStructureBuilder(builder);
+
+		world.buildAccelerationStructure();
+		assertEquals("First build should miss the cache!", 1, builder.getCacheMisses());
+		assertTrue("First build should write a cache-file!",
+				Files.exists(builder.getCacheFile(builder.computeKey(primitives))));
+
+		world.buildAccelerationStructure();
+		assertEquals("Second build should hit the cache!", 1, builder.getCacheHits());
+		assertEquals("Second build should not miss the cache!", 1, builder.getCacheMisses());
+
+		assertMatchesLinear(world);
+	}
+
+	@Test
+	public void testCacheHitQuantized() {
+
+		final CachingBVHBuilder builder = new CachingBVHBuilder(cacheDirectory, new MortonBVHBuilder(), true);
+
+		final World world = TestScenes.createWorld(primitives);
+		world.setAccelerationStructureBuilder(builder);
+
+		world.buildAccelerationStructure();
+		world.buildAccelerationStructure();
+		assertEquals("Second build should hit the cache!", 1, builder.getCacheHits());
+		assertTrue("Cached hierarchy should still be quantized!",
+				( (BoundingVolumeHierarchy) world.getAccelerationStructure() ).isQuantized());
+
+		assertMatchesLinear(world);
+	}
+
+	@Test
+	public void testStaleKey() {
+
+		final CachingBVHBuilder builder = new CachingBVHBuilder(cacheDirectory);
+
+		final long before = builder.computeKey(primitives);
+		builder.build(primitives);
+
+		primitives.get(17).appendTransform(new TranslationTransform(0.001, 0, 0));
+		final long after = builder.computeKey(primitives);
+		assertNotEquals("Transforming an element should change the key!", before, after);
+
+		final World world = TestScenes.createWorld(primitives);
+		world.setAccelerationStructureBuilder(builder);
+		world.buildAccelerationStructure();
+
+		assertEquals("Changed elements should miss the cache!", 2, builder.getCacheMisses());
+		assertEquals("Changed elements should not hit the cache!", 0, builder.getCacheHits());
+		assertMatchesLinear(world);
+	}
+
+	@Test
+	public void testBuilderConfiguration() {
+
+		final long shortCodes = CachingBVHBuilder.computeKey(primitives, new MortonBVHBuilder(10), false);
+		final long longCodes = CachingBVHBuilder.computeKey(primitives, new MortonBVHBuilder(12), false);
+		final long sah = CachingBVHBuilder.computeKey(primitives, new SAHBVHBuilder(), false);
+
+		assertNotEquals("Differently-configured builders should have different keys!", shortCodes, longCodes);
+		assertNotEquals("Different builders should have different keys!", shortCodes, sah);
+		assertEquals("Identically-configured builders should have the same key!", shortCodes,
+				CachingBVHBuilder.computeKey(primitives, new MortonBVHBuilder(10), false));
+		assertNotEquals("Quantized hierarchies should have different keys!", sah,
+				CachingBVHBuilder.computeKey(primitives, new SAHBVHBuilder(), true));
+	}
+
+	@Test
+	public void testCorruptFile() throws IOException {
+
+		final CachingBVHBuilder builder = new CachingBVHBuilder(cacheDirectory);
+		builder.build(primitives);
+
+		final Path cacheFile = builder.getCacheFile(builder.computeKey(primitives));
+		try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() / 2);
+		}
+
+		assertNull("Truncated file should not be readable!",
+				BVHCacheFile.read(cacheFile, primitives, builder.computeKey(primitives)));
+
+		final World world = TestScenes.createWorld(primitives);
+		world.setAccelerationStructureBuilder(builder);
+		world.buildAccelerationStructure();
+
+		assertEquals("Truncated file should miss the cache!", 2, builder.getCacheMisses());
+		assertMatchesLinear(world);
+
+		world.buildAccelerationStructure();
+		assertEquals("Re-written file should hit the cache!", 1, builder.getCacheHits());
+	}
+
+	@Test
+	public void testSharedChild() throws IOException {
+
+		final CachingBVHBuilder builder = new CachingBVHBuilder(cacheDirectory);
+		builder.build(primitives);
+
+		final long key = builder.computeKey(primitives);
+		final Path cacheFile = builder.getCacheFile(key);
+
+		//
+		// Turn the first leaf into an interior node, whose children (nodes
+		// X+1 and X+2) already have parents of their own. Raise the
+		// advertised depth, so that only the shared children are at fault.
+		final ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+		final int elementCount = contents.getInt(20), nodeCount = contents.getInt(28);
+		final int nodeInfoStart = 36 + elementCount * 4;
+
+		int leaf = 0;
+		while (contents.getInt(nodeInfoStart + leaf * 8 + 4) <= 0)
+			leaf++;
+		assertTrue("Test hierarchy is too small!", leaf + 2 < nodeCount);
+
+		contents.putInt(32, contents.getInt(32) + 100);
+		contents.putInt(nodeInfoStart + leaf * 8, leaf + 2);
+		contents.putInt(nodeInfoStart + leaf * 8 + 4, -1);
+		Files.write(cacheFile, contents.array());
+
+		assertNull("File with a node with two parents should not be readable!",
+				BVHCacheFile.read(cacheFile, primitives, key));
+	}
+
+	private void assertMatchesLinear(World world) {
+
+		TestScenes.assertClosestInteractionsMatch(TestScenes.createWorld(world.getPrimitives()), world,
+				() -> TestScenes.getRandomRay(rnd), 1000);
+	}
+
+}
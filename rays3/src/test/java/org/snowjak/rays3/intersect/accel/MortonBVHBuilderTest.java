@@ -0,0 +1,145 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.intersect.bound.AABB;
+
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class MortonBVHBuilderTest {
+
+	private List<Primitive>	primitives;
+	private Random			rnd;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(1234);
+		primitives = new ArrayList<>();
+
+		//
+		// Enough primitives to exercise the parallel code-paths.
+		for (int i = 0; i < 10000; i++)
+			primitives.add(new Primitive(new SphereShape(0.05 + rnd.nextDouble() * 0.1,
+					Arrays.asList(new TranslationTransform(rnd.nextDouble() * 20d - 10d, rnd.nextDouble() * 20d - 10d,
+							rnd.nextDouble() * 20d - 10d))),
+					null));
+	}
+
+	@Test
+	public void testMortonCode() {
+
+		assertEquals("Morton code not as expected!", 0b100L, MortonBVHBuilder.mortonCode(1, 0, 0));
+		assertEquals("Morton code not as expected!", 0b010L, MortonBVHBuilder.mortonCode(0, 1, 0));
+		assertEquals("Morton code not as expected!", 0b001L, MortonBVHBuilder.mortonCode(0, 0, 1));
+		assertEquals("Morton code not as expected!", 0b111000L, MortonBVHBuilder.mortonCode(2, 2, 2));
+		assertEquals("Morton code not as expected!", 0x7fffffffffffffffL,
+				MortonBVHBuilder.mortonCode(0x1fffff, 0x1fffff, 0x1fffff));
+	}
+
+	@Test
+	public void testBuildTree() {
+
+		final double[] bounds = new double[primitives.size() * 6];
+		final int[] order = new int[primitives.size()];
+		for (int i = 0; i < primitives.size(); i++) {
+			final AABB box = primitives.get(i).getBoundingBox();
+			bounds[i * 6 + 0] = box.getMinExtent().getX();
+			bounds[i * 6 + 1] = box.getMinExtent().getY();
+			bounds[i * 6 + 2] = box.getMinExtent().getZ();
+			bounds[i * 6 + 3] = box.getMaxExtent().getX();
+			bounds[i * 6 + 4] = box.getMaxExtent().getY();
+			bounds[i * 6 + 5] = box.getMaxExtent().getZ();
+			order[i] = i;
+		}
+
+		final BVHNode root = new MortonBVHBuilder().buildTree(bounds, order);
+
+		final int[] elementCount = new int[] { 0 };
+		assertBoundsEnclose(order, root, elementCount);
+		assertEquals("Not every element is referenced by a leaf!", primitives.size(), elementCount[0]);
+	}
+
+	private void assertBoundsEnclose(int[] order, BVHNode node, int[] elementCount) {
+
+		if (node.isLeaf()) {
+			assertTrue("Leaf too large!", node.getElementCount() <= BoundingVolumeHierarchy.MAX_ELEMENTS_PER_LEAF);
+			for (int i = node.getFirstElement(); i < node.getFirstElement() + node.getElementCount(); i++) {
+				final Point min = primitives.get(order[i]).getBoundingBox().getMinExtent(),
+						max = primitives.get(order[i]).getBoundingBox().getMaxExtent();
+				assertTrue("Leaf does not enclose element!",
+						node.getBounds().getMinExtent().getX() <= min.getX()
+								&& node.getBounds().getMinExtent().getY() <= min.getY()
+								&& node.getBounds().getMinExtent().getZ() <= min.getZ()
+								&& node.getBounds().getMaxExtent().getX() >= max.getX()
+								&& node.getBounds().getMaxExtent().getY() >= max.getY()
+								&& node.getBounds().getMaxExtent().getZ() >= max.getZ());
+				elementCount[0]++;
+			}
+			return;
+		}
+
+		assertBoundsEnclose(order, node.getLeft(), elementCount);
+		assertBoundsEnclose(order, node.getRight(), elementCount);
+	}
+
+	@Test
+	public void testGetClosestInteraction() {
+
+		final World linearWorld = new World();
+		linearWorld.getPrimitives().addAll(primitives);
+
+		final World world30 = new World();
+		world30.getPrimitives().addAll(primitives);
+		world30.setAccelerationStructureBuilder(new MortonBVHBuilder(10, new ForkJoinPool(4)));
+		world30.buildAccelerationStructure();
+
+		final World world63 = new World();
+		world63.getPrimitives().addAll(primitives);
+		world63.setAccelerationStructureBuilder(new MortonBVHBuilder(21));
+		world63.buildAccelerationStructure();
+
+		for (int i = 0; i < 500; i++) {
+
+			final Ray ray = new Ray(
+					new Point(rnd.nextDouble() * 30d - 15d, rnd.nextDouble() * 30d - 15d,
+							rnd.nextDouble() * 30d - 15d),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+
+			final Optional<Interaction> expected = linearWorld.getClosestInteraction(ray);
+
+			for (World world : Arrays.asList(world30, world63)) {
+				final Optional<Interaction> actual = world.getClosestInteraction(ray);
+
+				assertEquals("Hit/miss not as expected!", expected.isPresent(), actual.isPresent());
+				if (expected.isPresent())
+					assertEquals("Hit currT not as expected!", expected.get().getInteractingRay().getCurrT(),
+							actual.get().getInteractingRay().getCurrT(), 0.00001);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyBits() {
+
+		new MortonBVHBuilder(22);
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.camera.PinholeCamera;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.PlaneShape;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+/**
+ * Compares sorted and unsorted {@link RayBatch}-tracing of secondary rays --
+ * here, diffuse bounces off of every surface hit by a 256x256 set of primary
+ * camera-rays.
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=RayBatchBenchmark</code>. The
+ * hit-rate and throughput of a single sorted and unsorted trace are also
+ * printed during set-up.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RayBatchBenchmark {
+
+	private static final int	FILM_SIZE	= 256;
+
+	@Param({ "10000", "1000000" })
+	public int					primitiveCount;
+
+	private World				world;
+	private RayBatch			sortedBatch, unsortedBatch;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+		final double sceneSize = TestScenes.getBenchmarkSceneSize(primitiveCount);
+
+		world = TestScenes.createWorld(TestScenes.createBenchmarkScene(rnd, primitiveCount));
+		world.getPrimitives().add(new Primitive(
+				new PlaneShape(Arrays.asList(new TranslationTransform(0d, -sceneSize / 2d, 0d))), null));
+		world.buildAccelerationStructure();
+
+		//
+		// Bounce a diffuse ray off of every surface hit by a primary ray.
+		final PinholeCamera camera = new PinholeCamera(FILM_SIZE, FILM_SIZE, 4d, 4d,
+				new Point(0d, 0d, -sceneSize), new Point(0d, 0d, 0d), Vector.J, 4d);
+
+		final List<Ray> bounces = new ArrayList<>(FILM_SIZE * FILM_SIZE);
+		for (int y = 0; y < FILM_SIZE; y++)
+			for (int x = 0; x < FILM_SIZE; x++) {
+				final Optional<Interaction> hit = world.getClosestInteraction(camera.getRay(x + 0.5d, y + 0.5d));
+				if (!hit.isPresent())
+					continue;
+
+				final Vector normal = hit.get().getNormal().asVector().normalize();
+				Vector direction = new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian());
+				if (direction.dotProduct(normal) < 0d)
+					direction = direction.negate();
+
+				bounces.add(new Ray(new Point(hit.get().getPoint().getX() + normal.getX() * 1e-6,
+						hit.get().getPoint().getY() + normal.getY() * 1e-6,
+						hit.get().getPoint().getZ() + normal.getZ() * 1e-6), direction));
+			}
+
+		//
+		// Many paths are rendered at once, and so their bounces are generated
+		// in no particular order.
+		Collections.shuffle(bounces, rnd);
+
+		sortedBatch = new RayBatch(bounces.size(), true);
+		unsortedBatch = new RayBatch(bounces.size(), false);
+		for (Ray bounce : bounces) {
+			sortedBatch.add(bounce);
+			unsortedBatch.add(bounce);
+		}
+
+		for (int i = 0; i < 3; i++) {
+			sortedBatch.trace(world);
+			unsortedBatch.trace(world);
+		}
+		sortedBatch.resetStatistics();
+		unsortedBatch.resetStatistics();
+		sortedBatch.trace(world);
+		unsortedBatch.trace(world);
+
+		System.out.println();
+		System.out.println(String.format("%,d secondary rays, hit-rate %.1f%%", sortedBatch.size(),
+				sortedBatch.getHitRate() * 100d));
+		System.out.println(String.format("Unsorted: %,.0f rays/s; sorted: %,.0f rays/s (%.2fx)",
+				unsortedBatch.getRaysPerSecond(), sortedBatch.getRaysPerSecond(),
+				sortedBatch.getRaysPerSecond() / unsortedBatch.getRaysPerSecond()));
+	}
+
+	@Benchmark
+	public RayBatch traceSorted() {
+
+		sortedBatch.trace(world);
+		return sortedBatch;
+	}
+
+	@Benchmark
+	public RayBatch traceUnsorted() {
+
+		unsortedBatch.trace(world);
+		return unsortedBatch;
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.intersect.Interaction;
+
+public class RayBatchTest {
+
+	private World	world;
+	private Random	rnd;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(42);
+		world = TestScenes.createWorld(TestScenes.createScene(rnd));
+		world.buildAccelerationStructure();
+	}
+
+	@Test
+	public void testTrace() {
+
+		final RayBatch batch = new RayBatch(16, true);
+		for (int i = 0; i < 2000; i++)
+			assertEquals("Ray index not as expected!", i, batch.add(TestScenes.getRandomRay(rnd)));
+
+		batch.trace(world);
+
+		int hits = 0;
+		for (int i = 0; i < batch.size(); i++) {
+
+			final Optional<Interaction> expected = world.getClosestInteraction(batch.getRay(i));
+			final Optional<Interaction> actual = batch.getInteraction(i);
+
+			assertEquals("Hit/miss not as expected!", expected.isPresent(), actual.isPresent());
+			if (expected.isPresent()) {
+				hits++;
+				assertEquals("Hit currT not as expected!", expected.get().getInteractingRay().getCurrT(),
+						actual.get().getInteractingRay().getCurrT(), 0.00001);
+			}
+		}
+
+		assertEquals("Traced-ray count not as expected!", 2000, batch.getTracedRayCount());
+		assertEquals("Hit count not as expected!", hits, batch.getHitCount());
+		assertEquals("Hit rate not as expected!", hits / 2000d, batch.getHitRate(), 0.00001);
+		assertTrue("Throughput should have been measured!", batch.getRaysPerSecond() > 0d);
+	}
+
+	@Test
+	public void testTraceOrder() {
+
+		final RayBatch batch = new RayBatch();
+		for (int i = 0; i < 2000; i++)
+			batch.add(TestScenes.getRandomRay(rnd));
+
+		final int[] order = batch.getTraceOrder();
+
+		final boolean[] isSeen = new boolean[batch.size()];
+		for (int index : order) {
+			assertTrue("Trace-order should not repeat any ray!", !isSeen[index]);
+			isSeen[index] = true;
+		}
+
+		//
+		// Rays should be grouped by direction-octant.
+		int octantChanges = 0;
+		for (int i = 1; i < order.length; i++)
+			if (getOctant(batch.getRay(order[i])) != getOctant(batch.getRay(order[i - 1])))
+				octantChanges++;
+		assertEquals("Rays should be grouped by direction-octant!", 7, octantChanges);
+
+		batch.setSorted(false);
+		final int[] unsortedOrder = batch.getTraceOrder();
+		for (int i = 0; i < unsortedOrder.length; i++)
+			assertEquals("Unsorted trace-order should be insertion-order!", i, unsortedOrder[i]);
+	}
+
+	@Test
+	public void testClear() {
+
+		final RayBatch batch = new RayBatch();
+		batch.add(TestScenes.getRandomRay(rnd));
+		batch.trace(world);
+		batch.clear();
+
+		assertEquals("Cleared batch should be empty!", 0, batch.size());
+		assertEquals("Clearing should not reset statistics!", 1, batch.getTracedRayCount());
+
+		batch.resetStatistics();
+		assertEquals("Statistics should have been reset!", 0, batch.getTracedRayCount());
+		assertEquals("Statistics should have been reset!", 0d, batch.getHitRate(), 0.00001);
+	}
+
+	private static int getOctant(Ray ray) {
+
+		return ( ( ray.getDirection().getX() < 0d ) ? 4 : 0 ) | ( ( ray.getDirection().getY() < 0d ) ? 2 : 0 )
+				| ( ( ray.getDirection().getZ() < 0d ) ? 1 : 0 );
+	}
+
+}
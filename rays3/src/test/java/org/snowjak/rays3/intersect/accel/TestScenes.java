@@ -0,0 +1,217 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.PlaneShape;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+import org.snowjak.rays3.intersect.Interaction;
+import org.snowjak.rays3.transform.ScaleTransform;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+/**
+ * The scenes and Rays shared by the acceleration-structure tests and
+ * benchmarks, and the comparison of an accelerated {@link World} against a
+ * reference World (usually, one that tests every element in turn).
+ * <p>
+ * This is public only so that tests of instanced geometry (in another
+ * package) can use the same comparisons.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+public class TestScenes {
+
+	private TestScenes() {
+		// Not instantiable.
+	}
+
+	/**
+	 * Create the standard test-scene: 200 small, randomly-stretched spheres
+	 * scattered through a 20-unit cube centered on the origin, with an
+	 * (unbounded) plane below them all.
+	 * 
+	 * @param rnd
+	 * @return
+	 */
+	public static List<Primitive> createScene(Random rnd) {
+
+		final List<Primitive> primitives = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++)
+			primitives.add(new Primitive(new SphereShape(0.1 + rnd.nextDouble() * 0.5,
+					Arrays.asList(new TranslationTransform(rnd.nextDouble() * 20d - 10d, rnd.nextDouble() * 20d - 10d,
+							rnd.nextDouble() * 20d - 10d), new ScaleTransform(1d, 0.5 + rnd.nextDouble(), 1d))),
+					null));
+
+		primitives.add(new Primitive(new PlaneShape(Arrays.asList(new TranslationTransform(0, -12, 0))), null));
+
+		return primitives;
+	}
+
+	/**
+	 * Create a new {@link World} holding the given elements, which (until its
+	 * acceleration-structure is built) tests every element in turn.
+	 * 
+	 * @param primitives
+	 * @return
+	 */
+	public static World createWorld(Collection<Primitive> primitives) {
+
+		final World world = new World();
+		world.getPrimitives().addAll(primitives);
+		return world;
+	}
+
+	/**
+	 * @param rnd
+	 * @return a random Point within the 30-unit cube (centered on the origin)
+	 *         that encloses the standard test-scene
+	 */
+	public static Point getRandomPoint(Random rnd) {
+
+		return new Point(rnd.nextDouble() * 30d - 15d, rnd.nextDouble() * 30d - 15d, rnd.nextDouble() * 30d - 15d);
+	}
+
+	/**
+	 * @param rnd
+	 * @return a Ray from a {@link #getRandomPoint(Random) random Point}, in a
+	 *         random direction
+	 */
+	public static Ray getRandomRay(Random rnd) {
+
+		return new Ray(getRandomPoint(rnd), new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+	}
+
+	/**
+	 * Assert that, for each of the given number of Rays, both Worlds report
+	 * the same closest interaction (if any).
+	 * 
+	 * @param expected
+	 * @param actual
+	 * @param rays
+	 * @param rayCount
+	 * @return the number of Rays that hit something
+	 */
+	public static int assertClosestInteractionsMatch(World expected, World actual, Supplier<Ray> rays,
+			int rayCount) {
+
+		int hits = 0;
+		for (int i = 0; i < rayCount; i++) {
+
+			final Ray ray = rays.get();
+			final Optional<Interaction> expectedHit = expected.getClosestInteraction(ray);
+			final Optional<Interaction> actualHit = actual.getClosestInteraction(ray);
+
+			assertEquals("Hit/miss not as expected!", expectedHit.isPresent(), actualHit.isPresent());
+			if (!expectedHit.isPresent())
+				continue;
+
+			hits++;
+			final Point expectedPoint = expectedHit.get().getPoint(), actualPoint = actualHit.get().getPoint();
+			assertEquals("Hit currT not as expected!", expectedHit.get().getInteractingRay().getCurrT(),
+					actualHit.get().getInteractingRay().getCurrT(), 0.00001);
+			assertEquals("Hit point X not as expected!", expectedPoint.getX(), actualPoint.getX(), 0.00001);
+			assertEquals("Hit point Y not as expected!", expectedPoint.getY(), actualPoint.getY(), 0.00001);
+			assertEquals("Hit point Z not as expected!", expectedPoint.getZ(), actualPoint.getZ(), 0.00001);
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Assert that, for each of the given number of segments, both Worlds agree
+	 * on whether the segment is occluded.
+	 * 
+	 * @param expected
+	 * @param actual
+	 * @param from
+	 * @param to
+	 * @param segmentCount
+	 * @return the number of segments that were occluded
+	 */
+	public static int assertOcclusionMatches(World expected, World actual, Supplier<Point> from, Supplier<Point> to,
+			int segmentCount) {
+
+		int occluded = 0;
+		for (int i = 0; i < segmentCount; i++) {
+
+			final Point fromPoint = from.get(), toPoint = to.get();
+			final boolean isOccluded = expected.isOccluded(fromPoint, toPoint);
+			assertEquals("Occlusion not as expected!", isOccluded, actual.isOccluded(fromPoint, toPoint));
+
+			if (isOccluded)
+				occluded++;
+		}
+
+		return occluded;
+	}
+
+	/**
+	 * @param primitiveCount
+	 * @return the size of the cube through which benchmark-scenes of the given
+	 *         size are scattered -- growing with the primitive-count, so that
+	 *         every scene is about as dense
+	 */
+	public static double getBenchmarkSceneSize(int primitiveCount) {
+
+		return Math.cbrt(primitiveCount) * 4d;
+	}
+
+	/**
+	 * Create a benchmark-scene: the given number of spheres scattered evenly
+	 * through a {@link #getBenchmarkSceneSize(int) cube} centered on the
+	 * origin.
+	 * 
+	 * @param rnd
+	 * @param primitiveCount
+	 * @return
+	 */
+	public static List<Primitive> createBenchmarkScene(Random rnd, int primitiveCount) {
+
+		final double sceneSize = getBenchmarkSceneSize(primitiveCount);
+
+		final List<Primitive> primitives = new ArrayList<>(primitiveCount);
+		for (int i = 0; i < primitiveCount; i++)
+			primitives.add(new Primitive(new SphereShape(0.1 + rnd.nextDouble(),
+					Arrays.asList(new TranslationTransform(( rnd.nextDouble() - 0.5 ) * sceneSize,
+							( rnd.nextDouble() - 0.5 ) * sceneSize, ( rnd.nextDouble() - 0.5 ) * sceneSize))),
+					null));
+
+		return primitives;
+	}
+
+	/**
+	 * Create Rays from random points within a benchmark-scene's cube, in
+	 * random directions.
+	 * 
+	 * @param rnd
+	 * @param rayCount
+	 * @param sceneSize
+	 * @return
+	 */
+	public static Ray[] createBenchmarkRays(Random rnd, int rayCount, double sceneSize) {
+
+		final Ray[] rays = new Ray[rayCount];
+		for (int i = 0; i < rayCount; i++)
+			rays[i] = new Ray(
+					new Point(( rnd.nextDouble() - 0.5 ) * sceneSize, ( rnd.nextDouble() - 0.5 ) * sceneSize,
+							( rnd.nextDouble() - 0.5 ) * sceneSize),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+
+		return rays;
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class UniformGridTest {
+
+	private World	world;
+	private Random	rnd;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(42);
+		world = TestScenes.createWorld(TestScenes.createScene(rnd));
+
+		//
+		// A tight cluster of small spheres, to give the two-level grid
+		// something to subdivide.
+		for (int i = 0; i < 300; i++)
+			world.getPrimitives()
+					.add(new Primitive(new SphereShape(0.02 + rnd.nextDouble() * 0.05,
+							Arrays.asList(new TranslationTransform(rnd.nextDouble() * 1d + 3d, rnd.nextDouble() * 1d + 3d,
+									rnd.nextDouble() * 1d + 3d))),
+							null));
+	}
+
+	@Test
+	public void testGetClosestInteraction() {
+
+		world.setAccelerationStructureBuilder(UniformGrid::new);
+		assertMatchesLinear();
+	}
+
+	@Test
+	public void testGetClosestInteractionTwoLevel() {
+
+		world.setAccelerationStructureBuilder(elements -> new UniformGrid(elements, true));
+		assertMatchesLinear();
+
+		assertTrue("Expected the cluster to be subdivided!",
+				( (UniformGrid) world.getAccelerationStructure() ).getSubGridCount() > 0);
+	}
+
+	@Test
+	public void testIsOccluded() {
+
+		world.setAccelerationStructureBuilder(UniformGrid::new);
+		assertOcclusionMatchesLinear();
+	}
+
+	@Test
+	public void testIsOccludedTwoLevel() {
+
+		world.setAccelerationStructureBuilder(elements -> new UniformGrid(elements, true));
+		assertOcclusionMatchesLinear();
+	}
+
+	@Test
+	public void testResolution() {
+
+		final UniformGrid grid = new UniformGrid(world.getPrimitives());
+
+		assertEquals("Element count not as expected!", 501, grid.getElementCount());
+		assertEquals("Unbounded element count not as expected!", 1, grid.getUnboundedElements().length);
+
+		//
+		// The scene is roughly cubical, so the grid should be too, with
+		// about DEFAULT_DENSITY cells per element.
+		for (int axis = 0; axis < 3; axis++)
+			assertTrue("Resolution along axis " + axis + " not as expected!",
+					grid.getResolution(axis) >= 8 && grid.getResolution(axis) <= 12);
+		assertTrue("Cell count not as expected!", grid.getCellCount() >= 500 && grid.getCellCount() <= 2000);
+	}
+
+	@Test
+	public void testFlatScene() {
+
+		final Primitive[] primitives = new Primitive[100];
+		for (int i = 0; i < primitives.length; i++)
+			primitives[i] = new Primitive(new SphereShape(0.01,
+					Arrays.asList(new TranslationTransform(rnd.nextDouble() * 100d, 0d, rnd.nextDouble() * 100d))),
+					null);
+
+		final UniformGrid grid = new UniformGrid(Arrays.asList(primitives));
+
+		assertEquals("Flat axis should not be subdivided!", 1, grid.getResolution(1));
+		assertTrue("Other axes should be subdivided!", grid.getResolution(0) > 1 && grid.getResolution(2) > 1);
+		assertTrue("Grid should not be too large!", grid.getCellCount() <= UniformGrid.MAX_CELLS);
+	}
+
+	@Test
+	public void testEmpty() {
+
+		final UniformGrid grid = new UniformGrid(Collections.emptyList(), true);
+
+		assertEquals("Empty grid should have one cell!", 1, grid.getCellCount());
+		assertFalse("Empty grid should report no interactions!",
+				grid.getClosestInteraction(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).isPresent());
+		assertFalse("Empty grid should report no occlusion!",
+				grid.isOccluded(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))));
+	}
+
+	private void assertMatchesLinear() {
+
+		final World linearWorld = TestScenes.createWorld(world.getPrimitives());
+
+		world.buildAccelerationStructure();
+
+		//
+		// Aim half of the rays at the cluster.
+		final int hits = TestScenes.assertClosestInteractionsMatch(linearWorld, world,
+				() -> TestScenes.getRandomRay(rnd), 1000)
+				+ TestScenes.assertClosestInteractionsMatch(linearWorld, world, () -> {
+					final Point origin = TestScenes.getRandomPoint(rnd);
+					return new Ray(origin, new Vector(3.5 - origin.getX(), 3.5 - origin.getY(), 3.5 - origin.getZ()));
+				}, 1000);
+
+		assertTrue("Expected at least some rays to hit something!", hits > 100);
+	}
+
+	private void assertOcclusionMatchesLinear() {
+
+		final World linearWorld = TestScenes.createWorld(world.getPrimitives());
+
+		world.buildAccelerationStructure();
+
+		//
+		// Send half of the segments into the cluster.
+		final int occluded = TestScenes.assertOcclusionMatches(linearWorld, world,
+				() -> TestScenes.getRandomPoint(rnd), () -> TestScenes.getRandomPoint(rnd), 1000)
+				+ TestScenes.assertOcclusionMatches(linearWorld, world, () -> TestScenes.getRandomPoint(rnd),
+						() -> new Point(rnd.nextDouble() + 3d, rnd.nextDouble() + 3d, rnd.nextDouble() + 3d), 1000);
+
+		assertTrue("Expected at least some segments to be occluded!", occluded > 100);
+		assertTrue("Expected at least some segments to be unoccluded!", occluded < 1900);
+	}
+
+}
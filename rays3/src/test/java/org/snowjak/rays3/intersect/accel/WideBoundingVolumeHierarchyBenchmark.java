@@ -0,0 +1,118 @@
+package org.snowjak.rays3.intersect.accel;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snowjak.rays3.Global;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+
+/**
+ * Compares the {@link WideBoundingVolumeHierarchy} against the (binary)
+ * {@link BoundingVolumeHierarchy} it was collapsed from, both in terms of the
+ * time taken to collapse it, and the time taken to trace closest-hit and
+ * shadow Rays through each.
+ * <p>
+ * Run with
+ * <code>gradlew benchmark -Pbenchmarks=WideBoundingVolumeHierarchyBenchmark</code>.
+ * The largest scenes need a heap of around 16 GB.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx16g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WideBoundingVolumeHierarchyBenchmark {
+
+	private static final int			RAY_COUNT	= 4096;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int							primitiveCount;
+
+	@Param({ "4", "8" })
+	public int							width;
+
+	private Ray[]						rays, shadowRays;
+
+	private BoundingVolumeHierarchy		hierarchy;
+	private WideBoundingVolumeHierarchy	wideHierarchy;
+
+	@Setup
+	public void setUp() {
+
+		final Random rnd = new Random(42);
+
+		final List<Primitive> primitives = TestScenes.createBenchmarkScene(rnd, primitiveCount);
+		rays = TestScenes.createBenchmarkRays(rnd, RAY_COUNT, TestScenes.getBenchmarkSceneSize(primitiveCount));
+
+		//
+		// Shadow-rays are short segments, most of which are not occluded.
+		shadowRays = new Ray[RAY_COUNT];
+		for (int i = 0; i < RAY_COUNT; i++)
+			shadowRays[i] = new Ray(rays[i].getOrigin(),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()), 0, 0d,
+					Global.DOUBLE_TOLERANCE, 1d + rnd.nextDouble() * 4d, 1d);
+
+		hierarchy = new BoundingVolumeHierarchy(primitives, new SAHBVHBuilder());
+		wideHierarchy = new WideBoundingVolumeHierarchy(hierarchy, width);
+
+		System.out.println();
+		System.out.println(hierarchy.getMemoryReport());
+		System.out.println(String.format("Wide BVH: %,d nodes (depth %d, width %d, %.2f children/node)",
+				wideHierarchy.getNodeCount(), wideHierarchy.getDepth(), wideHierarchy.getWidth(),
+				wideHierarchy.getAverageChildCount()));
+	}
+
+	@Benchmark
+	public WideBoundingVolumeHierarchy collapse() {
+
+		return new WideBoundingVolumeHierarchy(hierarchy, width);
+	}
+
+	@Benchmark
+	public void traceBinary(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(hierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void traceWide(Blackhole blackhole) {
+
+		for (Ray ray : rays)
+			blackhole.consume(wideHierarchy.getClosestInteraction(ray));
+	}
+
+	@Benchmark
+	public void occludedBinary(Blackhole blackhole) {
+
+		for (Ray ray : shadowRays)
+			blackhole.consume(hierarchy.isOccluded(ray));
+	}
+
+	@Benchmark
+	public void occludedWide(Blackhole blackhole) {
+
+		for (Ray ray : shadowRays)
+			blackhole.consume(wideHierarchy.isOccluded(ray));
+	}
+
+}
@@ -0,0 +1,172 @@
+package org.snowjak.rays3.intersect.accel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.World;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.Primitive;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+import org.snowjak.rays3.transform.TranslationTransform;
+
+public class WideBoundingVolumeHierarchyTest {
+
+	private World	world, linearWorld;
+	private Random	rnd;
+
+	@Before
+	public void setUp() {
+
+		rnd = new Random(42);
+		world = TestScenes.createWorld(TestScenes.createScene(rnd));
+		linearWorld = TestScenes.createWorld(world.getPrimitives());
+	}
+
+	@Test
+	public void testGetClosestInteraction() {
+
+		for (int width : new int[] { 2, 4, 8 }) {
+
+			final int w = width;
+			world.setAccelerationStructureBuilder(
+					elements -> new WideBoundingVolumeHierarchy(elements, new SAHBVHBuilder(), w));
+			world.buildAccelerationStructure();
+
+			final int hits = TestScenes.assertClosestInteractionsMatch(linearWorld, world,
+					() -> TestScenes.getRandomRay(rnd), 2000);
+
+			assertTrue("Expected at least some rays to hit something (width " + width + ")!", hits > 100);
+		}
+	}
+
+	@Test
+	public void testIsOccluded() {
+
+		for (int width : new int[] { 2, 4, 8 }) {
+
+			final int w = width;
+			world.setAccelerationStructureBuilder(
+					elements -> new WideBoundingVolumeHierarchy(elements, new SAHBVHBuilder(), w));
+			world.buildAccelerationStructure();
+
+			final int occluded = TestScenes.assertOcclusionMatches(linearWorld, world,
+					() -> TestScenes.getRandomPoint(rnd), () -> TestScenes.getRandomPoint(rnd), 2000);
+
+			assertTrue("Expected at least some segments to be occluded (width " + width + ")!", occluded > 100);
+			assertTrue("Expected at least some segments to be unoccluded (width " + width + ")!", occluded < 1900);
+		}
+	}
+
+	@Test
+	public void testPartialNode() {
+
+		//
+		// A handful of widely-separated spheres gives a binary hierarchy with
+		// fewer leaves than an 8-wide node has lanes -- so the whole thing
+		// collapses into a single, partly-filled root.
+		final World sparseWorld = new World();
+		for (int i = 0; i < 5; i++)
+			sparseWorld.getPrimitives().add(new Primitive(
+					new SphereShape(1d, Arrays.asList(new TranslationTransform(i * 10d - 20d, 0d, 0d))), null));
+
+		final BoundingVolumeHierarchy binary = new BoundingVolumeHierarchy(sparseWorld.getPrimitives());
+		final int leafCount = ( binary.getNodeCount() + 1 ) / 2;
+		assertTrue("Binary hierarchy should have several leaves!", leafCount > 1 && leafCount < 8);
+
+		final WideBoundingVolumeHierarchy wide = new WideBoundingVolumeHierarchy(binary, 8);
+		assertEquals("Partly-filled hierarchy should have one node!", 1, wide.getNodeCount());
+		assertEquals("Root should hold every leaf!", leafCount, wide.getAverageChildCount(), 0.00001);
+
+		//
+		// The root's unused lanes must never report a hit.
+		sparseWorld.setAccelerationStructureBuilder(
+				elements -> new WideBoundingVolumeHierarchy(elements, new SAHBVHBuilder(), 8));
+		sparseWorld.buildAccelerationStructure();
+		final World sparseLinearWorld = TestScenes.createWorld(sparseWorld.getPrimitives());
+
+		for (int i = 0; i < 5; i++)
+			assertTrue("Ray should hit sphere " + i + "!",
+					wide.getClosestInteraction(new Ray(new Point(i * 10d - 20d, 0d, -5d), new Vector(0, 0, 1)))
+							.isPresent());
+		TestScenes.assertClosestInteractionsMatch(sparseLinearWorld, sparseWorld, () -> TestScenes.getRandomRay(rnd),
+				2000);
+		TestScenes.assertOcclusionMatches(sparseLinearWorld, sparseWorld, () -> TestScenes.getRandomPoint(rnd),
+				() -> TestScenes.getRandomPoint(rnd), 2000);
+	}
+
+	@Test
+	public void testCollapse() {
+
+		final BoundingVolumeHierarchy binary = new BoundingVolumeHierarchy(world.getPrimitives());
+
+		final WideBoundingVolumeHierarchy binaryWide = new WideBoundingVolumeHierarchy(binary, 2);
+		assertEquals("A 2-wide hierarchy should have one node per binary interior node!",
+				( binary.getNodeCount() - 1 ) / 2, binaryWide.getNodeCount());
+		assertEquals("A 2-wide hierarchy should be as deep as the binary hierarchy (less its leaves)!",
+				binary.getDepth() - 1, binaryWide.getDepth());
+
+		final WideBoundingVolumeHierarchy wide4 = new WideBoundingVolumeHierarchy(binary, 4),
+				wide8 = new WideBoundingVolumeHierarchy(binary, 8);
+
+		assertTrue("A 4-wide hierarchy should be shallower!", wide4.getDepth() < binaryWide.getDepth());
+		assertTrue("An 8-wide hierarchy should be shallower still!", wide8.getDepth() < wide4.getDepth());
+		assertTrue("A 4-wide hierarchy should have fewer nodes!", wide4.getNodeCount() < binaryWide.getNodeCount());
+		assertTrue("8-wide nodes should be fuller than 4-wide nodes!",
+				wide8.getAverageChildCount() > wide4.getAverageChildCount());
+
+		//
+		// Every node but the root is some node's child, as is every binary
+		// leaf.
+		final int leafCount = ( binary.getNodeCount() + 1 ) / 2;
+		for (WideBoundingVolumeHierarchy wide : Arrays.asList(binaryWide, wide4, wide8))
+			assertEquals("Child count not as expected (width " + wide.getWidth() + ")!",
+					wide.getNodeCount() - 1 + leafCount, wide.getAverageChildCount() * wide.getNodeCount(), 0.00001);
+
+		assertEquals("Element count not as expected!", 201, wide8.getElementCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWidthTooLarge() {
+
+		new WideBoundingVolumeHierarchy(new BoundingVolumeHierarchy(world.getPrimitives()), 33);
+	}
+
+	@Test
+	public void testSingleLeaf() {
+
+		final WideBoundingVolumeHierarchy wide = new WideBoundingVolumeHierarchy(
+				Arrays.asList(new Primitive(new SphereShape(1d), null)), new SAHBVHBuilder(), 4);
+
+		assertEquals("Single-leaf hierarchy should have one node!", 1, wide.getNodeCount());
+		assertTrue("Single-leaf hierarchy should report its one interaction!",
+				wide.getClosestInteraction(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))).isPresent());
+		assertFalse("Single-leaf hierarchy should report its one miss!",
+				wide.getClosestInteraction(new Ray(new Point(0, 5, -5), new Vector(0, 0, 1))).isPresent());
+		assertTrue("Single-leaf hierarchy should report its one occlusion!",
+				wide.isOccluded(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1), 0, 0d, 0d, 10d, 1d)));
+		assertFalse("Single-leaf hierarchy should report its one non-occlusion!",
+				wide.isOccluded(new Ray(new Point(0, 5, -5), new Vector(0, 0, 1), 0, 0d, 0d, 10d, 1d)));
+	}
+
+	@Test
+	public void testEmpty() {
+
+		final WideBoundingVolumeHierarchy wide = new WideBoundingVolumeHierarchy(Collections.emptyList());
+
+		assertEquals("Empty hierarchy should have no nodes!", 0, wide.getNodeCount());
+		assertFalse("Empty hierarchy should report no interactions!",
+				wide.getClosestInteraction(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).isPresent());
+		assertFalse("Empty hierarchy should report no occlusion!",
+				wide.isOccluded(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))));
+	}
+
+}
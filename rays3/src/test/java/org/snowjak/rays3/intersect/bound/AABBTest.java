@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 import org.snowjak.rays3.geometry.Point;
@@ -12,6 +15,9 @@ import org.snowjak.rays3.geometry.Ray;
 import org.snowjak.rays3.geometry.Vector;
 import org.snowjak.rays3.intersect.bound.AABB;
 import org.snowjak.rays3.transform.RotationTransform;
+import org.snowjak.rays3.transform.ScaleTransform;
+import org.snowjak.rays3.transform.Transform;
+import org.snowjak.rays3.transform.TranslationTransform;
 
 public class AABBTest {
 
@@ -30,6 +36,49 @@ public class AABBTest {
 		assertEquals("Rotated max-extent-Z not as expected!", 0d, transformed.getMaxExtent().getZ(), 0.00001);
 	}
 
+	@Test
+	public void testAABBAABBListOfTransform_matchesCorners() {
+
+		final Random rnd = new Random(42);
+		for (int i = 0; i < 100; i++) {
+
+			final AABB unTransformed = new AABB(
+					new Point(rnd.nextDouble() * 2d - 2d, rnd.nextDouble() * 2d - 2d, rnd.nextDouble() * 2d - 2d),
+					new Point(rnd.nextDouble() * 2d, rnd.nextDouble() * 2d, rnd.nextDouble() * 2d));
+			final List<Transform> localToWorld = Arrays.asList(
+					new ScaleTransform(0.5 + rnd.nextDouble(), 0.5 + rnd.nextDouble(), 0.5 + rnd.nextDouble()),
+					new RotationTransform(new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()),
+							rnd.nextDouble() * 360d),
+					new TranslationTransform(rnd.nextGaussian() * 10d, rnd.nextGaussian() * 10d,
+							rnd.nextGaussian() * 10d));
+
+			//
+			// The closed-form bounds should be exactly the bounds of the 8
+			// transformed corners.
+			final List<Point> corners = new ArrayList<>();
+			for (Point corner : unTransformed.getCorners()) {
+				for (Transform t : localToWorld)
+					corner = t.localToWorld(corner);
+				corners.add(corner);
+			}
+			final AABB expected = new AABB(corners);
+			final AABB transformed = new AABB(unTransformed, localToWorld);
+
+			assertEquals("Min-extent-X not as expected!", expected.getMinExtent().getX(),
+					transformed.getMinExtent().getX(), 0.00001);
+			assertEquals("Min-extent-Y not as expected!", expected.getMinExtent().getY(),
+					transformed.getMinExtent().getY(), 0.00001);
+			assertEquals("Min-extent-Z not as expected!", expected.getMinExtent().getZ(),
+					transformed.getMinExtent().getZ(), 0.00001);
+			assertEquals("Max-extent-X not as expected!", expected.getMaxExtent().getX(),
+					transformed.getMaxExtent().getX(), 0.00001);
+			assertEquals("Max-extent-Y not as expected!", expected.getMaxExtent().getY(),
+					transformed.getMaxExtent().getY(), 0.00001);
+			assertEquals("Max-extent-Z not as expected!", expected.getMaxExtent().getZ(),
+					transformed.getMaxExtent().getZ(), 0.00001);
+		}
+	}
+
 	@Test
 	public void testAABBCollectionOfPointListOfTransform() {
 
@@ -76,6 +125,24 @@ public class AABBTest {
 		assertEquals("Max-extent-Z not as expected!", 2d, union.getMaxExtent().getZ(), 0.00001);
 	}
 
+	@Test
+	public void testUnion_packed() {
+
+		final double[] bounds = new double[12];
+		AABB.setEmpty(bounds, 6);
+		new AABB(new Point(-1, -1, -1), new Point(0, 0, 0)).unionInto(bounds, 6);
+		AABB.union(bounds, 6, -1, 0, -1, 2, 2, 2);
+
+		assertTrue("Earlier bounds should be untouched!", Arrays.equals(new double[6], Arrays.copyOf(bounds, 6)));
+		assertTrue("Union not as expected!", Arrays.equals(new double[] { -1, -1, -1, 2, 2, 2 },
+				Arrays.copyOfRange(bounds, 6, 12)));
+
+		new AABB(new Point(3, 3, 3), new Point(4, 4, 4)).copyInto(bounds, 0);
+		AABB.union(bounds, 6, bounds, 0);
+		assertTrue("Union not as expected!", Arrays.equals(new double[] { -1, -1, -1, 4, 4, 4 },
+				Arrays.copyOfRange(bounds, 6, 12)));
+	}
+
 	@Test
 	public void testIsIntersecting() {
 
@@ -0,0 +1,163 @@
+package org.snowjak.rays3.intersect.bound;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+
+/**
+ * Compares {@link IntersectionKernels}' scalar and SIMD kernels against testing
+ * each box (with
+ * {@link AABB#getEntryDistance(double, double, double, double, double, double, double, double, double, double, double, double, double, double)
+ * AABB.getEntryDistance()}) or sphere (with
+ * {@link SphereShape#isLocalOccluding(Ray)}-style early-outs) one at a time,
+ * for a set of random rays each tested against a group of <code>width</code>
+ * random boxes or spheres.
+ * <p>
+ * Run with <code>gradlew benchmark -Pbenchmarks=IntersectionKernelsBenchmark</code>.
+ * The <code>vector</code> kernels are only available when running on JDK 16
+ * or later.
+ * </p>
+ * 
+ * @author snowjak88
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IntersectionKernelsBenchmark {
+
+	private static final int	RAY_COUNT	= 4096;
+
+	@Param({ "4", "8" })
+	public int					width;
+
+	@Param({ "scalar", "vector" })
+	public String				kernels;
+
+	private IntersectionKernels.Implementation	implementation;
+
+	private double[]			bounds, spheres;
+	private double[]			origins, directions, invDirections;
+	private double[]			distances;
+
+	@Setup
+	public void setUp() {
+
+		implementation = kernels.equals("vector") ? IntersectionKernels.VECTOR : IntersectionKernels.SCALAR;
+		if (implementation == null)
+			throw new IllegalStateException(
+					"SIMD kernels unavailable -- run on JDK 16+, with --add-modules jdk.incubator.vector.");
+
+		final Random rnd = new Random(42);
+
+		bounds = new double[RAY_COUNT * width * 6];
+		spheres = new double[RAY_COUNT * width * 4];
+		for (int group = 0; group < RAY_COUNT; group++)
+			for (int lane = 0; lane < width; lane++) {
+				for (int axis = 0; axis < 3; axis++) {
+					final double a = rnd.nextGaussian() * 5d, b = rnd.nextGaussian() * 5d;
+					bounds[group * width * 6 + axis * width + lane] = Math.min(a, b);
+					bounds[group * width * 6 + ( 3 + axis ) * width + lane] = Math.max(a, b);
+					spheres[group * width * 4 + axis * width + lane] = rnd.nextGaussian() * 5d;
+				}
+				spheres[group * width * 4 + 3 * width + lane] = rnd.nextDouble() * 4d;
+			}
+
+		origins = new double[RAY_COUNT * 3];
+		directions = new double[RAY_COUNT * 3];
+		invDirections = new double[RAY_COUNT * 3];
+		for (int i = 0; i < RAY_COUNT; i++) {
+			final Ray ray = new Ray(new Point(rnd.nextGaussian() * 10d, rnd.nextGaussian() * 10d, rnd.nextGaussian() * 10d),
+					new Vector(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian()));
+			for (int axis = 0; axis < 3; axis++) {
+				origins[i * 3 + axis] = ( axis == 0 ) ? ray.getOrigin().getX()
+						: ( axis == 1 ) ? ray.getOrigin().getY() : ray.getOrigin().getZ();
+				directions[i * 3 + axis] = ( axis == 0 ) ? ray.getDirection().getX()
+						: ( axis == 1 ) ? ray.getDirection().getY() : ray.getDirection().getZ();
+				invDirections[i * 3 + axis] = 1d / directions[i * 3 + axis];
+			}
+		}
+
+		distances = new double[width];
+	}
+
+	@Benchmark
+	public int boxKernel() {
+
+		int hits = 0;
+		for (int i = 0; i < RAY_COUNT; i++)
+			hits += Integer.bitCount(implementation.intersectBoxes(bounds, i * width * 6, width, origins[i * 3],
+					origins[i * 3 + 1], origins[i * 3 + 2], invDirections[i * 3], invDirections[i * 3 + 1],
+					invDirections[i * 3 + 2], 0d, Double.POSITIVE_INFINITY, distances));
+		return hits;
+	}
+
+	@Benchmark
+	public int boxScalar() {
+
+		int hits = 0;
+		for (int i = 0; i < RAY_COUNT; i++) {
+			final int b = i * width * 6;
+			for (int lane = 0; lane < width; lane++)
+				if (!Double.isNaN(AABB.getEntryDistance(bounds[b + lane], bounds[b + width + lane],
+						bounds[b + 2 * width + lane], bounds[b + 3 * width + lane], bounds[b + 4 * width + lane],
+						bounds[b + 5 * width + lane], origins[i * 3], origins[i * 3 + 1], origins[i * 3 + 2],
+						invDirections[i * 3], invDirections[i * 3 + 1], invDirections[i * 3 + 2], 0d,
+						Double.POSITIVE_INFINITY)))
+					hits++;
+		}
+		return hits;
+	}
+
+	@Benchmark
+	public int sphereKernel() {
+
+		int hits = 0;
+		for (int i = 0; i < RAY_COUNT; i++)
+			hits += Integer.bitCount(implementation.intersectSpheres(spheres, i * width * 4, width,
+					origins[i * 3], origins[i * 3 + 1], origins[i * 3 + 2], directions[i * 3], directions[i * 3 + 1],
+					directions[i * 3 + 2], 0d, Double.POSITIVE_INFINITY, distances));
+		return hits;
+	}
+
+	@Benchmark
+	public int sphereScalar() {
+
+		int hits = 0;
+		for (int i = 0; i < RAY_COUNT; i++) {
+			final int s = i * width * 4;
+			for (int lane = 0; lane < width; lane++) {
+				final double lx = spheres[s + lane] - origins[i * 3], ly = spheres[s + width + lane] - origins[i * 3 + 1],
+						lz = spheres[s + 2 * width + lane] - origins[i * 3 + 2];
+				final double t_ca = lx * directions[i * 3] + ly * directions[i * 3 + 1] + lz * directions[i * 3 + 2];
+				final double d2 = ( lx * lx + ly * ly + lz * lz ) - ( t_ca * t_ca );
+				final double r2 = spheres[s + 3 * width + lane];
+				if (d2 > r2)
+					continue;
+
+				final double t_hc = Math.sqrt(r2 - d2);
+				if (t_ca - t_hc > 0d || t_ca + t_hc > 0d)
+					hits++;
+			}
+		}
+		return hits;
+	}
+
+}
@@ -0,0 +1,150 @@
+package org.snowjak.rays3.intersect.bound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.snowjak.rays3.intersect.bound.IntersectionKernels.Implementation;
+
+public class IntersectionKernelsTest {
+
+	/**
+	 * @return the scalar kernels, and the SIMD kernels if this JVM supports
+	 *         them
+	 */
+	private static List<Implementation> getImplementations() {
+
+		return ( IntersectionKernels.VECTOR == null ) ? Arrays.asList(IntersectionKernels.SCALAR)
+				: Arrays.asList(IntersectionKernels.SCALAR, IntersectionKernels.VECTOR);
+	}
+
+	@Test
+	public void testIntersectBoxes() {
+
+		for (Implementation kernels : getImplementations())
+			testIntersectBoxes(kernels);
+	}
+
+	private void testIntersectBoxes(Implementation kernels) {
+
+		final Random rnd = new Random(42);
+
+		for (int width : new int[] { 1, 4, 8, 11 }) {
+			final double[] bounds = new double[3 + width * 6], entryDistances = new double[width];
+
+			for (int trial = 0; trial < 1000; trial++) {
+				for (int lane = 0; lane < width; lane++)
+					for (int axis = 0; axis < 3; axis++) {
+						final double a = rnd.nextGaussian() * 5d, b = rnd.nextGaussian() * 5d;
+						bounds[3 + axis * width + lane] = Math.min(a, b);
+						bounds[3 + ( 3 + axis ) * width + lane] = Math.max(a, b);
+					}
+
+				final double originX = rnd.nextGaussian() * 5d, originY = rnd.nextGaussian() * 5d,
+						originZ = rnd.nextGaussian() * 5d;
+				//
+				// Include some axis-aligned Rays, to exercise the infinite
+				// reciprocals.
+				final double invDirX = 1d / ( ( trial % 7 == 0 ) ? 0d : rnd.nextGaussian() ),
+						invDirY = 1d / rnd.nextGaussian(), invDirZ = 1d / rnd.nextGaussian();
+				final double maxT = ( trial % 2 == 0 ) ? Double.POSITIVE_INFINITY : rnd.nextDouble() * 10d;
+
+				final int hits = kernels.intersectBoxes(bounds, 3, width, originX, originY, originZ,
+						invDirX, invDirY, invDirZ, 0d, maxT, entryDistances);
+
+				for (int lane = 0; lane < width; lane++) {
+					final double expected = AABB.getEntryDistance(bounds[3 + lane], bounds[3 + width + lane],
+							bounds[3 + 2 * width + lane], bounds[3 + 3 * width + lane], bounds[3 + 4 * width + lane],
+							bounds[3 + 5 * width + lane], originX, originY, originZ, invDirX, invDirY, invDirZ, 0d,
+							maxT);
+
+					assertEquals("Box-hit not as expected!", !Double.isNaN(expected), ( hits & ( 1 << lane ) ) != 0);
+					if (!Double.isNaN(expected))
+						assertEquals("Entry-distance not as expected!", expected, entryDistances[lane], 0d);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIntersectSpheres() {
+
+		for (Implementation kernels : getImplementations())
+			testIntersectSpheres(kernels);
+	}
+
+	private void testIntersectSpheres(Implementation kernels) {
+
+		final double[] spheres = new double[] {
+				// center-X
+				0d, 5d, 10d, 0d,
+				// center-Y
+				0d, 0d, 0.5d, 3d,
+				// center-Z
+				0d, 0d, 0d, 0d,
+				// radius^2
+				1d, 1d, 1d, 1d };
+		final double[] distances = new double[4];
+
+		// Along the X-axis from (-5,0,0).
+		int hits = kernels.intersectSpheres(spheres, 0, 4, -5d, 0d, 0d, 1d, 0d, 0d, 0d,
+				Double.POSITIVE_INFINITY, distances);
+
+		assertEquals("Sphere-hits not as expected!", 0b0111, hits);
+		assertEquals("Sphere 0 distance not as expected!", 4d, distances[0], 0.00001);
+		assertEquals("Sphere 1 distance not as expected!", 9d, distances[1], 0.00001);
+		assertEquals("Sphere 2 distance not as expected!", 15d - Math.sqrt(0.75d), distances[2], 0.00001);
+
+		// Limited to the first 8 units.
+		hits = kernels.intersectSpheres(spheres, 0, 4, -5d, 0d, 0d, 1d, 0d, 0d, 0d, 8d, distances);
+		assertEquals("Sphere-hits not as expected!", 0b0001, hits);
+
+		// From inside sphere 0, the far side is reported.
+		hits = kernels.intersectSpheres(spheres, 0, 4, 0d, 0d, 0d, 1d, 0d, 0d, 0d, 2d, distances);
+		assertEquals("Sphere-hits not as expected!", 0b0001, hits);
+		assertEquals("Sphere 0 distance not as expected!", 1d, distances[0], 0.00001);
+	}
+
+	@Test
+	public void testVectorMatchesScalarSpheres() {
+
+		assumeNotNull(IntersectionKernels.VECTOR);
+
+		final Random rnd = new Random(42);
+
+		for (int count : new int[] { 1, 4, 8, 11 }) {
+			final double[] spheres = new double[3 + count * 4], scalarDistances = new double[count],
+					vectorDistances = new double[count];
+
+			for (int trial = 0; trial < 1000; trial++) {
+				for (int lane = 0; lane < count; lane++) {
+					for (int axis = 0; axis < 3; axis++)
+						spheres[3 + axis * count + lane] = rnd.nextGaussian() * 5d;
+					spheres[3 + 3 * count + lane] = rnd.nextDouble() * 4d;
+				}
+
+				final double originX = rnd.nextGaussian() * 5d, originY = rnd.nextGaussian() * 5d,
+						originZ = rnd.nextGaussian() * 5d;
+				final double dirX = rnd.nextGaussian(), dirY = rnd.nextGaussian(), dirZ = rnd.nextGaussian();
+				final double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+				final double maxT = ( trial % 2 == 0 ) ? Double.POSITIVE_INFINITY : rnd.nextDouble() * 10d;
+
+				final int scalarHits = IntersectionKernels.SCALAR.intersectSpheres(spheres, 3, count, originX,
+						originY, originZ, dirX / length, dirY / length, dirZ / length, 0d, maxT, scalarDistances);
+				final int vectorHits = IntersectionKernels.VECTOR.intersectSpheres(spheres, 3, count, originX,
+						originY, originZ, dirX / length, dirY / length, dirZ / length, 0d, maxT, vectorDistances);
+
+				assertEquals("Sphere-hits not as expected!", scalarHits, vectorHits);
+				for (int lane = 0; lane < count; lane++)
+					if (( scalarHits & ( 1 << lane ) ) != 0)
+						assertEquals("Sphere distance not as expected!", scalarDistances[lane],
+								vectorDistances[lane], 0d);
+			}
+		}
+	}
+
+}
@@ -99,6 +99,40 @@ public class BestCandidateSamplerTest {
 			}
 	}
 
+	@Test
+	public void testGetNextSample_spacing() {
+
+		//
+		// Each pixel's image-plane samples should be well-spaced (allowing
+		// for the table's shift wrapping points around the pixel's edges).
+		final BestCandidateSampler sampler = new BestCandidateSampler(0, 0, 3, 3, 64);
+		final double[][][] offsets = new double[4][4][2 * 64];
+		final int[][] counts = new int[4][4];
+
+		Sample sample;
+		while (( sample = sampler.getNextSample().orElse(null) ) != null) {
+			final int filmX = Film.convertContinuousToDiscrete(sample.getImageX()),
+					filmY = Film.convertContinuousToDiscrete(sample.getImageY());
+			offsets[filmX][filmY][2 * counts[filmX][filmY]] = sample.getImageX() - filmX;
+			offsets[filmX][filmY][2 * counts[filmX][filmY] + 1] = sample.getImageY() - filmY;
+			counts[filmX][filmY]++;
+		}
+
+		for (int filmX = 0; filmX < 4; filmX++)
+			for (int filmY = 0; filmY < 4; filmY++) {
+				final double[] points = offsets[filmX][filmY];
+				for (int i = 0; i < 64; i++)
+					for (int j = 0; j < i; j++) {
+						double dx = Math.abs(points[2 * i] - points[2 * j]),
+								dy = Math.abs(points[2 * i + 1] - points[2 * j + 1]);
+						dx = Math.min(dx, 1d - dx);
+						dy = Math.min(dy, 1d - dy);
+						assertTrue("Pixel [" + filmX + "," + filmY + "] samples too close together!",
+								Math.sqrt(dx * dx + dy * dy) > 0.5d / 8d);
+					}
+			}
+	}
+
 	@Test
 	public void testIsSampleAcceptable() {
 
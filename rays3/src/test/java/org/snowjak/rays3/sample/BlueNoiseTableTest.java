@@ -0,0 +1,135 @@
+package org.snowjak.rays3.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class BlueNoiseTableTest {
+
+	@Test
+	public void testGenerate_2D() {
+
+		final BlueNoiseTable table = BlueNoiseTable.generate(2, 256);
+
+		assertEquals("Point-count not as expected!", 256, table.getPointCount());
+		assertTrue("Points should be at least 0.5/sqrt(n) apart!",
+				getMinimumDistance(table, 256) > 0.5d / Math.sqrt(256d));
+
+		//
+		// Every prefix should be well-spaced, too.
+		assertTrue("First 16 points should be at least 0.5/sqrt(16) apart!",
+				getMinimumDistance(table, 16) > 0.5d / Math.sqrt(16d));
+	}
+
+	@Test
+	public void testGenerate_1D() {
+
+		final BlueNoiseTable table = BlueNoiseTable.generate(1, 64);
+
+		assertEquals("Point-count not as expected!", 64, table.getPointCount());
+		assertTrue("Points should be at least 0.25/n apart!", getMinimumDistance(table, 64) > 0.25d / 64d);
+	}
+
+	@Test
+	public void testGenerate_repeatable() {
+
+		final BlueNoiseTable first = BlueNoiseTable.generate(2, 100), second = BlueNoiseTable.generate(2, 100);
+		for (int i = 0; i < 100; i++)
+			for (int d = 0; d < 2; d++)
+				assertEquals("Point " + i + " not repeated!", first.get(i, d, 0d), second.get(i, d, 0d), 0d);
+	}
+
+	@Test
+	public void testGet() {
+
+		assertSame("Tables should be computed only once!", BlueNoiseTable.get(2, 32), BlueNoiseTable.get(2, 32));
+
+		//
+		// Shifted points should wrap back onto [0, 1).
+		final BlueNoiseTable table = BlueNoiseTable.get(2, 32);
+		for (int i = 0; i < 32; i++) {
+			final double shifted = table.get(i, 0, 0.75d);
+			assertTrue("Shifted point out of range!", shifted >= 0d && shifted < 1d);
+			assertEquals("Shifted point not as expected!", ( table.get(i, 0, 0d) + 0.75d ) % 1d, shifted, 0.00001);
+		}
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+
+		final BlueNoiseTable table = BlueNoiseTable.generate(2, 50);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.write(out);
+		assertEquals("Written size not as expected!", 16 + 2 * 2 * 50, out.size());
+
+		final BlueNoiseTable read = BlueNoiseTable.read(new ByteArrayInputStream(out.toByteArray()));
+		assertNotNull("Table not read back!", read);
+		assertEquals("Dimensions not as expected!", 2, read.getDimensions());
+		assertEquals("Point-count not as expected!", 50, read.getPointCount());
+		for (int i = 0; i < 50; i++)
+			for (int d = 0; d < 2; d++)
+				assertEquals("Point " + i + " not read back!", table.get(i, d, 0d), read.get(i, d, 0d), 0d);
+	}
+
+	@Test
+	public void testRead_tooLarge() throws IOException {
+
+		//
+		// A header claiming an absurd number of points should be rejected
+		// before anything is allocated for them.
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(BlueNoiseTable.MAGIC);
+		data.writeInt(BlueNoiseTable.FORMAT_VERSION);
+		data.writeInt(2);
+		data.writeInt(Integer.MAX_VALUE);
+		data.flush();
+
+		assertNull("Oversized table should not be read!",
+				BlueNoiseTable.read(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGet_badDimensions() {
+
+		BlueNoiseTable.get(3, 16);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGet_tooManyPoints() {
+
+		BlueNoiseTable.get(1, BlueNoiseTable.MAX_POINT_COUNT + 1);
+	}
+
+	/**
+	 * @return the smallest toroidal distance between any two of the first
+	 *         <code>count</code> points of the given table
+	 */
+	private static double getMinimumDistance(BlueNoiseTable table, int count) {
+
+		double minimumSq = Double.MAX_VALUE;
+		for (int i = 0; i < count; i++)
+			for (int j = 0; j < i; j++) {
+				double distanceSq = 0d;
+				for (int d = 0; d < table.getDimensions(); d++) {
+					double delta = Math.abs(table.get(i, d, 0d) - table.get(j, d, 0d));
+					delta = Math.min(delta, 1d - delta);
+					distanceSq += delta * delta;
+				}
+				minimumSq = Math.min(minimumSq, distanceSq);
+			}
+
+		return Math.sqrt(minimumSq);
+	}
+
+}
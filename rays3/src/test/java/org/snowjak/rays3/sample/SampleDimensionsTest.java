@@ -0,0 +1,136 @@
+package org.snowjak.rays3.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import org.snowjak.rays3.geometry.Point2D;
+
+public class SampleDimensionsTest {
+
+	@Test
+	public void testRegister() {
+
+		final SampleDimensions dimensions = new SampleDimensions();
+
+		final int single = dimensions.register1D("single", 3);
+		final int twin = dimensions.register2D("twin", 2);
+
+		assertEquals("Single handle not as expected!", 0, single);
+		assertEquals("Twin handle not as expected!", 1, twin);
+		assertEquals("Re-registering should return the same handle!", single, dimensions.register1D("single", 3));
+		assertEquals("Lookup by name not as expected!", twin, dimensions.getDimension("twin"));
+		assertEquals("Lookup of unknown name not as expected!", -1, dimensions.getDimension("unknown"));
+
+		assertFalse("Single dimension should not be twin!", dimensions.isTwin(single));
+		assertTrue("Twin dimension should be twin!", dimensions.isTwin(twin));
+		assertEquals("Twin offset not as expected!", 3, dimensions.getOffset(twin));
+		assertEquals("Value count not as expected!", 3 + 2 * 2, dimensions.getValueCount());
+	}
+
+	@Test
+	public void testRegisterMany() {
+
+		final SampleDimensions dimensions = new SampleDimensions();
+		for (int i = 0; i < 20; i++)
+			assertEquals("Handle not as expected!", i, dimensions.register2D("dimension-" + i, i + 1));
+
+		assertEquals("Dimension count not as expected!", 20, dimensions.getDimensionCount());
+		assertEquals("Last count not as expected!", 20, dimensions.getCount(19));
+		assertEquals("Value count not as expected!", 2 * ( 20 * 21 / 2 ), dimensions.getValueCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegister_differentShape() {
+
+		final SampleDimensions dimensions = new SampleDimensions();
+		dimensions.register1D("test", 2);
+		dimensions.register2D("test", 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegister_noValues() {
+
+		new SampleDimensions().register1D("test", 0);
+	}
+
+	@Test
+	public void testSampleValues() {
+
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 3, 3, 1);
+		final int single = sampler.getSampleDimensions().register1D("single", 2);
+		final int twin = sampler.getSampleDimensions().register2D("twin", 1);
+
+		final double[] values = new double[] { 0.1, 0.2, 0.3, 0.4 };
+		final Sample sample = new Sample(sampler, 1.5, 1.5, 0.5, 0.5, 0.0, null, new SplittableRandom(42), values);
+
+		assertEquals("First single value not as expected!", 0.1, sample.getNextAdditionalSingleSample(single),
+				0.00001);
+		assertEquals("Second single value not as expected!", 0.2, sample.getNextAdditionalSingleSample(single),
+				0.00001);
+
+		final Point2D point = sample.getAdditionalTwinSample(twin).get();
+		assertEquals("Twin X not as expected!", 0.3, point.getX(), 0.00001);
+		assertEquals("Twin Y not as expected!", 0.4, point.getY(), 0.00001);
+
+		//
+		// Once used up, each dimension should be re-generated rather than
+		// spilling into its neighbour.
+		for (int i = 0; i < 16; i++) {
+			final double value = sample.getNextAdditionalSingleSample(single);
+			assertTrue("Re-generated value out of range!", value >= 0d && value < 1d);
+		}
+		assertEquals("Pre-generated values should not be overwritten!", 0.3, values[2], 0.00001);
+	}
+
+	@Test
+	public void testTwinSampleCoordinates() {
+
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 3, 3, 1);
+		final int twin = sampler.getSampleDimensions().register2D("twin", 2);
+
+		final double[] values = new double[] { 0.1, 0.2, 0.3, 0.4 };
+		final Sample sample = new Sample(sampler, 1.5, 1.5, 0.5, 0.5, 0.0, null, new SplittableRandom(42), values);
+
+		try {
+			sample.getAdditionalTwinSampleY(twin);
+			fail("Expected an IllegalStateException before the dimension is drawn from!");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+
+		assertEquals("First twin X not as expected!", 0.1, sample.getNextAdditionalTwinSampleX(twin), 0.00001);
+		assertEquals("First twin Y not as expected!", 0.2, sample.getAdditionalTwinSampleY(twin), 0.00001);
+
+		final TwinSampleSupplier supplier = sample.getAdditionalTwinSample(twin);
+		assertEquals("Second twin X not as expected!", 0.3, supplier.nextX(), 0.00001);
+		assertEquals("Second twin Y not as expected!", 0.4, supplier.getY(), 0.00001);
+		assertEquals("Twin Y should not advance the dimension!", 0.4, supplier.getY(), 0.00001);
+
+		//
+		// Re-generated values should be read the same way.
+		final double x = supplier.nextX(), y = supplier.getY();
+		assertTrue("Re-generated X out of range!", x >= 0d && x < 1d);
+		assertTrue("Re-generated Y out of range!", y >= 0d && y < 1d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSampleValues_wrongShape() {
+
+		final Sampler sampler = new SimplePseudorandomSampler(0, 0, 3, 3, 1);
+		final int single = sampler.getSampleDimensions().register1D("single", 2);
+
+		new Sample(sampler, 1.5, 1.5).getNextAdditionalTwinSample(single);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSampleValues_unregistered() {
+
+		new Sample(new SimplePseudorandomSampler(0, 0, 3, 3, 1), 1.5, 1.5).getNextAdditionalSingleSample(0);
+	}
+
+}
@@ -2,9 +2,15 @@ package org.snowjak.rays3.sample;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
 
 import org.junit.Test;
+import org.snowjak.rays3.film.Film;
 import org.snowjak.rays3.spectrum.Spectrum;
 
 public class SamplerTest {
@@ -28,6 +34,90 @@ public class SamplerTest {
 				subSamplers.size());
 	}
 
+	@Test
+	public void testGetTile() {
+
+		final Sampler sampler = new SamplerImpl(0, 0, 16, 16, 2, 64);
+		final Sampler tile = sampler.getTile(4, 5, 9, 5);
+
+		assertEquals("Tile min-X not as expected!", 4, tile.getMinFilmX());
+		assertEquals("Tile min-Y not as expected!", 5, tile.getMinFilmY());
+		assertEquals("Tile max-X not as expected!", 9, tile.getMaxFilmX());
+		assertEquals("Tile max-Y not as expected!", 5, tile.getMaxFilmY());
+		assertEquals("Tile total-samples not as expected!", 12, tile.totalSamples());
+		assertEquals("Tile should not pre-generate samples!", 0, tile.getPregenerateBufferSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetTile_outsideDomain() {
+
+		new SamplerImpl(0, 0, 16, 16, 1, 0).getTile(8, 8, 17, 16);
+	}
+
+	@Test
+	public void testGetPixelRandom() {
+
+		final Sampler sampler = new SamplerImpl(0, 0, 16, 16, 1, 0);
+
+		assertEquals("Same pixel should get the same stream!", sampler.getPixelRandom(3, 4).nextLong(),
+				sampler.getPixelRandom(3, 4).nextLong());
+		assertNotEquals("Neighbouring pixels should get different streams!",
+				sampler.getPixelRandom(3, 4).nextLong(), sampler.getPixelRandom(4, 4).nextLong());
+		assertNotEquals("Transposed pixels should get different streams!", sampler.getPixelRandom(3, 4).nextLong(),
+				sampler.getPixelRandom(4, 3).nextLong());
+
+		final long before = sampler.getPixelRandom(3, 4).nextLong();
+		sampler.setSeed(1234L);
+		assertNotEquals("A new seed should give a new stream!", before, sampler.getPixelRandom(3, 4).nextLong());
+
+		for (Sampler subSampler : sampler.getSubSamplers())
+			assertEquals("Sub-Sampler should inherit its parent's seed!", 1234L, subSampler.getSeed());
+		assertEquals("Tile should inherit its parent's seed!", 1234L, sampler.getTile(2, 2, 5, 5).getSeed());
+	}
+
+	@Test
+	public void testPixelReproducible() {
+
+		for (Sampler sampler : Arrays.asList(new SimplePseudorandomSampler(0, 0, 7, 7, 4),
+				new StratifiedSampler(0, 0, 7, 7, 4), new BestCandidateSampler(0, 0, 7, 7, 4),
+				new SobolSampler(0, 0, 7, 7, 4))) {
+
+			sampler.setSeed(99L);
+			final int dimension = sampler.getSampleDimensions().register1D("test", 4);
+
+			final List<double[]> fromWhole = getPixelSamples(sampler, dimension, 4, 5),
+					fromTile = getPixelSamples(sampler.getTile(3, 5, 6, 7), dimension, 4, 5);
+
+			assertEquals("Pixel sample-count not as expected!", 4, fromWhole.size());
+			for (int i = 0; i < fromWhole.size(); i++)
+				assertArrayEquals(sampler.getClass().getSimpleName() + " sample " + i + " not reproduced!",
+						fromWhole.get(i), fromTile.get(i), 0d);
+		}
+	}
+
+	/**
+	 * Collect the Samples the given Sampler generates for the given pixel, each
+	 * as its coordinates followed by the first few draws from its random stream.
+	 */
+	private static List<double[]> getPixelSamples(Sampler sampler, int dimension, int filmX, int filmY) {
+
+		final List<double[]> result = new ArrayList<>();
+
+		Optional<Sample> sample;
+		while (( sample = sampler.getNextSample() ).isPresent()) {
+			final Sample s = sample.get();
+			if (Film.convertContinuousToDiscrete(s.getImageX()) != filmX
+					|| Film.convertContinuousToDiscrete(s.getImageY()) != filmY)
+				continue;
+
+			final SplittableRandom random = s.getRandom();
+			result.add(new double[] { s.getImageX(), s.getImageY(), s.getLensU(), s.getLensV(), s.getT(),
+					s.getNextAdditionalSingleSample(dimension), random.nextDouble(), random.nextDouble() });
+		}
+
+		return result;
+	}
+
 	private static class SamplerImpl extends Sampler {
 
 		public SamplerImpl(int minFilmX, int minFilmY, int maxFilmX, int maxFilmY, int samplesPerPixel,
@@ -0,0 +1,168 @@
+package org.snowjak.rays3.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.film.Film;
+import org.snowjak.rays3.geometry.Point2D;
+
+public class SobolSamplerTest {
+
+	private SobolSampler sampler;
+
+	@Before
+	public void setUp() throws Exception {
+
+		sampler = new SobolSampler(0, 0, 31, 31, 16);
+	}
+
+	@Test
+	public void testSamplesPerPixel() {
+
+		assertEquals("Samples-per-pixel should be rounded up to a power of 2!", 8,
+				new SobolSampler(0, 0, 3, 3, 5).getSamplesPerPixel());
+		assertEquals("Samples-per-pixel should be left alone if already a power of 2!", 16,
+				sampler.getSamplesPerPixel());
+	}
+
+	@Test
+	public void testGetNextSample() {
+
+		final short[][] filmLocations = new short[sampler.getFilmSizeX()][sampler.getFilmSizeY()];
+
+		Sample sample = sampler.getNextSample().orElse(null);
+		assertNotNull("Expected first sample to be other than null!", sample);
+
+		while (sample != null) {
+
+			final int filmX = Film.convertContinuousToDiscrete(sample.getImageX()),
+					filmY = Film.convertContinuousToDiscrete(sample.getImageY());
+			assertTrue("Film-X (" + filmX + ") is not within bounds!",
+					( filmX >= 0 ) && ( filmX < filmLocations.length ));
+			assertTrue("Film-Y (" + filmY + ") is not within bounds!",
+					( filmY >= 0 ) && ( filmY < filmLocations[0].length ));
+
+			filmLocations[filmX][filmY]++;
+
+			assertTrue("Lens-U is out of bounds!", ( sample.getLensU() >= 0d ) && ( sample.getLensU() < 1d ));
+			assertTrue("Lens-V is out of bounds!", ( sample.getLensV() >= 0d ) && ( sample.getLensV() < 1d ));
+			assertTrue("T is out of bounds!", ( sample.getT() >= 0d ) && ( sample.getT() < 1d ));
+
+			sample = sampler.getNextSample().orElse(null);
+		}
+
+		for (int r = 0; r < filmLocations.length; r++)
+			for (int c = 0; c < filmLocations[0].length; c++)
+				assertEquals("Film-location [" + r + ", " + c + "] was not visited the expected number of times!", 16,
+						filmLocations[r][c]);
+	}
+
+	@Test
+	public void testGetSample() {
+
+		final int dimension = sampler.getSampleDimensions().register2D("test", 2);
+
+		Sample sample;
+		while (( sample = sampler.getNextSample().orElse(null) ) != null) {
+
+			final int filmX = Film.convertContinuousToDiscrete(sample.getImageX()),
+					filmY = Film.convertContinuousToDiscrete(sample.getImageY());
+			if (filmX != 7 || filmY != 3)
+				continue;
+
+			//
+			// Sequential samples come out in index order, so the first of
+			// them should match sample 0.
+			final Sample direct = sampler.getSample(7, 3, 0);
+			assertEquals("Image-X not as expected!", direct.getImageX(), sample.getImageX(), 0d);
+			assertEquals("Image-Y not as expected!", direct.getImageY(), sample.getImageY(), 0d);
+			assertEquals("Lens-U not as expected!", direct.getLensU(), sample.getLensU(), 0d);
+			assertEquals("T not as expected!", direct.getT(), sample.getT(), 0d);
+			assertEquals("Additional dimension not as expected!",
+					direct.getNextAdditionalTwinSample(dimension).getY(),
+					sample.getNextAdditionalTwinSample(dimension).getY(), 0d);
+			assertEquals("Random stream not as expected!", direct.getRandom().nextLong(),
+					sample.getRandom().nextLong());
+			return;
+		}
+	}
+
+	@Test
+	public void testStratification() {
+
+		//
+		// Within every pixel, for every dimension, the pixel's 16 samples
+		// should fall one apiece into every elementary interval of area
+		// 1/16.
+		final int dimension = sampler.getSampleDimensions().register2D("test", 4);
+
+		for (int filmX = 0; filmX < 4; filmX++)
+			for (int filmY = 0; filmY < 4; filmY++) {
+
+				final double[][] image = new double[16][], lens = new double[16][], additional = new double[64][];
+				for (int i = 0; i < 16; i++) {
+					final Sample sample = sampler.getSample(filmX, filmY, i);
+					image[i] = new double[] { sample.getImageX() - filmX, sample.getImageY() - filmY };
+					lens[i] = new double[] { sample.getLensU(), sample.getLensV() };
+					for (int j = 0; j < 4; j++) {
+						final Point2D point = sample.getNextAdditionalTwinSample(dimension);
+						additional[4 * i + j] = new double[] { point.getX(), point.getY() };
+					}
+				}
+
+				assertNet("Image-plane samples", image, 4);
+				assertNet("Lens samples", lens, 4);
+				assertNet("Additional-dimension samples", additional, 6);
+			}
+	}
+
+	@Test
+	public void testGetScrambledSobol() {
+
+		//
+		// The first 2^m points of each sequence, in each dimension, should
+		// fall one apiece into each of the 2^m equal divisions of [0, 1).
+		for (int seed = 0; seed < 8; seed++)
+			for (int sobolDimension = 0; sobolDimension < 2; sobolDimension++) {
+				final boolean[] visited = new boolean[32];
+				for (int i = 0; i < 32; i++) {
+					final double value = SobolSampler.getScrambledSobol(i, sobolDimension, seed * 7919);
+					assertTrue("Value out of range!", value >= 0d && value < 1d);
+
+					final int cell = (int) ( value * 32d );
+					assertTrue("Cell " + cell + " visited twice!", !visited[cell]);
+					visited[cell] = true;
+				}
+			}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetSample_negativeIndex() {
+
+		sampler.getSample(0, 0, -1);
+	}
+
+	/**
+	 * Assert that the given 2<sup>m</sup> points form a (0,m,2)-net -- i.e.,
+	 * that every elementary interval of area 2<sup>-m</sup> holds exactly one
+	 * point.
+	 */
+	private static void assertNet(String name, double[][] points, int m) {
+
+		for (int xBits = 0; xBits <= m; xBits++) {
+
+			final int xCells = 1 << xBits, yCells = 1 << ( m - xBits );
+			final boolean[] visited = new boolean[xCells * yCells];
+
+			for (double[] point : points) {
+				final int cell = (int) ( point[0] * xCells ) * yCells + (int) ( point[1] * yCells );
+				assertTrue(name + " do not form a net (" + xCells + "x" + yCells + " intervals)!", !visited[cell]);
+				visited[cell] = true;
+			}
+		}
+	}
+
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.SplittableRandom;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -109,7 +110,7 @@ public class StratifiedSamplerTest {
 	@Test
 	public void testGenerate1DStratum() {
 
-		double[] stratum = StratifiedSampler.generate1DStratum(8);
+		double[] stratum = StratifiedSampler.generate1DStratum(8, new SplittableRandom(42));
 
 		assertEquals("Stratum length not as expected!", 8, stratum.length);
 
@@ -127,7 +128,7 @@ public class StratifiedSamplerTest {
 	@Test
 	public void testGenerate2DStratum() {
 
-		Point2D[][] stratum = StratifiedSampler.generate2DStratum(8);
+		Point2D[][] stratum = StratifiedSampler.generate2DStratum(8, new SplittableRandom(42));
 
 		assertEquals("Stratum length not as expected!", 8, stratum.length);
 		assertEquals("Stratum[0] length not as expected!", 8, stratum[0].length);
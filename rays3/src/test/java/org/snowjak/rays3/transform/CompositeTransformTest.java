@@ -0,0 +1,144 @@
+package org.snowjak.rays3.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays3.geometry.Normal;
+import org.snowjak.rays3.geometry.Point;
+import org.snowjak.rays3.geometry.Ray;
+import org.snowjak.rays3.geometry.Vector;
+import org.snowjak.rays3.geometry.shape.SphereShape;
+
+public class CompositeTransformTest {
+
+	private List<Transform>		transforms;
+	private CompositeTransform	composite;
+
+	@Before
+	public void setUp() throws Exception {
+
+		transforms = Arrays.asList(new TranslationTransform(1d, -2d, 3d), new RotationTransform(Vector.J, 30d),
+				new ScaleTransform(2d, 0.5d, 3d), new RotationTransform(new Vector(1, 1, 0), 45d),
+				new TranslationTransform(-4d, 0.5d, 2d));
+		composite = new CompositeTransform(transforms);
+	}
+
+	@Test
+	public void testPoint() {
+
+		final Point point = new Point(1.5, -2, 7);
+
+		Point expectedLocal = point;
+		for (Transform t : transforms)
+			expectedLocal = t.worldToLocal(expectedLocal);
+		assertPointEquals(expectedLocal, composite.worldToLocal(point));
+
+		Point expectedWorld = point;
+		for (int i = transforms.size() - 1; i >= 0; i--)
+			expectedWorld = transforms.get(i).localToWorld(expectedWorld);
+		assertPointEquals(expectedWorld, composite.localToWorld(point));
+
+		assertPointEquals(point, composite.localToWorld(composite.worldToLocal(point)));
+	}
+
+	@Test
+	public void testVector() {
+
+		final Vector vector = new Vector(-3, 1, 2);
+
+		Vector expectedLocal = vector;
+		for (Transform t : transforms)
+			expectedLocal = t.worldToLocal(expectedLocal);
+		final Vector local = composite.worldToLocal(vector);
+
+		assertEquals("Transformed X is not as expected!", expectedLocal.getX(), local.getX(), 0.00001);
+		assertEquals("Transformed Y is not as expected!", expectedLocal.getY(), local.getY(), 0.00001);
+		assertEquals("Transformed Z is not as expected!", expectedLocal.getZ(), local.getZ(), 0.00001);
+	}
+
+	@Test
+	public void testNormal() {
+
+		final Normal normal = new Normal(0.2, 0.9, -0.4);
+
+		Normal expectedLocal = normal;
+		for (Transform t : transforms)
+			expectedLocal = t.worldToLocal(expectedLocal);
+		final Normal local = composite.worldToLocal(normal);
+
+		assertEquals("Transformed X is not as expected!", expectedLocal.getX(), local.getX(), 0.00001);
+		assertEquals("Transformed Y is not as expected!", expectedLocal.getY(), local.getY(), 0.00001);
+		assertEquals("Transformed Z is not as expected!", expectedLocal.getZ(), local.getZ(), 0.00001);
+
+		Normal expectedWorld = normal;
+		for (int i = transforms.size() - 1; i >= 0; i--)
+			expectedWorld = transforms.get(i).localToWorld(expectedWorld);
+		final Normal world = composite.localToWorld(normal);
+
+		assertEquals("Transformed X is not as expected!", expectedWorld.getX(), world.getX(), 0.00001);
+		assertEquals("Transformed Y is not as expected!", expectedWorld.getY(), world.getY(), 0.00001);
+		assertEquals("Transformed Z is not as expected!", expectedWorld.getZ(), world.getZ(), 0.00001);
+	}
+
+	@Test
+	public void testRay() {
+
+		final Ray ray = new Ray(new Point(1, 2, 3), new Vector(0.3, -1, 0.5), 0, 4d, 0.5d, 10d, 1d);
+
+		Ray expectedLocal = ray;
+		for (Transform t : transforms)
+			expectedLocal = t.worldToLocal(expectedLocal);
+		final Ray local = composite.worldToLocal(ray);
+
+		assertPointEquals(expectedLocal.getOrigin(), local.getOrigin());
+		assertEquals("Transformed direction X is not as expected!", expectedLocal.getDirection().getX(),
+				local.getDirection().getX(), 0.00001);
+		assertEquals("Transformed direction Y is not as expected!", expectedLocal.getDirection().getY(),
+				local.getDirection().getY(), 0.00001);
+		assertEquals("Transformed direction Z is not as expected!", expectedLocal.getDirection().getZ(),
+				local.getDirection().getZ(), 0.00001);
+		assertEquals("Transformed currT is not as expected!", expectedLocal.getCurrT(), local.getCurrT(), 0.00001);
+		assertEquals("Transformed minT is not as expected!", expectedLocal.getMinT(), local.getMinT(), 0.00001);
+		assertEquals("Transformed maxT is not as expected!", expectedLocal.getMaxT(), local.getMaxT(), 0.00001);
+
+		//
+		// The point at currT should be the same point, in either space.
+		final Point worldAtT = new Point(ray.getOrigin().getX() + ray.getDirection().getX() * ray.getCurrT(),
+				ray.getOrigin().getY() + ray.getDirection().getY() * ray.getCurrT(),
+				ray.getOrigin().getZ() + ray.getDirection().getZ() * ray.getCurrT());
+		final Point localAtT = new Point(
+				local.getOrigin().getX() + local.getDirection().getX() * local.getCurrT(),
+				local.getOrigin().getY() + local.getDirection().getY() * local.getCurrT(),
+				local.getOrigin().getZ() + local.getDirection().getZ() * local.getCurrT());
+		assertPointEquals(composite.worldToLocal(worldAtT), localAtT);
+	}
+
+	@Test
+	public void testCaching() {
+
+		final SphereShape sphere = new SphereShape(1d, Arrays.asList(new TranslationTransform(1d, 2d, 3d)));
+
+		final Transform first = sphere.getCompositeTransform();
+		assertSame("Composite Transform should be cached!", first, sphere.getCompositeTransform());
+		assertPointEquals(new Point(0, 0, 0), sphere.worldToLocal(new Point(1, 2, 3)));
+
+		sphere.appendTransform(new ScaleTransform(2d, 2d, 2d));
+		assertNotSame("Composite Transform should be rebuilt after appending!", first,
+				sphere.getCompositeTransform());
+		assertPointEquals(new Point(1, 1, 1), sphere.worldToLocal(new Point(3, 4, 5)));
+	}
+
+	private static void assertPointEquals(Point expected, Point actual) {
+
+		assertEquals("Transformed X is not as expected!", expected.getX(), actual.getX(), 0.00001);
+		assertEquals("Transformed Y is not as expected!", expected.getY(), actual.getY(), 0.00001);
+		assertEquals("Transformed Z is not as expected!", expected.getZ(), actual.getZ(), 0.00001);
+	}
+
+}
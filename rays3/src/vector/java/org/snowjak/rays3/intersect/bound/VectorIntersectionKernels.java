@@ -0,0 +1,180 @@
+package org.snowjak.rays3.intersect.bound;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link IntersectionKernels}, using the incubating
+ * <code>jdk.incubator.vector</code> API.
+ * <p>
+ * Lanes are tested a vector-register's worth at a time. Every lane runs the
+ * whole test (there are no early-outs), with the scalar kernels' branches
+ * becoming lane-wise blends; each lane's result is therefore exactly that of
+ * the scalar kernels, including their handling of NaN slab-distances.
+ * </p>
+ * <p>
+ * Lanes are taken in chunks of the widest vector this CPU prefers, then of
+ * half that width; any lanes left over are handed to the scalar kernels.
+ * (Masking off the unused part of a wider vector would be simpler, but on
+ * current JDKs masked loads and stores measured several times slower than
+ * this.) A 4- or 8-wide group of boxes is therefore tested entirely with
+ * full-width vectors on a machine with 256- or 512-bit registers.
+ * </p>
+ * <p>
+ * This class must be compiled against JDK 16 or later, and is loaded (by
+ * name) only by {@link IntersectionKernels}.
+ * </p>
+ *
+ * @author snowjak88
+ */
+final class VectorIntersectionKernels implements IntersectionKernels.Implementation {
+
+	private static final VectorSpecies<Double>	WIDE	= DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double>	NARROW	= VectorSpecies.of(double.class,
+			VectorShape.forBitSize(Math.max(WIDE.vectorBitSize() / 2, 128)));
+
+	VectorIntersectionKernels() {
+		// Loaded reflectively by IntersectionKernels.
+	}
+
+	@Override
+	public int intersectBoxes(double[] bounds, int offset, int width, double originX, double originY,
+			double originZ, double invDirX, double invDirY, double invDirZ, double minT, double maxT,
+			double[] entryDistances) {
+
+		int hits = 0, lane = 0;
+
+		for (; lane + WIDE.length() <= width; lane += WIDE.length())
+			hits |= intersectBoxes(WIDE, bounds, offset, width, lane, originX, originY, originZ, invDirX, invDirY,
+					invDirZ, minT, maxT, entryDistances);
+
+		if (NARROW.length() < WIDE.length() && lane + NARROW.length() <= width) {
+			hits |= intersectBoxes(NARROW, bounds, offset, width, lane, originX, originY, originZ, invDirX,
+					invDirY, invDirZ, minT, maxT, entryDistances);
+			lane += NARROW.length();
+		}
+
+		if (lane < width)
+			hits |= IntersectionKernels.ScalarImplementation.intersectBoxes(bounds, offset, width, lane, originX,
+					originY, originZ, invDirX, invDirY, invDirZ, minT, maxT, entryDistances);
+
+		return hits;
+	}
+
+	/**
+	 * Test lanes <code>[lane, lane + species.length())</code>.
+	 */
+	private static int intersectBoxes(VectorSpecies<Double> species, double[] bounds, int offset, int width,
+			int lane, double originX, double originY, double originZ, double invDirX, double invDirY,
+			double invDirZ, double minT, double maxT, double[] entryDistances) {
+
+		final int minX = offset + lane, minY = minX + width, minZ = minY + width, maxX = minZ + width,
+				maxY = maxX + width, maxZ = maxY + width;
+		final double padding = AABB.SLAB_PADDING;
+
+		DoubleVector tNear = DoubleVector.broadcast(species, minT), tFar = DoubleVector.broadcast(species, maxT);
+
+		//
+		// As in the scalar kernel, a NaN slab-distance compares false with
+		// everything: it neither triggers the swap nor replaces tNear or tFar.
+		DoubleVector t0, t1, near, far;
+		VectorMask<Double> swap;
+
+		t0 = DoubleVector.fromArray(species, bounds, minX).sub(originX).mul(invDirX);
+		t1 = DoubleVector.fromArray(species, bounds, maxX).sub(originX).mul(invDirX);
+		swap = t0.compare(VectorOperators.GT, t1);
+		near = t0.blend(t1, swap);
+		far = t1.blend(t0, swap).mul(padding);
+		tNear = tNear.blend(near, near.compare(VectorOperators.GT, tNear));
+		tFar = tFar.blend(far, far.compare(VectorOperators.LT, tFar));
+
+		t0 = DoubleVector.fromArray(species, bounds, minY).sub(originY).mul(invDirY);
+		t1 = DoubleVector.fromArray(species, bounds, maxY).sub(originY).mul(invDirY);
+		swap = t0.compare(VectorOperators.GT, t1);
+		near = t0.blend(t1, swap);
+		far = t1.blend(t0, swap).mul(padding);
+		tNear = tNear.blend(near, near.compare(VectorOperators.GT, tNear));
+		tFar = tFar.blend(far, far.compare(VectorOperators.LT, tFar));
+
+		t0 = DoubleVector.fromArray(species, bounds, minZ).sub(originZ).mul(invDirZ);
+		t1 = DoubleVector.fromArray(species, bounds, maxZ).sub(originZ).mul(invDirZ);
+		swap = t0.compare(VectorOperators.GT, t1);
+		near = t0.blend(t1, swap);
+		far = t1.blend(t0, swap).mul(padding);
+		tNear = tNear.blend(near, near.compare(VectorOperators.GT, tNear));
+		tFar = tFar.blend(far, far.compare(VectorOperators.LT, tFar));
+
+		//
+		// tNear only ever grows, and tFar only ever shrinks, so a lane which
+		// the scalar kernel would have abandoned part-way still ends with
+		// tNear > tFar.
+		final VectorMask<Double> hit = tNear.compare(VectorOperators.GT, tFar).not();
+
+		//
+		// Distances for missed lanes are undefined, so every lane may be
+		// written.
+		tNear.intoArray(entryDistances, lane);
+		return (int) hit.toLong() << lane;
+	}
+
+	@Override
+	public int intersectSpheres(double[] spheres, int offset, int count, double originX, double originY,
+			double originZ, double dirX, double dirY, double dirZ, double minT, double maxT, double[] distances) {
+
+		int hits = 0, lane = 0;
+
+		for (; lane + WIDE.length() <= count; lane += WIDE.length())
+			hits |= intersectSpheres(WIDE, spheres, offset, count, lane, originX, originY, originZ, dirX, dirY,
+					dirZ, minT, maxT, distances);
+
+		if (NARROW.length() < WIDE.length() && lane + NARROW.length() <= count) {
+			hits |= intersectSpheres(NARROW, spheres, offset, count, lane, originX, originY, originZ, dirX, dirY,
+					dirZ, minT, maxT, distances);
+			lane += NARROW.length();
+		}
+
+		if (lane < count)
+			hits |= IntersectionKernels.ScalarImplementation.intersectSpheres(spheres, offset, count, lane,
+					originX, originY, originZ, dirX, dirY, dirZ, minT, maxT, distances);
+
+		return hits;
+	}
+
+	/**
+	 * Test lanes <code>[lane, lane + species.length())</code>.
+	 */
+	private static int intersectSpheres(VectorSpecies<Double> species, double[] spheres, int offset, int count,
+			int lane, double originX, double originY, double originZ, double dirX, double dirY, double dirZ,
+			double minT, double maxT, double[] distances) {
+
+		final int centerX = offset + lane, centerY = centerX + count, centerZ = centerY + count,
+				radius2 = centerZ + count;
+
+		final DoubleVector lx = DoubleVector.fromArray(species, spheres, centerX).sub(originX),
+				ly = DoubleVector.fromArray(species, spheres, centerY).sub(originY),
+				lz = DoubleVector.fromArray(species, spheres, centerZ).sub(originZ);
+
+		final DoubleVector t_ca = lx.mul(dirX).add(ly.mul(dirY)).add(lz.mul(dirZ));
+		final DoubleVector t_hc2 = DoubleVector.fromArray(species, spheres, radius2)
+				.sub(lx.mul(lx).add(ly.mul(ly)).add(lz.mul(lz)).sub(t_ca.mul(t_ca)));
+
+		final DoubleVector t_hc = t_hc2.sqrt();
+		final DoubleVector near = t_ca.sub(t_hc), far = t_ca.add(t_hc);
+		final DoubleVector t = far.blend(near, near.compare(VectorOperators.GT, minT));
+
+		//
+		// Written as a negation, so that NaNs are treated as the scalar kernel
+		// treats them.
+		final VectorMask<Double> hit = t_hc2.compare(VectorOperators.LT, 0d)
+				.or(t.compare(VectorOperators.LE, minT))
+				.or(t.compare(VectorOperators.GE, maxT))
+				.not();
+
+		t.intoArray(distances, lane);
+		return (int) hit.toLong() << lane;
+	}
+
+}